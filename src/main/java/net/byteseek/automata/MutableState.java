@@ -411,7 +411,7 @@ public class MutableState<T> implements State<T> {
 	 * to make using the method easier.
 	 *
 	 * @param oldToNewObjects A map of the original objects to their new deep copies.
-	 * @return MutableState A deep copy of this MutableState and any Transitions and States
+	 * @return MutableState A deep copy of this MutableState, its associations, and any Transitions and States
 	 *         reachable from this State.
 	 */
 	@Override
@@ -422,9 +422,12 @@ public class MutableState<T> implements State<T> {
 		if (stateCopy == null) {
 			stateCopy = new MutableState<T>(this.isFinal);
 			oldToNewObjects.put(this, stateCopy);
+			if (!associations.isEmpty()) {
+				stateCopy.associations = new ArrayList<T>(associations);
+			}
 			for (Transition<T> transition : transitions) {
 				final Transition<T> transitionCopy = transition.deepCopy(oldToNewObjects);
-				stateCopy.transitions.add(transitionCopy);
+				stateCopy.addTransition(transitionCopy);
 			}
 		}
 		return stateCopy;
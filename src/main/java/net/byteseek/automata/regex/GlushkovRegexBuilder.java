@@ -230,7 +230,8 @@ public final class GlushkovRegexBuilder<T, S> implements RegexBuilder<T, S> {
 	 *                Z
 	 * }</pre><p>
 	 *
-	 * The initial state is final if any of the alternate initial states were final.
+	 * The initial state is final if any of the alternate initial states were final,
+	 * and takes on the associations of any final alternate initial states.
 	 *
 	 * @param alternateAutomata A list of alternative automata, wrapped in an object giving the initial and final states of the automata.
 	 * @return An object holding the initial and final states of the alternative automata.
@@ -243,7 +244,10 @@ public final class GlushkovRegexBuilder<T, S> implements RegexBuilder<T, S> {
 		for (int automataIndex = 1, stop = alternateAutomata.size(); automataIndex < stop; automataIndex++) {
 			final Automata<T> nextAutomata = alternateAutomata.get(automataIndex);
 			final State<T> nextInitialState = nextAutomata.getInitialState();
-			isFinal |= nextInitialState.isFinal();
+			if (nextInitialState.isFinal()) {
+				isFinal = true;
+				initialState.addAllAssociations(nextInitialState.getAssociations());
+			}
 			initialState.addAllTransitions(nextInitialState.iterator());
 		}
 		initialState.setIsFinal(isFinal);
@@ -0,0 +1,229 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.compiler.matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.compiler.AbstractCompiler;
+import net.byteseek.compiler.CompileException;
+import net.byteseek.matcher.fragment.FragmentChainMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.parser.ParseException;
+import net.byteseek.parser.Parser;
+import net.byteseek.parser.regex.RegexParser;
+import net.byteseek.parser.tree.ParseTree;
+import net.byteseek.parser.tree.ParseTreeType;
+import net.byteseek.parser.tree.ParseTreeUtils;
+import net.byteseek.parser.tree.node.ChildrenNode;
+
+/**
+ * A compiler which produces a {@link FragmentChainMatcher} from an
+ * abstract syntax tree provided by a {@link Parser}.
+ * <p>
+ * It splits a sequence into fixed-length fragments wherever a variable length
+ * gap of any bytes appears, e.g. <code>'PK' .{26,30} 'mimetype'</code>.
+ * Each fragment is compiled by a {@link SequenceMatcherCompiler}, so fragments can contain
+ * any syntax that compiler can process, including fixed length gaps .{n}.
+ * Fragments which consist only of any bytes are merged into the gaps either side of them,
+ * and adjacent gaps are added together.
+ * <p>
+ * An expression must begin and end with a fragment which is not only any bytes, as the
+ * start and end of a match would otherwise be undefined.  Alternatives, optionality and
+ * unbounded repeats are not supported.
+ *
+ * @author Matt Palmer
+ */
+public final class FragmentChainCompiler extends AbstractCompiler<FragmentChainMatcher, ParseTree> {
+
+    private static FragmentChainCompiler defaultCompiler;
+
+    /**
+     * Compiles a FragmentChainMatcher from a byteSeek regular expression, using the
+     * default {@link SequenceMatcherCompiler} to compile the fragments and a {@link RegexParser}
+     * to parse the expression into an abstract syntax tree.
+     *
+     * @param expression The regular expression to compile.
+     * @return A FragmentChainMatcher matching the regular expression.
+     * @throws CompileException If the expression could not be compiled into a FragmentChainMatcher.
+     */
+    public static FragmentChainMatcher compileFrom(final String expression) throws CompileException {
+        defaultCompiler = new FragmentChainCompiler();
+        return defaultCompiler.compile(expression);
+    }
+
+    private final SequenceMatcherCompiler fragmentCompiler;
+
+
+    /**
+     * Default constructor which uses a {@link RegexParser} to produce the abstract syntax tree,
+     * and a default {@link SequenceMatcherCompiler} to compile the fragments.
+     */
+    public FragmentChainCompiler() {
+        this(null, null);
+    }
+
+
+    /**
+     * Constructor which uses the provided {@link Parser} to produce the abstract syntax tree,
+     * and the provided {@link SequenceMatcherCompiler} to compile the fragments.
+     * <p>
+     * If the parser is null, then a {@link RegexParser} will be used.  If the fragment compiler
+     * is null, then a default SequenceMatcherCompiler will be used.
+     *
+     * @param parser           The parser to use to produce the abstract syntax tree.
+     * @param fragmentCompiler The compiler to use to compile the fragments.
+     */
+    public FragmentChainCompiler(final Parser<ParseTree> parser,
+                                 final SequenceMatcherCompiler fragmentCompiler) {
+        super(parser == null ? new RegexParser() : parser);
+        this.fragmentCompiler = fragmentCompiler != null ?
+                                fragmentCompiler : new SequenceMatcherCompiler();
+    }
+
+
+    @Override
+    protected FragmentChainMatcher doCompile(final ParseTree ast) throws ParseException {
+        final ChainBuilder chain = new ChainBuilder();
+        addElement(ast, chain);
+        return chain.build();
+    }
+
+
+    @Override
+    protected ParseTree joinExpressions(final List<ParseTree> expressions) throws ParseException, CompileException {
+        return new ChildrenNode(ParseTreeType.SEQUENCE, expressions, SequenceMatcherCompiler.NOT_YET_INVERTED);
+    }
+
+
+    private void addElement(final ParseTree node, final ChainBuilder chain) throws ParseException {
+        switch (node.getParseTreeType()) {
+            case SEQUENCE: {
+                for (final ParseTree child : node) {
+                    addElement(child, chain);
+                }
+                break;
+            }
+            case REPEAT_MIN_TO_MAX: {
+                if (ParseTreeUtils.getLastChild(node).getParseTreeType() == ParseTreeType.ANY) {
+                    // A variable gap can have a minimum of zero, which the repeat value utilities reject.
+                    chain.addGap(node.getChild(0).getIntValue(), node.getChild(1).getIntValue());
+                } else {
+                    chain.addFragmentNode(node);
+                }
+                break;
+            }
+            default: chain.addFragmentNode(node);
+        }
+    }
+
+
+    /**
+     * Accumulates fragments and gaps in the order they appear in the expression.
+     */
+    private final class ChainBuilder {
+
+        private final List<SequenceMatcher> fragments   = new ArrayList<SequenceMatcher>();
+        private final List<Integer>         minimumGaps = new ArrayList<Integer>();
+        private final List<Integer>         maximumGaps = new ArrayList<Integer>();
+        private final List<ParseTree>       fragmentNodes = new ArrayList<ParseTree>();
+        private int minimumGap;
+        private int maximumGap;
+
+        private void addFragmentNode(final ParseTree node) {
+            fragmentNodes.add(node);
+        }
+
+        private void addGap(final int minimum, final int maximum) throws ParseException {
+            addFragment();
+            minimumGap += minimum;
+            maximumGap += maximum;
+        }
+
+        private void addFragment() throws ParseException {
+            if (!fragmentNodes.isEmpty()) {
+                final SequenceMatcher fragment = fragmentCompiler.doCompile(
+                        new ChildrenNode(ParseTreeType.SEQUENCE, new ArrayList<ParseTree>(fragmentNodes)));
+                fragmentNodes.clear();
+                if (matchesAnyBytes(fragment)) {
+                    minimumGap += fragment.length();
+                    maximumGap += fragment.length();
+                } else {
+                    if (fragments.isEmpty()) {
+                        checkNoGap("A fragment chain cannot begin with a gap");
+                    } else {
+                        minimumGaps.add(minimumGap);
+                        maximumGaps.add(maximumGap);
+                    }
+                    fragments.add(fragment);
+                    minimumGap = 0;
+                    maximumGap = 0;
+                }
+            }
+        }
+
+        private FragmentChainMatcher build() throws ParseException {
+            addFragment();
+            if (fragments.isEmpty()) {
+                throw new ParseException("A fragment chain must contain at least one fragment which is not only any bytes.");
+            }
+            checkNoGap("A fragment chain cannot end with a gap");
+            return new FragmentChainMatcher(fragments, toArray(minimumGaps), toArray(maximumGaps));
+        }
+
+        private void checkNoGap(final String message) throws ParseException {
+            if (maximumGap > 0) {
+                throw new ParseException(message + ": {" + minimumGap + ',' + maximumGap + '}');
+            }
+        }
+    }
+
+
+    private static boolean matchesAnyBytes(final SequenceMatcher fragment) {
+        for (int position = 0; position < fragment.length(); position++) {
+            if (fragment.getMatcherForPosition(position).getNumberOfMatchingBytes() < 256) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int[] toArray(final List<Integer> values) {
+        final int[] array = new int[values.size()];
+        for (int index = 0; index < array.length; index++) {
+            array[index] = values.get(index);
+        }
+        return array;
+    }
+
+}
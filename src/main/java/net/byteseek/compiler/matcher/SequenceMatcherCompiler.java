@@ -40,6 +40,7 @@ import net.byteseek.compiler.Optimiser;
 import net.byteseek.matcher.bytes.ByteMatcherFactory;
 import net.byteseek.matcher.bytes.OptimalByteMatcherFactory;
 import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.CaseInsensitiveSequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceSequenceMatcher;
 import net.byteseek.parser.ParseException;
@@ -62,6 +63,8 @@ import net.byteseek.parser.tree.node.ChildrenNode;
  * This means that it *cannot* handle alternatives (X|Y|Z),
  * optionality X?, variable length repeats {n-m}, 
  * and the wildcard repeats * and +.  It can handle fixed length repeats {n}.  
+ * Sequences separated by variable length gaps of any bytes .{n,m} can be compiled
+ * by a {@link FragmentChainCompiler}.
  * 
  * @author Matt Palmer
  */
@@ -282,7 +285,7 @@ public class SequenceMatcherCompiler extends AbstractCompiler<SequenceMatcher, P
     private void addCaseInsensitiveStringMatcher(final ParseTree ast,
                                                  final List<SequenceMatcher> sequenceList)
         throws ParseException {
-      sequenceList.add(MatcherCompilerUtils.createCaseInsensitiveMatcher(ast.getTextValue()));
+      sequenceList.add(new CaseInsensitiveSequenceMatcher(ast.getTextValue()));
     }
 
     private void addStringMatcher(final ParseTree ast,
@@ -82,6 +82,12 @@ public class SequenceMatcherOptimiser implements Optimiser<SequenceMatcher> {
 			return new ByteSequenceMatcher(toOptimise);
 		}
 
+		// If every position matches a single byte which is not a letter, or both cases of an ASCII letter,
+		// we can replace this with a case insensitive matcher, which folds the case of the bytes it reads.
+		if (isCaseInsensitive(toOptimise)) {
+			return new CaseInsensitiveSequenceMatcher(getFirstMatchingBytes(toOptimise));
+		}
+
 		// Find the total consecutive matchers which match all bytes (values = 256)
 		final int consecutiveAny = countConsecutiveMatchersWithNumBytes(toOptimise, 256);
 
@@ -173,6 +179,26 @@ public class SequenceMatcherOptimiser implements Optimiser<SequenceMatcher> {
 	}
 
 
+	private boolean isCaseInsensitive(final SequenceMatcher toAnalyse) {
+		for (final ByteMatcher matcher : toAnalyse) {
+			if (!CaseInsensitiveSequenceMatcher.isCaseInsensitive(matcher)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private byte[] getFirstMatchingBytes(final SequenceMatcher toAnalyse) {
+		final int length = toAnalyse.length();
+		final byte[] bytes = new byte[length];
+		for (int position = 0; position < length; position++) {
+			bytes[position] = toAnalyse.getMatcherForPosition(position).getMatchingBytes()[0];
+		}
+		return bytes;
+	}
+
+
 	private int countConsecutiveMatchersWithNumBytes(final SequenceMatcher toAnalyse, final int valuesToFind) {
 		final int length = toAnalyse.length();
 
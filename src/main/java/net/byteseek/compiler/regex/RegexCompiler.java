@@ -36,6 +36,7 @@ import java.util.Collection;
 import java.util.List;
 
 import net.byteseek.automata.Automata;
+import net.byteseek.automata.State;
 import net.byteseek.automata.regex.GlushkovRegexBuilder;
 import net.byteseek.automata.regex.RegexBuilder;
 import net.byteseek.compiler.AbstractCompiler;
@@ -48,6 +49,7 @@ import net.byteseek.parser.tree.ParseTreeType;
 import net.byteseek.parser.tree.ParseTreeUtils;
 import net.byteseek.parser.tree.node.ByteNode;
 import net.byteseek.parser.tree.node.ChildrenNode;
+import net.byteseek.utils.ArgUtils;
 
 /**
  * A compiler which produces Non-deterministic Finite-state Automata (NFA)
@@ -57,17 +59,16 @@ import net.byteseek.parser.tree.node.ChildrenNode;
  * produced by the {@link Parser} and uses it to direct the construction of an NFA 
  * using a {@link RegexBuilder}, which knows how to build automata for various types
  * of AST tree node.
+ * <p>
+ * The final states of an automata can be associated with an object, such as an identifier
+ * for the expression, by compiling with {@link #compile(String, Object)}.  Several expressions
+ * can be compiled into a single automata with {@link #compile(List, List)}, in which case the
+ * final states reached by each expression are associated with the object given for that
+ * expression, so a match reports which of the expressions matched.
  * 
  * @param <T> The type of object which a match of the regular expression should return.
  * @author Matt Palmer
  */
-//FIXME: the final automata states need to be associated with some objects passed in.
-//       If compiling from a string expression, then associate final states with the string expression?
-//       If compiling from an abstract syntax tree, then associate final states with what?  The current AST node?  The root AST node?
-//       Should allow association with arbitrary objects associated with the expression itself?  Would require changes to the compiler
-//       interface itself, or the passing in of a wrapped String-Association object...
-//       If compiling from a collection of string expressions, then we also need to associate different final states correctly with different
-//       expressions.
 public final class RegexCompiler<T> extends AbstractCompiler<Automata<T>, ParseTree> {
 
     private static final boolean NOT_YET_INVERTED = false;
@@ -140,6 +141,57 @@ public final class RegexCompiler<T> extends AbstractCompiler<Automata<T>, ParseT
         return regexBuilder.buildAlternativesAutomata(automataList);
     }
 
+    /**
+     * Compiles an expression into an automata, associating all of its final states
+     * with the object given.
+     *
+     * @param expression  The expression to compile.
+     * @param association The object to associate with the final states of the automata.
+     * @return An automata matching the expression, whose final states are associated with the object.
+     * @throws CompileException If the expression could not be compiled.
+     */
+    public Automata<T> compile(final String expression, final T association) throws CompileException {
+        return associateFinalStates(compile(expression), association);
+    }
+
+
+    /**
+     * Compiles an abstract syntax tree into an automata, associating all of its final states
+     * with the object given.
+     *
+     * @param ast         The abstract syntax tree to compile.
+     * @param association The object to associate with the final states of the automata.
+     * @return An automata matching the syntax tree, whose final states are associated with the object.
+     * @throws CompileException If the syntax tree could not be compiled.
+     */
+    public Automata<T> compile(final ParseTree ast, final T association) throws CompileException {
+        return associateFinalStates(compile(ast), association);
+    }
+
+
+    /**
+     * Compiles a list of expressions into a single automata matching any of them.  The final
+     * states of each expression are associated with the object at the same index in the list
+     * of associations.
+     *
+     * @param expressions  The expressions to compile.
+     * @param associations The objects to associate with the final states of each expression.
+     * @return An automata matching any of the expressions.
+     * @throws CompileException If any of the expressions could not be compiled.
+     * @throws IllegalArgumentException if the lists are null, empty, or have different sizes.
+     */
+    public Automata<T> compile(final List<String> expressions, final List<? extends T> associations)
+            throws CompileException {
+        ArgUtils.checkNullOrEmptyCollection(expressions, "expressions");
+        ArgUtils.checkCollectionSize(associations, expressions.size());
+        final List<Automata<T>> automataList = new ArrayList<Automata<T>>(expressions.size());
+        for (int index = 0; index < expressions.size(); index++) {
+            automataList.add(compile(expressions.get(index), associations.get(index)));
+        }
+        return regexBuilder.buildAlternativesAutomata(automataList);
+    }
+
+
     @Override
     protected Automata<T> doCompile(final ParseTree ast) throws CompileException, ParseException {
         switch (ast.getParseTreeType()) {
@@ -281,6 +333,14 @@ public final class RegexCompiler<T> extends AbstractCompiler<Automata<T>, ParseT
     }
 
     
+    private Automata<T> associateFinalStates(final Automata<T> automata, final T association) {
+        for (final State<T> finalState : automata.getFinalStates()) {
+            finalState.addAssociation(association);
+        }
+        return automata;
+    }
+
+
     private String getTypeErrorMessage(final ParseTree ast) {
         final ParseTreeType type = ast.getParseTreeType();
         return String.format("Unknown parse tree type %s", type);
@@ -32,12 +32,15 @@
 package net.byteseek.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A static utility package containing some useful methods for reading and
- * writing bytes using InputStreams, OutputStreams, and RandomAccessFiles.
+ * writing bytes using InputStreams, OutputStreams, RandomAccessFiles and FileChannels.
  * 
  * @author M\tt Palmer
  */
@@ -239,6 +242,76 @@ public final class IOUtils {
 		output.write(bytes);
 	}
 
+	/**
+	 * Reads bytes from a {@link java.nio.channels.FileChannel} into the remaining
+	 * space in a {@link java.nio.ByteBuffer}, starting from the position provided
+	 * in the FileChannel, until the buffer is filled or there are no more bytes in
+	 * the FileChannel. The position of the FileChannel itself is not changed.
+	 * <p>
+	 * Returns the total number of bytes read into the buffer.
+	 *
+	 * @param input
+	 *            The FileChannel to read from.
+	 * @param buffer
+	 *            The ByteBuffer to fill.
+	 * @param fromPosition
+	 *            The position to begin reading from in the FileChannel.
+	 * @return int The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the FileChannel.
+	 */
+	public static int readBytes(final FileChannel input, final ByteBuffer buffer,
+			final long fromPosition) throws IOException {
+		int totalRead = 0;
+		while (buffer.hasRemaining()) {
+			final int read = input.read(buffer, fromPosition + totalRead);
+			if (read == -1) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
+	/**
+	 * Writes the remaining bytes in a {@link java.nio.ByteBuffer} into a
+	 * {@link java.nio.channels.FileChannel} at the position provided.
+	 * The position of the FileChannel itself is not changed.
+	 *
+	 * @param output
+	 *            The FileChannel to write the bytes into.
+	 * @param buffer
+	 *            The ByteBuffer containing the bytes to write.
+	 * @param atPosition
+	 *            The position to write the bytes into.
+	 * @throws IOException
+	 *             If a problem occurs writing the bytes into the FileChannel.
+	 */
+	public static void writeBytes(final FileChannel output, final ByteBuffer buffer,
+			final long atPosition) throws IOException {
+		long position = atPosition;
+		while (buffer.hasRemaining()) {
+			position += output.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Writes the remaining bytes in a {@link java.nio.ByteBuffer} into a
+	 * {@link java.nio.channels.WritableByteChannel}, until all of them have been written.
+	 *
+	 * @param output
+	 *            The WritableByteChannel to write the bytes into.
+	 * @param buffer
+	 *            The ByteBuffer containing the bytes to write.
+	 * @throws IOException
+	 *             If a problem occurs writing the bytes into the channel.
+	 */
+	public static void writeBytes(final WritableByteChannel output, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			output.write(buffer);
+		}
+	}
+
 	/**
 	 * Creates a temporary file in the default temporary file area, with the
 	 * filename prefix "byteseek" and a filename extension of ".tmp".
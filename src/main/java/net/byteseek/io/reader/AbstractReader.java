@@ -31,13 +31,19 @@
 
 package net.byteseek.io.reader;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.cache.WindowCache;
 import net.byteseek.io.reader.windows.Window;
 import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.ByteUtils;
 
 //FUTURE:
 //      * If windowSize is a power of two, could use bit masking to get the
@@ -98,6 +104,12 @@ public abstract class AbstractReader implements WindowReader {
 	 */
 	private Window lastWindow;
 
+	/**
+	 * A buffer used to stitch together the bytes of a primitive value which
+	 * crosses a Window boundary.
+	 */
+	private final byte[] valueBuffer = new byte[8];
+
 	/**
 	 * Construct the WindowReader using a default window size, using the WindowCache
 	 * provided.
@@ -149,6 +161,130 @@ public abstract class AbstractReader implements WindowReader {
 		return window.getByte(offset) & 0xFF;
 	}
 
+	/**
+	 * Reads bytes from a given position into a byte array, by copying from each
+	 * Window which contains the bytes requested in turn.
+	 * 
+	 * @param position
+	 *            The position of the first byte to read.
+	 * @param bytes
+	 *            The byte array to copy the bytes into.
+	 * @param offset
+	 *            The offset in the byte array to begin copying bytes into.
+	 * @param length
+	 *            The maximum number of bytes to read.
+	 * @return The number of bytes read, which can be less than the length
+	 *         requested if the end of the reader is reached, or -1 if there is
+	 *         no byte at the position given.
+	 * @throws IOException
+	 *             if an error occurs reading the bytes.
+	 * @throws IndexOutOfBoundsException
+	 *             if the offset or length are negative, or the length is
+	 *             greater than the space remaining in the byte array.
+	 */
+	@Override
+	public int read(final long position, final byte[] bytes, final int offset, final int length) throws IOException {
+		checkReadBounds(bytes, offset, length);
+		if (length == 0) {
+			return 0;
+		}
+		long readPos = position;
+		int copied = 0;
+		while (copied < length) {
+			final Window window = getWindow(readPos);
+			if (window == null) {
+				break;
+			}
+			final int windowOffset = (int) (readPos - window.getWindowPosition());
+			final int available = window.length() - windowOffset;
+			final int remaining = length - copied;
+			final int toCopy = available < remaining ? available : remaining;
+			System.arraycopy(window.getArray(), windowOffset, bytes, offset + copied, toCopy);
+			copied += toCopy;
+			readPos += toCopy;
+		}
+		return copied == 0 ? NO_BYTE_AT_POSITION : copied;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public short readShort(final long position, final ByteOrder byteOrder) throws IOException {
+		return (short) readValue(position, 2, byteOrder);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readUnsignedShort(final long position, final ByteOrder byteOrder) throws IOException {
+		return (int) readValue(position, 2, byteOrder);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readInt(final long position, final ByteOrder byteOrder) throws IOException {
+		return (int) readValue(position, 4, byteOrder);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readUnsignedInt(final long position, final ByteOrder byteOrder) throws IOException {
+		return readValue(position, 4, byteOrder);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readLong(final long position, final ByteOrder byteOrder) throws IOException {
+		return readValue(position, 8, byteOrder);
+	}
+
+	/**
+	 * Writes bytes from a given position to a {@link java.nio.channels.WritableByteChannel},
+	 * by writing directly from the byte array of each Window which contains the
+	 * bytes requested in turn.
+	 * 
+	 * @param position
+	 *            The position of the first byte to transfer.
+	 * @param count
+	 *            The maximum number of bytes to transfer.
+	 * @param target
+	 *            The channel to write the bytes to.
+	 * @return The number of bytes transferred, which can be less than the
+	 *         count if the end of the reader is reached.
+	 * @throws IOException
+	 *             if an error occurs reading or writing the bytes.
+	 * @throws IllegalArgumentException
+	 *             if the target channel is null.
+	 */
+	@Override
+	public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+		ArgUtils.checkNullObject(target, "target");
+		long readPos = position;
+		long transferred = 0;
+		while (transferred < count) {
+			final Window window = getWindow(readPos);
+			if (window == null) {
+				break;
+			}
+			final int windowOffset = (int) (readPos - window.getWindowPosition());
+			final int available = window.length() - windowOffset;
+			final long remaining = count - transferred;
+			final int toWrite = available < remaining ? available : (int) remaining;
+			IOUtils.writeBytes(target, ByteBuffer.wrap(window.getArray(), windowOffset, toWrite));
+			transferred += toWrite;
+			readPos += toWrite;
+		}
+		return transferred;
+	}
+
 	/**
 	 * Returns a window onto the data for a given position. The position does
 	 * not have to be the beginning of a Window - but the Window returned must
@@ -219,6 +355,107 @@ public abstract class AbstractReader implements WindowReader {
 		return (int) (position % (long) windowSize);
 	}
 
+	/**
+	 * Reads bytes from a byte array which backs an entire reader into another
+	 * byte array, for readers which can provide the bytes without using Windows.
+	 * 
+	 * @param source
+	 *            The byte array backing the reader.
+	 * @param position
+	 *            The position of the first byte to read.
+	 * @param bytes
+	 *            The byte array to copy the bytes into.
+	 * @param offset
+	 *            The offset in the byte array to begin copying bytes into.
+	 * @param length
+	 *            The maximum number of bytes to read.
+	 * @return The number of bytes read, or -1 if there is no byte at the position given.
+	 * @throws IndexOutOfBoundsException
+	 *             if the offset or length are negative, or the length is
+	 *             greater than the space remaining in the byte array.
+	 */
+	protected static int readArray(final byte[] source, final long position,
+								   final byte[] bytes, final int offset, final int length) {
+		checkReadBounds(bytes, offset, length);
+		if (length == 0) {
+			return 0;
+		}
+		if (position < 0 || position >= source.length) {
+			return NO_BYTE_AT_POSITION;
+		}
+		final int available = source.length - (int) position;
+		final int toCopy = available < length ? available : length;
+		System.arraycopy(source, (int) position, bytes, offset, toCopy);
+		return toCopy;
+	}
+
+	/**
+	 * Writes bytes from a byte array which backs an entire reader to a
+	 * {@link java.nio.channels.WritableByteChannel} in a single transfer,
+	 * for readers which can provide the bytes without using Windows.
+	 * 
+	 * @param source
+	 *            The byte array backing the reader.
+	 * @param position
+	 *            The position of the first byte to transfer.
+	 * @param count
+	 *            The maximum number of bytes to transfer.
+	 * @param target
+	 *            The channel to write the bytes to.
+	 * @return The number of bytes transferred.
+	 * @throws IOException
+	 *             if an error occurs writing the bytes.
+	 * @throws IllegalArgumentException
+	 *             if the target channel is null.
+	 */
+	protected static long transferArray(final byte[] source, final long position, final long count,
+										final WritableByteChannel target) throws IOException {
+		ArgUtils.checkNullObject(target, "target");
+		if (count <= 0 || position < 0 || position >= source.length) {
+			return 0;
+		}
+		final int available = source.length - (int) position;
+		final int toWrite = available < count ? available : (int) count;
+		IOUtils.writeBytes(target, ByteBuffer.wrap(source, (int) position, toWrite));
+		return toWrite;
+	}
+
+	/**
+	 * Reads an unsigned value of the number of bytes given from a position.  If the value lies
+	 * entirely within a single Window, the bytes are assembled directly from the Window array.
+	 * If it crosses a Window boundary, the bytes are first stitched together into a value buffer.
+	 *
+	 * @param position The position of the first byte of the value.
+	 * @param numBytes The number of bytes in the value, from one to eight.
+	 * @param byteOrder The order of the bytes in the value.
+	 * @return The unsigned value of the bytes in the order given.
+	 * @throws EOFException if there are insufficient bytes available for the value.
+	 * @throws IOException if there was a problem reading the bytes.
+	 */
+	private long readValue(final long position, final int numBytes, final ByteOrder byteOrder) throws IOException {
+		final Window window = getWindow(position);
+		if (window != null) {
+			final int windowOffset = (int) (position - window.getWindowPosition());
+			if (windowOffset + numBytes <= window.length()) {
+				return ByteUtils.getUnsignedValue(window.getArray(), windowOffset, numBytes, byteOrder);
+			}
+			if (read(position, valueBuffer, 0, numBytes) == numBytes) {
+				return ByteUtils.getUnsignedValue(valueBuffer, 0, numBytes, byteOrder);
+			}
+		}
+		throw new EOFException(String.format("Fewer than %d bytes available at position %d", numBytes, position));
+	}
+
+	private static void checkReadBounds(final byte[] bytes, final int offset, final int length) {
+		if (bytes == null) {
+			throw new NullPointerException("The byte array to read into cannot be null.");
+		}
+		if (offset < 0 || length < 0 || length > bytes.length - offset) {
+			throw new IndexOutOfBoundsException(String.format(
+					"Offset %d and length %d are not valid for array of length %d", offset, length, bytes.length));
+		}
+	}
+
 	/**
 	 * An abstract method which must create a {@link Window} for the position
 	 * given. Returns null if a Window cannot be provided for the position
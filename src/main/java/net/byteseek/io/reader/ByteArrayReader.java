@@ -31,6 +31,7 @@
 package net.byteseek.io.reader;
 
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 
 import net.byteseek.io.reader.cache.NoCache;
 import net.byteseek.io.reader.windows.HardWindow;
@@ -93,6 +94,26 @@ public class ByteArrayReader extends AbstractReader {
 		return bytes.length;
 	}
 
+	/**
+	 * Reads bytes directly from the byte array backing this reader, without using any Windows.
+	 * <p>
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final long position, final byte[] readInto, final int offset, final int length) {
+		return readArray(bytes, position, readInto, offset, length);
+	}
+
+	/**
+	 * Writes bytes directly from the byte array backing this reader in a single transfer.
+	 * <p>
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+		return transferArray(bytes, position, count, target);
+	}
+
 	/**
 	 * Returns the byte array backing this ByteArrayReader.
 	 * <p>
@@ -36,6 +36,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
@@ -53,6 +56,12 @@ import net.byteseek.utils.ArgUtils;
  * garbage collector may have re-claimed their array under low memory conditions
  * previously).
  * <p>
+ * Backward prefetch can be enabled with {@link #useBackwardPrefetch(int)}.  When Windows
+ * are requested in descending order, or the last Window of the file is requested,
+ * the reader then reads several Windows before the one requested in a single larger read
+ * which ends with the requested Window, and caches them.  This suits backward searches,
+ * which start at the end of the file and work back towards the start.
+ * <p>
  * This class (like the underlying RandomAccessFile) is not thread-safe.
  * 
  * @author matt
@@ -65,6 +74,8 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	private final RandomAccessFile randomAccessFile;
 	private final long length;
     private boolean useSoftWindows;
+	private int windowsToPrefetch;
+	private long lastWindowCreated = -1;
 
 	/**
 	 * Constructs a FileReader which defaults to an array size of 4096, caching
@@ -208,6 +219,34 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 		return length;
 	}
 
+	/**
+	 * Transfers bytes directly from the file to the target channel using
+	 * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+	 * which does not read the bytes into Windows, and which may avoid copying the bytes
+	 * into memory at all, depending on the operating system and target channel.
+	 * <p>
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+		ArgUtils.checkNullObject(target, "target");
+		if (position < 0 || position >= length) {
+			return 0;
+		}
+		final long available = length - position;
+		final long toTransfer = count < available ? count : available;
+		final FileChannel channel = randomAccessFile.getChannel();
+		long transferred = 0;
+		while (transferred < toTransfer) {
+			final long written = channel.transferTo(position + transferred, toTransfer - transferred, target);
+			if (written <= 0) {
+				break;
+			}
+			transferred += written;
+		}
+		return transferred;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -215,12 +254,15 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	protected Window createWindow(final long windowStart) throws IOException {
 		if (windowStart >= 0) {
 			try {
+				if (windowsToPrefetch > 0 && isReadingBackwards(windowStart)) {
+					return createWindowsBackwards(windowStart);
+				}
+				lastWindowCreated = windowStart;
 				randomAccessFile.seek(windowStart);
 				final byte[] bytes = new byte[windowSize];
 				final int totalRead = IOUtils.readBytes(randomAccessFile, bytes);
 				if (totalRead > 0) {
-					return useSoftWindows? new SoftWindow(bytes, windowStart, totalRead, this)
-							             : new HardWindow(bytes, windowStart, totalRead);
+					return newWindow(bytes, windowStart, totalRead);
 				}
 			} catch (final EOFException justReturnNull) {
 			}
@@ -259,6 +301,86 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 		this.useSoftWindows = useSoftWindows;
 	}
 
+	/**
+	 * Sets the number of Windows to prefetch before a Window which is being read backwards.
+	 * A Window is being read backwards if the Window after it was the last one created,
+	 * or if it is the last Window in the file.  The Windows which are not already cached
+	 * are read in a single read ending with the requested Window, and added to the cache.
+	 * <p>
+	 * The cache should be able to hold at least the number of Windows prefetched, or they
+	 * will be evicted before they can be used.  A value of zero (the default) disables prefetching.
+	 *
+	 * @param windowsToPrefetch The number of Windows to read before a Window being read backwards.
+	 * @throws IllegalArgumentException if the number of windows to prefetch is negative.
+	 */
+	public void useBackwardPrefetch(final int windowsToPrefetch) {
+		if (windowsToPrefetch < 0) {
+			throw new IllegalArgumentException("The number of windows to prefetch cannot be negative: " + windowsToPrefetch);
+		}
+		this.windowsToPrefetch = windowsToPrefetch;
+	}
+
+	/**
+	 * Returns the number of Windows prefetched before a Window which is being read backwards.
+	 *
+	 * @return The number of Windows prefetched before a Window which is being read backwards.
+	 */
+	public int getBackwardPrefetch() {
+		return windowsToPrefetch;
+	}
+
+	private boolean isReadingBackwards(final long windowStart) {
+		final long nextWindowStart = windowStart + windowSize;
+		return nextWindowStart == lastWindowCreated || (nextWindowStart >= length && windowStart < length);
+	}
+
+	/**
+	 * Reads the requested Window and up to the prefetch number of Windows before it which are
+	 * not already cached, in a single read which ends with the requested Window.  The Windows
+	 * before it are added to the cache in ascending order, so the Window which will be read
+	 * next is the most recently added.  The first Window read is recorded as the last one created,
+	 * so the Window before it is also recognised as being read backwards.
+	 *
+	 * @param windowStart The position of the requested Window.
+	 * @return The requested Window, or null if it could not be read.
+	 * @throws IOException If there was a problem reading the file.
+	 */
+	private Window createWindowsBackwards(final long windowStart) throws IOException {
+		final int maximumBefore = Math.min(windowsToPrefetch, Integer.MAX_VALUE / windowSize - 1);
+		long firstStart = windowStart;
+		int windowsBefore = 0;
+		while (windowsBefore < maximumBefore && firstStart > 0 &&
+			   cache.getWindow(firstStart - windowSize) == null) {
+			firstStart -= windowSize;
+			windowsBefore++;
+		}
+		lastWindowCreated = firstStart;
+		final byte[] block = new byte[(windowsBefore + 1) * windowSize];
+		randomAccessFile.seek(firstStart);
+		final int totalRead = IOUtils.readBytes(randomAccessFile, block);
+		Window requested = null;
+		for (int window = 0; window <= windowsBefore; window++) {
+			final int blockOffset = window * windowSize;
+			final int windowLength = Math.min(windowSize, totalRead - blockOffset);
+			if (windowLength <= 0) {
+				break;
+			}
+			final byte[] bytes = Arrays.copyOfRange(block, blockOffset, blockOffset + windowSize);
+			final Window created = newWindow(bytes, firstStart + blockOffset, windowLength);
+			if (window < windowsBefore) {
+				cache.addWindow(created);
+			} else {
+				requested = created;
+			}
+		}
+		return requested;
+	}
+
+	private Window newWindow(final byte[] bytes, final long windowStart, final int length) {
+		return useSoftWindows? new SoftWindow(bytes, windowStart, length, this)
+				             : new HardWindow(bytes, windowStart, length);
+	}
+
 	@Override
 	public byte[] reloadWindowBytes(final Window window) throws IOException {
 		randomAccessFile.seek(window.getWindowPosition());
@@ -36,7 +36,9 @@ import java.io.InputStream;
 
 import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
+import net.byteseek.io.reader.cache.RingBufferCache;
 import net.byteseek.io.reader.cache.TempFileCache;
+import net.byteseek.io.reader.cache.TopAndTailStreamCache;
 import net.byteseek.io.reader.cache.TwoLevelCache;
 import net.byteseek.io.reader.cache.WindowCache;
 import net.byteseek.io.reader.windows.*;
@@ -61,6 +63,17 @@ import net.byteseek.utils.ArgUtils;
  * created. The secondary cache only gets used if a Window drops out of the
  * primary cache due to exceeding its capacity.
  * <p>
+ * If the stream will only be processed forwards, the static
+ * {@link #withLookBehind(java.io.InputStream, long)} methods create a reader backed by a
+ * {@link RingBufferCache}, which only keeps a bounded distance behind the current
+ * position in memory and never writes to disk.
+ * <p>
+ * If only the start and end of the stream are of interest (for example, to check signatures
+ * anchored to the end of the stream), the static
+ * {@link #withTopAndTail(java.io.InputStream, long, long)} methods create a reader backed by a
+ * {@link TopAndTailStreamCache}, which keeps the first and last bytes of the stream in memory
+ * and discards everything in between, so memory stays bounded however long the stream is.
+ * <p>
  * Note that if you provide your own WindowCache to this WindowReader, then you should
  * either be sure that it is always possible to retrieve an earlier Window from
  * the cache (since it is not possible to rewind all InputStreams), or be sure
@@ -288,6 +301,105 @@ public class InputStreamReader extends AbstractReader {
 		this.closeStreamOnClose = closeStreamOnClose;
 	}
 
+	/**
+	 * Creates an InputStreamReader for forward-only processing of a stream, using the
+	 * default window size of 4096, which only guarantees access to positions up to
+	 * lookBehind bytes behind the furthest window read so far.  A {@link RingBufferCache}
+	 * is used, so nothing is ever written to disk.  Requesting a position further behind
+	 * than this will throw a {@link net.byteseek.io.reader.windows.WindowMissingException}.
+	 *
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param lookBehind
+	 *            The number of bytes behind the current window which must remain available,
+	 *            for example, the length of the longest pattern being searched for.
+	 * @return An InputStreamReader which only holds a bounded number of windows in memory.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, or the look behind is negative.
+	 */
+	public static InputStreamReader withLookBehind(final InputStream stream, final long lookBehind) {
+		return withLookBehind(stream, DEFAULT_WINDOW_SIZE, lookBehind, true);
+	}
+
+	/**
+	 * Creates an InputStreamReader for forward-only processing of a stream, which only
+	 * guarantees access to positions up to lookBehind bytes behind the furthest window
+	 * read so far.  A {@link RingBufferCache} is used, so nothing is ever written to disk.
+	 * Requesting a position further behind than this will throw a
+	 * {@link net.byteseek.io.reader.windows.WindowMissingException}.
+	 *
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the stream.
+	 * @param lookBehind
+	 *            The number of bytes behind the current window which must remain available,
+	 *            for example, the length of the longest pattern being searched for.
+	 * @param closeStreamOnClose
+	 *            Whether to close the underlying stream when this reader is closed.
+	 * @return An InputStreamReader which only holds a bounded number of windows in memory.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, the window size is less than one, or the
+	 *             look behind is negative.
+	 */
+	public static InputStreamReader withLookBehind(final InputStream stream, final int windowSize,
+												   final long lookBehind, final boolean closeStreamOnClose) {
+		return new InputStreamReader(stream, windowSize,
+				RingBufferCache.withLookBehind(windowSize, lookBehind), closeStreamOnClose);
+	}
+
+	/**
+	 * Creates an InputStreamReader using the default window size of 4096, which only keeps
+	 * the first topBytes and the last tailBytes of the stream in memory, using a
+	 * {@link TopAndTailStreamCache}.  Nothing is ever written to disk.  Calling {@link #length()}
+	 * reads the entire stream, but only the bytes at the start and end remain available.
+	 * Requesting a position between them once it has been read will throw a
+	 * {@link net.byteseek.io.reader.windows.WindowMissingException}.
+	 *
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param topBytes
+	 *            The number of bytes at the start of the stream to keep.
+	 * @param tailBytes
+	 *            The number of bytes at the end of the stream to keep.
+	 * @return An InputStreamReader which only holds the start and end of the stream in memory.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, or the top or tail bytes are negative.
+	 */
+	public static InputStreamReader withTopAndTail(final InputStream stream, final long topBytes,
+												   final long tailBytes) {
+		return withTopAndTail(stream, DEFAULT_WINDOW_SIZE, topBytes, tailBytes, true);
+	}
+
+	/**
+	 * Creates an InputStreamReader which only keeps the first topBytes and the last tailBytes
+	 * of the stream in memory, using a {@link TopAndTailStreamCache}.  Nothing is ever written
+	 * to disk.  Calling {@link #length()} reads the entire stream, but only the bytes at the
+	 * start and end remain available.  Requesting a position between them once it has been
+	 * read will throw a {@link net.byteseek.io.reader.windows.WindowMissingException}.
+	 *
+	 * @param stream
+	 *            The InputStream to read from.
+	 * @param windowSize
+	 *            The size of a Window to create from the stream.
+	 * @param topBytes
+	 *            The number of bytes at the start of the stream to keep.
+	 * @param tailBytes
+	 *            The number of bytes at the end of the stream to keep.
+	 * @param closeStreamOnClose
+	 *            Whether to close the underlying stream when this reader is closed.
+	 * @return An InputStreamReader which only holds the start and end of the stream in memory.
+	 * @throws IllegalArgumentException
+	 *             if the stream is null, the window size is less than one, or the
+	 *             top or tail bytes are negative.
+	 */
+	public static InputStreamReader withTopAndTail(final InputStream stream, final int windowSize,
+												   final long topBytes, final long tailBytes,
+												   final boolean closeStreamOnClose) {
+		return new InputStreamReader(stream, windowSize,
+				new TopAndTailStreamCache(topBytes, tailBytes), closeStreamOnClose);
+	}
+
 	/**
 	 * Returns a window onto the data for a given position. The position does
 	 * not have to be the beginning of a {@link net.byteseek.io.reader.windows.HardWindow} - but the Window
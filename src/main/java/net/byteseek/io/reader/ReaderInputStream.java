@@ -38,6 +38,13 @@ import java.io.InputStream;
 
 /**
  * An InputStream backed by a WindowReader.
+ * <p>
+ * Reads of more than one byte are copied directly from the current Window if possible,
+ * otherwise they use the bulk {@link WindowReader#read(long, byte[], int, int)} method
+ * of the reader to copy across Windows.
+ * <p>
+ * This class is not thread-safe; like the WindowReaders which back it, it should
+ * only be used from one thread at a time.
  */
 public final class ReaderInputStream extends InputStream {
 
@@ -96,7 +103,7 @@ public final class ReaderInputStream extends InputStream {
 
 
     @Override
-    public synchronized int read() throws IOException {
+    public int read() throws IOException {
         if (pos > -1) {
             final int readResult = currentArray[currentArrayPos] & 0xFF;
             addStreamPosition(1);
@@ -106,7 +113,7 @@ public final class ReaderInputStream extends InputStream {
     }
 
     @Override
-    public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+    public int read(final byte[] b, final int off, final int len) throws IOException {
         if (b == null) {
             throw new NullPointerException();
         } else if (off < 0 || len < 0 || len > b.length - off) {
@@ -116,31 +123,25 @@ public final class ReaderInputStream extends InputStream {
         }
 
         if (pos > -1) {
-            int available = currentWindowLength - currentArrayPos;
-            if (available >= len) { // buffer copy is completely inside current window.
+            if (currentWindowLength - currentArrayPos >= len) { // buffer copy is completely inside current window.
                 System.arraycopy(currentArray, currentArrayPos, b, off, len);
                 addStreamPosition(len);
                 return len;
-            } else { // buffer copy may span more than one window (if there are more windows available...)
-                int copied = 0;
-                while (copied < len) {
-                    System.arraycopy(currentArray, currentArrayPos, b, off + copied, available);
-                    copied          += available;
-                    addStreamPosition(available);
-                    if (currentWindow == null) { // no more windows available...
-                        break;
-                    }
-                    final int remaining = len - copied;
-                    available = currentWindowLength > remaining ? remaining : currentWindowLength;
-                }
-                return copied;
             }
+            // buffer copy spans more than one window - let the reader copy across them.
+            final int read = reader.read(pos, b, off, len);
+            if (read > 0) {
+                setWindowForPosition(pos + read);
+            } else {
+                setNoMoreData();
+            }
+            return read;
         }
         return -1;
     }
 
     @Override
-    public synchronized int available() throws IOException {
+    public int available() throws IOException {
         return pos > -1? currentWindowLength - currentArrayPos : 0;
     }
 
@@ -162,12 +163,12 @@ public final class ReaderInputStream extends InputStream {
     }
 
     @Override
-    public synchronized void mark(int readAheadLimit) {
+    public void mark(int readAheadLimit) {
         mark = pos;
     }
 
     @Override
-    public synchronized void reset() throws IOException {
+    public void reset() throws IOException {
        if (markSupported) {
            setWindowForPosition(mark);
        } else {
@@ -176,17 +177,21 @@ public final class ReaderInputStream extends InputStream {
     }
 
     @Override
-    public synchronized long skip(long n) throws IOException {
+    public long skip(long n) throws IOException {
         if (n <= 0 || pos < 0) {
             return 0;
         }
+        if (currentWindowLength - currentArrayPos > n) { // skip is inside the current window.
+            addStreamPosition((int) n);
+            return n;
+        }
         final long oldPos = pos;
         setWindowForPosition(pos + n);
         return currentWindow == null ? reader.length() - oldPos : n;
     }
 
     @Override
-    public synchronized void close() throws IOException {
+    public void close() throws IOException {
         if (closeReaderOnClose) {
             reader.close();
             setNoMoreData();
@@ -199,7 +204,7 @@ public final class ReaderInputStream extends InputStream {
      * If we have read past the end of the stream, this value will be negative.
      * @return The next read position in the stream, or -1 if there are no more bytes to consume.
      */
-    synchronized long getNextReadPos() {
+    long getNextReadPos() {
         return pos;
     }
 
@@ -32,6 +32,7 @@
 package net.byteseek.io.reader;
 
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 
@@ -121,6 +122,26 @@ public class StringReader extends AbstractReader {
 		return bytes.length;
 	}
 
+	/**
+	 * Reads bytes directly from the byte array backing this reader, without using any Windows.
+	 * <p>
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final long position, final byte[] readInto, final int offset, final int length) {
+		return readArray(bytes, position, readInto, offset, length);
+	}
+
+	/**
+	 * Writes bytes directly from the byte array backing this reader in a single transfer.
+	 * <p>
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+		return transferArray(bytes, position, count, target);
+	}
+
 	/**
 	 * Returns a new String based on the byte encoding and Charset used.
 	 * 
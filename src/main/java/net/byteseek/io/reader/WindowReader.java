@@ -35,16 +35,20 @@ import net.byteseek.io.reader.windows.Window;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * An interface for random access to bytes from an underlying byte source.
  * <p>
- * The interface supports two usage models:
+ * The interface supports three usage models:
  * 
  * <ul>
  * <li>Read a single byte at a given position
  * <li>Get a {@link net.byteseek.io.reader.windows.Window} onto the underlying byte source for a given
  * position.
+ * <li>Read or transfer a range of bytes, or a multi-byte primitive value, from a given
+ * position, across any Window boundaries.
  * </ul>
  * 
  * The two access methods can be combined to provide fast matching or searching.
@@ -71,6 +75,123 @@ public interface WindowReader extends Closeable, Iterable<Window> {
 	 */
 	int readByte(long position) throws IOException;
 
+	/**
+	 * Reads bytes from a given position into a byte array, copying across
+	 * Window boundaries as required.
+	 * 
+	 * @param position
+	 *            The position of the first byte to read.
+	 * @param bytes
+	 *            The byte array to copy the bytes into.
+	 * @param offset
+	 *            The offset in the byte array to begin copying bytes into.
+	 * @param length
+	 *            The maximum number of bytes to read.
+	 * @return int The number of bytes read, which can be less than the length
+	 *         requested if the end of the reader is reached. If there is no
+	 *         byte at the position, it returns -1 (unless the length is zero).
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 * @throws IndexOutOfBoundsException
+	 *             if the offset or length are negative, or the length is
+	 *             greater than the space remaining in the byte array.
+	 */
+	int read(long position, byte[] bytes, int offset, int length) throws IOException;
+
+	/**
+	 * Reads a signed 16 bit value from a given position, in the byte order specified.
+	 * 
+	 * @param position
+	 *            The position of the first byte of the value.
+	 * @param byteOrder
+	 *            The order of the bytes in the value.
+	 * @return The signed 16 bit value at the position given.
+	 * @throws java.io.EOFException
+	 *             if there are fewer than two bytes available from the position given.
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 */
+	short readShort(long position, ByteOrder byteOrder) throws IOException;
+
+	/**
+	 * Reads an unsigned 16 bit value from a given position, in the byte order specified.
+	 * 
+	 * @param position
+	 *            The position of the first byte of the value.
+	 * @param byteOrder
+	 *            The order of the bytes in the value.
+	 * @return The unsigned 16 bit value at the position given.
+	 * @throws java.io.EOFException
+	 *             if there are fewer than two bytes available from the position given.
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 */
+	int readUnsignedShort(long position, ByteOrder byteOrder) throws IOException;
+
+	/**
+	 * Reads a signed 32 bit value from a given position, in the byte order specified.
+	 * 
+	 * @param position
+	 *            The position of the first byte of the value.
+	 * @param byteOrder
+	 *            The order of the bytes in the value.
+	 * @return The signed 32 bit value at the position given.
+	 * @throws java.io.EOFException
+	 *             if there are fewer than four bytes available from the position given.
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 */
+	int readInt(long position, ByteOrder byteOrder) throws IOException;
+
+	/**
+	 * Reads an unsigned 32 bit value from a given position, in the byte order specified.
+	 * 
+	 * @param position
+	 *            The position of the first byte of the value.
+	 * @param byteOrder
+	 *            The order of the bytes in the value.
+	 * @return The unsigned 32 bit value at the position given.
+	 * @throws java.io.EOFException
+	 *             if there are fewer than four bytes available from the position given.
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 */
+	long readUnsignedInt(long position, ByteOrder byteOrder) throws IOException;
+
+	/**
+	 * Reads a signed 64 bit value from a given position, in the byte order specified.
+	 * 
+	 * @param position
+	 *            The position of the first byte of the value.
+	 * @param byteOrder
+	 *            The order of the bytes in the value.
+	 * @return The signed 64 bit value at the position given.
+	 * @throws java.io.EOFException
+	 *             if there are fewer than eight bytes available from the position given.
+	 * @throws IOException
+	 *             if there was a problem reading the bytes.
+	 */
+	long readLong(long position, ByteOrder byteOrder) throws IOException;
+
+	/**
+	 * Writes bytes from a given position to a {@link java.nio.channels.WritableByteChannel},
+	 * until the count of bytes has been written, or the end of the reader is reached.
+	 * Readers will use the most efficient transfer available to them, for example, writing
+	 * directly from a backing byte array, or transferring directly from a file channel.
+	 * 
+	 * @param position
+	 *            The position of the first byte to transfer.
+	 * @param count
+	 *            The maximum number of bytes to transfer.
+	 * @param target
+	 *            The channel to write the bytes to.
+	 * @return long The number of bytes transferred, which can be less than the
+	 *         count if the end of the reader is reached.
+	 * @throws IOException
+	 *             if there was a problem reading or writing the bytes.
+	 */
+	long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
 	/**
 	 * Returns a {@link net.byteseek.io.reader.windows.Window} for the given position.
 	 * <p>
@@ -0,0 +1,158 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+
+import java.io.IOException;
+
+/**
+ * A {@link WindowCache} which holds on to a fixed number of the most recently added
+ * {@link net.byteseek.io.reader.windows.Window}s in a ring.  When the ring is full,
+ * adding a new Window evicts the oldest one.
+ * <p>
+ * It is intended for forward-only processing of streams, where only a bounded
+ * distance behind the current read position will ever be requested again (for example,
+ * the length of the longest pattern being searched for).  Unlike a {@link TwoLevelCache}
+ * with a {@link TempFileCache}, it never writes anything to disk.  If a reader requests
+ * a Window which has dropped out of the ring, the cache simply returns null;
+ * the {@link net.byteseek.io.reader.InputStreamReader} then throws a
+ * {@link net.byteseek.io.reader.windows.WindowMissingException}.
+ * <p>
+ * There is an assumption that windows are added in sequential order (as
+ * they are being read from a stream).  Lookup is a linear scan over the ring,
+ * which is efficient for the small capacities this cache is designed for.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class RingBufferCache extends AbstractFreeNotificationCache {
+
+    private final Window[] ring;
+    private int nextSlot;
+
+    /**
+     * Creates a RingBufferCache which holds the number of Windows given.
+     *
+     * @param capacity The number of Windows to hold in the ring.
+     * @throws IllegalArgumentException if the capacity is less than one.
+     */
+    public RingBufferCache(final int capacity) {
+        ArgUtils.checkPositiveInteger(capacity, "capacity");
+        ring = new Window[capacity];
+    }
+
+    /**
+     * Creates a RingBufferCache which can always provide at least lookBehind bytes
+     * before any position in the most recently added Window, given Windows
+     * of the window size specified.
+     *
+     * @param windowSize The size of the Windows which will be added to the cache.
+     * @param lookBehind The number of bytes behind the current window which must remain available.
+     * @return A RingBufferCache with sufficient capacity to guarantee the look behind requested.
+     * @throws IllegalArgumentException if the window size is less than one, or the look behind is negative.
+     */
+    public static RingBufferCache withLookBehind(final int windowSize, final long lookBehind) {
+        ArgUtils.checkPositiveInteger(windowSize, "windowSize");
+        if (lookBehind < 0) {
+            throw new IllegalArgumentException("The look behind cannot be negative: " + lookBehind);
+        }
+        final long windowsBehind = (lookBehind + windowSize - 1) / windowSize;
+        if (windowsBehind >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The look behind is too large to hold in memory: " + lookBehind);
+        }
+        return new RingBufferCache((int) windowsBehind + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final Window[] localRing = ring;
+        for (int slot = 0; slot < localRing.length; slot++) {
+            final Window window = localRing[slot];
+            if (window != null && window.getWindowPosition() == position) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a Window to the ring, evicting the oldest Window if the ring is full.
+     * Observers of this cache are notified of any Window which is evicted.
+     *
+     * @param window The Window to add to the cache.
+     * @throws IOException if an observer had a problem processing an evicted Window.
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        if (getWindow(window.getWindowPosition()) == null) {
+            final int slot = nextSlot;
+            final Window evicted = ring[slot];
+            ring[slot] = window;
+            nextSlot = slot + 1 == ring.length ? 0 : slot + 1;
+            if (evicted != null) {
+                notifyWindowFree(evicted, this);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < ring.length; slot++) {
+            ring[slot] = null;
+        }
+        nextSlot = 0;
+    }
+
+    /**
+     * Returns the number of Windows this cache can hold.
+     *
+     * @return The number of Windows this cache can hold.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[capacity: " + ring.length + ']';
+    }
+
+}
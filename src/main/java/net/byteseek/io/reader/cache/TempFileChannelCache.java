@@ -0,0 +1,308 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.windows.SoftWindow;
+import net.byteseek.io.reader.windows.SoftWindowRecovery;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.windows.WindowMissingException;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A {@link WindowCache} which stores {@link net.byteseek.io.reader.windows.Window} objects
+ * into a temporary file for later retrieval, using a {@link java.nio.channels.FileChannel}.
+ * It serves the same purpose as the {@link TempFileCache}, but is designed for
+ * high throughput when large amounts of data are spilled to disk.
+ * <p>
+ * Windows added to the cache are appended into a single re-usable write buffer, which
+ * is only written to the file when it is full, so the file receives a small number of large
+ * sequential writes rather than one seek and write per Window.  Windows which
+ * have not yet been written are served directly from the write buffer.
+ * <p>
+ * Windows which have been written to the file are read back using positional
+ * reads on the FileChannel, which do not require a seek.  Optionally, the cache can read back
+ * through a memory-mapped region of the file instead.  The mapped region is grown to cover
+ * the data written so far whenever a read is requested which lies beyond it.
+ * Since a single mapping cannot exceed 2GB, reads beyond that fall back to positional reads.
+ * Note that Java provides no way to explicitly unmap a memory-mapped region, so on some
+ * platforms the temporary file may not be deleted on clearing the cache until the
+ * mapped regions have been garbage collected.
+ * <p>
+ * A temporary file is only created if a Window is added to the cache, and it is
+ * deleted when the cache is cleared.  The write buffer is retained after clearing,
+ * so the cache can be re-used without re-allocating it.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class TempFileChannelCache extends AbstractFreeNotificationCache implements SoftWindowRecovery {
+
+    private static final int DEFAULT_WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final TLongObjectMap<WindowInfo> windowPositions;
+    private final File tempDir;
+    private final int writeBufferSize;
+    private final boolean memoryMapped;
+    private File tempFile;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer mappedRegion;
+    private byte[] writeBuffer;
+    private int writeBufferLength;
+    private long writtenFileLength;
+
+    /**
+     * Constructs a TempFileChannelCache using positional reads, with a write buffer of 1MB,
+     * which creates temporary files in the default temp directory.
+     */
+    public TempFileChannelCache() {
+        this(null, DEFAULT_WRITE_BUFFER_SIZE, false);
+    }
+
+    /**
+     * Constructs a TempFileChannelCache using positional reads, with a write buffer of 1MB,
+     * which creates temporary files in the directory specified.
+     * If the file is null, then temporary files will be created in the default temp directory.
+     *
+     * @param tempDir The directory to create temporary files in.
+     * @throws java.lang.IllegalArgumentException if the tempdir supplied is not a directory.
+     */
+    public TempFileChannelCache(final File tempDir) {
+        this(tempDir, DEFAULT_WRITE_BUFFER_SIZE, false);
+    }
+
+    /**
+     * Constructs a TempFileChannelCache which creates temporary files in the directory specified.
+     * If the file is null, then temporary files will be created in the default temp directory.
+     *
+     * @param tempDir         The directory to create temporary files in.
+     * @param writeBufferSize The size of the buffer in which added Windows are collected
+     *                        before being written to the file.
+     * @param memoryMapped    Whether to read Windows back using a memory-mapped region of the
+     *                        file, rather than positional reads.
+     * @throws java.lang.IllegalArgumentException if the tempdir supplied is not a directory, or the
+     *                                            write buffer size is less than one.
+     */
+    public TempFileChannelCache(final File tempDir, final int writeBufferSize, final boolean memoryMapped) {
+        ArgUtils.checkPositiveInteger(writeBufferSize, "writeBufferSize");
+        if (tempDir != null && !tempDir.isDirectory()) {
+            throw new IllegalArgumentException("The temp dir file supplied is not a directory: " + tempDir.getAbsolutePath());
+        }
+        this.windowPositions = new TLongObjectHashMap<WindowInfo>();
+        this.tempDir = tempDir;
+        this.writeBufferSize = writeBufferSize;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) throws IOException {
+        Window window = null;
+        final WindowInfo info = windowPositions.get(position);
+        if (info != null) {
+            final byte[] array = new byte[info.length];
+            readWindowBytes(info, array);
+            window = new SoftWindow(array, position, info.length, this);
+        }
+        return window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long windowPosition = window.getWindowPosition();
+        if (!windowPositions.containsKey(windowPosition)) {
+            createFileIfNotExists();
+            final int length = window.length();
+            if (writeBufferLength + length > writeBuffer.length) {
+                flushWriteBuffer();
+            }
+            final long filePosition = writtenFileLength + writeBufferLength;
+            if (length > writeBuffer.length) {
+                IOUtils.writeBytes(channel, ByteBuffer.wrap(window.getArray(), 0, length), filePosition);
+                writtenFileLength += length;
+            } else {
+                System.arraycopy(window.getArray(), 0, writeBuffer, writeBufferLength, length);
+                writeBufferLength += length;
+            }
+            windowPositions.put(windowPosition, new WindowInfo(length, filePosition));
+        }
+    }
+
+    /**
+     * Clears the map of Window positions to their position and size in the file,
+     * and deletes the temporary file if it exists.
+     */
+    @Override
+    public void clear() throws IOException {
+        windowPositions.clear();
+        writeBufferLength = 0;
+        deleteFileIfExists();
+    }
+
+    @Override
+    public byte[] reloadWindowBytes(final Window window) throws IOException {
+        final WindowInfo info = windowPositions.get(window.getWindowPosition());
+        if (info != null) {
+            final byte[] array = new byte[info.length];
+            readWindowBytes(info, array);
+            return array;
+        }
+        throw new WindowMissingException("No window exists in the cache for the window: " + window);
+    }
+
+    /**
+     * Returns the temporary file backing this cache object.
+     *
+     * @return File The temporary file backing this cache object, or null if it doesn't exist.
+     */
+    public File getTempFile() {
+        return tempFile;
+    }
+
+    /**
+     * Returns whether this cache reads Windows back using a memory-mapped region of the file.
+     *
+     * @return Whether this cache reads Windows back using a memory-mapped region of the file.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    private void readWindowBytes(final WindowInfo info, final byte[] array) throws IOException {
+        final long filePosition = info.filePosition;
+        final int length = info.length;
+        if (filePosition >= writtenFileLength) {
+            System.arraycopy(writeBuffer, (int) (filePosition - writtenFileLength), array, 0, length);
+        } else if (memoryMapped && filePosition + length <= Integer.MAX_VALUE) {
+            final ByteBuffer region = getMappedRegion(filePosition + length).duplicate();
+            region.position((int) filePosition);
+            region.get(array, 0, length);
+        } else {
+            final int read = IOUtils.readBytes(channel, ByteBuffer.wrap(array, 0, length), filePosition);
+            if (read != length) {
+                throw new WindowMissingException("Only read " + read + " bytes of " + length +
+                                                 " at file position " + filePosition + " in " + tempFile);
+            }
+        }
+    }
+
+    private MappedByteBuffer getMappedRegion(final long endPosition) throws IOException {
+        MappedByteBuffer region = mappedRegion;
+        if (region == null || region.capacity() < endPosition) {
+            final long mapLength = writtenFileLength < Integer.MAX_VALUE ? writtenFileLength : Integer.MAX_VALUE;
+            region = channel.map(FileChannel.MapMode.READ_ONLY, 0, mapLength);
+            mappedRegion = region;
+        }
+        return region;
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        if (writeBufferLength > 0) {
+            IOUtils.writeBytes(channel, ByteBuffer.wrap(writeBuffer, 0, writeBufferLength), writtenFileLength);
+            writtenFileLength += writeBufferLength;
+            writeBufferLength = 0;
+        }
+    }
+
+    private void createFileIfNotExists() throws IOException {
+        if (tempFile == null) {
+            windowPositions.clear();
+            writeBufferLength = 0;
+            writtenFileLength = 0;
+            if (writeBuffer == null) {
+                writeBuffer = new byte[writeBufferSize];
+            }
+            tempFile = tempDir == null? IOUtils.createTempFile()
+                                      : IOUtils.createTempFile(tempDir);
+            file = new RandomAccessFile(tempFile, "rw");
+            channel = file.getChannel();
+        }
+    }
+
+    private void deleteFileIfExists() throws IOException {
+        if (tempFile != null) {
+            IOException fileCloseException = null;
+            try {
+                file.close();
+            } catch (IOException ex) {
+                fileCloseException = ex;
+            } finally {
+                file = null;
+                channel = null;
+                mappedRegion = null;
+                tempFile.delete();
+                tempFile = null;
+                writtenFileLength = 0;
+            }
+            if (fileCloseException != null) {
+                throw fileCloseException;
+            }
+        }
+    }
+
+    /**
+     * A utility class recording the length of a Window and the position in
+     * the temporary file it exists at.
+     */
+    private static final class WindowInfo {
+
+        final int length;
+        final long filePosition;
+
+        public WindowInfo(final int length, final long filePosition) {
+            this.length = length;
+            this.filePosition = filePosition;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[temp file: " + tempFile + " memory mapped: " + memoryMapped +
+                                            " window positions recorded:" + windowPositions.size() + ']';
+    }
+}
@@ -56,11 +56,29 @@ public final class TopAndTailStreamCache extends AbstractFreeNotificationCache {
     final List<Window> tailEntries;
     long lastSeenPosition;
 
+    /**
+     * Creates a TopAndTailStreamCache which holds on to the same number of bytes at the start and end of a stream.
+     *
+     * @param topTailBytes The number of bytes at the start and at the end of the stream to hold on to.
+     * @throws IllegalArgumentException if the number of bytes is negative.
+     */
     public TopAndTailStreamCache(final long topTailBytes) {
         this(topTailBytes, topTailBytes);
     }
 
+    /**
+     * Creates a TopAndTailStreamCache which holds on to topBytes at the start of a stream and
+     * tailBytes at the end of it.  Windows between them are evicted once they are further
+     * than tailBytes behind the most recently added Window.
+     *
+     * @param topBytes  The number of bytes at the start of the stream to hold on to.
+     * @param tailBytes The number of bytes at the end of the stream to hold on to.
+     * @throws IllegalArgumentException if either number of bytes is negative.
+     */
     public TopAndTailStreamCache(final long topBytes, final long tailBytes) {
+        if (topBytes < 0 || tailBytes < 0) {
+            throw new IllegalArgumentException("The top and tail bytes cannot be negative: " + topBytes + ',' + tailBytes);
+        }
         this.topCacheBytes  = topBytes;
         this.tailCacheBytes = tailBytes;
         cache               = new TLongObjectHashMap<Window>();
@@ -43,6 +43,10 @@ import java.io.IOException;
  * but not when it leaves the primary one (as it is added immediately to the secondary).
  * Adding a Window to this cache adds it to the primary cache.
  * <p>
+ * Adding a Window to the secondary cache happens on the thread which caused it to
+ * leave the primary cache.  If the secondary cache is slow (e.g. a {@link TempFileCache}),
+ * it can be wrapped in a {@link WriteBehindCache} to add Windows to it asynchronously.
+ * <p>
  * This class can only be constructed using a static method, as it subscribes as an
  * observer to the primary secondary cache's passed in.  We do not want to have
  * subscription happening in its constructor, as this may allow an invalid "this" reference
@@ -0,0 +1,353 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.collections.LongLinkedHashMap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * A {@link WindowCache} which wraps another (normally persistent) cache, and adds
+ * {@link net.byteseek.io.reader.windows.Window}s to it asynchronously on a background writer thread.
+ * <p>
+ * The use case for this cache is as the secondary cache of a {@link TwoLevelCache}, or the
+ * persistent cache of a {@link DoubleCache}, wrapping a {@link TempFileCache} or
+ * {@link TempFileChannelCache}.  When a Window is added, it is placed in a queue and
+ * the method returns immediately, so the thread adding it (normally a searching thread)
+ * does not have to wait for it to be written to disk.  For example:
+ * <pre>
+ *     WindowCache cache = TwoLevelCache.create(new LeastRecentlyUsedCache(32),
+ *                                              WriteBehindCache.create(new TempFileCache()));
+ * </pre>
+ * Windows which are still waiting to be written are served directly from the queue.
+ * If the total length of the queued Windows would exceed the byte budget of the cache,
+ * adding a Window blocks until the writer thread has caught up sufficiently.
+ * <p>
+ * If the writer thread encounters an IOException, it is thrown from the next call to
+ * {@link #getWindow(long)}, {@link #addWindow(net.byteseek.io.reader.windows.Window)} or {@link #flush()}.
+ * <p>
+ * The writer thread is a daemon thread which is started when the first Window is added,
+ * and which is stopped when the cache is cleared.  Clearing the cache discards any queued
+ * Windows which have not been written yet.  If the writer thread is interrupted, it stops
+ * and the next call to get or add a Window, or to flush, throws an {@link InterruptedIOException}.
+ * Queued Windows are kept, and a new writer thread is started to write them when one is next needed.
+ * <p>
+ * Access to the wrapped cache is synchronised, but observers of this cache may be notified
+ * that a Window has left the wrapped cache on the writer thread.  The public methods of
+ * this cache should only be called from one thread at a time.
+ *
+ * @author Matt Palmer
+ */
+public final class WriteBehindCache extends AbstractFreeNotificationCache implements WindowCache.WindowObserver {
+
+    private static final long DEFAULT_MAX_PENDING_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * A static constructor for a WriteBehindCache with a default byte budget of 16MB,
+     * which avoids passing "this" in the constructor so it can subscribe to window
+     * free notifications from the wrapped cache.
+     *
+     * @param cache The cache to add Windows to asynchronously.
+     * @return A WriteBehindCache wrapping the cache provided.
+     * @throws IllegalArgumentException if the cache is null.
+     */
+    public static WriteBehindCache create(final WindowCache cache) {
+        return create(cache, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    /**
+     * A static constructor for a WriteBehindCache, which avoids passing "this" in the
+     * constructor so it can subscribe to window free notifications from the wrapped cache.
+     *
+     * @param cache           The cache to add Windows to asynchronously.
+     * @param maxPendingBytes The maximum total length of Windows waiting to be written, before
+     *                        adding another Window blocks.
+     * @return A WriteBehindCache wrapping the cache provided.
+     * @throws IllegalArgumentException if the cache is null, or the maximum pending bytes is less than one.
+     */
+    public static WriteBehindCache create(final WindowCache cache, final long maxPendingBytes) {
+        final WriteBehindCache writeBehind = new WriteBehindCache(cache, maxPendingBytes);
+        cache.subscribe(writeBehind);
+        return writeBehind;
+    }
+
+    private final WindowCache cache;
+    private final long maxPendingBytes;
+    private final Object queueLock = new Object();
+    private final Object cacheLock = new Object();
+    private final LongLinkedHashMap<Window> pending = new LongLinkedHashMap<Window>();
+    private long pendingBytes;
+    private IOException writeException;
+    private Thread writerThread;
+    private boolean stopWriting;
+
+    private WriteBehindCache(final WindowCache cache, final long maxPendingBytes) {
+        ArgUtils.checkNullObject(cache, "cache");
+        if (maxPendingBytes < 1) {
+            throw new IllegalArgumentException("The maximum pending bytes must be positive: " + maxPendingBytes);
+        }
+        this.cache = cache;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Returns a Window waiting to be written if one exists for the position,
+     * otherwise the Window is obtained from the wrapped cache.
+     *
+     * @param position The position at which a Window begins in the cache.
+     * @return A Window for the specified starting position, or null if the Window does not exist.
+     * @throws IOException if there was an IOException getting the Window, or a previous
+     *                     asynchronous write failed.
+     */
+    @Override
+    public Window getWindow(final long position) throws IOException {
+        synchronized (queueLock) {
+            checkWriteException();
+            final Window window = pending.get(position);
+            if (window != null) {
+                return window;
+            }
+        }
+        synchronized (cacheLock) {
+            return cache.getWindow(position);
+        }
+    }
+
+    /**
+     * Queues a Window to be added to the wrapped cache by the writer thread, blocking
+     * if the total length of the queued Windows would exceed the byte budget.
+     *
+     * @param window The Window to add to the cache.
+     * @throws IOException if a previous asynchronous write failed.
+     * @throws InterruptedIOException if the thread was interrupted waiting for space in the queue.
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long windowPosition = window.getWindowPosition();
+        final int length = window.length();
+        synchronized (queueLock) {
+            checkWriteException();
+            if (!pending.containsKey(windowPosition)) {
+                while (!pending.isEmpty() && pendingBytes + length > maxPendingBytes) {
+                    startWriterIfNotRunning();
+                    waitForQueue();
+                    checkWriteException();
+                }
+                pending.put(windowPosition, window);
+                pendingBytes += length;
+                startWriterIfNotRunning();
+                queueLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until all Windows currently queued have been added to the wrapped cache.
+     *
+     * @throws IOException if an asynchronous write failed.
+     * @throws InterruptedIOException if the thread was interrupted waiting for the queue to empty.
+     */
+    public void flush() throws IOException {
+        synchronized (queueLock) {
+            while (!pending.isEmpty()) {
+                checkWriteException();
+                startWriterIfNotRunning();
+                waitForQueue();
+            }
+            checkWriteException();
+        }
+    }
+
+    /**
+     * Stops the writer thread, discards any queued Windows and clears the wrapped cache.
+     *
+     * @throws IOException if there was a problem clearing the wrapped cache.
+     */
+    @Override
+    public void clear() throws IOException {
+        final Thread writer;
+        synchronized (queueLock) {
+            pending.clear();
+            pendingBytes = 0;
+            writeException = null;
+            stopWriting = true;
+            writer = writerThread;
+            writerThread = null;
+            queueLock.notifyAll();
+        }
+        if (writer != null) {
+            joinWriter(writer);
+        }
+        synchronized (cacheLock) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Passes on notification that a Window left the wrapped cache to any observers of this cache.
+     *
+     * @param window    The Window which is leaving the wrapped cache.
+     * @param fromCache The WindowCache from which the Window is leaving.
+     * @throws IOException if an observer had a problem processing the Window.
+     */
+    @Override
+    public void windowFree(final Window window, final WindowCache fromCache) throws IOException {
+        notifyWindowFree(window, this);
+    }
+
+    /**
+     * Returns the cache which Windows are added to asynchronously.
+     *
+     * @return The cache which Windows are added to asynchronously.
+     */
+    public WindowCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the total length of the Windows currently waiting to be written.
+     *
+     * @return The total length of the Windows currently waiting to be written.
+     */
+    public long getPendingBytes() {
+        synchronized (queueLock) {
+            return pendingBytes;
+        }
+    }
+
+    // Must be called holding the queue lock.
+    private void checkWriteException() throws IOException {
+        if (writeException != null) {
+            final IOException ex = writeException;
+            writeException = null;
+            throw ex;
+        }
+    }
+
+    // Must be called holding the queue lock.
+    private void waitForQueue() throws InterruptedIOException {
+        try {
+            queueLock.wait();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for windows to be written.");
+        }
+    }
+
+    // Must be called holding the queue lock.
+    private void startWriterIfNotRunning() {
+        if (writerThread == null) {
+            stopWriting = false;
+            writerThread = new Thread(new Writer(), getClass().getSimpleName() + " writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    private void joinWriter(final Thread writer) throws InterruptedIOException {
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the writer thread to stop.");
+        }
+    }
+
+    /**
+     * Takes the oldest queued Window and adds it to the wrapped cache, leaving it in the
+     * queue until it has been added, so it can always be found in one place or the other.
+     */
+    private final class Writer implements Runnable {
+
+        @SuppressWarnings("ObjectEquality")
+        @Override
+        public void run() {
+            while (true) {
+                final Window window;
+                synchronized (queueLock) {
+                    while (pending.isEmpty() && !stopWriting) {
+                        try {
+                            queueLock.wait();
+                        } catch (InterruptedException ex) {
+                            stopInterrupted();
+                            return;
+                        }
+                    }
+                    if (stopWriting) {
+                        return;
+                    }
+                    window = pending.iterator().next().getValue();
+                }
+                IOException exception = null;
+                try {
+                    synchronized (cacheLock) {
+                        cache.addWindow(window);
+                    }
+                } catch (IOException ex) {
+                    exception = ex;
+                }
+                synchronized (queueLock) {
+                    if (pending.get(window.getWindowPosition()) == window) {
+                        pending.remove(window.getWindowPosition());
+                        pendingBytes -= window.length();
+                    }
+                    if (exception != null) {
+                        writeException = exception;
+                    }
+                    queueLock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Clears the writer thread so the next Window added starts a new one, and reports the
+         * interruption to the next caller, waking any callers waiting for the queue.
+         * Must be called holding the queue lock.
+         */
+        private void stopInterrupted() {
+            if (writerThread == Thread.currentThread()) {
+                writerThread = null;
+            }
+            writeException = new InterruptedIOException("The writer thread was interrupted.");
+            queueLock.notifyAll();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[cache: " + cache + " max pending bytes: " + maxPendingBytes + ']';
+    }
+
+}
@@ -33,7 +33,7 @@
  * A set of caching strategies for net.byteseek.io.reader.Window.windows.
  * <p>
  * Most caches are in-memory caches, holding the Windows within memory.
- * There is also a temporary file disk cache.  Finally, there are two
+ * There are also temporary file disk caches.  Finally, there are two
  * caches which use more than one cache to achieve their strategy:
  * DoubleCache and TwoLevelCache.
  * <p>
@@ -0,0 +1,87 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.matcher;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * A simple immutable implementation of {@link MatchResult}, holding the position
+ * and length of a match, and the objects associated with it.
+ * 
+ * @param <T> The type of object associated with the match.
+ * 
+ * @author Matt Palmer
+ */
+public final class SimpleMatchResult<T> implements MatchResult<T> {
+
+	private final long matchPosition;
+	private final long matchLength;
+	private final Collection<T> matchingObjects;
+
+	/**
+	 * Constructs a SimpleMatchResult from a position, a length and the objects which matched.
+	 * The collection of matching objects is not copied, and must not be modified afterwards.
+	 * 
+	 * @param matchPosition   The position a match was found at.
+	 * @param matchLength     The length of the match.
+	 * @param matchingObjects The objects associated with the match.
+	 */
+	public SimpleMatchResult(final long matchPosition, final long matchLength,
+			                 final Collection<T> matchingObjects) {
+		this.matchPosition = matchPosition;
+		this.matchLength = matchLength;
+		this.matchingObjects = Collections.unmodifiableCollection(matchingObjects);
+	}
+
+	@Override
+	public long getMatchPosition() {
+		return matchPosition;
+	}
+
+	@Override
+	public long getMatchLength() {
+		return matchLength;
+	}
+
+	@Override
+	public Collection<T> getMatchingObjects() {
+		return matchingObjects;
+	}
+
+    @Override
+    public String toString() {
+    	return getClass().getSimpleName() + "[match position:" + matchPosition +
+    										" match length:" + matchLength +
+    										" matching objects:" + matchingObjects + ']';
+    }
+
+}
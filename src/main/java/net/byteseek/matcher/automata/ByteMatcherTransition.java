@@ -36,6 +36,7 @@ import java.util.Map;
 import net.byteseek.automata.State;
 import net.byteseek.automata.Transition;
 import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteTableMatcher;
 import net.byteseek.utils.factory.DeepCopy;
 
 /**
@@ -151,6 +152,18 @@ public class ByteMatcherTransition<T> implements Transition<T> {
 		return matcher;
 	}
 
+	/**
+	 * Returns a transition to the same state, whose matcher can be tested with a single lookup,
+	 * as given by {@link ByteTableMatcher#tabulate(ByteMatcher)}.  If the matcher of this
+	 * transition already can be, this transition is returned.
+	 *
+	 * @return A transition to the same state, whose matcher can be tested with a single lookup.
+	 */
+	public final ByteMatcherTransition<T> tabulate() {
+		final ByteMatcher tableMatcher = ByteTableMatcher.tabulate(matcher);
+		return tableMatcher == matcher? this : new ByteMatcherTransition<T>(tableMatcher, toState);
+	}
+
 
     @Override
     public String toString() {
@@ -37,6 +37,7 @@ import net.byteseek.automata.State;
 import net.byteseek.automata.Transition;
 import net.byteseek.automata.factory.TransitionFactory;
 import net.byteseek.matcher.bytes.ByteMatcherFactory;
+import net.byteseek.matcher.bytes.ByteTableMatcher;
 import net.byteseek.matcher.bytes.OptimalByteMatcherFactory;
 
 /**
@@ -70,6 +71,18 @@ public final class ByteMatcherTransitionFactory<T> implements TransitionFactory<
     public ByteMatcherTransitionFactory(final ByteMatcherFactory factoryToUse) {
         matcherFactory = factoryToUse;
     }
+
+
+    /**
+     * Returns a factory which creates transitions which all use a {@link ByteTableMatcher}
+     * (or simpler) to match bytes, so every transition is tested with a single lookup.
+     *
+     * @param <T> The type of object associated with the states of the automata.
+     * @return A ByteMatcherTransitionFactory creating transitions using table-based matchers.
+     */
+    public static <T> ByteMatcherTransitionFactory<T> withTableMatchers() {
+        return new ByteMatcherTransitionFactory<T>(ByteTableMatcher.FACTORY);
+    }
     
     /**
      * Creates a transition on a match to any bytes in the set of bytes supplied (or
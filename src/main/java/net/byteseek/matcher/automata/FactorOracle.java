@@ -0,0 +1,400 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.automata.factory.MutableStateFactory;
+import net.byteseek.automata.factory.StateFactory;
+import net.byteseek.automata.factory.TransitionFactory;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * An immutable factor oracle of the prefixes (or reversed prefixes) of a set of
+ * {@link SequenceMatcher}s, compiled into a flat transition table.
+ * <p>
+ * A factor oracle is a small automaton which recognises at least every factor (substring)
+ * of the strings it is built from.  It may also recognise some strings which are not factors,
+ * but if it fails to read a string, that string is certainly not a factor of any of them.
+ * This makes it suitable for the backward oracle matching family of search algorithms, which
+ * use it to decide how far they can safely shift.  Any match must still be verified.
+ * <p>
+ * The oracle is built with {@link State}s from a {@link StateFactory}, as a trie of the strings
+ * with extra transitions added using the supply function, following Allauzen, Crochemore and
+ * Raffinot.  It is then compiled into a table, where every state has an entry for every group
+ * of bytes.
+ * <p>
+ * Sequences can match more than one byte at a position.  For the oracle to be built correctly,
+ * each position must be a single symbol, so any bytes which appear together at a position are
+ * grouped into a single symbol.  This only makes the oracle recognise more strings, so no
+ * factors are ever missed, although a position which matches any byte would put all bytes in a
+ * single group, and the oracle could then no longer distinguish any bytes.  For sequences made of
+ * single bytes, each byte is its own symbol.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ * @see <a href="http://www-igm.univ-mlv.fr/~lecroq/articles/sbom.pdf">Factor oracle, suffix oracle</a>
+ */
+public final class FactorOracle {
+
+    /**
+     * The state returned by {@link #nextState(int, byte)} if the oracle cannot read the byte.
+     */
+    public static final int NO_STATE = -1;
+
+    private final int[] byteGroups;
+    private final int numGroups;
+    private final int[] transitions;
+    private final int length;
+
+    private FactorOracle(final int[] byteGroups, final int numGroups,
+                         final int[] transitions, final int length) {
+        this.byteGroups  = byteGroups;
+        this.numGroups   = numGroups;
+        this.transitions = transitions;
+        this.length      = length;
+    }
+
+    /**
+     * Builds a factor oracle of the prefixes of the sequences, for reading forwards.
+     *
+     * @param sequences The sequences to build the oracle from.
+     * @param length The length of the prefixes.  It must not be longer than the shortest sequence.
+     * @return A FactorOracle of the prefixes of the sequences.
+     * @throws IllegalArgumentException if the sequences are null or empty, or the length is
+     *                                  not positive or longer than any sequence.
+     */
+    public static FactorOracle ofPrefixes(final Collection<? extends SequenceMatcher> sequences,
+                                          final int length) {
+        return build(sequences, length, false);
+    }
+
+    /**
+     * Builds a factor oracle of the reversed prefixes of the sequences, for reading backwards.
+     *
+     * @param sequences The sequences to build the oracle from.
+     * @param length The length of the prefixes.  It must not be longer than the shortest sequence.
+     * @return A FactorOracle of the reversed prefixes of the sequences.
+     * @throws IllegalArgumentException if the sequences are null or empty, or the length is
+     *                                  not positive or longer than any sequence.
+     */
+    public static FactorOracle ofReversedPrefixes(final Collection<? extends SequenceMatcher> sequences,
+                                                  final int length) {
+        return build(sequences, length, true);
+    }
+
+    /**
+     * Returns the state the oracle starts in.
+     *
+     * @return The state the oracle starts in.
+     */
+    public int getInitialState() {
+        return 0;
+    }
+
+    /**
+     * Returns the state to move to from the current state on reading a byte,
+     * or {@link #NO_STATE} if the oracle cannot read it.
+     *
+     * @param state The current state.
+     * @param value The byte read.
+     * @return The next state, or {@link #NO_STATE}.
+     */
+    public int nextState(final int state, final byte value) {
+        return transitions[state + byteGroups[value & 0xFF]];
+    }
+
+    /**
+     * Reads the bytes of a window the length of the oracle backwards from its end, for as
+     * long as the oracle can read them.  This is the scan made by an oracle of reversed prefixes
+     * when searching forwards.  The window must fit inside the bytes.
+     *
+     * @param bytes The bytes to read.
+     * @param windowStart The position the window starts at.
+     * @return The position of the byte the oracle could not read, or windowStart - 1
+     *         if it read the whole window.
+     */
+    public int readWindowBackwards(final byte[] bytes, final int windowStart) {
+        int readPosition = windowStart + length - 1;
+        int state = 0;
+        while (readPosition >= windowStart &&
+               (state = transitions[state + byteGroups[bytes[readPosition] & 0xFF]]) != NO_STATE) {
+            readPosition--;
+        }
+        return readPosition;
+    }
+
+    /**
+     * Reads the bytes of a window the length of the oracle backwards from its end, for as
+     * long as the oracle can read them.  A byte past the end of the reader cannot be read.
+     *
+     * @param reader The reader to read bytes from.
+     * @param windowStart The position the window starts at.
+     * @return The position of the byte the oracle could not read, or windowStart - 1
+     *         if it read the whole window.
+     * @throws IOException If the reader encounters difficulties reading bytes.
+     */
+    public long readWindowBackwards(final WindowReader reader, final long windowStart) throws IOException {
+        long readPosition = windowStart + length - 1;
+        int state = 0;
+        while (readPosition >= windowStart) {
+            final int value = reader.readByte(readPosition);
+            if (value < 0 || (state = transitions[state + byteGroups[value]]) == NO_STATE) {
+                break;
+            }
+            readPosition--;
+        }
+        return readPosition;
+    }
+
+    /**
+     * Reads the bytes of a window the length of the oracle forwards from its start, for as
+     * long as the oracle can read them.  This is the scan made by an oracle of prefixes
+     * when searching backwards.  The window must fit inside the bytes.
+     *
+     * @param bytes The bytes to read.
+     * @param windowStart The position the window starts at.
+     * @return The position of the byte the oracle could not read, or windowStart + length
+     *         if it read the whole window.
+     */
+    public int readWindowForwards(final byte[] bytes, final int windowStart) {
+        final int windowEnd = windowStart + length - 1;
+        int readPosition = windowStart;
+        int state = 0;
+        while (readPosition <= windowEnd &&
+               (state = transitions[state + byteGroups[bytes[readPosition] & 0xFF]]) != NO_STATE) {
+            readPosition++;
+        }
+        return readPosition;
+    }
+
+    /**
+     * Reads the bytes of a window the length of the oracle forwards from its start, for as
+     * long as the oracle can read them.  A byte past the end of the reader cannot be read.
+     *
+     * @param reader The reader to read bytes from.
+     * @param windowStart The position the window starts at.
+     * @return The position of the byte the oracle could not read, or windowStart + length
+     *         if it read the whole window.
+     * @throws IOException If the reader encounters difficulties reading bytes.
+     */
+    public long readWindowForwards(final WindowReader reader, final long windowStart) throws IOException {
+        final long windowEnd = windowStart + length - 1;
+        long readPosition = windowStart;
+        int state = 0;
+        while (readPosition <= windowEnd) {
+            final int value = reader.readByte(readPosition);
+            if (value < 0 || (state = transitions[state + byteGroups[value]]) == NO_STATE) {
+                break;
+            }
+            readPosition++;
+        }
+        return readPosition;
+    }
+
+    /**
+     * Returns the length of the prefixes the oracle was built from.
+     *
+     * @return The length of the prefixes the oracle was built from.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of states in the oracle.
+     *
+     * @return The number of states in the oracle.
+     */
+    public int getNumberOfStates() {
+        return transitions.length / numGroups;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[states:" + getNumberOfStates() +
+                                            " byte groups:" + numGroups +
+                                            " length:" + length + ']';
+    }
+
+    private static FactorOracle build(final Collection<? extends SequenceMatcher> sequences,
+                                      final int length, final boolean reversed) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(sequences, "sequences");
+        ArgUtils.checkPositiveInteger(length, "length");
+        for (final SequenceMatcher sequence : sequences) {
+            if (sequence.length() < length) {
+                throw new IllegalArgumentException("The length " + length +
+                                                   " is longer than a sequence: " + sequence);
+            }
+        }
+
+        // Group the bytes, so each position in the prefixes is a single symbol:
+        final int[] byteGroups = new int[256];
+        final int numSymbols = groupBytes(sequences, length, byteGroups);
+        final List<List<Byte>> groupBytes = new ArrayList<List<Byte>>(numSymbols);
+        for (int group = 0; group < numSymbols; group++) {
+            groupBytes.add(new ArrayList<Byte>());
+        }
+        for (int value = 0; value < 256; value++) {
+            if (byteGroups[value] < numSymbols) {
+                groupBytes.get(byteGroups[value]).add((byte) value);
+            }
+        }
+
+        // Build a trie of the prefixes:
+        final StateFactory<SequenceMatcher> stateFactory = new MutableStateFactory<SequenceMatcher>();
+        final TransitionFactory<SequenceMatcher, Collection<Byte>> transitionFactory =
+                new ByteMatcherTransitionFactory<SequenceMatcher>();
+        final State<SequenceMatcher> root = stateFactory.create(State.NON_FINAL);
+        for (final SequenceMatcher sequence : sequences) {
+            State<SequenceMatcher> state = root;
+            for (int symbolNumber = 0; symbolNumber < length; symbolNumber++) {
+                final int position = reversed? length - 1 - symbolNumber : symbolNumber;
+                final byte value = sequence.getMatcherForPosition(position).getMatchingBytes()[0];
+                State<SequenceMatcher> nextState = state.getNextState(value);
+                if (nextState == null) {
+                    nextState = stateFactory.create(symbolNumber == length - 1);
+                    state.addTransition(transitionFactory.create(groupBytes.get(byteGroups[value & 0xFF]),
+                                                                 false, nextState));
+                }
+                state = nextState;
+            }
+            state.addAssociation(sequence);
+        }
+
+        // Add the external transitions of the oracle, visiting the trie states in breadth-first order.
+        // The supply state of each trie state is processed before it, so only trie transitions
+        // exist on a state when it is visited:
+        final List<State<SequenceMatcher>> states = new ArrayList<State<SequenceMatcher>>();
+        final Map<State<SequenceMatcher>, State<SequenceMatcher>> supply =
+                new IdentityHashMap<State<SequenceMatcher>, State<SequenceMatcher>>();
+        states.add(root);
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            final State<SequenceMatcher> parent = states.get(stateIndex);
+            for (final Transition<SequenceMatcher> transition : parent.getTransitions()) {
+                final State<SequenceMatcher> child = transition.getToState();
+                final byte value = transition.getBytes()[0];
+                State<SequenceMatcher> supplyState = supply.get(parent);
+                while (supplyState != null && supplyState.getNextState(value) == null) {
+                    supplyState.addTransition(transitionFactory.create(groupBytes.get(byteGroups[value & 0xFF]),
+                                                                       false, child));
+                    supplyState = supply.get(supplyState);
+                }
+                supply.put(child, supplyState == null? root : supplyState.getNextState(value));
+                states.add(child);
+            }
+        }
+
+        // Compile the oracle into a table.  Bytes which do not appear in any prefix
+        // have a column of their own with no transitions:
+        final int numGroups = numSymbols + 1;
+        final Map<State<SequenceMatcher>, Integer> stateNumbers = new IdentityHashMap<State<SequenceMatcher>, Integer>();
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            stateNumbers.put(states.get(stateIndex), stateIndex);
+        }
+        final int[] transitions = new int[states.size() * numGroups];
+        Arrays.fill(transitions, NO_STATE);
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            for (final Transition<SequenceMatcher> transition : states.get(stateIndex)) {
+                final int group = byteGroups[transition.getBytes()[0] & 0xFF];
+                transitions[stateIndex * numGroups + group] = stateNumbers.get(transition.getToState()) * numGroups;
+            }
+        }
+        return new FactorOracle(byteGroups, numGroups, transitions, length);
+    }
+
+    /**
+     * Assigns each byte to a group, such that all the bytes matching at any position of
+     * the prefixes are in the same group.  Bytes which do not appear in any prefix are
+     * assigned to a group numbered after all the others.
+     *
+     * @return The number of groups of bytes appearing in the prefixes.
+     */
+    private static int groupBytes(final Collection<? extends SequenceMatcher> sequences,
+                                  final int length, final int[] byteGroups) {
+        // Union all the bytes matching at each position into the same set:
+        final int[] parents = new int[256];
+        final boolean[] used = new boolean[256];
+        for (int value = 0; value < 256; value++) {
+            parents[value] = value;
+        }
+        for (final SequenceMatcher sequence : sequences) {
+            for (int position = 0; position < length; position++) {
+                final byte[] matchingBytes = sequence.getMatcherForPosition(position).getMatchingBytes();
+                final int first = findRoot(parents, matchingBytes[0] & 0xFF);
+                used[first] = true;
+                for (final byte value : matchingBytes) {
+                    final int other = findRoot(parents, value & 0xFF);
+                    if (other != first) {
+                        parents[other] = first;
+                    }
+                }
+            }
+        }
+
+        // Number the sets which are used, then the bytes which are not:
+        final int[] groupNumbers = new int[256];
+        Arrays.fill(groupNumbers, -1);
+        int numGroups = 0;
+        for (int value = 0; value < 256; value++) {
+            final int root = findRoot(parents, value);
+            if (used[root] && groupNumbers[root] < 0) {
+                groupNumbers[root] = numGroups++;
+            }
+        }
+        for (int value = 0; value < 256; value++) {
+            final int root = findRoot(parents, value);
+            byteGroups[value] = used[root]? groupNumbers[root] : numGroups;
+        }
+        return numGroups;
+    }
+
+    private static int findRoot(final int[] parents, final int value) {
+        int root = value;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        return root;
+    }
+
+}
@@ -32,8 +32,10 @@
 package net.byteseek.matcher.automata;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import net.byteseek.automata.Automata;
@@ -41,6 +43,7 @@ import net.byteseek.automata.State;
 import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.MatchResult;
+import net.byteseek.matcher.SimpleMatchResult;
 
 /**
  * 
@@ -48,6 +51,9 @@ import net.byteseek.matcher.MatchResult;
  */
 public final class NfaMatcher<T> implements AutomataMatcher<T> {
 
+	private static final boolean FIRST_ONLY = true;
+	private static final boolean ALL_MATCHES = false;
+
 	private final Automata<T>	automata;
 
 	/**
@@ -156,43 +162,157 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public MatchResult<T> firstMatch(WindowReader reader, long matchPosition) throws IOException {
-		// TODO Auto-generated method stub
-		return null;
+	public MatchResult<T> firstMatch(final WindowReader reader, final long matchPosition) throws IOException {
+		return firstOf(matchesFrom(reader, matchPosition, 0, FIRST_ONLY));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public MatchResult<T> nextMatch(WindowReader reader, MatchResult<T> lastMatch) throws IOException {
-		// TODO Auto-generated method stub
-		return null;
+	public MatchResult<T> nextMatch(final WindowReader reader, final MatchResult<T> lastMatch) throws IOException {
+		return firstOf(matchesFrom(reader, lastMatch.getMatchPosition(), lastMatch.getMatchLength() + 1, FIRST_ONLY));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public Collection<MatchResult<T>> allMatches(WindowReader reader, long matchPosition)
+	public Collection<MatchResult<T>> allMatches(final WindowReader reader, final long matchPosition)
 			throws IOException {
-		// TODO Auto-generated method stub
-		return null;
+		return matchesFrom(reader, matchPosition, 0, ALL_MATCHES);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public MatchResult<T> firstMatch(byte[] bytes, int matchPosition) {
-		// TODO Auto-generated method stub
-		return null;
+	public MatchResult<T> firstMatch(final byte[] bytes, final int matchPosition) {
+		return firstOf(matchesFrom(bytes, matchPosition, 0, FIRST_ONLY));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public MatchResult<T> nextMatch(byte[] bytes, MatchResult<T> lastMatch) {
-		// TODO Auto-generated method stub
-		return null;
+	public MatchResult<T> nextMatch(final byte[] bytes, final MatchResult<T> lastMatch) {
+		return firstOf(matchesFrom(bytes, (int) lastMatch.getMatchPosition(), lastMatch.getMatchLength() + 1, FIRST_ONLY));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public Collection<MatchResult<T>> allMatches(byte[] bytes, int matchPosition) {
-		// TODO Auto-generated method stub
-		return null;
+	public Collection<MatchResult<T>> allMatches(final byte[] bytes, final int matchPosition) {
+		return matchesFrom(bytes, matchPosition, 0, ALL_MATCHES);
+	}
+
+	/*
+	 * Follows the automata from the match position, adding a MatchResult for each length at 
+	 * which a final state is active, as long as the length is at least the minimum length given.
+	 */
+	private List<MatchResult<T>> matchesFrom(final WindowReader reader, final long matchPosition,
+											 final long minimumLength, final boolean firstOnly) throws IOException {
+		final List<MatchResult<T>> results = new ArrayList<MatchResult<T>>();
+		if (matchPosition >= 0) {
+			long currentPosition = matchPosition;
+			Set<State<T>> nextStates = new LinkedHashSet<State<T>>();
+			Set<State<T>> activeStates = new LinkedHashSet<State<T>>();
+			activeStates.add(automata.getInitialState());
+			Window window = reader.getWindow(currentPosition);
+			while (window != null && !activeStates.isEmpty()) {
+				final byte[] bytes = window.getArray();
+				final int windowLength = window.length();
+				final int windowStart = reader.getWindowOffset(currentPosition);
+				int windowPos = windowStart;
+				while (!activeStates.isEmpty() && windowPos < windowLength) {
+					final long matchLength = currentPosition + windowPos - windowStart - matchPosition;
+					if (matchLength >= minimumLength && addFinalMatch(results, activeStates, matchPosition, matchLength)
+						&& firstOnly) {
+						return results;
+					}
+					final byte currentByte = bytes[windowPos++];
+					for (final State<T> currentState : activeStates) {
+						currentState.appendNextStates(nextStates, currentByte);
+					}
+					final Set<State<T>> lastActiveSet = activeStates;
+					activeStates = nextStates;
+					nextStates = lastActiveSet;
+					nextStates.clear();
+				}
+				currentPosition += windowLength - windowStart;
+				window = reader.getWindow(currentPosition);
+			}
+			// Any states still active after the last byte may be final:
+			final long matchLength = currentPosition - matchPosition;
+			if (matchLength >= minimumLength && currentPosition > matchPosition) {
+				addFinalMatch(results, activeStates, matchPosition, matchLength);
+			}
+		}
+		return results;
+	}
+
+	/*
+	 * Follows the automata from the match position, adding a MatchResult for each length at 
+	 * which a final state is active, as long as the length is at least the minimum length given.
+	 */
+	private List<MatchResult<T>> matchesFrom(final byte[] bytes, final int matchPosition,
+											 final long minimumLength, final boolean firstOnly) {
+		final List<MatchResult<T>> results = new ArrayList<MatchResult<T>>();
+		final int length = bytes.length;
+		if (matchPosition >= 0 && matchPosition < length) {
+			int currentPosition = matchPosition;
+			Set<State<T>> nextStates = new LinkedHashSet<State<T>>();
+			Set<State<T>> activeStates = new LinkedHashSet<State<T>>();
+			activeStates.add(automata.getInitialState());
+			while (!activeStates.isEmpty()) {
+				final long matchLength = currentPosition - matchPosition;
+				if (matchLength >= minimumLength && addFinalMatch(results, activeStates, matchPosition, matchLength)
+					&& firstOnly) {
+					break;
+				}
+				if (currentPosition == length) {
+					break;
+				}
+				final byte currentByte = bytes[currentPosition++];
+				for (final State<T> currentState : activeStates) {
+					currentState.appendNextStates(nextStates, currentByte);
+				}
+				final Set<State<T>> lastActiveSet = activeStates;
+				activeStates = nextStates;
+				nextStates = lastActiveSet;
+				nextStates.clear();
+			}
+		}
+		return results;
+	}
+
+	private static <T> boolean addFinalMatch(final List<MatchResult<T>> results, final Set<State<T>> activeStates,
+											 final long matchPosition, final long matchLength) {
+		Set<T> associations = null;
+		for (final State<T> currentState : activeStates) {
+			if (currentState.isFinal()) {
+				if (associations == null) {
+					associations = new LinkedHashSet<T>();
+				}
+				associations.addAll(currentState.getAssociations());
+			}
+		}
+		if (associations != null) {
+			results.add(new SimpleMatchResult<T>(matchPosition, matchLength, associations));
+			return true;
+		}
+		return false;
 	}
-	
+
+	private static <T> MatchResult<T> firstOf(final List<MatchResult<T>> results) {
+		return results.isEmpty() ? null : results.get(0);
+	}
+
     @Override
     public String toString() {
     	return getClass().getSimpleName() + "[automata:" + automata + ']'; 
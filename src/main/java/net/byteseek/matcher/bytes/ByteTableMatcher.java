@@ -0,0 +1,316 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.bytes;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.ByteUtils;
+
+/**
+ * A ByteTableMatcher is a {@link ByteMatcher} which matches an arbitrary set of bytes
+ * by looking up the byte value in a table of four longs, one bit for each possible value.
+ * <p>
+ * Testing any set of bytes takes a single lookup, with no branches, whatever the
+ * set contains, and whether or not it is inverted.  This makes it a canonical form for
+ * byte classes in code which tests bytes in tight loops.  If all the byte classes used
+ * in a loop are ByteTableMatchers (or the {@link OneByteMatcher} and {@link AnyByteMatcher}
+ * which are even simpler), then calls to {@link ByteMatcher#matches(byte)} stay cheap, rather
+ * than being spread over many different ByteMatcher implementations.
+ * <p>
+ * Code which wants byte classes in this form can request them with {@link #tabulate(ByteMatcher)}
+ * or {@link #tabulateSequence(SequenceMatcher)}.  The {@link #FACTORY} always creates
+ * ByteTableMatchers, for example for use with a
+ * {@link net.byteseek.matcher.automata.ByteMatcherTransitionFactory}, and the
+ * {@link OptimalByteMatcherFactory} creates them when they are cheaper than the alternatives.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class ByteTableMatcher extends AbstractByteMatcher {
+
+    /**
+     * A {@link ByteMatcherFactory} which always creates ByteTableMatchers.
+     */
+    public static final ByteMatcherFactory FACTORY = new TableMatcherFactory();
+
+    private static final int NUM_WORDS = 4;
+
+    private final long[] table = new long[NUM_WORDS];
+    private final int numberOfMatchingBytes;
+
+    /**
+     * Constructs a ByteTableMatcher from a collection of bytes, which may contain duplicates.
+     *
+     * @param bytes    The bytes to match.
+     * @param inverted Whether to match the bytes which are not in the collection instead.
+     * @throws IllegalArgumentException if the collection is null or empty.
+     */
+    public ByteTableMatcher(final Collection<Byte> bytes, final boolean inverted) {
+        ArgUtils.checkNullOrEmptyCollection(bytes, "bytes");
+        for (final Byte value : bytes) {
+            setBit(value);
+        }
+        numberOfMatchingBytes = countAndInvert(inverted);
+    }
+
+    /**
+     * Constructs a ByteTableMatcher from an array of bytes, which may contain duplicates.
+     *
+     * @param bytes The bytes to match.
+     * @throws IllegalArgumentException if the array is null or empty.
+     */
+    public ByteTableMatcher(final byte... bytes) {
+        ArgUtils.checkNullOrEmptyByteArray(bytes, "bytes");
+        for (final byte value : bytes) {
+            setBit(value);
+        }
+        numberOfMatchingBytes = countAndInvert(false);
+    }
+
+    /**
+     * Returns a ByteTableMatcher which matches the same bytes as the matcher passed in,
+     * or the matcher itself if it is already a ByteTableMatcher.
+     *
+     * @param matcher The ByteMatcher to create a ByteTableMatcher from.
+     * @return A ByteTableMatcher matching the same bytes as the matcher passed in.
+     * @throws IllegalArgumentException if the matcher is null, or matches no bytes.
+     */
+    public static ByteTableMatcher valueOf(final ByteMatcher matcher) {
+        ArgUtils.checkNullObject(matcher, "matcher");
+        if (matcher instanceof ByteTableMatcher) {
+            return (ByteTableMatcher) matcher;
+        }
+        return new ByteTableMatcher(matcher.getMatchingBytes());
+    }
+
+    /**
+     * Returns a ByteMatcher which can be tested with a single lookup.
+     * Matchers for a single byte or for all bytes are returned unchanged, as they are even
+     * simpler to test.  All other matchers are returned as ByteTableMatchers.
+     *
+     * @param matcher The ByteMatcher to tabulate.
+     * @return A ByteMatcher matching the same bytes, which can be tested with a single lookup.
+     * @throws IllegalArgumentException if the matcher is null.
+     */
+    public static ByteMatcher tabulate(final ByteMatcher matcher) {
+        ArgUtils.checkNullObject(matcher, "matcher");
+        if (matcher instanceof ByteTableMatcher ||
+            matcher instanceof OneByteMatcher ||
+            matcher instanceof AnyByteMatcher) {
+            return matcher;
+        }
+        final int numberOfBytes = matcher.getNumberOfMatchingBytes();
+        if (numberOfBytes == 1) {
+            return OneByteMatcher.valueOf(matcher.getMatchingBytes()[0]);
+        }
+        return numberOfBytes == 256? AnyByteMatcher.ANY_BYTE_MATCHER : valueOf(matcher);
+    }
+
+    /**
+     * Returns a SequenceMatcher whose positions can each be tested with a single lookup,
+     * as given by {@link #tabulate(ByteMatcher)}.  If all the positions in the sequence
+     * already can be, the sequence itself is returned.
+     *
+     * @param sequence The SequenceMatcher to tabulate.
+     * @return A SequenceMatcher matching the same bytes, whose positions can be tested with a single lookup.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public static SequenceMatcher tabulateSequence(final SequenceMatcher sequence) {
+        ArgUtils.checkNullObject(sequence, "sequence");
+        final int length = sequence.length();
+        final ByteMatcher[] matchers = new ByteMatcher[length];
+        boolean changed = false;
+        for (int position = 0; position < length; position++) {
+            final ByteMatcher matcher = sequence.getMatcherForPosition(position);
+            matchers[position] = tabulate(matcher);
+            changed |= matchers[position] != matcher;
+        }
+        if (!changed) {
+            return sequence;
+        }
+        return length == 1? matchers[0] : new ByteMatcherSequenceMatcher(matchers);
+    }
+
+    /**
+     * Returns a copy of the table of bits used by this matcher.  Bit (value &amp; 63) of
+     * the long at index (value &gt;&gt;&gt; 6) is set if the unsigned byte value matches.
+     *
+     * @return A copy of the table of bits used by this matcher.
+     */
+    public long[] getTable() {
+        return table.clone();
+    }
+
+    /**
+     * Returns a new array of 256 booleans, indexed by unsigned byte value, which are true
+     * if that byte value matches.
+     *
+     * @return An array of 256 booleans giving whether each byte value matches.
+     */
+    public boolean[] getBooleanTable() {
+        final boolean[] booleanTable = new boolean[256];
+        for (int value = 0; value < 256; value++) {
+            booleanTable[value] = matches((byte) value);
+        }
+        return booleanTable;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final byte theByte) {
+        return (table[(theByte & 0xFF) >>> 6] & (1L << theByte)) != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+        final Window window = reader.getWindow(matchPosition);
+        return window != null && matches(window.getByte(reader.getWindowOffset(matchPosition)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final byte[] bytes, final int matchPosition) {
+        return matchPosition >= 0 && matchPosition < bytes.length && matches(bytes[matchPosition]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final byte[] bytes, final int matchPosition) {
+        final byte value = bytes[matchPosition];
+        return (table[(value & 0xFF) >>> 6] & (1L << value)) != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getMatchingBytes() {
+        final byte[] matchingBytes = new byte[numberOfMatchingBytes];
+        int byteIndex = 0;
+        for (int value = 0; value < 256; value++) {
+            if (matches((byte) value)) {
+                matchingBytes[byteIndex++] = (byte) value;
+            }
+        }
+        return matchingBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumberOfMatchingBytes() {
+        return numberOfMatchingBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If more than half the byte values match, the expression is written as the inverse
+     * of the byte values which do not match.
+     */
+    @Override
+    public String toRegularExpression(final boolean prettyPrint) {
+        final boolean inverted = numberOfMatchingBytes > 128;
+        final StringBuilder regularExpression = new StringBuilder();
+        if (inverted) {
+            regularExpression.append('^');
+        }
+        regularExpression.append('[');
+        boolean firstItem = true;
+        for (int value = 0; value < 256; value++) {
+            if (matches((byte) value) ^ inverted) {
+                if (prettyPrint && !firstItem) {
+                    regularExpression.append(' ');
+                }
+                regularExpression.append(ByteUtils.byteToString(prettyPrint, value));
+                firstItem = false;
+            }
+        }
+        regularExpression.append(']');
+        return regularExpression.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + toRegularExpression(false);
+    }
+
+    private void setBit(final byte value) {
+        table[(value & 0xFF) >>> 6] |= 1L << value;
+    }
+
+    private int countAndInvert(final boolean inverted) {
+        int count = 0;
+        for (int word = 0; word < NUM_WORDS; word++) {
+            if (inverted) {
+                table[word] = ~table[word];
+            }
+            count += Long.bitCount(table[word]);
+        }
+        return count;
+    }
+
+
+    /**
+     * A ByteMatcherFactory which always creates ByteTableMatchers.
+     */
+    private static final class TableMatcherFactory implements ByteMatcherFactory {
+
+        @Override
+        public ByteMatcher create(final Collection<Byte> bytes) {
+            return new ByteTableMatcher(bytes, NOT_INVERTED);
+        }
+
+        @Override
+        public ByteMatcher create(final Collection<Byte> bytes, final boolean inverted) {
+            return new ByteTableMatcher(bytes, inverted);
+        }
+    }
+
+}
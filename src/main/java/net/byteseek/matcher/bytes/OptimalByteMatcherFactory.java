@@ -55,9 +55,12 @@ import net.byteseek.utils.ArgUtils;
  * <li>Do the set of bytes match a bitmask (all or any of the bits?)  Use either an 
  *     {@link net.byteseek.matcher.bytes.AnyBitmaskMatcher} or a {@link net.byteseek.matcher.bytes.AllBitmaskMatcher}.
  * <li>Do the set of bytes match a contiguous range of bytes?  Use a {@link net.byteseek.matcher.bytes.ByteRangeMatcher}
- * <li>For less than 16 byte values, use a {@link net.byteseek.matcher.bytes.SetBinarySearchMatcher}.
- * <li>Otherwise, fall back on a {@link net.byteseek.matcher.bytes.SetBitsetMatcher}.
+ * <li>If a binary search of the byte values would take no more comparisons than the cost
+ *     of a table lookup, use a {@link net.byteseek.matcher.bytes.SetBinarySearchMatcher}.
+ * <li>Otherwise, fall back on a {@link net.byteseek.matcher.bytes.ByteTableMatcher}.
  * </ul>
+ * The cost of a table lookup is estimated as {@link #TABLE_LOOKUP_COST} comparisons,
+ * so sets of less than eight byte values are binary searched.
  * 
  * @author Matt Palmer
  */
@@ -65,7 +68,11 @@ public final class OptimalByteMatcherFactory implements ByteMatcherFactory {
 
     public static ByteMatcherFactory FACTORY = new OptimalByteMatcherFactory();
 
-    private static final int BINARY_SEARCH_THRESHOLD = 16;
+    /**
+     * The estimated cost of looking up a byte in a {@link ByteTableMatcher}, in terms
+     * of the number of comparisons a binary search could make in the same time.
+     */
+    public static final int TABLE_LOOKUP_COST = 3;
 
     
     /**
@@ -113,8 +120,8 @@ public final class OptimalByteMatcherFactory implements ByteMatcherFactory {
                 result = getInvertibleCases(invertedValues, true);
                 if (result == null) {
 
-                    // Fall back on a standard set, defined as passed in.
-                    result = new SetBitsetMatcher(uniqueValues, matchInverse);
+                    // Fall back on a table of the set, defined as passed in.
+                    result = new ByteTableMatcher(uniqueValues, matchInverse);
                 }
             }
         }
@@ -209,14 +216,22 @@ public final class OptimalByteMatcherFactory implements ByteMatcherFactory {
     
     private ByteMatcher getBinarySearchMatcher(final Set<Byte> values, final boolean isInverted) {
         ByteMatcher result = null;
-        // if there aren't very many values, use a BinarySearchMatcher:
-        if (values.size() < BINARY_SEARCH_THRESHOLD) { // small number of bytes in set - use binary searcher:
+        // if a binary search is no more costly than a table lookup, use a BinarySearchMatcher:
+        if (getBinarySearchCost(values.size()) <= TABLE_LOOKUP_COST) {
             result = new SetBinarySearchMatcher(values, isInverted);
         }
         return result;
     }
 
 
+    /**
+     * Returns the maximum number of comparisons a binary search of a number of values makes.
+     */
+    private static int getBinarySearchCost(final int numberOfValues) {
+        return 32 - Integer.numberOfLeadingZeros(numberOfValues);
+    }
+
+
     private static List<Integer> getSortedByteValues(final Set<Byte> byteSet) {
         final List<Integer> sortedByteValues = new ArrayList<Integer>();
         for (final Byte b : byteSet) {
@@ -0,0 +1,603 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.fragment;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.Matcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A {@link Matcher} for a chain of fixed-length {@link SequenceMatcher} fragments separated
+ * by gaps whose length can vary between a minimum and a maximum, for example
+ * <code>'PK' .{26,30} 'mimetype'</code>.
+ * <p>
+ * The fragments must match in order, and each gap can be any length from its minimum to its
+ * maximum inclusive.  As there can be more than one way of fitting the fragments around the
+ * gaps, all the positions a fragment could match at are tracked together, rather than
+ * backtracking through each possible choice of gap in turn.  No position is ever tested twice
+ * for the same fragment, so matching a chain never takes more than the span of the chain
+ * multiplied by the number of fragments.
+ * <p>
+ * A chain can also be matched outwards from any of its fragments. This lets a searcher look for
+ * the most selective fragment first, and then check the fragments to either side of it.
+ * The length of a match is the length of the shortest way of matching the rest of the chain
+ * from its first fragment.
+ * <p>
+ * This class is immutable, and so is thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class FragmentChainMatcher implements Matcher {
+
+    /**
+     * The value returned from methods returning a position or a length if there was no match.
+     */
+    public static final int NO_MATCH = -1;
+
+    private final SequenceMatcher[] fragments;
+    private final int[] minimumGaps;
+    private final int[] maximumGaps;
+    private final int[] minimumOffsets;
+    private final int[] maximumOffsets;
+    private final int minimumLength;
+    private final int maximumLength;
+
+
+    /**
+     * Constructs a FragmentChainMatcher from two fragments separated by a gap.
+     *
+     * @param first       The first fragment to match.
+     * @param minimumGap  The minimum number of bytes between the first and second fragments.
+     * @param maximumGap  The maximum number of bytes between the first and second fragments.
+     * @param second      The second fragment to match.
+     * @throws IllegalArgumentException if either fragment is null, the minimum gap is negative,
+     *                                  or the maximum gap is less than the minimum gap.
+     */
+    public FragmentChainMatcher(final SequenceMatcher first, final int minimumGap,
+                                final int maximumGap, final SequenceMatcher second) {
+        this(new SequenceMatcher[] {first, second}, new int[] {minimumGap}, new int[] {maximumGap});
+    }
+
+
+    /**
+     * Constructs a FragmentChainMatcher from a list of fragments, and the minimum and maximum
+     * gaps between them.  The gap at index i lies between the fragments at index i and i + 1,
+     * so there must be one less gap than there are fragments.
+     *
+     * @param fragments   The fragments to match, in the order they must appear.
+     * @param minimumGaps The minimum number of bytes between each pair of adjacent fragments.
+     * @param maximumGaps The maximum number of bytes between each pair of adjacent fragments.
+     * @throws IllegalArgumentException if the list of fragments is null, empty or contains nulls,
+     *                                  the gap arrays are null or not one less than the number of fragments,
+     *                                  any minimum gap is negative, any maximum gap is less than its
+     *                                  minimum gap, or the chain can be longer than Integer.MAX_VALUE.
+     */
+    public FragmentChainMatcher(final List<? extends SequenceMatcher> fragments,
+                                final int[] minimumGaps, final int[] maximumGaps) {
+        this(toArray(fragments), minimumGaps, maximumGaps);
+    }
+
+
+    private FragmentChainMatcher(final SequenceMatcher[] fragments,
+                                 final int[] minimumGaps, final int[] maximumGaps) {
+        ArgUtils.checkNullOrEmptyArrayNoNullElements(fragments, "fragments");
+        checkGaps(minimumGaps, maximumGaps, fragments.length - 1);
+        this.fragments = fragments;
+        this.minimumGaps = minimumGaps.clone();
+        this.maximumGaps = maximumGaps.clone();
+        this.minimumOffsets = new int[fragments.length];
+        this.maximumOffsets = new int[fragments.length];
+        long minimumOffset = 0;
+        long maximumOffset = 0;
+        for (int fragment = 1; fragment < fragments.length; fragment++) {
+            final long previousLength = fragments[fragment - 1].length();
+            minimumOffset += previousLength + minimumGaps[fragment - 1];
+            maximumOffset += previousLength + maximumGaps[fragment - 1];
+            if (maximumOffset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The chain of fragments can be longer than Integer.MAX_VALUE.");
+            }
+            minimumOffsets[fragment] = (int) minimumOffset;
+            maximumOffsets[fragment] = (int) maximumOffset;
+        }
+        final int lastLength = fragments[fragments.length - 1].length();
+        if (maximumOffset + lastLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The chain of fragments can be longer than Integer.MAX_VALUE.");
+        }
+        this.minimumLength = (int) minimumOffset + lastLength;
+        this.maximumLength = (int) maximumOffset + lastLength;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    @Override
+    public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+        return matchEnd(reader, 0, matchPosition) != NO_MATCH;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final byte[] bytes, final int matchPosition) {
+        return matchEnd(bytes, 0, matchPosition) != NO_MATCH;
+    }
+
+
+    /**
+     * Returns the length of the shortest match of the chain starting at the match position,
+     * or {@link #NO_MATCH} if the chain does not match there.
+     *
+     * @param reader        The reader to match in.
+     * @param matchPosition The position the chain must start at.
+     * @return The length of the shortest match, or NO_MATCH if the chain does not match.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public long matchLength(final WindowReader reader, final long matchPosition) throws IOException {
+        final long matchEnd = matchEnd(reader, 0, matchPosition);
+        return matchEnd == NO_MATCH ? NO_MATCH : matchEnd - matchPosition;
+    }
+
+
+    /**
+     * Returns the length of the shortest match of the chain starting at the match position,
+     * or {@link #NO_MATCH} if the chain does not match there.
+     *
+     * @param bytes         The bytes to match in.
+     * @param matchPosition The position the chain must start at.
+     * @return The length of the shortest match, or NO_MATCH if the chain does not match.
+     */
+    public int matchLength(final byte[] bytes, final int matchPosition) {
+        final int matchEnd = matchEnd(bytes, 0, matchPosition);
+        return matchEnd == NO_MATCH ? NO_MATCH : matchEnd - matchPosition;
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments after it, returning the
+     * position one after the end of the shortest complete match of them, or {@link #NO_MATCH}
+     * if the fragment and the ones after it do not all match.
+     *
+     * @param reader            The reader to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @return The position one after the end of the shortest match, or NO_MATCH if there is no match.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public long matchEnd(final WindowReader reader, final int fragmentIndex,
+                         final long fragmentPosition) throws IOException {
+        if (fragmentPosition < 0 || !fragments[fragmentIndex].matches(reader, fragmentPosition)) {
+            return NO_MATCH;
+        }
+        BitSet positions = new BitSet();
+        positions.set(0);
+        for (int fragment = fragmentIndex; fragment < fragments.length - 1; fragment++) {
+            final int length = fragments[fragment].length();
+            final SequenceMatcher nextFragment = fragments[fragment + 1];
+            final BitSet candidates = new BitSet();
+            for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                candidates.set(position + length + minimumGaps[fragment], position + length + maximumGaps[fragment] + 1);
+            }
+            for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                if (!nextFragment.matches(reader, fragmentPosition + candidate)) {
+                    candidates.clear(candidate);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return NO_MATCH;
+            }
+            positions = candidates;
+        }
+        return fragmentPosition + positions.nextSetBit(0) + fragments[fragments.length - 1].length();
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments after it, returning the
+     * position one after the end of the shortest complete match of them, or {@link #NO_MATCH}
+     * if the fragment and the ones after it do not all match.
+     *
+     * @param bytes             The bytes to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @return The position one after the end of the shortest match, or NO_MATCH if there is no match.
+     */
+    public int matchEnd(final byte[] bytes, final int fragmentIndex, final int fragmentPosition) {
+        if (fragmentPosition < 0 || !fragments[fragmentIndex].matches(bytes, fragmentPosition)) {
+            return NO_MATCH;
+        }
+        BitSet positions = new BitSet();
+        positions.set(0);
+        for (int fragment = fragmentIndex; fragment < fragments.length - 1; fragment++) {
+            final int length = fragments[fragment].length();
+            final SequenceMatcher nextFragment = fragments[fragment + 1];
+            final int lastCandidate = bytes.length - nextFragment.length() - fragmentPosition;
+            final BitSet candidates = new BitSet();
+            for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                final int firstGap = position + length + minimumGaps[fragment];
+                final int lastGap  = position + length + maximumGaps[fragment];
+                if (firstGap <= lastCandidate) {
+                    candidates.set(firstGap, (lastGap < lastCandidate ? lastGap : lastCandidate) + 1);
+                }
+            }
+            for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                if (!nextFragment.matchesNoBoundsCheck(bytes, fragmentPosition + candidate)) {
+                    candidates.clear(candidate);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return NO_MATCH;
+            }
+            positions = candidates;
+        }
+        return fragmentPosition + positions.nextSetBit(0) + fragments[fragments.length - 1].length();
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments before it, returning the
+     * lowest position within the bounds given at which the whole chain up to that fragment can
+     * start, or {@link #NO_MATCH} if there is no such position.
+     *
+     * @param reader            The reader to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @param lowestStart       The lowest start position to accept.
+     * @param highestStart      The highest start position to accept.
+     * @return The lowest start position of a match, or NO_MATCH if there is no match.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public long firstMatchStart(final WindowReader reader, final int fragmentIndex, final long fragmentPosition,
+                                final long lowestStart, final long highestStart) throws IOException {
+        final BitSet starts = matchStarts(reader, fragmentIndex, fragmentPosition, lowestStart, highestStart);
+        final int first = starts.nextSetBit(0);
+        return first < 0 ? NO_MATCH : fragmentPosition - maximumOffsets[fragmentIndex] + first;
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments before it, returning the
+     * highest position within the bounds given at which the whole chain up to that fragment can
+     * start, or {@link #NO_MATCH} if there is no such position.
+     *
+     * @param reader            The reader to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @param lowestStart       The lowest start position to accept.
+     * @param highestStart      The highest start position to accept.
+     * @return The highest start position of a match, or NO_MATCH if there is no match.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public long lastMatchStart(final WindowReader reader, final int fragmentIndex, final long fragmentPosition,
+                               final long lowestStart, final long highestStart) throws IOException {
+        final BitSet starts = matchStarts(reader, fragmentIndex, fragmentPosition, lowestStart, highestStart);
+        return starts.isEmpty() ? NO_MATCH : fragmentPosition - maximumOffsets[fragmentIndex] + starts.length() - 1;
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments before it, returning the
+     * lowest position within the bounds given at which the whole chain up to that fragment can
+     * start, or {@link #NO_MATCH} if there is no such position.
+     *
+     * @param bytes             The bytes to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @param lowestStart       The lowest start position to accept.
+     * @param highestStart      The highest start position to accept.
+     * @return The lowest start position of a match, or NO_MATCH if there is no match.
+     */
+    public int firstMatchStart(final byte[] bytes, final int fragmentIndex, final int fragmentPosition,
+                               final int lowestStart, final int highestStart) {
+        final BitSet starts = matchStarts(bytes, fragmentIndex, fragmentPosition, lowestStart, highestStart);
+        final int first = starts.nextSetBit(0);
+        return first < 0 ? NO_MATCH : fragmentPosition - maximumOffsets[fragmentIndex] + first;
+    }
+
+
+    /**
+     * Matches a fragment at a position, and then matches the fragments before it, returning the
+     * highest position within the bounds given at which the whole chain up to that fragment can
+     * start, or {@link #NO_MATCH} if there is no such position.
+     *
+     * @param bytes             The bytes to match in.
+     * @param fragmentIndex     The index of the fragment to begin matching from.
+     * @param fragmentPosition  The position the fragment must match at.
+     * @param lowestStart       The lowest start position to accept.
+     * @param highestStart      The highest start position to accept.
+     * @return The highest start position of a match, or NO_MATCH if there is no match.
+     */
+    public int lastMatchStart(final byte[] bytes, final int fragmentIndex, final int fragmentPosition,
+                              final int lowestStart, final int highestStart) {
+        final BitSet starts = matchStarts(bytes, fragmentIndex, fragmentPosition, lowestStart, highestStart);
+        return starts.isEmpty() ? NO_MATCH : fragmentPosition - maximumOffsets[fragmentIndex] + starts.length() - 1;
+    }
+
+
+    /**
+     * Returns the number of fragments in the chain.
+     *
+     * @return The number of fragments in the chain.
+     */
+    public int getNumberOfFragments() {
+        return fragments.length;
+    }
+
+
+    /**
+     * Returns the fragment at the index given.
+     *
+     * @param fragmentIndex The index of the fragment.
+     * @return The fragment at the index given.
+     * @throws ArrayIndexOutOfBoundsException if the index is outside the fragments in the chain.
+     */
+    public SequenceMatcher getFragment(final int fragmentIndex) {
+        return fragments[fragmentIndex];
+    }
+
+
+    /**
+     * Returns the index of the longest fragment in the chain.  If more than one fragment
+     * has the longest length, the first of them is returned.
+     *
+     * @return The index of the longest fragment in the chain.
+     */
+    public int getLongestFragmentIndex() {
+        int longestIndex = 0;
+        for (int fragment = 1; fragment < fragments.length; fragment++) {
+            if (fragments[fragment].length() > fragments[longestIndex].length()) {
+                longestIndex = fragment;
+            }
+        }
+        return longestIndex;
+    }
+
+
+    /**
+     * Returns the minimum gap after the fragment at the index given.
+     *
+     * @param gapIndex The index of the gap, which follows the fragment with the same index.
+     * @return The minimum number of bytes in the gap.
+     * @throws ArrayIndexOutOfBoundsException if the index is outside the gaps in the chain.
+     */
+    public int getMinimumGap(final int gapIndex) {
+        return minimumGaps[gapIndex];
+    }
+
+
+    /**
+     * Returns the maximum gap after the fragment at the index given.
+     *
+     * @param gapIndex The index of the gap, which follows the fragment with the same index.
+     * @return The maximum number of bytes in the gap.
+     * @throws ArrayIndexOutOfBoundsException if the index is outside the gaps in the chain.
+     */
+    public int getMaximumGap(final int gapIndex) {
+        return maximumGaps[gapIndex];
+    }
+
+
+    /**
+     * Returns the smallest distance from the start of a match to the fragment at the index given.
+     *
+     * @param fragmentIndex The index of the fragment.
+     * @return The smallest distance from the start of a match to the fragment.
+     * @throws ArrayIndexOutOfBoundsException if the index is outside the fragments in the chain.
+     */
+    public int getMinimumOffset(final int fragmentIndex) {
+        return minimumOffsets[fragmentIndex];
+    }
+
+
+    /**
+     * Returns the largest distance from the start of a match to the fragment at the index given.
+     *
+     * @param fragmentIndex The index of the fragment.
+     * @return The largest distance from the start of a match to the fragment.
+     * @throws ArrayIndexOutOfBoundsException if the index is outside the fragments in the chain.
+     */
+    public int getMaximumOffset(final int fragmentIndex) {
+        return maximumOffsets[fragmentIndex];
+    }
+
+
+    /**
+     * Returns the length of the shortest possible match of the chain.
+     *
+     * @return The length of the shortest possible match of the chain.
+     */
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+
+    /**
+     * Returns the length of the longest possible match of the chain.
+     *
+     * @return The length of the longest possible match of the chain.
+     */
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+
+    /**
+     * Returns a regular expression representation of the chain, with each variable gap
+     * written as a repeated any byte, e.g. <code>.{26,30}</code>.
+     *
+     * @param prettyPrint Whether to pretty print the regular expression.
+     * @return A regular expression representing the chain.
+     */
+    public String toRegularExpression(final boolean prettyPrint) {
+        final StringBuilder regularExpression = new StringBuilder();
+        for (int fragment = 0; fragment < fragments.length; fragment++) {
+            if (fragment > 0) {
+                if (prettyPrint) {
+                    regularExpression.append(' ');
+                }
+                final int minimumGap = minimumGaps[fragment - 1];
+                final int maximumGap = maximumGaps[fragment - 1];
+                if (maximumGap > 0) {
+                    regularExpression.append(".{").append(minimumGap);
+                    if (maximumGap > minimumGap) {
+                        regularExpression.append(',').append(maximumGap);
+                    }
+                    regularExpression.append('}');
+                    if (prettyPrint) {
+                        regularExpression.append(' ');
+                    }
+                }
+            }
+            regularExpression.append(fragments[fragment].toRegularExpression(prettyPrint));
+        }
+        return regularExpression.toString();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '[' + toRegularExpression(true) + ']';
+    }
+
+
+    private BitSet matchStarts(final WindowReader reader, final int fragmentIndex, final long fragmentPosition,
+                               final long lowestStart, final long highestStart) throws IOException {
+        final long firstStart = lowestStart > 0 ? lowestStart : 0;
+        final long lastStart = highestStart < fragmentPosition ? highestStart : fragmentPosition;
+        BitSet positions = new BitSet();
+        final long base = fragmentPosition - maximumOffsets[fragmentIndex];
+        if (firstStart <= lastStart &&
+            fragmentPosition >= firstStart + minimumOffsets[fragmentIndex] &&
+            fragmentPosition <= lastStart + maximumOffsets[fragmentIndex] &&
+            fragments[fragmentIndex].matches(reader, fragmentPosition)) {
+            positions.set(maximumOffsets[fragmentIndex]);
+            for (int fragment = fragmentIndex - 1; fragment >= 0; fragment--) {
+                final SequenceMatcher matcher = fragments[fragment];
+                final int length = matcher.length();
+                final long lowest  = Math.max(firstStart + minimumOffsets[fragment], base) - base;
+                final long highest = Math.min(lastStart + maximumOffsets[fragment], fragmentPosition) - base;
+                final BitSet candidates = new BitSet();
+                for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                    final long firstGap = Math.max(position - length - maximumGaps[fragment], lowest);
+                    final long lastGap  = Math.min(position - length - minimumGaps[fragment], highest);
+                    if (firstGap <= lastGap) {
+                        candidates.set((int) firstGap, (int) lastGap + 1);
+                    }
+                }
+                for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                    if (!matcher.matches(reader, base + candidate)) {
+                        candidates.clear(candidate);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+                positions = candidates;
+            }
+        }
+        return positions;
+    }
+
+
+    private BitSet matchStarts(final byte[] bytes, final int fragmentIndex, final int fragmentPosition,
+                               final int lowestStart, final int highestStart) {
+        final int firstStart = lowestStart > 0 ? lowestStart : 0;
+        final int lastStart = highestStart < fragmentPosition ? highestStart : fragmentPosition;
+        BitSet positions = new BitSet();
+        final int base = fragmentPosition - maximumOffsets[fragmentIndex];
+        if (firstStart <= lastStart &&
+            fragmentPosition >= firstStart + minimumOffsets[fragmentIndex] &&
+            fragmentPosition <= lastStart + maximumOffsets[fragmentIndex] &&
+            fragments[fragmentIndex].matches(bytes, fragmentPosition)) {
+            positions.set(maximumOffsets[fragmentIndex]);
+            for (int fragment = fragmentIndex - 1; fragment >= 0; fragment--) {
+                final SequenceMatcher matcher = fragments[fragment];
+                final int length = matcher.length();
+                final int lowest  = Math.max(firstStart + minimumOffsets[fragment], base) - base;
+                final int highest = Math.min(lastStart + maximumOffsets[fragment], fragmentPosition) - base;
+                final BitSet candidates = new BitSet();
+                for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                    final long firstGap = Math.max(position - length - maximumGaps[fragment], lowest);
+                    final long lastGap  = Math.min(position - length - minimumGaps[fragment], highest);
+                    if (firstGap <= lastGap) {
+                        candidates.set((int) firstGap, (int) lastGap + 1);
+                    }
+                }
+                for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                    if (!matcher.matchesNoBoundsCheck(bytes, base + candidate)) {
+                        candidates.clear(candidate);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+                positions = candidates;
+            }
+        }
+        return positions;
+    }
+
+
+    private static SequenceMatcher[] toArray(final List<? extends SequenceMatcher> fragments) {
+        ArgUtils.checkNullCollection(fragments, "fragments");
+        return fragments.toArray(new SequenceMatcher[fragments.size()]);
+    }
+
+
+    private static void checkGaps(final int[] minimumGaps, final int[] maximumGaps, final int numberOfGaps) {
+        if (minimumGaps == null || maximumGaps == null) {
+            throw new IllegalArgumentException("The gap arrays cannot be null.");
+        }
+        if (minimumGaps.length != numberOfGaps || maximumGaps.length != numberOfGaps) {
+            throw new IllegalArgumentException("There must be " + numberOfGaps + " gaps between the fragments, " +
+                                               "but there are " + minimumGaps.length + " minimum and " +
+                                               maximumGaps.length + " maximum gaps.");
+        }
+        for (int gap = 0; gap < numberOfGaps; gap++) {
+            if (minimumGaps[gap] < 0 || maximumGaps[gap] < minimumGaps[gap]) {
+                throw new IllegalArgumentException("Gap " + gap + " must have a minimum of zero or more, and a " +
+                                                   "maximum no less than the minimum: {" + minimumGaps[gap] +
+                                                   ',' + maximumGaps[gap] + '}');
+            }
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.multisequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Matches a set of rules, each of which is a {@link SequenceMatcher} which must match at a fixed
+ * offset, and returns the identifier of every rule which matches.
+ * <p>
+ * The sequences are grouped by offset, and the sequences in each group are placed in a single
+ * {@link TrieMultiSequenceMatcher}.  Evaluating all the rules costs one walk of a trie for each
+ * distinct offset, rather than one match for each rule.  Most fixed-offset rules are at offset zero,
+ * so in practice this is often a single trie walk.
+ * <p>
+ * Offsets are relative to a base position, which is the start of the data unless another is given.
+ * <p>
+ * The FixedOffsetSequenceMatcher is immutable, so can be safely used in multi-threaded applications.
+ *
+ * @param <T> The type of rule identifier returned for a match.
+ *
+ * @author Matt Palmer
+ */
+public final class FixedOffsetSequenceMatcher<T> {
+
+    private final long[] offsets;
+    private final MultiSequenceMatcher[] matchers;
+    private final List<Map<SequenceMatcher, List<T>>> rulesForSequence;
+    private final int numberOfRules;
+
+    /**
+     * Constructs a FixedOffsetSequenceMatcher from lists of rule identifiers, offsets and sequences.
+     * The rule at each index of the lists matches if the sequence at that index matches at the offset
+     * at that index.  The same identifier can be given for more than one rule, in which case it is
+     * returned if any of those rules match.
+     *
+     * @param ids       The identifiers of the rules.
+     * @param offsets   The offset each rule must match at.
+     * @param sequences The sequence each rule must match.
+     * @throws IllegalArgumentException if any list is null or empty, contains null elements,
+     *                                  the lists are not the same size, or an offset is negative.
+     */
+    public FixedOffsetSequenceMatcher(final List<? extends T> ids, final List<Long> offsets,
+                                      final List<? extends SequenceMatcher> sequences) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(ids, "ids");
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(offsets, "offsets");
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(sequences, "sequences");
+        ArgUtils.checkCollectionSize(offsets, ids.size());
+        ArgUtils.checkCollectionSize(sequences, ids.size());
+
+        final Map<Long, Map<SequenceMatcher, List<T>>> buckets = new TreeMap<Long, Map<SequenceMatcher, List<T>>>();
+        for (int rule = 0; rule < ids.size(); rule++) {
+            final Long offset = offsets.get(rule);
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offsets cannot be negative: " + offset);
+            }
+            Map<SequenceMatcher, List<T>> bucket = buckets.get(offset);
+            if (bucket == null) {
+                bucket = new IdentityHashMap<SequenceMatcher, List<T>>();
+                buckets.put(offset, bucket);
+            }
+            final SequenceMatcher sequence = sequences.get(rule);
+            List<T> rules = bucket.get(sequence);
+            if (rules == null) {
+                rules = new ArrayList<T>(1);
+                bucket.put(sequence, rules);
+            }
+            rules.add(ids.get(rule));
+        }
+
+        this.offsets  = new long[buckets.size()];
+        this.matchers = new MultiSequenceMatcher[buckets.size()];
+        this.rulesForSequence = new ArrayList<Map<SequenceMatcher, List<T>>>(buckets.size());
+        int index = 0;
+        for (final Map.Entry<Long, Map<SequenceMatcher, List<T>>> bucket : buckets.entrySet()) {
+            this.offsets[index]  = bucket.getKey();
+            this.matchers[index] = new TrieMultiSequenceMatcher(bucket.getValue().keySet());
+            this.rulesForSequence.add(bucket.getValue());
+            index++;
+        }
+        this.numberOfRules = ids.size();
+    }
+
+    /**
+     * Returns the identifiers of all rules which match in the reader, with offsets
+     * relative to the start of the reader.
+     *
+     * @param reader The reader to match in.
+     * @return The identifiers of all matching rules, in order of offset, without duplicates.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public Set<T> allMatches(final WindowReader reader) throws IOException {
+        return allMatches(reader, 0);
+    }
+
+    /**
+     * Returns the identifiers of all rules which match in the reader, with offsets
+     * relative to the base position given.
+     *
+     * @param reader       The reader to match in.
+     * @param basePosition The position the offsets are relative to.
+     * @return The identifiers of all matching rules, in order of offset, without duplicates.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public Set<T> allMatches(final WindowReader reader, final long basePosition) throws IOException {
+        Set<T> results = Collections.emptySet();
+        for (int bucket = 0; bucket < offsets.length; bucket++) {
+            final long matchPosition = basePosition + offsets[bucket];
+            if (matchPosition >= 0) {
+                results = addRules(results, bucket, matchers[bucket].allMatches(reader, matchPosition));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the identifiers of all rules which match in the byte array, with offsets
+     * relative to the start of the array.
+     *
+     * @param bytes The byte array to match in.
+     * @return The identifiers of all matching rules, in order of offset, without duplicates.
+     */
+    public Set<T> allMatches(final byte[] bytes) {
+        return allMatches(bytes, 0);
+    }
+
+    /**
+     * Returns the identifiers of all rules which match in the byte array, with offsets
+     * relative to the base position given.
+     *
+     * @param bytes        The byte array to match in.
+     * @param basePosition The position the offsets are relative to.
+     * @return The identifiers of all matching rules, in order of offset, without duplicates.
+     */
+    public Set<T> allMatches(final byte[] bytes, final int basePosition) {
+        Set<T> results = Collections.emptySet();
+        for (int bucket = 0; bucket < offsets.length; bucket++) {
+            final long matchPosition = basePosition + offsets[bucket];
+            if (matchPosition >= bytes.length) {
+                break; // offsets are in ascending order, so no later bucket can match.
+            }
+            if (matchPosition >= 0) {
+                results = addRules(results, bucket, matchers[bucket].allMatches(bytes, (int) matchPosition));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the number of distinct offsets, which is the number of trie walks needed to match all the rules.
+     *
+     * @return The number of distinct offsets.
+     */
+    public int getNumberOfOffsets() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the distinct offsets of the rules, in ascending order.
+     *
+     * @return The distinct offsets of the rules, in ascending order.
+     */
+    public long[] getOffsets() {
+        return offsets.clone();
+    }
+
+    /**
+     * Returns the number of rules this matcher was constructed with.
+     *
+     * @return The number of rules this matcher was constructed with.
+     */
+    public int getNumberOfRules() {
+        return numberOfRules;
+    }
+
+    private Set<T> addRules(final Set<T> results, final int bucket, final Collection<SequenceMatcher> matching) {
+        if (matching.isEmpty()) {
+            return results;
+        }
+        final Map<SequenceMatcher, List<T>> rules = rulesForSequence.get(bucket);
+        final Set<T> addTo = results.isEmpty() ? new LinkedHashSet<T>() : results;
+        for (final SequenceMatcher sequence : matching) {
+            addTo.addAll(rules.get(sequence));
+        }
+        return addTo;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(getClass().getSimpleName()).append('[');
+        for (int bucket = 0; bucket < offsets.length; bucket++) {
+            if (bucket > 0) {
+                builder.append(", ");
+            }
+            builder.append(offsets[bucket]).append(": ").append(matchers[bucket]);
+        }
+        return builder.append(']').toString();
+    }
+
+}
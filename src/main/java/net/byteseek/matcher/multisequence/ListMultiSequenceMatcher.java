@@ -165,10 +165,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
             final int matchPosition) {
         List<SequenceMatcher> result = Collections.emptyList();         
         final long noOfBytes = bytes.length;
-        //FIXME: bounds checking doesn't look right.
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         if (result.isEmpty()) {
@@ -270,9 +269,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override      
     public SequenceMatcher firstMatch(final byte[] bytes, final int matchPosition) {
         final long noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return sequence;
@@ -356,9 +355,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override
     public boolean matches(final byte[] bytes, final int matchPosition) {
         final int noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return true;
@@ -125,8 +125,8 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 					result.addAll(matching);
 				}
 			}
-			currentPosition += windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() + windowLength;
+			window = reader.getWindow(currentPosition);
 		}
 		return result;
 	}
@@ -139,7 +139,7 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		List<SequenceMatcher> result = Collections.emptyList();
 		final int noOfBytes = bytes.length;
 		final int minimumLength = trie.getMinimumLength();
-		if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+		if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
 			State<SequenceMatcher> state = trie.getInitialState();
 			int currentPosition = matchPosition;
 			while (state != null && currentPosition < noOfBytes) {
@@ -185,8 +185,8 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 					result.addAll(matching);
 				}
 			}
-			currentPosition -= windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() - 1;
+			window = currentPosition >= 0? reader.getWindow(currentPosition) : null;
 		}
 		return result;
 	}
@@ -200,7 +200,7 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		List<SequenceMatcher> result = Collections.emptyList();
 		final int noOfBytes = bytes.length;
 		final int minimumLength = trie.getMinimumLength();
-		if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+		if (matchPosition >= minimumLength - 1 && matchPosition < noOfBytes) {
 			State<SequenceMatcher> state = trie.getInitialState();
 			int currentPosition = matchPosition;
 			while (state != null && currentPosition >= 0) {
@@ -241,8 +241,8 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 					return getFirstAssociation(state);
 				}
 			}
-			currentPosition += windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() + windowLength;
+			window = reader.getWindow(currentPosition);
 		}
 		return null;
 	}
@@ -290,8 +290,8 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 					return getFirstAssociation(state);
 				}
 			}
-			currentPosition -= windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() - 1;
+			window = currentPosition >= 0? reader.getWindow(currentPosition) : null;
 		}
 		return null;
 	}
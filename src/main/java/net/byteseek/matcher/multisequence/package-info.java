@@ -34,5 +34,7 @@
   * one or more sequences of bytes or sets of bytes.  Various classes are provided
   * that match multi-sequences using a variety of techniques, including a simple
   * list of SequenceMatchers, a Trie structure of SequenceMatchers and a hash matcher.
+  * A fixed-offset matcher groups rules by the offset they must match at, using one
+  * Trie for each distinct offset.
   */
  package net.byteseek.matcher.multisequence;
\ No newline at end of file
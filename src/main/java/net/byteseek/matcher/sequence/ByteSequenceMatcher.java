@@ -52,11 +52,18 @@ import net.byteseek.utils.ArgUtils;
  * It can be shared with other immutable SequenceMatchers, constructed from an existing ByteSequenceMatcher.
  * Different views over the original byte array can be quickly constructed, such 
  * as subsequences, or the reverse order of the bytes. 
+ * <p>
+ * Verification compares the first byte on its own, so most failing verifications end
+ * at once.  Any further bytes are compared a word of eight bytes at a time, returning at the
+ * first word which differs, with any bytes left over compared individually.  The library
+ * targets Java 6, so {@code Arrays.mismatch} is not available to it.
  *
  * @author Matt Palmer
  */
 public final class ByteSequenceMatcher implements SequenceMatcher {
     
+    private static final int WORD_SIZE = 8;
+
     private final byte[] byteArray;
     private final int startArrayIndex; // the position to start at (an inclusive value)
     private final int endArrayIndex;   // one past the actual end position (an exclusive value)
@@ -304,11 +311,11 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
             final int finalMatchIndex = offset + matchLength - bytesMatchedSoFar;
             final int sourceEnd = finalWindowIndex < finalMatchIndex?
                                   finalWindowIndex : finalMatchIndex;
-            for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
-                if (source[sourcePos] != matchArray[matchPos++]) {
-                    return false;
-                }
+            final int bytesToMatch = sourceEnd - offset;
+            if (!regionMatches(matchArray, matchPos, source, offset, bytesToMatch)) {
+                return false;
             }
+            matchPos += bytesToMatch;
             if (matchPos >= matchEnd) {
                 return true;
             }
@@ -326,18 +333,9 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
      */
     @Override
     public boolean matches(final byte[] bytes, final int matchPosition) {
-        if (matchPosition + endArrayIndex - startArrayIndex <= bytes.length && matchPosition >= 0) {
-            final byte[] matchArray = byteArray;
-            final int endingIndex = endArrayIndex;
-            int position = matchPosition;            
-            for (int matchIndex = startArrayIndex; matchIndex < endingIndex; matchIndex++) {
-                if (matchArray[matchIndex] != bytes[position++]) {
-                    return false;
-                }
-            }
-            return true;
-        }
-        return false;
+        final int length = endArrayIndex - startArrayIndex;
+        return matchPosition + length <= bytes.length && matchPosition >= 0 &&
+               regionMatches(byteArray, startArrayIndex, bytes, matchPosition, length);
     }    
 
     
@@ -348,15 +346,7 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
      */
     @Override
     public boolean matchesNoBoundsCheck(final byte[] bytes, final int matchPosition) {
-        int position = matchPosition;
-        final byte[] matchArray = byteArray;   
-        final int endingIndex = endArrayIndex;
-        for (int matchIndex = startArrayIndex; matchIndex < endingIndex; matchIndex++) {
-            if (matchArray[matchIndex] != bytes[position++]) {
-                return false;
-            }
-        }
-        return true;
+        return regionMatches(byteArray, startArrayIndex, bytes, matchPosition, endArrayIndex - startArrayIndex);
     }
     
     
@@ -478,6 +468,116 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
 		}
 		
 	}
+
+    /**
+     * Returns true if a number of bytes in the pattern array are the same as the bytes in
+     * the source array, both read forwards.  No bounds checking is performed.
+     *
+     * @param pattern      The array containing the bytes to match.
+     * @param patternStart The position in the pattern array to start matching from.
+     * @param source       The array to match the pattern against.
+     * @param sourceStart  The position in the source array to start matching from.
+     * @param length       The number of bytes to match.
+     * @return true if all the bytes match.
+     */
+    private static boolean regionMatches(final byte[] pattern, final int patternStart,
+                                         final byte[] source, final int sourceStart,
+                                         final int length) {
+        if (length == 0) {
+            return true;
+        }
+        if (pattern[patternStart] != source[sourceStart]) {
+            return false;
+        }
+        int patternPos = patternStart + 1;
+        int sourcePos  = sourceStart + 1;
+        final int sourceEnd = sourceStart + length;
+        final int lastWordPos = sourceEnd - WORD_SIZE;
+        while (sourcePos <= lastWordPos) {
+            if (wordForwards(pattern, patternPos) != wordForwards(source, sourcePos)) {
+                return false;
+            }
+            patternPos += WORD_SIZE;
+            sourcePos  += WORD_SIZE;
+        }
+        while (sourcePos < sourceEnd) {
+            if (pattern[patternPos++] != source[sourcePos++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns true if a number of bytes in the pattern array, read backwards, are the same as the bytes
+     * in the source array read forwards.  No bounds checking is performed.
+     *
+     * @param pattern      The array containing the bytes to match.
+     * @param patternLast  The position in the pattern array to start matching backwards from.
+     * @param source       The array to match the pattern against.
+     * @param sourceStart  The position in the source array to start matching forwards from.
+     * @param length       The number of bytes to match.
+     * @return true if all the bytes match.
+     */
+    private static boolean reverseRegionMatches(final byte[] pattern, final int patternLast,
+                                                final byte[] source, final int sourceStart,
+                                                final int length) {
+        if (length == 0) {
+            return true;
+        }
+        if (pattern[patternLast] != source[sourceStart]) {
+            return false;
+        }
+        int patternPos = patternLast - 1;
+        int sourcePos  = sourceStart + 1;
+        final int sourceEnd = sourceStart + length;
+        final int lastWordPos = sourceEnd - WORD_SIZE;
+        while (sourcePos <= lastWordPos) {
+            if (wordBackwards(pattern, patternPos) != wordForwards(source, sourcePos)) {
+                return false;
+            }
+            patternPos -= WORD_SIZE;
+            sourcePos  += WORD_SIZE;
+        }
+        while (sourcePos < sourceEnd) {
+            if (pattern[patternPos--] != source[sourcePos++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the eight bytes starting at a position, read forwards, as a long.
+     */
+    private static long wordForwards(final byte[] bytes, final int position) {
+        return ((long)  bytes[position    ]         << 56) |
+               ((long) (bytes[position + 1] & 0xFF) << 48) |
+               ((long) (bytes[position + 2] & 0xFF) << 40) |
+               ((long) (bytes[position + 3] & 0xFF) << 32) |
+               ((long) (bytes[position + 4] & 0xFF) << 24) |
+               ((long) (bytes[position + 5] & 0xFF) << 16) |
+               ((long) (bytes[position + 6] & 0xFF) <<  8) |
+               ((long) (bytes[position + 7] & 0xFF));
+    }
+
+
+    /**
+     * Returns the eight bytes ending at a position, read backwards from it, as a long.
+     */
+    private static long wordBackwards(final byte[] bytes, final int position) {
+        return ((long)  bytes[position    ]         << 56) |
+               ((long) (bytes[position - 1] & 0xFF) << 48) |
+               ((long) (bytes[position - 2] & 0xFF) << 40) |
+               ((long) (bytes[position - 3] & 0xFF) << 32) |
+               ((long) (bytes[position - 4] & 0xFF) << 24) |
+               ((long) (bytes[position - 5] & 0xFF) << 16) |
+               ((long) (bytes[position - 6] & 0xFF) <<  8) |
+               ((long) (bytes[position - 7] & 0xFF));
+    }
+
     
     ////////////////////////////////////////////////////////////////////////////
     //                                ReverseByteArrayMatcher                 //        
@@ -595,11 +695,11 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
                 final int finalMatchIndex = offset + matchLength - bytesMatchedSoFar;
                 final int sourceEnd = finalWindowIndex < finalMatchIndex?
                                       finalWindowIndex : finalMatchIndex;
-                for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
-                    if (source[sourcePos] != matchArray[matchPos--]) {
-                        return false;
-                    }
+                final int bytesToMatch = sourceEnd - offset;
+                if (!reverseRegionMatches(matchArray, matchPos, source, offset, bytesToMatch)) {
+                    return false;
                 }
+                matchPos -= bytesToMatch;
                 if (matchPos < matchStart) {
                     return true;
                 }
@@ -615,18 +715,9 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
          */
         @Override
         public boolean matches(final byte[] bytes, final int matchPosition) {
-            if (matchPosition + length() <= bytes.length && matchPosition >= 0) {
-                final byte[] matchArray = byteArray;
-                final int endingIndex = startArrayIndex;
-                int position = matchPosition;            
-                for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
-                    if (matchArray[matchIndex] != bytes[position++]) {
-                        return false;
-                    }
-                }
-                return true;
-            }
-            return false;
+            final int length = endArrayIndex - startArrayIndex;
+            return matchPosition + length <= bytes.length && matchPosition >= 0 &&
+                   reverseRegionMatches(byteArray, endArrayIndex - 1, bytes, matchPosition, length);
         }    
 
 
@@ -635,15 +726,8 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
          */
         @Override
         public boolean matchesNoBoundsCheck(final byte[] bytes, final int matchPosition) {
-            int position = matchPosition;
-            final byte[] matchArray = byteArray;   
-            final int endingIndex = startArrayIndex;
-            for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
-                if (matchArray[matchIndex] != bytes[position++]) {
-                    return false;
-                }
-            }
-            return true;
+            return reverseRegionMatches(byteArray, endArrayIndex - 1, bytes, matchPosition,
+                                        endArrayIndex - startArrayIndex);
         }
 
 
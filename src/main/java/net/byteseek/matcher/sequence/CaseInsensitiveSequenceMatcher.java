@@ -0,0 +1,373 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.sequence;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.ByteUtils;
+
+/**
+ * An immutable class which matches a sequence of bytes, ignoring the case of any ASCII letters.
+ * <p>
+ * The bytes to match are held with their case folded to lower case.  Each byte
+ * read is folded through a 256 byte lookup table and compared directly with the folded
+ * pattern, rather than testing each position against a set of two bytes.
+ * Bytes which are not ASCII letters are matched exactly.
+ * <p>
+ * This is the matcher produced for case insensitive strings, and the
+ * {@link net.byteseek.searcher.sequence.horspool.CaseInsensitiveHorspoolSearcher}
+ * searches for it without expanding each letter into a set of bytes.
+ *
+ * @author Matt Palmer
+ */
+public final class CaseInsensitiveSequenceMatcher implements SequenceMatcher {
+
+    private final byte[] foldedBytes;
+
+
+    /****************
+     * Constructors *
+     ***************/
+
+    /**
+     * Constructs a CaseInsensitiveSequenceMatcher from a string, encoded as ISO-8859-1.
+     *
+     * @param string The string to match case insensitively.
+     * @throws IllegalArgumentException if the string is null or empty.
+     */
+    public CaseInsensitiveSequenceMatcher(final String string) {
+        this(ByteUtils.getBytes(string));
+    }
+
+
+    /**
+     * Constructs a CaseInsensitiveSequenceMatcher from an array of bytes.
+     * The case of any ASCII letters in the array does not matter.
+     *
+     * @param bytes The bytes to match case insensitively.
+     * @throws IllegalArgumentException if the array is null or empty.
+     */
+    public CaseInsensitiveSequenceMatcher(final byte... bytes) {
+        ArgUtils.checkNullOrEmptyByteArray(bytes);
+        this.foldedBytes = ByteUtils.foldASCIICase(bytes);
+    }
+
+
+    /******************
+     * Public methods *
+     ******************/
+
+    /**
+     * Returns true if the byte matcher matches exactly the bytes which a position
+     * of a CaseInsensitiveSequenceMatcher would match: either a single byte which is not an ASCII
+     * letter, or the upper and lower case forms of an ASCII letter.
+     *
+     * @param matcher The ByteMatcher to test.
+     * @return true if the matcher can be represented by a position of a CaseInsensitiveSequenceMatcher.
+     * @throws IllegalArgumentException if the matcher is null.
+     */
+    public static boolean isCaseInsensitive(final ByteMatcher matcher) {
+        ArgUtils.checkNullObject(matcher);
+        final byte[] matchingBytes = matcher.getMatchingBytes();
+        if (matchingBytes.length == 1) {
+            return !ByteUtils.isASCIILetter(matchingBytes[0]);
+        }
+        return matchingBytes.length == 2 &&
+               ByteUtils.isASCIILetter(matchingBytes[0]) &&
+               matchingBytes[0] != matchingBytes[1] &&
+               ByteUtils.foldASCIICase(matchingBytes[0]) == ByteUtils.foldASCIICase(matchingBytes[1]);
+    }
+
+
+    /**
+     * Returns the byte matched at a position with the case of any ASCII letter folded to lower case.
+     *
+     * @param position The position in the sequence.
+     * @return The folded byte at that position.
+     * @throws IndexOutOfBoundsException if the position is outside the sequence.
+     */
+    public byte getFoldedByte(final int position) {
+        ArgUtils.checkIndexOutOfBounds(foldedBytes.length, position);
+        return foldedBytes[position];
+    }
+
+
+    /**
+     * Returns a copy of the bytes matched, with the case of any ASCII letters folded to lower case.
+     *
+     * @return A copy of the folded bytes matched.
+     */
+    public byte[] getFoldedBytes() {
+        return foldedBytes.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the WindowReader is null.
+     */
+    @Override
+    public boolean matches(final WindowReader reader, final long matchPosition)
+            throws IOException {
+        final byte[] matchArray = foldedBytes;
+        final int matchLength = matchArray.length;
+        Window window = reader.getWindow(matchPosition);
+        int matchPos = 0;
+        while (window != null) {
+            final byte[] source = window.getArray();
+            final int offset = reader.getWindowOffset(matchPosition + matchPos);
+            final int finalWindowIndex = window.length();
+            final int finalMatchIndex = offset + matchLength - matchPos;
+            final int sourceEnd = finalWindowIndex < finalMatchIndex?
+                                  finalWindowIndex : finalMatchIndex;
+            for (int sourcePos = offset; sourcePos < sourceEnd; sourcePos++) {
+                if (ByteUtils.foldASCIICase(source[sourcePos]) != matchArray[matchPos++]) {
+                    return false;
+                }
+            }
+            if (matchPos >= matchLength) {
+                return true;
+            }
+            window = reader.getWindow(matchPosition + matchPos);
+        }
+        return false;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the byte array passed in is null.
+     */
+    @Override
+    public boolean matches(final byte[] bytes, final int matchPosition) {
+        return matchPosition + foldedBytes.length <= bytes.length && matchPosition >= 0 &&
+               matchesNoBoundsCheck(bytes, matchPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the byte array passed in is null.
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final byte[] bytes, final int matchPosition) {
+        final byte[] matchArray = foldedBytes;
+        int position = matchPosition;
+        for (int matchIndex = 0; matchIndex < matchArray.length; matchIndex++) {
+            if (ByteUtils.foldASCIICase(bytes[position++]) != matchArray[matchIndex]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int length() {
+        return foldedBytes.length;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteMatcher getMatcherForPosition(final int position) {
+        return toByteMatcher(getFoldedByte(position));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher reverse() {
+        final int length = foldedBytes.length;
+        final byte[] reversed = new byte[length];
+        for (int index = 0; index < length; index++) {
+            reversed[index] = foldedBytes[length - 1 - index];
+        }
+        return new CaseInsensitiveSequenceMatcher(reversed);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher subsequence(final int beginIndex, final int endIndex) {
+        ArgUtils.checkIndexOutOfBounds(length(), beginIndex, endIndex);
+        final int subsequenceLength = endIndex - beginIndex;
+        if (subsequenceLength == 1) {
+            return toByteMatcher(foldedBytes[beginIndex]);
+        }
+        if (subsequenceLength == length()) {
+            return this;
+        }
+        return new CaseInsensitiveSequenceMatcher(Arrays.copyOfRange(foldedBytes, beginIndex, endIndex));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher subsequence(final int beginIndex) {
+        return subsequence(beginIndex, length());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the number of repeats is less than one.
+     */
+    @Override
+    public SequenceMatcher repeat(final int numberOfRepeats) {
+        ArgUtils.checkPositiveInteger(numberOfRepeats);
+        if (numberOfRepeats == 1) {
+            return this;
+        }
+        return new CaseInsensitiveSequenceMatcher(ByteUtils.repeat(numberOfRepeats, foldedBytes));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Printable ASCII characters are rendered as case insensitive strings
+     * enclosed in back-ticks; other bytes are rendered as hex bytes.
+     */
+    @Override
+    public String toRegularExpression(final boolean prettyPrint) {
+        final StringBuilder regex = new StringBuilder(foldedBytes.length + 8);
+        boolean inString = false;
+        for (int index = 0; index < foldedBytes.length; index++) {
+            final int byteValue = foldedBytes[index] & 0xFF;
+            if (byteValue >= ' ' && byteValue <= '~' && byteValue != '`') {
+                if (!inString) {
+                    if (prettyPrint && index > 0) {
+                        regex.append(' ');
+                    }
+                    regex.append('`');
+                    inString = true;
+                }
+                regex.append((char) byteValue);
+            } else {
+                if (inString) {
+                    regex.append('`');
+                    inString = false;
+                }
+                if (prettyPrint && index > 0) {
+                    regex.append(' ');
+                }
+                regex.append(ByteUtils.byteToString(false, byteValue));
+            }
+        }
+        if (inString) {
+            regex.append('`');
+        }
+        return regex.toString();
+    }
+
+
+    /**
+     * Returns a string representation of this matcher.  The format is subject
+     * to change, but it will generally return the name of the matching class
+     * and a regular expression defining the bytes matched by the matcher.
+     *
+     * @return A string representing this matcher.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '[' + toRegularExpression(true) + ']';
+    }
+
+
+    @Override
+    public Iterator<ByteMatcher> iterator() {
+        return new ByteMatcherIterator();
+    }
+
+
+    /*******************
+     * Private methods *
+     *******************/
+
+    private static ByteMatcher toByteMatcher(final byte foldedByte) {
+        if (foldedByte >= 'a' && foldedByte <= 'z') {
+            return new TwoByteMatcher(foldedByte, (byte) (foldedByte - ('a' - 'A')));
+        }
+        return OneByteMatcher.valueOf(foldedByte);
+    }
+
+
+    private final class ByteMatcherIterator implements Iterator<ByteMatcher> {
+
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            return position < foldedBytes.length;
+        }
+
+        @Override
+        public ByteMatcher next() {
+            if (hasNext()) {
+                return toByteMatcher(foldedBytes[position++]);
+            }
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Byte matchers cannot be removed from a CaseInsensitiveSequenceMatcher");
+        }
+
+    }
+
+}
@@ -117,6 +117,93 @@ public abstract class AbstractSearcher<T> implements Searcher<T> {
 		return searchBackwards(bytes, bytes.length - 1, 0);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns a {@link ForwardSearchCursor}, which calls the forward
+	 * search methods of this searcher for each group of matches.
+	 */
+	@Override
+	public SearchCursor<T> searchCursor(final WindowReader reader, final long fromPosition,
+			final long toPosition) {
+		return new ForwardSearchCursor<T>(this, reader, fromPosition, toPosition);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation returns a {@link ForwardSearchCursor}, which calls the forward
+	 * search methods of this searcher for each group of matches.
+	 */
+	@Override
+	public SearchCursor<T> searchCursor(final byte[] bytes, final int fromPosition,
+			final int toPosition) {
+		return new ForwardSearchCursor<T>(this, bytes, fromPosition, toPosition);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation counts the matches returned by the search cursor of
+	 * this searcher.
+	 */
+	@Override
+	public long count(final WindowReader reader, final long fromPosition,
+			final long toPosition) throws IOException {
+		final SearchCursor<T> cursor = searchCursor(reader, fromPosition, toPosition);
+		long matches = 0;
+		while (cursor.nextMatch() != SearchCursor.NO_MATCH) {
+			matches++;
+		}
+		return matches;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation counts the results of searching forwards repeatedly,
+	 * resuming one on from the furthest match found each time.
+	 */
+	@Override
+	public long count(final byte[] bytes, final int fromPosition, final int toPosition) {
+		long matches = 0;
+		int searchPosition = fromPosition;
+		while (searchPosition <= toPosition) {
+			final List<SearchResult<T>> results = searchForwards(bytes, searchPosition, toPosition);
+			if (results.isEmpty()) {
+				break;
+			}
+			matches += results.size();
+			long furthestPosition = searchPosition;
+			for (final SearchResult<T> result : results) {
+				furthestPosition = Math.max(furthestPosition, result.getMatchPosition());
+			}
+			searchPosition = (int) furthestPosition + 1;
+		}
+		return matches;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation searches forwards once for the first match.
+	 */
+	@Override
+	public boolean exists(final WindowReader reader, final long fromPosition,
+			final long toPosition) throws IOException {
+		return !searchForwards(reader, fromPosition, toPosition).isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation searches forwards once for the first match.
+	 */
+	@Override
+	public boolean exists(final byte[] bytes, final int fromPosition, final int toPosition) {
+		return !searchForwards(bytes, fromPosition, toPosition).isEmpty();
+	}
+
 	/**
 	 * Returns a position guaranteed to be within the length of the reader, or
 	 * -1 if the reader itself has a length of zero.
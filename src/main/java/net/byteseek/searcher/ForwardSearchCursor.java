@@ -0,0 +1,156 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A {@link SearchCursor} which works with any {@link Searcher}, by calling its forward search
+ * methods for each group of matches found at a position, and returning the matches in the group
+ * one at a time.
+ * <p>
+ * The search resumes one after the furthest match found in the last group, in the same way as a
+ * {@link ForwardSearchIterator}, but any IOException is propagated rather than ending the search.
+ * Searchers which can resume their search more efficiently may provide their own cursors.
+ *
+ * @param <T> The type of object associated with a match.
+ *
+ * @author Matt Palmer
+ */
+public final class ForwardSearchCursor<T> implements SearchCursor<T> {
+
+    private final Searcher<T> searcher;
+    private final WindowReader reader;
+    private final byte[] bytes;
+    private final long toPosition;
+
+    private long searchPosition;
+    private List<SearchResult<T>> results = SearchUtils.noResults();
+    private int resultIndex;
+    private T matchingObject;
+    private boolean finished;
+
+    /**
+     * Constructs a ForwardSearchCursor over a reader.
+     *
+     * @param searcher     The searcher to search with.
+     * @param reader       The reader to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position a match can start at.
+     * @throws IllegalArgumentException if the searcher or reader is null.
+     */
+    public ForwardSearchCursor(final Searcher<T> searcher, final WindowReader reader,
+                               final long fromPosition, final long toPosition) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        ArgUtils.checkNullObject(reader, "reader");
+        this.searcher       = searcher;
+        this.reader         = reader;
+        this.bytes          = null;
+        this.searchPosition = fromPosition;
+        this.toPosition     = toPosition;
+    }
+
+    /**
+     * Constructs a ForwardSearchCursor over a byte array.
+     *
+     * @param searcher     The searcher to search with.
+     * @param bytes        The byte array to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position a match can start at.
+     * @throws IllegalArgumentException if the searcher or byte array is null.
+     */
+    public ForwardSearchCursor(final Searcher<T> searcher, final byte[] bytes,
+                               final int fromPosition, final int toPosition) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        this.searcher       = searcher;
+        this.reader         = null;
+        this.bytes          = bytes;
+        this.searchPosition = fromPosition;
+        this.toPosition     = toPosition;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long nextMatch() throws IOException {
+        if (resultIndex == results.size()) {
+            if (finished || searchPosition > toPosition) {
+                return noMoreMatches();
+            }
+            results = reader != null ? searcher.searchForwards(reader, searchPosition, toPosition)
+                                     : searcher.searchForwards(bytes, (int) searchPosition, (int) toPosition);
+            resultIndex = 0;
+            if (results.isEmpty()) {
+                return noMoreMatches();
+            }
+            searchPosition = furthestPosition(results) + 1;
+        }
+        final SearchResult<T> result = results.get(resultIndex++);
+        matchingObject = result.getMatchingObject();
+        return result.getMatchPosition();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getMatchingObject() {
+        return matchingObject;
+    }
+
+    private long noMoreMatches() {
+        finished = true;
+        matchingObject = null;
+        return NO_MATCH;
+    }
+
+    private long furthestPosition(final List<SearchResult<T>> searchResults) {
+        long furthest = Long.MIN_VALUE;
+        for (final SearchResult<T> result : searchResults) {
+            furthest = Math.max(furthest, result.getMatchPosition());
+        }
+        return furthest;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searcher: " + searcher + " position: " + searchPosition +
+                                            " to: " + toPosition + ']';
+    }
+
+}
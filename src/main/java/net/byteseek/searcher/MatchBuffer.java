@@ -0,0 +1,246 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A reusable {@link MatchSink} which stores match positions in a growable long array,
+ * and pattern indices in a parallel int array, rather than creating an object for each match.
+ * <p>
+ * A buffer can be cleared and reused between searches, which keeps the arrays it has
+ * already grown.  A buffer created with {@link #withOffHeapSpill(int)} never grows its arrays
+ * beyond the heap capacity given.  When they are full, the matches in them are copied to a chunk
+ * of direct (off-heap) memory, and the arrays are reused, so very large result sets do not
+ * need to be held on the heap.  Chunks are kept when the buffer is cleared, so they can be reused.
+ * <p>
+ * Matches are returned in the order they were added.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class MatchBuffer implements MatchSink {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int BYTES_PER_MATCH  = 12; // a long position and an int pattern index.
+    private static final int MAX_HEAP_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int MAX_CHUNK_CAPACITY = Integer.MAX_VALUE / BYTES_PER_MATCH;
+
+    private final int heapCapacity;
+    private final boolean spillOffHeap;
+    private final List<ByteBuffer> chunks;
+
+    private long[] positions;
+    private int[] patternIndices;
+    private int heapSize;
+    private long spilledSize;
+
+    /**
+     * Constructs a MatchBuffer with a default initial capacity, which holds all matches on the heap.
+     */
+    public MatchBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a MatchBuffer with the initial capacity given, which holds all matches on the heap.
+     *
+     * @param initialCapacity The number of matches the buffer can hold before it must grow.
+     * @throws IllegalArgumentException if the initial capacity is less than one.
+     */
+    public MatchBuffer(final int initialCapacity) {
+        this(initialCapacity, MAX_HEAP_CAPACITY, false);
+    }
+
+    private MatchBuffer(final int initialCapacity, final int heapCapacity, final boolean spillOffHeap) {
+        ArgUtils.checkPositiveInteger(initialCapacity, "initialCapacity");
+        this.heapCapacity   = heapCapacity;
+        this.spillOffHeap   = spillOffHeap;
+        this.chunks         = spillOffHeap ? new ArrayList<ByteBuffer>() : null;
+        this.positions      = new long[initialCapacity];
+        this.patternIndices = new int[initialCapacity];
+    }
+
+    /**
+     * Returns a MatchBuffer which holds at most heapCapacity matches on the heap.  When that many
+     * matches are held, they are copied into a chunk of direct memory, and the heap arrays are reused.
+     *
+     * @param heapCapacity The maximum number of matches to hold on the heap, which is also the number
+     *                     of matches in each chunk of direct memory.
+     * @return A MatchBuffer which spills its matches into direct memory.
+     * @throws IllegalArgumentException if the heap capacity is less than one, or too large to
+     *                                  fit in a single chunk of direct memory.
+     */
+    public static MatchBuffer withOffHeapSpill(final int heapCapacity) {
+        ArgUtils.checkPositiveInteger(heapCapacity, "heapCapacity");
+        if (heapCapacity > MAX_CHUNK_CAPACITY) {
+            throw new IllegalArgumentException("The heap capacity " + heapCapacity +
+                                               " cannot be larger than " + MAX_CHUNK_CAPACITY);
+        }
+        return new MatchBuffer(Math.min(DEFAULT_CAPACITY, heapCapacity), heapCapacity, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the buffer cannot grow any further.
+     */
+    @Override
+    public void addMatch(final long position, final int patternIndex) {
+        if (heapSize == positions.length) {
+            makeRoom();
+        }
+        positions[heapSize] = position;
+        patternIndices[heapSize] = patternIndex;
+        heapSize++;
+    }
+
+    /**
+     * Returns the number of matches in the buffer.
+     *
+     * @return The number of matches in the buffer.
+     */
+    public long size() {
+        return spilledSize + heapSize;
+    }
+
+    /**
+     * Returns true if there are no matches in the buffer.
+     *
+     * @return true if there are no matches in the buffer.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the position of the match at the index given.
+     *
+     * @param index The index of the match, in the order matches were added.
+     * @return The position of the match at the index given.
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the size of the buffer.
+     */
+    public long getPosition(final long index) {
+        checkIndex(index);
+        if (index >= spilledSize) {
+            return positions[(int) (index - spilledSize)];
+        }
+        return chunks.get((int) (index / heapCapacity)).getLong((int) (index % heapCapacity) * BYTES_PER_MATCH);
+    }
+
+    /**
+     * Returns the pattern index of the match at the index given.
+     *
+     * @param index The index of the match, in the order matches were added.
+     * @return The pattern index of the match at the index given.
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the size of the buffer.
+     */
+    public int getPatternIndex(final long index) {
+        checkIndex(index);
+        if (index >= spilledSize) {
+            return patternIndices[(int) (index - spilledSize)];
+        }
+        return chunks.get((int) (index / heapCapacity)).getInt((int) (index % heapCapacity) * BYTES_PER_MATCH + 8);
+    }
+
+    /**
+     * Removes all matches from the buffer, keeping the memory it has already allocated for reuse.
+     */
+    public void clear() {
+        heapSize = 0;
+        spilledSize = 0;
+    }
+
+    /**
+     * Returns the number of matches which have been copied into direct memory.
+     *
+     * @return The number of matches which have been copied into direct memory.
+     */
+    public long getSpilledSize() {
+        return spilledSize;
+    }
+
+    private void makeRoom() {
+        final int length = positions.length;
+        if (length < heapCapacity) {
+            final int newLength = length > heapCapacity / 2 ? heapCapacity : length * 2;
+            final long[] newPositions = new long[newLength];
+            final int[] newIndices = new int[newLength];
+            System.arraycopy(positions, 0, newPositions, 0, length);
+            System.arraycopy(patternIndices, 0, newIndices, 0, length);
+            positions = newPositions;
+            patternIndices = newIndices;
+        } else if (spillOffHeap) {
+            spill();
+        } else {
+            throw new IllegalStateException("The match buffer cannot hold more than " + heapCapacity + " matches.");
+        }
+    }
+
+    /*
+     * Copies the full heap arrays into the next chunk of direct memory, allocating it if it has not
+     * been allocated since the buffer was created.  Spills only happen when the heap arrays hold exactly
+     * heapCapacity matches, so every chunk is full and a match index maps directly to a chunk.
+     */
+    private void spill() {
+        final int chunkIndex = (int) (spilledSize / heapCapacity);
+        if (chunkIndex == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(heapCapacity * BYTES_PER_MATCH));
+        }
+        final ByteBuffer chunk = chunks.get(chunkIndex);
+        chunk.clear();
+        for (int match = 0; match < heapSize; match++) {
+            chunk.putLong(positions[match]);
+            chunk.putInt(patternIndices[match]);
+        }
+        spilledSize += heapSize;
+        heapSize = 0;
+    }
+
+    private void checkIndex(final long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not within the buffer size " + size());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + size() + " spilled: " + spilledSize +
+                                            " heap capacity: " + positions.length + ']';
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.IOException;
+
+/**
+ * A stateful forward search over a {@link net.byteseek.io.reader.WindowReader} or byte array,
+ * which returns one match at a time.  Unlike a {@link ForwardSearchIterator}, a cursor can keep
+ * the state of its search between matches, and it propagates any IOException encountered
+ * to the caller.
+ * <p>
+ * Cursors are obtained from a {@link Searcher}, and are not thread-safe.
+ *
+ * @param <T> The type of object associated with a match.
+ *
+ * @author Matt Palmer
+ */
+public interface SearchCursor<T> {
+
+    /**
+     * The value returned by {@link #nextMatch()} when there are no more matches.
+     */
+    long NO_MATCH = -1;
+
+    /**
+     * Finds the next match, and returns its position.  If more than one object matches at the
+     * same position, the position is returned once for each of them.
+     *
+     * @return The position of the next match, or {@link #NO_MATCH} if there are no more matches.
+     * @throws IOException if there was a problem reading the data being searched.
+     */
+    long nextMatch() throws IOException;
+
+    /**
+     * Returns the object which matched at the position last returned by {@link #nextMatch()},
+     * or null if no match has been returned.
+     *
+     * @return The object which matched at the position last returned by {@link #nextMatch()}.
+     */
+    T getMatchingObject();
+
+}
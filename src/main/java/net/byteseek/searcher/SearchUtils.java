@@ -34,10 +34,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
 
 /**
  * A static utility class holding useful methods in processing searches and
@@ -47,6 +50,12 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
  */
 public final class SearchUtils {
 
+	/**
+	 * The number of positions each searcher in a group looks at in turn,
+	 * when finding whether any of them has a match.
+	 */
+	private static final int EXISTS_BLOCK_SIZE = 65536;
+
 	/**
 	 * The constructor is private to prevent instantiation of a static utility
 	 * class.
@@ -150,6 +159,228 @@ public final class SearchUtils {
 		return results;
 	}
 
+	/**
+	 * Searches a byte array forwards for all matches of a {@link Searcher},
+	 * writing each match into a {@link MatchSink} rather than creating a list of results.
+	 * The pattern index of a match is the index of its matching object in the list
+	 * of patterns, or -1 if the object is not in the list.
+	 * <p>
+	 * The matches are read from a {@link SearchCursor}, so searchers which have their own cursor
+	 * write each match straight into the sink, without creating any result lists.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param patterns
+	 *            The objects the Searcher reports matches for, in pattern index order.
+	 * @param bytes
+	 *            The byte array to search in.
+	 * @param sink
+	 *            The MatchSink to write matches into.
+	 * @return The number of matches written into the sink.
+	 */
+	public static <T> long searchAllForwards(final Searcher<T> searcher, final List<? extends T> patterns,
+			final byte[] bytes, final MatchSink sink) {
+		final Map<Object, Integer> patternIndices = indexPatterns(patterns);
+		try {
+			return addMatches(searcher.searchCursor(bytes, 0, bytes.length - 1), patternIndices, sink);
+		} catch (final IOException cannotHappen) {
+			// A cursor over a byte array does not read from anything which can throw an IOException.
+			throw new IllegalStateException(cannotHappen);
+		}
+	}
+
+	/**
+	 * Searches a {@link net.byteseek.io.reader.WindowReader} forwards for all
+	 * matches of a {@link Searcher}, writing each match into a {@link MatchSink}
+	 * rather than creating a list of results.  The pattern index of a match is the
+	 * index of its matching object in the list of patterns, or -1 if the object is not in the list.
+	 * <p>
+	 * The matches are read from a {@link SearchCursor}, so searchers which have their own cursor
+	 * write each match straight into the sink, without creating any result lists.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param patterns
+	 *            The objects the Searcher reports matches for, in pattern index order.
+	 * @param reader
+	 *            The WindowReader to search in.
+	 * @param sink
+	 *            The MatchSink to write matches into.
+	 * @return The number of matches written into the sink.
+	 * @throws IOException
+	 *             If there was a problem reading from the reader.
+	 */
+	public static <T> long searchAllForwards(final Searcher<T> searcher, final List<? extends T> patterns,
+			final WindowReader reader, final MatchSink sink) throws IOException {
+		final Map<Object, Integer> patternIndices = indexPatterns(patterns);
+		return addMatches(searcher.searchCursor(reader, 0, Long.MAX_VALUE), patternIndices, sink);
+	}
+
+	/**
+	 * Searches a byte array backwards for all matches of a {@link Searcher},
+	 * writing each match into a {@link MatchSink} rather than creating a list of results.
+	 * The pattern index of a match is the index of its matching object in the list
+	 * of patterns, or -1 if the object is not in the list.
+	 * <p>
+	 * There are no backward cursors, so the searcher still returns a list of results for
+	 * each position it matches at; only the list of all the results is avoided.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param patterns
+	 *            The objects the Searcher reports matches for, in pattern index order.
+	 * @param bytes
+	 *            The byte array to search in.
+	 * @param sink
+	 *            The MatchSink to write matches into.
+	 * @return The number of matches written into the sink.
+	 */
+	public static <T> long searchAllBackwards(final Searcher<T> searcher, final List<? extends T> patterns,
+			final byte[] bytes, final MatchSink sink) {
+		final Map<Object, Integer> patternIndices = indexPatterns(patterns);
+		long matches = 0;
+		long searchPosition = bytes.length - 1;
+		while (searchPosition >= 0) {
+			final List<SearchResult<T>> results = searcher.searchBackwards(bytes, (int) searchPosition, 0);
+			if (results.isEmpty()) {
+				break;
+			}
+			matches += addMatches(results, patternIndices, sink);
+			searchPosition = furthestBackwards(results) - 1;
+		}
+		return matches;
+	}
+
+	/**
+	 * Searches a {@link net.byteseek.io.reader.WindowReader} backwards for all
+	 * matches of a {@link Searcher}, writing each match into a {@link MatchSink}
+	 * rather than creating a list of results.  The pattern index of a match is the
+	 * index of its matching object in the list of patterns, or -1 if the object is not in the list.
+	 * <p>
+	 * There are no backward cursors, so the searcher still returns a list of results for
+	 * each position it matches at; only the list of all the results is avoided.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param searcher
+	 *            The Searcher to search with.
+	 * @param patterns
+	 *            The objects the Searcher reports matches for, in pattern index order.
+	 * @param reader
+	 *            The WindowReader to search in.
+	 * @param sink
+	 *            The MatchSink to write matches into.
+	 * @return The number of matches written into the sink.
+	 * @throws IOException
+	 *             If there was a problem reading from the reader.
+	 */
+	public static <T> long searchAllBackwards(final Searcher<T> searcher, final List<? extends T> patterns,
+			final WindowReader reader, final MatchSink sink) throws IOException {
+		final Map<Object, Integer> patternIndices = indexPatterns(patterns);
+		long matches = 0;
+		long searchPosition = reader.length() - 1;
+		while (searchPosition >= 0) {
+			final List<SearchResult<T>> results = searcher.searchBackwards(reader, searchPosition, 0);
+			if (results.isEmpty()) {
+				break;
+			}
+			matches += addMatches(results, patternIndices, sink);
+			searchPosition = furthestBackwards(results) - 1;
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns whether any of a group of {@link Searcher}s has a match in a
+	 * {@link net.byteseek.io.reader.WindowReader} between the position given by
+	 * fromPosition and toPosition.
+	 * <p>
+	 * The searchers take turns to search consecutive blocks of the reader, so the
+	 * search stops shortly after the first match of any searcher, rather than each
+	 * searcher in turn searching the whole range.  No results are created for
+	 * matches beyond the first.
+	 * 
+	 * @param searchers
+	 *            The Searchers to search with.
+	 * @param reader
+	 *            The WindowReader to search in.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return True if any of the searchers has a match between the positions given.
+	 * @throws IOException
+	 *             If there was a problem reading from the reader.
+	 * @throws IllegalArgumentException
+	 *             If the list of searchers or the reader is null.
+	 */
+	public static boolean exists(final List<? extends Searcher<?>> searchers, final WindowReader reader,
+			final long fromPosition, final long toPosition) throws IOException {
+		ArgUtils.checkNullCollection(searchers, "searchers");
+		ArgUtils.checkNullObject(reader, "reader");
+		long blockStart = fromPosition > 0 ? fromPosition : 0;
+		while (blockStart <= toPosition) {
+			final long blockEnd = toPosition - blockStart < EXISTS_BLOCK_SIZE ? toPosition
+					: blockStart + EXISTS_BLOCK_SIZE - 1;
+			for (final Searcher<?> searcher : searchers) {
+				if (searcher.exists(reader, blockStart, blockEnd)) {
+					return true;
+				}
+			}
+			if (blockEnd == toPosition || reader.getWindow(blockEnd + 1) == null) {
+				break;
+			}
+			blockStart = blockEnd + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether any of a group of {@link Searcher}s has a match in a
+	 * byte array between the position given by fromPosition and toPosition.
+	 * <p>
+	 * The searchers take turns to search consecutive blocks of the array, so the
+	 * search stops shortly after the first match of any searcher, rather than each
+	 * searcher in turn searching the whole range.  No results are created for
+	 * matches beyond the first.
+	 * 
+	 * @param searchers
+	 *            The Searchers to search with.
+	 * @param bytes
+	 *            The byte array to search in.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return True if any of the searchers has a match between the positions given.
+	 * @throws IllegalArgumentException
+	 *             If the list of searchers or the byte array is null.
+	 */
+	public static boolean exists(final List<? extends Searcher<?>> searchers, final byte[] bytes,
+			final int fromPosition, final int toPosition) {
+		ArgUtils.checkNullCollection(searchers, "searchers");
+		ArgUtils.checkNullByteArray(bytes, "bytes");
+		final int lastPosition = toPosition < bytes.length - 1 ? toPosition : bytes.length - 1;
+		int blockStart = fromPosition > 0 ? fromPosition : 0;
+		while (blockStart <= lastPosition) {
+			final int blockEnd = lastPosition - blockStart < EXISTS_BLOCK_SIZE ? lastPosition
+					: blockStart + EXISTS_BLOCK_SIZE - 1;
+			for (final Searcher<?> searcher : searchers) {
+				if (searcher.exists(bytes, blockStart, blockEnd)) {
+					return true;
+				}
+			}
+			blockStart = blockEnd + 1;
+		}
+		return false;
+	}
+
 	/**
 	 * Returns a single SearchResult object from a match position and a matching
 	 * object.
@@ -270,4 +501,42 @@ public final class SearchUtils {
 		return newResults;
 	}
 
+	private static Map<Object, Integer> indexPatterns(final List<?> patterns) {
+		ArgUtils.checkNullCollection(patterns, "patterns");
+		final Map<Object, Integer> patternIndices = new IdentityHashMap<Object, Integer>(patterns.size() * 2);
+		for (int index = patterns.size() - 1; index >= 0; index--) {
+			patternIndices.put(patterns.get(index), index); // the lowest index is kept for duplicates.
+		}
+		return patternIndices;
+	}
+
+	private static <T> int addMatches(final List<SearchResult<T>> results, final Map<Object, Integer> patternIndices,
+			final MatchSink sink) {
+		for (final SearchResult<T> result : results) {
+			final Integer patternIndex = patternIndices.get(result.getMatchingObject());
+			sink.addMatch(result.getMatchPosition(), patternIndex == null ? -1 : patternIndex);
+		}
+		return results.size();
+	}
+
+	private static <T> long addMatches(final SearchCursor<T> cursor, final Map<Object, Integer> patternIndices,
+			final MatchSink sink) throws IOException {
+		long matches = 0;
+		long matchPosition;
+		while ((matchPosition = cursor.nextMatch()) != SearchCursor.NO_MATCH) {
+			final Integer patternIndex = patternIndices.get(cursor.getMatchingObject());
+			sink.addMatch(matchPosition, patternIndex == null ? -1 : patternIndex);
+			matches++;
+		}
+		return matches;
+	}
+
+	private static <T> long furthestBackwards(final List<SearchResult<T>> results) {
+		long furthestPosition = Long.MAX_VALUE;
+		for (final SearchResult<T> result : results) {
+			furthestPosition = Math.min(furthestPosition, result.getMatchPosition());
+		}
+		return furthestPosition;
+	}
+
 }
@@ -218,6 +218,98 @@ public interface Searcher<T> {
 	 */
 	public List<SearchResult<T>> searchBackwards(byte[] bytes);
 
+	/**
+	 * Returns a {@link SearchCursor} which finds the matches in a {@link WindowReader}
+	 * forwards one at a time, from the position given by fromPosition up to toPosition.
+	 * Unlike the search methods, a cursor can keep the state of its search between matches.
+	 * 
+	 * @param reader
+	 *            The byte reader giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return A SearchCursor over the reader.
+	 */
+	public SearchCursor<T> searchCursor(WindowReader reader, long fromPosition, long toPosition);
+
+	/**
+	 * Returns a {@link SearchCursor} which finds the matches in a byte array
+	 * forwards one at a time, from the position given by fromPosition up to toPosition.
+	 * Unlike the search methods, a cursor can keep the state of its search between matches.
+	 * 
+	 * @param bytes
+	 *            The byte array giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return A SearchCursor over the byte array.
+	 */
+	public SearchCursor<T> searchCursor(byte[] bytes, int fromPosition, int toPosition);
+
+	/**
+	 * Counts the matches in a {@link WindowReader} forwards from the position
+	 * given by fromPosition up to toPosition, without creating a list of results.
+	 * If more than one object matches at the same position, each of them is counted.
+	 * 
+	 * @param reader
+	 *            The byte reader giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return The number of matches found.
+	 * @throws IOException
+	 *             If there was a problem reading from the reader.
+	 */
+	public long count(WindowReader reader, long fromPosition, long toPosition) throws IOException;
+
+	/**
+	 * Counts the matches in a byte array forwards from the position given by
+	 * fromPosition up to toPosition, without creating a list of results.
+	 * If more than one object matches at the same position, each of them is counted.
+	 * 
+	 * @param bytes
+	 *            The byte array giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return The number of matches found.
+	 */
+	public long count(byte[] bytes, int fromPosition, int toPosition);
+
+	/**
+	 * Returns whether there is any match in a {@link WindowReader} between the
+	 * position given by fromPosition and toPosition, stopping at the first match found.
+	 * 
+	 * @param reader
+	 *            The byte reader giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return True if there is a match in the reader between the positions given.
+	 * @throws IOException
+	 *             If there was a problem reading from the reader.
+	 */
+	public boolean exists(WindowReader reader, long fromPosition, long toPosition) throws IOException;
+
+	/**
+	 * Returns whether there is any match in a byte array between the position
+	 * given by fromPosition and toPosition, stopping at the first match found.
+	 * 
+	 * @param bytes
+	 *            The byte array giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return True if there is a match in the byte array between the positions given.
+	 */
+	public boolean exists(byte[] bytes, int fromPosition, int toPosition);
+
 	/**
 	 * Ensures that the searcher is fully prepared to search forwards. Some
 	 * searchers may defer calculating all the necessary parameters until the
@@ -0,0 +1,272 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.batch;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.MatchSink;
+import net.byteseek.searcher.SearchCursor;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Searches many small records for all the matches of a single {@link Searcher} of sequences,
+ * writing the matches into a {@link MatchSink}.
+ * <p>
+ * Matches are written in record order, with positions relative to the start of their record.
+ * The search methods return the number of matches found in each record, so the matches of
+ * record i are the ones which follow the matches of all the records before it.
+ * <p>
+ * Records can be given as separate byte arrays, optionally with an offset and length into each,
+ * or as a single buffer with an array of record boundaries.  A match is only reported if it lies
+ * entirely within its record, even when the bytes of the next record follow it in the same array.
+ * <p>
+ * The searcher is prepared once when the RecordSearcher is constructed, the bounds of all the
+ * records are checked once before searching begins, and records are skipped without searching
+ * if they are shorter than the shortest pattern.  Each record is searched with a single
+ * {@link SearchCursor}, which keeps the state of the search from one match to the next, so searchers
+ * with their own cursors (such as the {@link net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher})
+ * do not create any result lists or objects for each match.
+ * <p>
+ * The RecordSearcher is immutable, and can be used from multiple threads if the searcher it wraps can.
+ *
+ * @author Matt Palmer
+ */
+public final class RecordSearcher {
+
+    private static final int UNKNOWN_PATTERN = -1;
+
+    private final Searcher<SequenceMatcher> searcher;
+    private final Map<SequenceMatcher, Integer> patternIndices;
+    private final int minimumLength;
+
+    /**
+     * Constructs a RecordSearcher for a searcher of a single sequence, which has pattern index zero.
+     *
+     * @param searcher The searcher to search the records with.
+     * @throws IllegalArgumentException if the searcher is null.
+     */
+    public RecordSearcher(final AbstractSequenceSearcher searcher) {
+        this(searcher, Collections.singletonList(checkNotNull(searcher).getMatcher()));
+    }
+
+    /**
+     * Constructs a RecordSearcher for a searcher of multiple sequences.  The pattern index
+     * of each match is the index of its sequence in the searcher's list of sequences.
+     *
+     * @param searcher The searcher to search the records with.
+     * @throws IllegalArgumentException if the searcher is null.
+     */
+    public RecordSearcher(final AbstractMultiSequenceSearcher searcher) {
+        this(searcher, checkNotNull(searcher).getMatcher().getSequenceMatchers());
+    }
+
+    /**
+     * Constructs a RecordSearcher from any searcher of sequences, and the list of sequences it searches for.
+     * The pattern index of each match is the index of the sequence in the list which matched.
+     *
+     * @param searcher The searcher to search the records with.
+     * @param patterns The sequences the searcher searches for.
+     * @throws IllegalArgumentException if the searcher is null, or the patterns are null, empty or contain null elements.
+     */
+    public RecordSearcher(final Searcher<SequenceMatcher> searcher, final List<? extends SequenceMatcher> patterns) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(patterns, "patterns");
+        this.searcher = searcher;
+        this.patternIndices = new IdentityHashMap<SequenceMatcher, Integer>(patterns.size() * 2);
+        int shortest = Integer.MAX_VALUE;
+        for (int index = patterns.size() - 1; index >= 0; index--) {
+            final SequenceMatcher pattern = patterns.get(index);
+            patternIndices.put(pattern, index); // lower indices overwrite higher ones for duplicates.
+            shortest = Math.min(shortest, pattern.length());
+        }
+        this.minimumLength = shortest;
+        searcher.prepareForwards();
+    }
+
+    /**
+     * Searches each byte array as a record.
+     *
+     * @param records The records to search.
+     * @param sink    The sink to write matches to.
+     * @return The number of matches found in each record.
+     * @throws IllegalArgumentException if the records, any record or the sink are null.
+     */
+    public int[] searchRecords(final byte[][] records, final MatchSink sink) {
+        ArgUtils.checkNullObject(records, "records");
+        ArgUtils.checkNullObject(sink, "sink");
+        for (final byte[] record : records) {
+            ArgUtils.checkNullByteArray(record, "record");
+        }
+        final int[] matches = new int[records.length];
+        for (int record = 0; record < records.length; record++) {
+            final byte[] bytes = records[record];
+            matches[record] = searchRecord(bytes, 0, bytes.length, sink);
+        }
+        return matches;
+    }
+
+    /**
+     * Searches part of each byte array as a record, given by an offset and length into each array.
+     *
+     * @param records The arrays holding the records to search.
+     * @param offsets The offset of each record in its array.
+     * @param lengths The length of each record.
+     * @param sink    The sink to write matches to.
+     * @return The number of matches found in each record.
+     * @throws IllegalArgumentException  if any parameter or record is null, or the number of offsets
+     *                                   or lengths is not the same as the number of records.
+     * @throws IndexOutOfBoundsException if any record does not lie within its array.
+     */
+    public int[] searchRecords(final byte[][] records, final int[] offsets, final int[] lengths,
+                              final MatchSink sink) {
+        ArgUtils.checkNullObject(records, "records");
+        ArgUtils.checkNullObject(offsets, "offsets");
+        ArgUtils.checkNullObject(lengths, "lengths");
+        ArgUtils.checkNullObject(sink, "sink");
+        if (offsets.length != records.length || lengths.length != records.length) {
+            throw new IllegalArgumentException("There must be an offset and length for each record: " +
+                                               records.length + ',' + offsets.length + ',' + lengths.length);
+        }
+        for (int record = 0; record < records.length; record++) {
+            ArgUtils.checkNullByteArray(records[record], "record");
+            checkRecordBounds(records[record].length, offsets[record], lengths[record], record);
+        }
+        final int[] matches = new int[records.length];
+        for (int record = 0; record < records.length; record++) {
+            final int offset = offsets[record];
+            matches[record] = searchRecord(records[record], offset, offset + lengths[record], sink);
+        }
+        return matches;
+    }
+
+    /**
+     * Searches a buffer holding consecutive records.  Record i runs from boundaries[i] up to,
+     * but not including, boundaries[i + 1], so there is one fewer record than boundaries.
+     *
+     * @param buffer     The buffer holding the records.
+     * @param boundaries The boundaries of the records, in ascending order.
+     * @param sink       The sink to write matches to.
+     * @return The number of matches found in each record.
+     * @throws IllegalArgumentException  if any parameter is null, or there are fewer than two boundaries.
+     * @throws IndexOutOfBoundsException if the boundaries are not ascending or do not lie within the buffer.
+     */
+    public int[] searchRecords(final byte[] buffer, final int[] boundaries, final MatchSink sink) {
+        ArgUtils.checkNullByteArray(buffer, "buffer");
+        ArgUtils.checkNullObject(boundaries, "boundaries");
+        ArgUtils.checkNullObject(sink, "sink");
+        if (boundaries.length < 2) {
+            throw new IllegalArgumentException("There must be at least two record boundaries: " + boundaries.length);
+        }
+        final int numberOfRecords = boundaries.length - 1;
+        for (int record = 0; record < numberOfRecords; record++) {
+            checkRecordBounds(buffer.length, boundaries[record], boundaries[record + 1] - boundaries[record], record);
+        }
+        final int[] matches = new int[numberOfRecords];
+        for (int record = 0; record < numberOfRecords; record++) {
+            matches[record] = searchRecord(buffer, boundaries[record], boundaries[record + 1], sink);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the searcher used to search the records.
+     *
+     * @return The searcher used to search the records.
+     */
+    public Searcher<SequenceMatcher> getSearcher() {
+        return searcher;
+    }
+
+    /**
+     * Returns the length of the shortest pattern.  Records shorter than this are not searched.
+     *
+     * @return The length of the shortest pattern.
+     */
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    private int searchRecord(final byte[] bytes, final int start, final int end, final MatchSink sink) {
+        final int lastPossibleStart = end - minimumLength;
+        if (lastPossibleStart < start) {
+            return 0;
+        }
+        final SearchCursor<SequenceMatcher> cursor = searcher.searchCursor(bytes, start, lastPossibleStart);
+        int matches = 0;
+        long matchPosition;
+        try {
+            while ((matchPosition = cursor.nextMatch()) != SearchCursor.NO_MATCH) {
+                final SequenceMatcher pattern = cursor.getMatchingObject();
+                if (matchPosition + pattern.length() <= end) {
+                    sink.addMatch(matchPosition - start, patternIndex(pattern));
+                    matches++;
+                }
+            }
+        } catch (final IOException cannotHappen) {
+            // A cursor over a byte array does not read from anything which can throw an IOException.
+            throw new IllegalStateException(cannotHappen);
+        }
+        return matches;
+    }
+
+    private int patternIndex(final SequenceMatcher pattern) {
+        final Integer index = patternIndices.get(pattern);
+        return index == null ? UNKNOWN_PATTERN : index;
+    }
+
+    private static void checkRecordBounds(final int arrayLength, final int offset, final int length, final int record) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Record %d with offset %d and length %d does not lie within an array of length %d",
+                    record, offset, length, arrayLength));
+        }
+    }
+
+    private static <T> T checkNotNull(final T object) {
+        ArgUtils.checkNullObject(object, "searcher");
+        return object;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searcher: " + searcher + " patterns: " + patternIndices.size() + ']';
+    }
+
+}
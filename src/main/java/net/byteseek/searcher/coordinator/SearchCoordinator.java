@@ -0,0 +1,271 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.coordinator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Searches a {@link WindowReader} forwards with several independent {@link Searcher}s
+ * in a single pass over its {@link Window}s.
+ * <p>
+ * Each Window is fetched once, and every searcher finds all its matches which start in that
+ * Window before the coordinator moves on to the next one, so the Window is processed by all the
+ * searchers while it is still hot in the CPU cache.  Each searcher keeps its own position, resuming
+ * one on from the furthest match it last reported, which may lie in a later Window.
+ * Matches are reported Window by Window; within a Window, they are grouped by searcher in the
+ * order the searchers were given.
+ * <p>
+ * A match which starts in a Window may extend into later Windows, so a searcher may read ahead
+ * of the Window being processed.  Searchers which verify matches backwards from their end can
+ * also read behind the first position they search.  Each searcher has a read ahead: the number
+ * of bytes it may read beyond the positions it searches, either after the last or before the first.
+ * For a searcher of sequences, this is taken to be the length of the longest sequence, which allows
+ * for searchers such as the Sunday Quick searcher that shift on the byte following a possible match.
+ * <p>
+ * Once one searcher has read ahead, the Window being processed, and the bytes before it, must still
+ * be available to the next searcher.  The look behind needed for a window size is the largest read
+ * ahead, plus the largest read behind, plus one Window.  This can be used to create a stream reader
+ * which only keeps as much data as the searchers need, rather than caching the whole stream, e.g.
+ * <pre>
+ *     InputStreamReader.withLookBehind(stream, windowSize, coordinator.getLookBehind(windowSize), true);
+ * </pre>
+ * <p>
+ * This class is immutable and thread-safe, as long as its searchers are.
+ *
+ * @author Matt Palmer
+ */
+public final class SearchCoordinator {
+
+    private final List<Searcher<?>> searchers;
+    private final long[] readAheads;
+    private final long readAhead;
+
+    /**
+     * Constructs a SearchCoordinator from a list of searchers, working out the read ahead
+     * of each one from the sequences it searches for.
+     *
+     * @param searchers The searchers to coordinate.  They must all be sequence or multi-sequence searchers.
+     * @throws IllegalArgumentException if the list of searchers is null or empty, or contains a searcher
+     *                                  whose read ahead cannot be determined.
+     */
+    public SearchCoordinator(final List<? extends Searcher<?>> searchers) {
+        this(searchers, readAheadsOf(searchers));
+    }
+
+    /**
+     * Constructs a SearchCoordinator from a list of searchers and their read aheads.
+     *
+     * @param searchers  The searchers to coordinate.
+     * @param readAheads The read ahead of each searcher: the number of bytes it may read beyond the
+     *                   positions it searches, either after the last or before the first.
+     * @throws IllegalArgumentException if either list is null or empty, they are not the same size,
+     *                                  or a read ahead is null or negative.
+     */
+    public SearchCoordinator(final List<? extends Searcher<?>> searchers, final List<Long> readAheads) {
+        ArgUtils.checkNullOrEmptyCollection(searchers, "searchers");
+        ArgUtils.checkNullCollection(readAheads, "readAheads");
+        if (searchers.size() != readAheads.size()) {
+            throw new IllegalArgumentException("There must be a read ahead for each searcher. Searchers: " +
+                                               searchers.size() + " read aheads: " + readAheads.size());
+        }
+        this.searchers = new ArrayList<Searcher<?>>(searchers);
+        this.readAheads = new long[searchers.size()];
+        long maxReadAhead = 0;
+        for (int index = 0; index < this.readAheads.length; index++) {
+            final Searcher<?> searcher = this.searchers.get(index);
+            final Long searcherReadAhead = readAheads.get(index);
+            ArgUtils.checkNullObject(searcher, "searcher " + index);
+            if (searcherReadAhead == null || searcherReadAhead < 0) {
+                throw new IllegalArgumentException("The read ahead of searcher " + index +
+                                                   " cannot be null or negative: " + searcherReadAhead);
+            }
+            this.readAheads[index] = searcherReadAhead;
+            maxReadAhead = Math.max(maxReadAhead, searcherReadAhead);
+        }
+        this.readAhead = maxReadAhead;
+    }
+
+    /**
+     * Searches the whole of a reader with all the searchers.
+     *
+     * @param reader The reader to search.
+     * @param sink   The sink to report matches to.
+     * @return The number of matches reported.
+     * @throws IOException if there was a problem reading from the reader.
+     * @throws IllegalArgumentException if the reader or sink is null.
+     */
+    public long search(final WindowReader reader, final SearcherMatchSink sink) throws IOException {
+        return search(reader, 0, Long.MAX_VALUE, sink);
+    }
+
+    /**
+     * Searches a reader with all the searchers, for matches starting between the positions given.
+     *
+     * @param reader       The reader to search.
+     * @param fromPosition The first position a match can start at.
+     * @param toPosition   The last position a match can start at.
+     * @param sink         The sink to report matches to.
+     * @return The number of matches reported.
+     * @throws IOException if there was a problem reading from the reader.
+     * @throws IllegalArgumentException if the reader or sink is null.
+     */
+    public long search(final WindowReader reader, final long fromPosition, final long toPosition,
+                       final SearcherMatchSink sink) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        ArgUtils.checkNullObject(sink, "sink");
+        final List<Searcher<?>> localSearchers = searchers;
+        final int numSearchers = localSearchers.size();
+        final long startPosition = fromPosition > 0 ? fromPosition : 0;
+        final long[] searchPositions = new long[numSearchers];
+        for (int index = 0; index < numSearchers; index++) {
+            searchPositions[index] = startPosition;
+        }
+        long matches = 0;
+        long windowStart = startPosition;
+        Window window;
+        while (windowStart <= toPosition && (window = reader.getWindow(windowStart)) != null) {
+            final long windowPosition = window.getWindowPosition();
+            final long windowEnd = Math.min(windowPosition + window.length() - 1, toPosition);
+            for (int index = 0; index < numSearchers; index++) {
+                final Searcher<?> searcher = localSearchers.get(index);
+                long searchPosition = searchPositions[index];
+                while (searchPosition <= windowEnd) {
+                    final List<? extends SearchResult<?>> results = searcher.searchForwards(reader, searchPosition, windowEnd);
+                    if (results.isEmpty()) {
+                        searchPosition = windowEnd + 1;
+                    } else {
+                        long furthestPosition = searchPosition;
+                        for (final SearchResult<?> result : results) {
+                            sink.addMatch(index, result);
+                            furthestPosition = Math.max(furthestPosition, result.getMatchPosition());
+                        }
+                        matches += results.size();
+                        searchPosition = furthestPosition + 1;
+                    }
+                }
+                searchPositions[index] = searchPosition;
+            }
+            if (windowEnd == toPosition) {
+                break;
+            }
+            windowStart = windowEnd + 1;
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the number of bytes behind the start of the most recent Window read which must
+     * remain available to search a reader with Windows of the size given: the largest read ahead,
+     * plus the largest read behind, plus one Window.
+     *
+     * @param windowSize The size of the Windows of the reader to search.
+     * @return The look behind needed to search a reader with Windows of the size given.
+     * @throws IllegalArgumentException if the window size is less than one.
+     */
+    public long getLookBehind(final int windowSize) {
+        ArgUtils.checkPositiveInteger(windowSize, "windowSize");
+        return readAhead + readAhead + windowSize;
+    }
+
+    /**
+     * Returns the largest read ahead of the searchers.
+     *
+     * @return The largest read ahead of the searchers.
+     */
+    public long getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * Returns the read ahead of the searcher at the index given.
+     *
+     * @param searcherIndex The index of the searcher.
+     * @return The read ahead of the searcher at the index given.
+     * @throws IndexOutOfBoundsException if the index is not the index of a searcher.
+     */
+    public long getReadAhead(final int searcherIndex) {
+        return readAheads[searcherIndex];
+    }
+
+    /**
+     * Returns the number of searchers being coordinated.
+     *
+     * @return The number of searchers being coordinated.
+     */
+    public int getNumberOfSearchers() {
+        return searchers.size();
+    }
+
+    /**
+     * Returns the searcher at the index given.
+     *
+     * @param searcherIndex The index of the searcher.
+     * @return The searcher at the index given.
+     * @throws IndexOutOfBoundsException if the index is not the index of a searcher.
+     */
+    public Searcher<?> getSearcher(final int searcherIndex) {
+        return searchers.get(searcherIndex);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searchers: " + searchers + " read ahead: " + readAhead + ']';
+    }
+
+    private static List<Long> readAheadsOf(final List<? extends Searcher<?>> searchers) {
+        ArgUtils.checkNullOrEmptyCollection(searchers, "searchers");
+        final List<Long> readAheads = new ArrayList<Long>(searchers.size());
+        for (final Searcher<?> searcher : searchers) {
+            final int maxLength;
+            if (searcher instanceof AbstractSequenceSearcher) {
+                maxLength = ((AbstractSequenceSearcher) searcher).getMatcher().length();
+            } else if (searcher instanceof AbstractMultiSequenceSearcher) {
+                maxLength = ((AbstractMultiSequenceSearcher) searcher).getMatcher().getMaximumLength();
+            } else {
+                throw new IllegalArgumentException("The read ahead of the searcher cannot be determined: " + searcher);
+            }
+            readAheads.add(Long.valueOf(maxLength));
+        }
+        return readAheads;
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.fragment;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.fragment.FragmentChainMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A searcher for a {@link FragmentChainMatcher}: fixed-length fragments separated by gaps of
+ * variable length, for example <code>'PK' .{26,30} 'mimetype'</code>.
+ * <p>
+ * It anchors the search on the longest fragment in the chain, which is searched for using a
+ * {@link BoyerMooreHorspoolSearcher}, as longer fragments allow longer shifts and occur less often.
+ * Each time the anchor is found, the fragments before it are matched backwards and the fragments
+ * after it are matched forwards, only within the windows their gaps allow.
+ * <p>
+ * Results are the start positions of matches, as with all other searchers.  As the length
+ * of a match can vary, the span of a match can be obtained by passing the position found to
+ * {@link FragmentChainMatcher#matchLength(byte[], int)}.  Since the distance from the start of a
+ * match to its anchor is not fixed, an anchor found later can still produce a match which starts earlier,
+ * so the search continues until no later anchor could produce a better result.
+ * <p>
+ * This class is immutable, and so is thread-safe.  However, note that {@link WindowReader}
+ * implementations passed in to search methods may not be thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class FragmentChainSearcher extends AbstractSearcher<FragmentChainMatcher> {
+
+    private final FragmentChainMatcher matcher;
+    private final int anchorIndex;
+    private final Searcher<SequenceMatcher> anchorSearcher;
+
+
+    /**
+     * Constructs a FragmentChainSearcher for the chain given.
+     *
+     * @param matcher The chain of fragments to search for.
+     * @throws IllegalArgumentException if the matcher is null.
+     */
+    public FragmentChainSearcher(final FragmentChainMatcher matcher) {
+        ArgUtils.checkNullObject(matcher, "matcher");
+        this.matcher = matcher;
+        this.anchorIndex = matcher.getLongestFragmentIndex();
+        this.anchorSearcher = new BoyerMooreHorspoolSearcher(matcher.getFragment(anchorIndex));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<FragmentChainMatcher>> searchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final FragmentChainMatcher chain = matcher;
+        final long firstStart = fromPosition > 0 ? fromPosition : 0;
+        final long minimumOffset = chain.getMinimumOffset(anchorIndex);
+        final long maximumOffset = chain.getMaximumOffset(anchorIndex);
+        long anchorFrom = firstStart + minimumOffset;
+        long anchorTo = addWithinLimit(toPosition, maximumOffset);
+        long bestStart = FragmentChainMatcher.NO_MATCH;
+        while (anchorFrom <= anchorTo) {
+            final List<SearchResult<SequenceMatcher>> anchors = anchorSearcher.searchForwards(reader, anchorFrom, anchorTo);
+            if (anchors.isEmpty()) {
+                break;
+            }
+            final long anchorPosition = anchors.get(0).getMatchPosition();
+            final long lastStart = bestStart == FragmentChainMatcher.NO_MATCH ? toPosition : bestStart - 1;
+            final long matchStart = chain.firstMatchStart(reader, anchorIndex, anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(reader, anchorIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                bestStart = matchStart;
+                // Later anchors can only produce a better match if they could start before this one:
+                anchorTo = Math.min(anchorTo, bestStart - 1 + maximumOffset);
+            }
+            anchorFrom = anchorPosition + 1;
+        }
+        return bestStart == FragmentChainMatcher.NO_MATCH ? SearchUtils.<FragmentChainMatcher>noResults()
+                                                          : SearchUtils.singleResult(bestStart, chain);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<FragmentChainMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        final FragmentChainMatcher chain = matcher;
+        final int firstStart = fromPosition > 0 ? fromPosition : 0;
+        final int lastPossibleStart = bytes.length - chain.getMinimumLength();
+        final int lastStartToFind = toPosition < lastPossibleStart ? toPosition : lastPossibleStart;
+        final int minimumOffset = chain.getMinimumOffset(anchorIndex);
+        final int maximumOffset = chain.getMaximumOffset(anchorIndex);
+        final int lastAnchor = bytes.length - chain.getFragment(anchorIndex).length();
+        int anchorFrom = firstStart + minimumOffset;
+        int anchorTo = (int) Math.min((long) lastStartToFind + maximumOffset, lastAnchor);
+        int bestStart = FragmentChainMatcher.NO_MATCH;
+        while (anchorFrom <= anchorTo) {
+            final List<SearchResult<SequenceMatcher>> anchors = anchorSearcher.searchForwards(bytes, anchorFrom, anchorTo);
+            if (anchors.isEmpty()) {
+                break;
+            }
+            final int anchorPosition = (int) anchors.get(0).getMatchPosition();
+            final int lastStart = bestStart == FragmentChainMatcher.NO_MATCH ? lastStartToFind : bestStart - 1;
+            final int matchStart = chain.firstMatchStart(bytes, anchorIndex, anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(bytes, anchorIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                bestStart = matchStart;
+                // Later anchors can only produce a better match if they could start before this one:
+                anchorTo = Math.min(anchorTo, bestStart - 1 + maximumOffset);
+            }
+            anchorFrom = anchorPosition + 1;
+        }
+        return bestStart == FragmentChainMatcher.NO_MATCH ? SearchUtils.<FragmentChainMatcher>noResults()
+                                                          : SearchUtils.singleResult(bestStart, chain);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<FragmentChainMatcher>> searchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final FragmentChainMatcher chain = matcher;
+        final long lastStart = withinLength(reader, fromPosition);
+        final long firstStartToFind = toPosition > 0 ? toPosition : 0;
+        final long minimumOffset = chain.getMinimumOffset(anchorIndex);
+        final long maximumOffset = chain.getMaximumOffset(anchorIndex);
+        long anchorFrom = lastStart + maximumOffset;
+        long anchorTo = firstStartToFind + minimumOffset;
+        long bestStart = FragmentChainMatcher.NO_MATCH;
+        while (anchorFrom >= anchorTo) {
+            final List<SearchResult<SequenceMatcher>> anchors = anchorSearcher.searchBackwards(reader, anchorFrom, anchorTo);
+            if (anchors.isEmpty()) {
+                break;
+            }
+            final long anchorPosition = anchors.get(0).getMatchPosition();
+            final long firstStart = bestStart == FragmentChainMatcher.NO_MATCH ? firstStartToFind : bestStart + 1;
+            final long matchStart = chain.lastMatchStart(reader, anchorIndex, anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(reader, anchorIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                bestStart = matchStart;
+                // Earlier anchors can only produce a better match if they could start after this one:
+                anchorTo = Math.max(anchorTo, bestStart + 1 + minimumOffset);
+            }
+            anchorFrom = anchorPosition - 1;
+        }
+        return bestStart == FragmentChainMatcher.NO_MATCH ? SearchUtils.<FragmentChainMatcher>noResults()
+                                                          : SearchUtils.singleResult(bestStart, chain);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<FragmentChainMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        final FragmentChainMatcher chain = matcher;
+        final int lastPossibleStart = bytes.length - chain.getMinimumLength();
+        final int lastStart = fromPosition < lastPossibleStart ? fromPosition : lastPossibleStart;
+        final int firstStartToFind = toPosition > 0 ? toPosition : 0;
+        final int minimumOffset = chain.getMinimumOffset(anchorIndex);
+        final int maximumOffset = chain.getMaximumOffset(anchorIndex);
+        final int lastAnchor = bytes.length - chain.getFragment(anchorIndex).length();
+        int anchorFrom = (int) Math.min((long) lastStart + maximumOffset, lastAnchor);
+        int anchorTo = firstStartToFind + minimumOffset;
+        int bestStart = FragmentChainMatcher.NO_MATCH;
+        while (anchorFrom >= anchorTo) {
+            final List<SearchResult<SequenceMatcher>> anchors = anchorSearcher.searchBackwards(bytes, anchorFrom, anchorTo);
+            if (anchors.isEmpty()) {
+                break;
+            }
+            final int anchorPosition = (int) anchors.get(0).getMatchPosition();
+            final int firstStart = bestStart == FragmentChainMatcher.NO_MATCH ? firstStartToFind : bestStart + 1;
+            final int matchStart = chain.lastMatchStart(bytes, anchorIndex, anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(bytes, anchorIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                bestStart = matchStart;
+                // Earlier anchors can only produce a better match if they could start after this one:
+                anchorTo = Math.max(anchorTo, bestStart + 1 + minimumOffset);
+            }
+            anchorFrom = anchorPosition - 1;
+        }
+        return bestStart == FragmentChainMatcher.NO_MATCH ? SearchUtils.<FragmentChainMatcher>noResults()
+                                                          : SearchUtils.singleResult(bestStart, chain);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareForwards() {
+        anchorSearcher.prepareForwards();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareBackwards() {
+        anchorSearcher.prepareBackwards();
+    }
+
+
+    /**
+     * Returns the index of the fragment in the chain which is searched for first.
+     *
+     * @return The index of the fragment which anchors the search.
+     */
+    public int getAnchorIndex() {
+        return anchorIndex;
+    }
+
+
+    /**
+     * Returns a string representation of this searcher.
+     * The precise format returned is subject to change, but in general it will
+     * return the type of searcher and the chain being searched for.
+     *
+     * @return String a representation of the searcher.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[anchor:" + anchorIndex + " matcher:" + matcher + ']';
+    }
+
+
+    private static long addWithinLimit(final long position, final long offset) {
+        return position > Long.MAX_VALUE - offset ? Long.MAX_VALUE : position + offset;
+    }
+
+}
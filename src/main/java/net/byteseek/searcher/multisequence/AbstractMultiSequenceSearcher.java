@@ -92,6 +92,19 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     public MultiSequenceMatcher getMatcher() {
         return sequences;
     }
+
+    
+    /**
+     * Returns a new searcher of the same type as this one, which searches for
+     * the sequences in the {@link MultiSequenceMatcher} provided.
+     * <p>
+     * This lets a search carry on with a different set of sequences, for example
+     * a smaller set once some of the sequences no longer need to be found.
+     * 
+     * @param sequences The MultiSequenceMatcher containing the sequences to search for.
+     * @return A new searcher of the same type, searching for the sequences provided.
+     */
+    public abstract AbstractMultiSequenceSearcher newInstance(MultiSequenceMatcher sequences);
     
     
     /**
@@ -230,6 +243,9 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader, 
             final long fromPosition, final long toPosition) throws IOException {
         // Initialise:
+        if (fromPosition < 0) {
+            return SearchUtils.noResults();
+        }
         final int smallestMatchEndPosition = sequences.getMinimumLength() - 1;
         final int longestMatchEndPosition = sequences.getMaximumLength() - 1;
         final long finalSearchPosition = toPosition > 0?
@@ -241,9 +257,25 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
         while (searchPosition >= finalSearchPosition &&
                (window = reader.getWindow(searchPosition)) != null) {
             
+            // Sequences starting close to the end of this window could cross over into
+            // the next window.  If the search starts there, we must use the reader interface
+            // on the sequence to search back to the last position where they all fit:
+            final long windowStartPosition = window.getWindowPosition();
+            final long lastFittingPosition = windowStartPosition + window.length() - 1 - longestMatchEndPosition;
+            if (searchPosition > lastFittingPosition) {
+                final long crossingEndPosition = lastFittingPosition + 1 > finalSearchPosition?
+                                                 lastFittingPosition + 1 : finalSearchPosition;
+                final List<SearchResult<SequenceMatcher>> crossingResult =
+                        doSearchBackwards(reader, searchPosition, crossingEndPosition);
+                if (!crossingResult.isEmpty()) {
+                    return crossingResult;
+                }
+                searchPosition = crossingEndPosition - 1;
+                continue;
+            }
+
             // Calculate first search start position
             final int searchStartPosition = reader.getWindowOffset(searchPosition);
-            final long windowStartPosition = window.getWindowPosition();
             final long distanceToEnd = finalSearchPosition - windowStartPosition;                
             final int searchEndPosition = distanceToEnd > 0?
                                     (int) distanceToEnd : 0;             
@@ -281,8 +313,11 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
             // over more bytes than this window has available.
             
             // Search back to the first position in the previous window where any 
-            // of the sequences might still cross over into the current window.
-            final long lastCrossingPosition = windowStartPosition - longestMatchEndPosition;
+            // of the sequences might still cross over into the current window,
+            // or the final search position if that comes first.
+            final long firstCrossingPosition = windowStartPosition - longestMatchEndPosition;
+            final long lastCrossingPosition = firstCrossingPosition > finalSearchPosition?
+                                              firstCrossingPosition : finalSearchPosition;
             final List<SearchResult<SequenceMatcher>> readerResult =
                     doSearchBackwards(reader, searchPosition, lastCrossingPosition);
             
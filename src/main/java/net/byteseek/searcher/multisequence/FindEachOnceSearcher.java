@@ -0,0 +1,336 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Finds the first occurrence of each sequence of a multi-sequence searcher, answering
+ * "which of these sequences occur in the data, and where do they first occur?".
+ * <p>
+ * Once a sequence has been found, it is retired: later matches for it are ignored, and
+ * when enough sequences have been retired, the search carries on with a new searcher of the
+ * same type (see {@link AbstractMultiSequenceSearcher#newInstance}) built only from the
+ * sequences still to be found.  As frequent sequences are eliminated, the shift and hash
+ * tables of the new searchers are rebuilt without them, so shifts tend to grow.  The search
+ * stops as soon as every sequence has been found.
+ * <p>
+ * Rebuilding a searcher has a cost proportional to the sequences remaining, so it is only
+ * done once the sequences retired since the last rebuild reach a fraction of the sequences
+ * the current searcher was built with.  This bounds the total cost of rebuilding, while still
+ * shrinking the active set as the search progresses.  The searcher given is not altered.
+ * <p>
+ * Searchers report either the matches which start first, or the matches which end first.
+ * After each match reported, the positions at which an unreported match could still start
+ * are verified directly against the matcher of the current searcher, so every sequence which
+ * occurs is found at its first position whichever the searcher reports.  The search then
+ * resumes one on from the furthest match reported.  The results are ordered by position.
+ * <p>
+ * This class is immutable and thread-safe, as long as the searcher given is.
+ *
+ * @author Matt Palmer
+ */
+public final class FindEachOnceSearcher {
+
+    private static final double DEFAULT_REBUILD_FRACTION = 0.25;
+
+    private static final Comparator<SearchResult<SequenceMatcher>> BY_POSITION =
+            new Comparator<SearchResult<SequenceMatcher>>() {
+                @Override
+                public int compare(final SearchResult<SequenceMatcher> first, final SearchResult<SequenceMatcher> second) {
+                    final long firstPosition = first.getMatchPosition();
+                    final long secondPosition = second.getMatchPosition();
+                    return firstPosition < secondPosition ? -1 : firstPosition > secondPosition ? 1 : 0;
+                }
+            };
+
+    private final AbstractMultiSequenceSearcher searcher;
+    private final List<SequenceMatcher> sequences;
+    private final double rebuildFraction;
+
+    /**
+     * Constructs a FindEachOnceSearcher from a multi-sequence searcher, which rebuilds its
+     * searcher once a quarter of the sequences it searches for have been found.
+     *
+     * @param searcher The multi-sequence searcher to find the sequences of.
+     * @throws IllegalArgumentException if the searcher is null.
+     */
+    public FindEachOnceSearcher(final AbstractMultiSequenceSearcher searcher) {
+        this(searcher, DEFAULT_REBUILD_FRACTION);
+    }
+
+    /**
+     * Constructs a FindEachOnceSearcher from a multi-sequence searcher, which rebuilds its
+     * searcher once the fraction given of the sequences it searches for have been found.
+     *
+     * @param searcher        The multi-sequence searcher to find the sequences of.
+     * @param rebuildFraction The fraction of the sequences in a searcher which must be found before it is
+     *                        rebuilt without them.  A fraction of 1 never rebuilds the searcher.
+     * @throws IllegalArgumentException if the searcher is null, or the fraction is not greater than zero
+     *                                  and no more than one.
+     */
+    public FindEachOnceSearcher(final AbstractMultiSequenceSearcher searcher, final double rebuildFraction) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        if (!(rebuildFraction > 0.0 && rebuildFraction <= 1.0)) {
+            throw new IllegalArgumentException("The rebuild fraction must be greater than zero and no more than one: " +
+                                               rebuildFraction);
+        }
+        this.searcher = searcher;
+        this.sequences = new ArrayList<SequenceMatcher>(searcher.getMatcher().getSequenceMatchers());
+        this.rebuildFraction = rebuildFraction;
+    }
+
+    /**
+     * Searches a reader forwards, returning the first match of each sequence found.
+     *
+     * @param reader The reader to search in.
+     * @return The first match of each sequence found, in order of position.
+     * @throws IOException if there was a problem reading from the reader.
+     * @throws IllegalArgumentException if the reader is null.
+     */
+    public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader) throws IOException {
+        return searchForwards(reader, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches a reader forwards between the positions given, returning the first match of each sequence found.
+     *
+     * @param reader       The reader to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position a match can start at.
+     * @return The first match of each sequence found, in order of position.
+     * @throws IOException if there was a problem reading from the reader.
+     * @throws IllegalArgumentException if the reader is null.
+     */
+    public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader, final long fromPosition,
+                                                             final long toPosition) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        final SearchState state = new SearchState();
+        long searchPosition = fromPosition;
+        while (searchPosition <= toPosition && !state.allFound()) {
+            final List<SearchResult<SequenceMatcher>> results =
+                    state.currentSearcher.searchForwards(reader, searchPosition, toPosition);
+            if (results.isEmpty()) {
+                break;
+            }
+            final long furthestPosition = state.retire(results);
+            final MultiSequenceMatcher verifier = state.currentSearcher.getMatcher();
+            for (long position = state.firstUnreportedStart(results, searchPosition);
+                 position <= furthestPosition && !state.allFound(); position++) {
+                state.retire(position, verifier.allMatches(reader, position));
+            }
+            state.rebuildIfNeeded();
+            searchPosition = furthestPosition + 1;
+        }
+        return state.foundInOrder();
+    }
+
+    /**
+     * Searches a byte array forwards, returning the first match of each sequence found.
+     *
+     * @param bytes The byte array to search in.
+     * @return The first match of each sequence found, in order of position.
+     * @throws IllegalArgumentException if the byte array is null.
+     */
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes) {
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        return searchForwards(bytes, 0, bytes.length - 1);
+    }
+
+    /**
+     * Searches a byte array forwards between the positions given, returning the first match of each
+     * sequence found.
+     *
+     * @param bytes        The byte array to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position a match can start at.
+     * @return The first match of each sequence found, in order of position.
+     * @throws IllegalArgumentException if the byte array is null.
+     */
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition,
+                                                             final int toPosition) {
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        final SearchState state = new SearchState();
+        final int lastPosition = toPosition < bytes.length - 1 ? toPosition : bytes.length - 1;
+        int searchPosition = fromPosition;
+        while (searchPosition <= lastPosition && !state.allFound()) {
+            final List<SearchResult<SequenceMatcher>> results =
+                    state.currentSearcher.searchForwards(bytes, searchPosition, lastPosition);
+            if (results.isEmpty()) {
+                break;
+            }
+            final int furthestPosition = (int) state.retire(results);
+            final MultiSequenceMatcher verifier = state.currentSearcher.getMatcher();
+            for (int position = (int) state.firstUnreportedStart(results, searchPosition);
+                 position <= furthestPosition && !state.allFound(); position++) {
+                state.retire(position, verifier.allMatches(bytes, position));
+            }
+            state.rebuildIfNeeded();
+            searchPosition = furthestPosition + 1;
+        }
+        return state.foundInOrder();
+    }
+
+    /**
+     * Returns the multi-sequence searcher whose sequences are found.
+     *
+     * @return The multi-sequence searcher whose sequences are found.
+     */
+    public AbstractMultiSequenceSearcher getSearcher() {
+        return searcher;
+    }
+
+    /**
+     * Returns the fraction of the sequences in a searcher which must be found before it is rebuilt.
+     *
+     * @return The fraction of the sequences in a searcher which must be found before it is rebuilt.
+     */
+    public double getRebuildFraction() {
+        return rebuildFraction;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searcher: " + searcher + " rebuild fraction: " + rebuildFraction + ']';
+    }
+
+    /**
+     * The state of a single search: the sequences still to be found, the first matches
+     * found so far, and the searcher currently being used.
+     */
+    private final class SearchState {
+
+        private final Set<SequenceMatcher> remaining =
+                Collections.newSetFromMap(new IdentityHashMap<SequenceMatcher, Boolean>());
+        private final List<SearchResult<SequenceMatcher>> found = new ArrayList<SearchResult<SequenceMatcher>>();
+        private AbstractMultiSequenceSearcher currentSearcher = searcher;
+        private int rebuildThreshold;
+        private int retiredSinceRebuild;
+
+        private SearchState() {
+            remaining.addAll(sequences);
+            rebuildThreshold = thresholdFor(remaining.size());
+        }
+
+        private boolean allFound() {
+            return remaining.isEmpty();
+        }
+
+        /**
+         * Retires the sequences in the results which have not been found before,
+         * and returns the furthest position in the results.
+         */
+        private long retire(final List<SearchResult<SequenceMatcher>> results) {
+            long furthestPosition = Long.MIN_VALUE;
+            for (final SearchResult<SequenceMatcher> result : results) {
+                if (remaining.remove(result.getMatchingObject())) {
+                    found.add(result);
+                    retiredSinceRebuild++;
+                }
+                furthestPosition = Math.max(furthestPosition, result.getMatchPosition());
+            }
+            return furthestPosition;
+        }
+
+        /**
+         * Retires the sequences matching at a position which have not been found before.
+         */
+        private void retire(final long position, final Collection<SequenceMatcher> matches) {
+            for (final SequenceMatcher sequence : matches) {
+                if (remaining.remove(sequence)) {
+                    found.add(new SearchResult<SequenceMatcher>(position, sequence));
+                    retiredSinceRebuild++;
+                }
+            }
+        }
+
+        /**
+         * Returns the first position at which a match may start that the searcher did not report.
+         * <p>
+         * A searcher reports either the matches which start first, or the matches which end first.
+         * Any match not reported which starts no later than the furthest match reported must end
+         * after the first end reported, so it cannot start before that end less the length of
+         * the longest sequence.
+         */
+        private long firstUnreportedStart(final List<SearchResult<SequenceMatcher>> results,
+                                          final long searchPosition) {
+            long firstEnd = Long.MAX_VALUE;
+            for (final SearchResult<SequenceMatcher> result : results) {
+                firstEnd = Math.min(firstEnd, result.getMatchPosition() + result.getMatchingObject().length() - 1);
+            }
+            final long firstStart = firstEnd - currentSearcher.getMatcher().getMaximumLength() + 1;
+            return firstStart > searchPosition ? firstStart : searchPosition;
+        }
+
+        private void rebuildIfNeeded() {
+            if (retiredSinceRebuild >= rebuildThreshold && !remaining.isEmpty()) {
+                rebuild();
+            }
+        }
+
+        private List<SearchResult<SequenceMatcher>> foundInOrder() {
+            Collections.sort(found, BY_POSITION);
+            return found;
+        }
+
+        private void rebuild() {
+            final List<SequenceMatcher> stillToFind = new ArrayList<SequenceMatcher>(remaining.size());
+            for (final SequenceMatcher sequence : sequences) {
+                if (remaining.contains(sequence)) {
+                    stillToFind.add(sequence);
+                }
+            }
+            currentSearcher = currentSearcher.newInstance(currentSearcher.getMatcher().newInstance(stillToFind));
+            rebuildThreshold = thresholdFor(remaining.size());
+            retiredSinceRebuild = 0;
+        }
+
+        private int thresholdFor(final int numberOfSequences) {
+            return rebuildFraction >= 1.0 ? Integer.MAX_VALUE
+                                          : Math.max(1, (int) Math.ceil(numberOfSequences * rebuildFraction));
+        }
+    }
+
+}
@@ -71,6 +71,14 @@ public class MultiSequenceMatcherSearcher extends AbstractMultiSequenceSearcher
     public MultiSequenceMatcherSearcher(final MultiSequenceMatcher matcher) {
         super(matcher);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MultiSequenceMatcherSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new MultiSequenceMatcherSearcher(sequences);
+    }
     
     
     /**
@@ -0,0 +1,436 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence.aho_corasick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.automata.trie.Trie;
+import net.byteseek.matcher.automata.SequenceMatcherTrie;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * An immutable Aho-Corasick automaton compiled from a {@link SequenceMatcherTrie}
+ * into a flat transition table, for use by the {@link AhoCorasickSearcher}.
+ * <p>
+ * The trie is built from the sequences (or their reverse, for searching backwards),
+ * and the failure links of the trie are resolved during compilation, so each state
+ * of the compiled automaton stands for a state of the trie together with its chain of
+ * failure states.  Every state has a transition for every byte, so searching costs a
+ * single table lookup per byte, regardless of how many sequences are being searched for.
+ * <p>
+ * Sequences can match more than one byte at each position (byte classes), in which case
+ * a trie state can stand for more than one string.  Resolving failure links for sets
+ * of trie states, rather than individual ones, keeps the automaton correct for byte classes.
+ * For sequences made only of single bytes, the compiled automaton has exactly one state for
+ * each state of the trie, as in the classic algorithm.
+ * <p>
+ * To keep the table small, bytes which always transition to the same state are grouped
+ * into byte classes.  The table has one column per byte class, rather than one per byte value.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class AhoCorasickAutomaton {
+
+    /**
+     * Maps each byte value to its byte class, which is the column in the transition table.
+     */
+    final int[] byteClasses;
+
+    /**
+     * The transition table.  The next state is found at the index of the current state
+     * plus the byte class of the current byte.  States are stored as offsets into this
+     * table, so no multiplication is needed when searching.
+     */
+    final int[] transitions;
+
+    /**
+     * The offset of the initial state in the transition table.
+     */
+    final int initialState;
+
+    /**
+     * States with an offset lower than this have sequences which match on entering them.
+     * All matching states are placed at the start of the table, so only a single comparison
+     * is needed to tell whether a state matches.
+     */
+    final int matchingStateLimit;
+
+    private final int numClasses;
+    private final List<List<SequenceMatcher>> matchingSequences;
+    private final int minimumLength;
+    private final int maximumLength;
+
+    private AhoCorasickAutomaton(final int[] byteClasses, final int numClasses, final int[] transitions,
+                                 final int initialState, final int matchingStateLimit,
+                                 final List<List<SequenceMatcher>> matchingSequences,
+                                 final int minimumLength, final int maximumLength) {
+        this.byteClasses        = byteClasses;
+        this.numClasses         = numClasses;
+        this.transitions        = transitions;
+        this.initialState       = initialState;
+        this.matchingStateLimit = matchingStateLimit;
+        this.matchingSequences  = matchingSequences;
+        this.minimumLength      = minimumLength;
+        this.maximumLength      = maximumLength;
+    }
+
+    /**
+     * Compiles an automaton which finds the sequences given, scanning forwards.
+     * The sequences associated with a matching state all end at the current position.
+     *
+     * @param sequences The sequences to compile into an automaton.
+     * @return An AhoCorasickAutomaton which finds the sequences scanning forwards.
+     * @throws IllegalArgumentException if the sequences are null or empty, or contain a null sequence.
+     */
+    public static AhoCorasickAutomaton forwards(final Collection<? extends SequenceMatcher> sequences) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(sequences, "sequences");
+        final SequenceMatcherTrie trie = new SequenceMatcherTrie();
+        trie.addAll(sequences);
+        return compile(trie);
+    }
+
+    /**
+     * Compiles an automaton which finds the sequences given, scanning backwards.
+     * The sequences associated with a matching state all start at the current position.
+     *
+     * @param sequences The sequences to compile into an automaton.
+     * @return An AhoCorasickAutomaton which finds the sequences scanning backwards.
+     * @throws IllegalArgumentException if the sequences are null or empty, or contain a null sequence.
+     */
+    public static AhoCorasickAutomaton backwards(final Collection<? extends SequenceMatcher> sequences) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(sequences, "sequences");
+        final SequenceMatcherTrie trie = new SequenceMatcherTrie();
+        trie.addAllReversed(sequences);
+        return compile(trie);
+    }
+
+    /**
+     * Returns the sequences which match on entering a matching state.
+     *
+     * @param state A state for which {@link #isMatchingState(int)} is true.
+     * @return The sequences which match on entering the state.
+     */
+    public List<SequenceMatcher> getMatchingSequences(final int state) {
+        return matchingSequences.get(state / numClasses);
+    }
+
+    /**
+     * Returns the state the automaton starts in.
+     *
+     * @return The state the automaton starts in.
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Returns the state to move to from the current state, on reading a byte.
+     *
+     * @param state The current state.
+     * @param value The byte read.
+     * @return The next state.
+     */
+    public int nextState(final int state, final byte value) {
+        return transitions[state + byteClasses[value & 0xFF]];
+    }
+
+    /**
+     * Returns true if any sequences match on entering the state.
+     *
+     * @param state The state to test.
+     * @return true if any sequences match on entering the state.
+     */
+    public boolean isMatchingState(final int state) {
+        return state < matchingStateLimit;
+    }
+
+    /**
+     * Returns the number of states in the automaton.
+     *
+     * @return The number of states in the automaton.
+     */
+    public int getNumberOfStates() {
+        return transitions.length / numClasses;
+    }
+
+    /**
+     * Returns the number of byte classes, which is the number of columns in the transition table.
+     *
+     * @return The number of byte classes.
+     */
+    public int getNumberOfByteClasses() {
+        return numClasses;
+    }
+
+    /**
+     * Returns the length of the shortest sequence in the automaton.
+     *
+     * @return The length of the shortest sequence in the automaton.
+     */
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    /**
+     * Returns the length of the longest sequence in the automaton.
+     *
+     * @return The length of the longest sequence in the automaton.
+     */
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[states:" + getNumberOfStates() +
+                                            " byte classes:" + numClasses +
+                                            " min length:" + minimumLength +
+                                            " max length:" + maximumLength + ']';
+    }
+
+    /**
+     * Compiles a trie into an automaton.  The states of the trie are numbered, and the
+     * transitions of each one placed into a table of byte classes.  Each state of the
+     * compiled automaton is then a set of trie states: the root, and every trie state
+     * reachable by a suffix of the bytes read so far.  Following the failure links of a trie state
+     * visits exactly the members of its set, so the sets are built by following every
+     * transition of every member, and always adding the root.
+     */
+    private static AhoCorasickAutomaton compile(final Trie<SequenceMatcher> trie) {
+        // Number the trie states in breadth-first order, with the root as zero:
+        final List<State<SequenceMatcher>> trieStates = new ArrayList<State<SequenceMatcher>>();
+        final Map<State<SequenceMatcher>, Integer> trieStateNumbers =
+                new IdentityHashMap<State<SequenceMatcher>, Integer>();
+        final State<SequenceMatcher> root = trie.getInitialState();
+        trieStates.add(root);
+        trieStateNumbers.put(root, 0);
+        for (int stateIndex = 0; stateIndex < trieStates.size(); stateIndex++) {
+            for (final Transition<SequenceMatcher> transition : trieStates.get(stateIndex)) {
+                final State<SequenceMatcher> toState = transition.getToState();
+                if (!trieStateNumbers.containsKey(toState)) {
+                    trieStateNumbers.put(toState, trieStates.size());
+                    trieStates.add(toState);
+                }
+            }
+        }
+
+        // Group the bytes into classes and build the trie goto table:
+        final int[] byteClasses = new int[256];
+        final int numClasses = calculateByteClasses(trieStates, byteClasses);
+        final int numTrieStates = trieStates.size();
+        final int[] trieGoto = new int[numTrieStates * numClasses];
+        Arrays.fill(trieGoto, -1);
+        for (int stateIndex = 0; stateIndex < numTrieStates; stateIndex++) {
+            final int stateOffset = stateIndex * numClasses;
+            for (final Transition<SequenceMatcher> transition : trieStates.get(stateIndex)) {
+                final int toState = trieStateNumbers.get(transition.getToState());
+                for (final byte value : transition.getBytes()) {
+                    trieGoto[stateOffset + byteClasses[value & 0xFF]] = toState;
+                }
+            }
+        }
+
+        // Build the automaton states as sets of trie states, starting with the root on its own:
+        final List<int[]> stateSets = new ArrayList<int[]>();
+        final Map<StateSet, Integer> stateSetNumbers = new HashMap<StateSet, Integer>();
+        final List<int[]> stateTransitions = new ArrayList<int[]>();
+        final int[] rootSet = {0};
+        stateSets.add(rootSet);
+        stateSetNumbers.put(new StateSet(rootSet), 0);
+        final int[] seen = new int[numTrieStates];
+        final int[] nextMembers = new int[numTrieStates];
+        int stamp = 0;
+        for (int setIndex = 0; setIndex < stateSets.size(); setIndex++) {
+            final int[] members = stateSets.get(setIndex);
+            final int[] nextSets = new int[numClasses];
+            for (int byteClass = 0; byteClass < numClasses; byteClass++) {
+                stamp++;
+                int numNextMembers = 0;
+                nextMembers[numNextMembers++] = 0;
+                seen[0] = stamp;
+                for (final int member : members) {
+                    final int toState = trieGoto[member * numClasses + byteClass];
+                    if (toState >= 0 && seen[toState] != stamp) {
+                        seen[toState] = stamp;
+                        nextMembers[numNextMembers++] = toState;
+                    }
+                }
+                final int[] nextSet = Arrays.copyOf(nextMembers, numNextMembers);
+                Arrays.sort(nextSet);
+                final StateSet key = new StateSet(nextSet);
+                Integer nextSetNumber = stateSetNumbers.get(key);
+                if (nextSetNumber == null) {
+                    nextSetNumber = stateSets.size();
+                    stateSetNumbers.put(key, nextSetNumber);
+                    stateSets.add(nextSet);
+                }
+                nextSets[byteClass] = nextSetNumber;
+            }
+            stateTransitions.add(nextSets);
+        }
+
+        // Collect the matching sequences of each automaton state, longest sequences first:
+        final int numStates = stateSets.size();
+        final List<List<SequenceMatcher>> setMatches = new ArrayList<List<SequenceMatcher>>(numStates);
+        for (final int[] members : stateSets) {
+            Set<SequenceMatcher> matches = null;
+            for (int memberIndex = members.length - 1; memberIndex >= 0; memberIndex--) {
+                final State<SequenceMatcher> trieState = trieStates.get(members[memberIndex]);
+                if (trieState.isFinal()) {
+                    if (matches == null) {
+                        matches = new LinkedHashSet<SequenceMatcher>();
+                    }
+                    matches.addAll(trieState.getAssociations());
+                }
+            }
+            setMatches.add(matches == null? null
+                           : Collections.unmodifiableList(new ArrayList<SequenceMatcher>(matches)));
+        }
+
+        // Renumber the states so matching states come first, and build the flat table:
+        final int[] newNumbers = new int[numStates];
+        final List<List<SequenceMatcher>> matchingSequences = new ArrayList<List<SequenceMatcher>>();
+        for (int setIndex = 0; setIndex < numStates; setIndex++) {
+            if (setMatches.get(setIndex) != null) {
+                newNumbers[setIndex] = matchingSequences.size();
+                matchingSequences.add(setMatches.get(setIndex));
+            }
+        }
+        final int numMatchingStates = matchingSequences.size();
+        int nextNumber = numMatchingStates;
+        for (int setIndex = 0; setIndex < numStates; setIndex++) {
+            if (setMatches.get(setIndex) == null) {
+                newNumbers[setIndex] = nextNumber++;
+            }
+        }
+        final int[] transitions = new int[numStates * numClasses];
+        for (int setIndex = 0; setIndex < numStates; setIndex++) {
+            final int[] nextSets = stateTransitions.get(setIndex);
+            final int stateOffset = newNumbers[setIndex] * numClasses;
+            for (int byteClass = 0; byteClass < numClasses; byteClass++) {
+                transitions[stateOffset + byteClass] = newNumbers[nextSets[byteClass]] * numClasses;
+            }
+        }
+
+        return new AhoCorasickAutomaton(byteClasses, numClasses, transitions,
+                                        newNumbers[0] * numClasses, numMatchingStates * numClasses,
+                                        matchingSequences, trie.getMinimumLength(), trie.getMaximumLength());
+    }
+
+    /**
+     * Partitions the byte values into classes, such that all bytes in a class always have
+     * the same transitions in the trie.  Each set of transition bytes splits any existing
+     * class it partly overlaps with.
+     *
+     * @param trieStates The states of the trie.
+     * @param byteClasses An array of 256 ints to receive the byte class of each byte value.
+     * @return The number of byte classes.
+     */
+    private static int calculateByteClasses(final List<State<SequenceMatcher>> trieStates,
+                                            final int[] byteClasses) {
+        int numClasses = 1;
+        final int[] splitClasses = new int[256];
+        for (final State<SequenceMatcher> state : trieStates) {
+            for (final Transition<SequenceMatcher> transition : state) {
+                // Map each class with bytes in this transition to a new class:
+                Arrays.fill(splitClasses, -1);
+                int newNumClasses = numClasses;
+                for (final byte value : transition.getBytes()) {
+                    final int byteClass = byteClasses[value & 0xFF];
+                    if (splitClasses[byteClass] < 0) {
+                        splitClasses[byteClass] = newNumClasses++;
+                    }
+                    byteClasses[value & 0xFF] = splitClasses[byteClass];
+                }
+                numClasses = compactClasses(byteClasses, newNumClasses);
+            }
+        }
+        return numClasses;
+    }
+
+    /**
+     * Renumbers the byte classes so there are no unused class numbers, which happens when
+     * a transition contains every byte in an existing class.
+     */
+    private static int compactClasses(final int[] byteClasses, final int numClasses) {
+        final int[] newNumbers = new int[numClasses];
+        Arrays.fill(newNumbers, -1);
+        int nextNumber = 0;
+        for (int value = 0; value < 256; value++) {
+            final int byteClass = byteClasses[value];
+            if (newNumbers[byteClass] < 0) {
+                newNumbers[byteClass] = nextNumber++;
+            }
+            byteClasses[value] = newNumbers[byteClass];
+        }
+        return nextNumber;
+    }
+
+    /**
+     * A sorted set of trie state numbers, used as a key to find automaton states.
+     */
+    private static final class StateSet {
+
+        private final int[] members;
+        private final int hashCode;
+
+        private StateSet(final int[] members) {
+            this.members = members;
+            this.hashCode = Arrays.hashCode(members);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof StateSet && Arrays.equals(members, ((StateSet) other).members);
+        }
+    }
+
+}
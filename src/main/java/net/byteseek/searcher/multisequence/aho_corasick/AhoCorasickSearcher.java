@@ -0,0 +1,349 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence.aho_corasick;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * The AhoCorasickSearcher implements the Aho-Corasick algorithm for multiple sequences,
+ * using an {@link AhoCorasickAutomaton} compiled from a
+ * {@link net.byteseek.matcher.automata.SequenceMatcherTrie} of the sequences.
+ * <p>
+ * Unlike the Set Horspool and Wu-Manber searchers, it never shifts past any bytes.
+ * Instead, it reads every byte exactly once, with a single table lookup per byte.
+ * The search time is therefore linear in the length of the data searched, whatever the number or
+ * length of the sequences.  This makes it a good choice for searching large numbers of short
+ * sequences, where the shifts of the other algorithms become very small.
+ * <p>
+ * As the automaton carries its state from one byte to the next, it simply continues
+ * from one {@link net.byteseek.io.reader.windows.Window} into the next, and never
+ * needs to verify matches across window boundaries.
+ * <p>
+ * Searching forwards reports all the sequences which end at the first position at which any
+ * sequence ends, and which start within the bounds of the search.  Searching backwards reports
+ * all the sequences which start at the last position at which any sequence starts.
+ * <p>
+ * The automata are compiled lazily on first use, or when {@link #prepareForwards()}
+ * or {@link #prepareBackwards()} are called.
+ *
+ * @author Matt Palmer
+ */
+public final class AhoCorasickSearcher extends AbstractSearcher<SequenceMatcher> {
+
+    private final MultiSequenceMatcher sequences;
+    private final LazyObject<AhoCorasickAutomaton> forwardAutomaton;
+    private final LazyObject<AhoCorasickAutomaton> backwardAutomaton;
+
+    /**
+     * Constructs an AhoCorasickSearcher.
+     *
+     * @param sequences A MultiSequenceMatcher containing the sequences to be searched for.
+     * @throws IllegalArgumentException if the sequences are null.
+     */
+    public AhoCorasickSearcher(final MultiSequenceMatcher sequences) {
+        ArgUtils.checkNullObject(sequences, "sequences");
+        this.sequences = sequences;
+        forwardAutomaton  = new DoubleCheckImmutableLazyObject<AhoCorasickAutomaton>(new ForwardAutomatonFactory());
+        backwardAutomaton = new DoubleCheckImmutableLazyObject<AhoCorasickAutomaton>(new BackwardAutomatonFactory());
+    }
+
+    /**
+     * Constructs an AhoCorasickSearcher from a collection of sequences.
+     *
+     * @param sequences The sequences to be searched for.
+     * @throws IllegalArgumentException if the sequences are null or empty.
+     */
+    public AhoCorasickSearcher(final Collection<? extends SequenceMatcher> sequences) {
+        this(new ListMultiSequenceMatcher(sequences));
+    }
+
+    /**
+     * Returns the {@link MultiSequenceMatcher} to be searched for.
+     *
+     * @return MultiSequenceMatcher the MultiSequenceMatcher to search for.
+     */
+    public MultiSequenceMatcher getMatcher() {
+        return sequences;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final AhoCorasickAutomaton automaton = forwardAutomaton.get();
+        final int[] transitions = automaton.transitions;
+        final int[] byteClasses = automaton.byteClasses;
+        final int matchingStateLimit = automaton.matchingStateLimit;
+
+        // Calculate safe bounds for the search.  Sequences which start at the
+        // toPosition can end up to the maximum length beyond it:
+        final int startPosition = fromPosition > 0? fromPosition : 0;
+        final long lastToPosition = (long) toPosition + automaton.getMaximumLength() - 1;
+        final int finalPosition = lastToPosition < bytes.length - 1?
+                                  (int) lastToPosition : bytes.length - 1;
+
+        // Search forwards:
+        int state = automaton.initialState;
+        for (int searchPosition = startPosition; searchPosition <= finalPosition; searchPosition++) {
+            state = transitions[state + byteClasses[bytes[searchPosition] & 0xFF]];
+            if (state < matchingStateLimit) {
+                final List<SearchResult<SequenceMatcher>> results =
+                        SearchUtils.resultsBackFromPosition(searchPosition, automaton.getMatchingSequences(state),
+                                                            startPosition, toPosition);
+                if (!results.isEmpty()) {
+                    return results;
+                }
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The automaton carries its state across Window boundaries, so each Window
+     * byte array is scanned directly.
+     *
+     * @throws IOException If the reader encounters a problem reading bytes.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final AhoCorasickAutomaton automaton = forwardAutomaton.get();
+        final int[] transitions = automaton.transitions;
+        final int[] byteClasses = automaton.byteClasses;
+        final int matchingStateLimit = automaton.matchingStateLimit;
+
+        // Calculate safe bounds for the search:
+        final long startPosition = fromPosition > 0? fromPosition : 0;
+        final int longestMatchEndPosition = automaton.getMaximumLength() - 1;
+        final long finalPosition = toPosition < Long.MAX_VALUE - longestMatchEndPosition?
+                                   toPosition + longestMatchEndPosition : Long.MAX_VALUE;
+        long searchPosition = startPosition;
+        int state = automaton.initialState;
+
+        // While there is a window to search in:
+        Window window;
+        while (searchPosition <= finalPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Initialise array search:
+            final byte[] array = window.getArray();
+            final long windowStartPosition = window.getWindowPosition();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final int arrayEndPosition = window.length() - 1;
+            final long distanceToEnd = finalPosition - windowStartPosition;
+            final int lastSearchPosition = distanceToEnd < arrayEndPosition?
+                                           (int) distanceToEnd : arrayEndPosition;
+
+            // Search forwards in this array:
+            for (int arraySearchPosition = arrayStartPosition;
+                 arraySearchPosition <= lastSearchPosition; arraySearchPosition++) {
+                state = transitions[state + byteClasses[array[arraySearchPosition] & 0xFF]];
+                if (state < matchingStateLimit) {
+                    final List<SearchResult<SequenceMatcher>> results =
+                            SearchUtils.resultsBackFromPosition(windowStartPosition + arraySearchPosition,
+                                                                automaton.getMatchingSequences(state),
+                                                                startPosition, toPosition);
+                    if (!results.isEmpty()) {
+                        return results;
+                    }
+                }
+            }
+
+            // Continue the search in the next window:
+            searchPosition = windowStartPosition + lastSearchPosition + 1;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final AhoCorasickAutomaton automaton = backwardAutomaton.get();
+        final int[] transitions = automaton.transitions;
+        final int[] byteClasses = automaton.byteClasses;
+        final int matchingStateLimit = automaton.matchingStateLimit;
+
+        // Calculate safe bounds for the search.  Sequences which start at the
+        // fromPosition can end up to the maximum length beyond it:
+        final long firstFromPosition = (long) fromPosition + automaton.getMaximumLength() - 1;
+        final int startPosition = firstFromPosition < bytes.length - 1?
+                                  (int) firstFromPosition : bytes.length - 1;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards:
+        int state = automaton.initialState;
+        for (int searchPosition = startPosition; searchPosition >= finalPosition; searchPosition--) {
+            state = transitions[state + byteClasses[bytes[searchPosition] & 0xFF]];
+            if (state < matchingStateLimit && searchPosition <= fromPosition) {
+                return SearchUtils.resultsAtPosition(searchPosition,
+                                                     automaton.getMatchingSequences(state));
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The automaton carries its state across Window boundaries, so each Window
+     * byte array is scanned directly.
+     *
+     * @throws IOException If the reader encounters a problem reading bytes.
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final AhoCorasickAutomaton automaton = backwardAutomaton.get();
+        final int[] transitions = automaton.transitions;
+        final int[] byteClasses = automaton.byteClasses;
+        final int matchingStateLimit = automaton.matchingStateLimit;
+
+        // Calculate safe bounds for the search:
+        if (fromPosition < 0) {
+            return SearchUtils.noResults();
+        }
+        final int longestMatchEndPosition = automaton.getMaximumLength() - 1;
+        final long firstFromPosition = fromPosition < Long.MAX_VALUE - longestMatchEndPosition?
+                                       fromPosition + longestMatchEndPosition : Long.MAX_VALUE;
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = withinLength(reader, firstFromPosition);
+        int state = automaton.initialState;
+
+        // While there is a window to search in:
+        Window window;
+        while (searchPosition >= finalPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Initialise array search:
+            final byte[] array = window.getArray();
+            final long windowStartPosition = window.getWindowPosition();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long distanceToEnd = finalPosition - windowStartPosition;
+            final int lastSearchPosition = distanceToEnd > 0? (int) distanceToEnd : 0;
+
+            // Search backwards in this array:
+            for (int arraySearchPosition = arrayStartPosition;
+                 arraySearchPosition >= lastSearchPosition; arraySearchPosition--) {
+                state = transitions[state + byteClasses[array[arraySearchPosition] & 0xFF]];
+                if (state < matchingStateLimit) {
+                    final long matchPosition = windowStartPosition + arraySearchPosition;
+                    if (matchPosition <= fromPosition) {
+                        return SearchUtils.resultsAtPosition(matchPosition,
+                                                             automaton.getMatchingSequences(state));
+                    }
+                }
+            }
+
+            // Continue the search in the previous window:
+            searchPosition = windowStartPosition + lastSearchPosition - 1;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the compilation of the automaton needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardAutomaton.get();
+    }
+
+    /**
+     * Forces the compilation of the automaton needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardAutomaton.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequences:" + sequences + ']';
+    }
+
+    /**
+     * A factory creating the {@link AhoCorasickAutomaton} for searching forwards.
+     */
+    private final class ForwardAutomatonFactory implements ObjectFactory<AhoCorasickAutomaton> {
+
+        @Override
+        public AhoCorasickAutomaton create() {
+            return AhoCorasickAutomaton.forwards(sequences.getSequenceMatchers());
+        }
+    }
+
+    /**
+     * A factory creating the {@link AhoCorasickAutomaton} for searching backwards.
+     */
+    private final class BackwardAutomatonFactory implements ObjectFactory<AhoCorasickAutomaton> {
+
+        @Override
+        public AhoCorasickAutomaton create() {
+            return AhoCorasickAutomaton.backwards(sequences.getSequenceMatchers());
+        }
+    }
+
+}
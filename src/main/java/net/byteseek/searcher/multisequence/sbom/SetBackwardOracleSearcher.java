@@ -0,0 +1,306 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence.sbom;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.automata.FactorOracle;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * The SetBackwardOracleSearcher implements the Set Backward Oracle Matching (SBOM)
+ * algorithm for multiple sequences.
+ * <p>
+ * It slides a search window the length of the shortest sequence along the bytes.  Within
+ * each window, it reads bytes backwards through a {@link FactorOracle} of the reversed
+ * prefixes of the sequences.  If the oracle cannot read a byte, then the bytes read so
+ * far are not part of the prefix of any sequence, and the window can be shifted past them.
+ * If the whole window is read, the sequences are verified at the start of the window
+ * with the {@link MultiSequenceMatcher}.  Searching backwards does the same in reverse,
+ * using an oracle of the prefixes of the sequences.
+ * <p>
+ * Unlike the Set Horspool and Wu-Manber searchers, whose shifts are limited by the single
+ * or few bytes they look at, the shifts of this algorithm depend on how many bytes can be
+ * read as a factor of the sequences.  They stay long as the number of sequences grows, which
+ * makes it a good choice for hundreds or thousands of medium length sequences.
+ * <p>
+ * Sequences which match many bytes at a position reduce how well the oracle can
+ * distinguish bytes (see {@link FactorOracle}), which shortens the shifts.
+ * <p>
+ * As the sequences are verified at the start of each window, searching forwards reports all
+ * the sequences which start at the first position at which any sequence starts, like the
+ * {@link net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher}.  This differs from
+ * the {@link net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher}, Set Horspool
+ * and Wu-Manber searchers, which report the sequences which end at the first position at which
+ * any sequence ends.  A shorter sequence starting later can end before a longer one starting
+ * earlier, so these can report different matches.  Searching backwards reports all the sequences
+ * which start at the last position at which any sequence starts, like all of them.
+ *
+ * @author Matt Palmer
+ * @see <a href="http://www-igm.univ-mlv.fr/~lecroq/articles/sbom.pdf">Factor oracle, suffix oracle</a>
+ */
+public final class SetBackwardOracleSearcher extends AbstractMultiSequenceSearcher {
+
+    private final LazyObject<FactorOracle> forwardOracle;
+    private final LazyObject<FactorOracle> backwardOracle;
+
+    /**
+     * Constructs a SetBackwardOracleSearcher.
+     *
+     * @param sequences A MultiSequenceMatcher containing the sequences to be searched for.
+     * @throws IllegalArgumentException if the sequences are null.
+     */
+    public SetBackwardOracleSearcher(final MultiSequenceMatcher sequences) {
+        super(sequences);
+        forwardOracle  = new DoubleCheckImmutableLazyObject<FactorOracle>(new ForwardOracleFactory());
+        backwardOracle = new DoubleCheckImmutableLazyObject<FactorOracle>(new BackwardOracleFactory());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SetBackwardOracleSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new SetBackwardOracleSearcher(sequences);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = forwardOracle.get();
+        final MultiSequenceMatcher verifier = sequences;
+        final int windowLength = oracle.getLength();
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - windowLength;
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0? fromPosition : 0;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Read backwards from the end of the window for as long as the oracle can:
+            final int readPosition = oracle.readWindowBackwards(bytes, searchPosition);
+
+            // If the whole window was read, verify the sequences at the start of the window:
+            if (readPosition < searchPosition) {
+                final Collection<SequenceMatcher> matches = verifier.allMatches(bytes, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition++;
+            } else {
+                // Shift the window past the byte the oracle could not read:
+                searchPosition = readPosition + 1;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = forwardOracle.get();
+        final MultiSequenceMatcher verifier = sequences;
+        long searchPosition = fromPosition;
+
+        // Search forwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition <= toPosition) {
+
+            // Read backwards from the end of the window for as long as the oracle can.
+            // A window which goes past the end of the reader is shifted like any other,
+            // until the search passes the toPosition:
+            final long readPosition = oracle.readWindowBackwards(reader, searchPosition);
+
+            // If the whole window was read, verify the sequences at the start of the window:
+            if (readPosition < searchPosition) {
+                final Collection<SequenceMatcher> matches = verifier.allMatches(reader, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition++;
+            } else {
+                // Shift the window past the byte the oracle could not read:
+                searchPosition = readPosition + 1;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = backwardOracle.get();
+        final MultiSequenceMatcher verifier = sequences;
+        final int windowLength = oracle.getLength();
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - windowLength;
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards:
+        while (searchPosition >= finalPosition) {
+
+            // Read forwards from the start of the window for as long as the oracle can:
+            final int readPosition = oracle.readWindowForwards(bytes, searchPosition);
+
+            // If the whole window was read, verify the sequences at the start of the window:
+            if (readPosition == searchPosition + windowLength) {
+                final Collection<SequenceMatcher> matches = verifier.allMatches(bytes, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition--;
+            } else {
+                // Shift the window back past the byte the oracle could not read:
+                searchPosition = readPosition - windowLength;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = backwardOracle.get();
+        final MultiSequenceMatcher verifier = sequences;
+        final int windowLength = oracle.getLength();
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = fromPosition;
+
+        // Search backwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition >= finalPosition) {
+
+            // Read forwards from the start of the window for as long as the oracle can.
+            // A window which goes past the end of the reader is shifted back like any other:
+            final long readPosition = oracle.readWindowForwards(reader, searchPosition);
+
+            // If the whole window was read, verify the sequences at the start of the window:
+            if (readPosition == searchPosition + windowLength) {
+                final Collection<SequenceMatcher> matches = verifier.allMatches(reader, searchPosition);
+                if (!matches.isEmpty()) {
+                    return SearchUtils.resultsAtPosition(searchPosition, matches);
+                }
+                searchPosition--;
+            } else {
+                // Shift the window back past the byte the oracle could not read:
+                searchPosition = readPosition - windowLength;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the construction of the factor oracle needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardOracle.get();
+    }
+
+    /**
+     * Forces the construction of the factor oracle needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardOracle.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequences:" + sequences + ']';
+    }
+
+    /**
+     * A factory creating the {@link FactorOracle} of the reversed prefixes of the sequences,
+     * for searching forwards.
+     */
+    private final class ForwardOracleFactory implements ObjectFactory<FactorOracle> {
+
+        @Override
+        public FactorOracle create() {
+            return FactorOracle.ofReversedPrefixes(sequences.getSequenceMatchers(),
+                                                   sequences.getMinimumLength());
+        }
+    }
+
+    /**
+     * A factory creating the {@link FactorOracle} of the prefixes of the sequences,
+     * for searching backwards.
+     */
+    private final class BackwardOracleFactory implements ObjectFactory<FactorOracle> {
+
+        @Override
+        public FactorOracle create() {
+            return FactorOracle.ofPrefixes(sequences.getSequenceMatchers(),
+                                           sequences.getMinimumLength());
+        }
+    }
+
+}
@@ -88,6 +88,14 @@ public class SetHorspoolFinalFlagSearcher extends AbstractMultiSequenceSearcher
         forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
         backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardInfoFactory());
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SetHorspoolFinalFlagSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new SetHorspoolFinalFlagSearcher(sequences);
+    }
     
     
     /**
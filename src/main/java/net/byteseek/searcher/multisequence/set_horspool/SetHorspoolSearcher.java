@@ -89,6 +89,14 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
         //TODO: provide an ObjectFactory<LazyObject> to instantiate a LazyObject of choice.
         byteMatcherFactory = OptimalByteMatcherFactory.FACTORY;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SetHorspoolSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new SetHorspoolSearcher(sequences);
+    }
     
     
     /**
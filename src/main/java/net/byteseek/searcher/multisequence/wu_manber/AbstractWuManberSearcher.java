@@ -90,6 +90,13 @@ import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
  * </ul>
  * You can use the utility methods defined in {@link WuManberUtils} to determine
  * an appropriate block size to use.
+ * <p>
+ * Case insensitive letters match two bytes, so a block containing them hashes to 2^n entries
+ * in the shift table, where n is the number of letters in the block.  If the block size is more than
+ * one, and any of the sequences contain case insensitive letters, the blocks are hashed on the values
+ * of their bytes with the case of ASCII letters folded to lower case.  Each letter then only contributes
+ * a single value to a block.  The {@link SearchInfo#byteValues} table gives the value of each byte to
+ * use in the hash when searching.
  * 
  * @see <a href="http://webglimpse.net/pubs/TR94-17.pdf">Wu-Manber paper (PDF)</a>
  * @author Matt Palmer
@@ -98,6 +105,15 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
         
     private static final int HIGHEST_POWER_OF_TWO = 1073741824;
 
+    private static final int[] UNSIGNED_VALUES = new int[256];
+    private static final int[] FOLDED_VALUES   = new int[256];
+    static {
+        for (int value = 0; value < 256; value++) {
+            UNSIGNED_VALUES[value] = value;
+            FOLDED_VALUES[value] = ByteUtils.foldASCIICase((byte) value) & 0xFF;
+        }
+    }
+
     /**
      * A class holding the search information used in the Wu-Manber search.
      */
@@ -116,17 +132,37 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
          */
         public final MultiSequenceMatcher matcher;
 
+        /**
+         * The value of each byte to use when calculating the hash of a block, indexed by the
+         * unsigned value of the byte.  This is either the unsigned value of the byte itself, or the
+         * unsigned value of the byte with the case of ASCII letters folded to lower case.
+         */
+        public final int[] byteValues;
+
         
         /**
          * Constructs a SearchInfo objecxt with the shifts and matcher to use
-         * when searching.
+         * when searching, hashing the unsigned values of bytes.
          * 
          * @param shifts The hash-table containing the safe shifts.
          * @param matcher The matcher to use to verify whether a match exists.
          */
         public SearchInfo(final int[] shifts, final MultiSequenceMatcher matcher) {
+            this(shifts, matcher, UNSIGNED_VALUES);
+        }
+
+        /**
+         * Constructs a SearchInfo object with the shifts and matcher to use
+         * when searching, and the values of bytes to hash.
+         *
+         * @param shifts The hash-table containing the safe shifts.
+         * @param matcher The matcher to use to verify whether a match exists.
+         * @param byteValues The value of each byte to use when calculating the hash of a block.
+         */
+        public SearchInfo(final int[] shifts, final MultiSequenceMatcher matcher, final int[] byteValues) {
             this.shifts = shifts;
             this.matcher = matcher;
+            this.byteValues = byteValues;
         }
     }
 
@@ -183,23 +219,75 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
     }
 
 
+    /**
+     * Returns true if blocks should be hashed with the case of ASCII letters folded to lower case.
+     * This is the case if the block size is greater than one, and any position in any of
+     * the sequences matches both cases of an ASCII letter.
+     *
+     * @return true if blocks should be hashed with the case of ASCII letters folded to lower case.
+     */
+    protected boolean hashesFoldedBytes() {
+        if (blockSize > 1) {
+            for (final SequenceMatcher sequence : sequences.getSequenceMatchers()) {
+                for (final ByteMatcher byteMatcher : sequence) {
+                    if (byteMatcher.getNumberOfMatchingBytes() > 1 &&
+                        getFoldedBytes(byteMatcher).length < byteMatcher.getNumberOfMatchingBytes()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+
     /**
      * For a given SequenceMatcher, builds a list of the byte values for a block.
      * 
      * @param position The end of the block to get the byte values for.
      * @param matcher The SequenceMatcher to build the list of byte arrays for.
+     * @param foldCase Whether to fold the case of ASCII letters in the byte values.
      * @return A list of byte arrays containing the matching byte values for a block in the SequenceMatcher.
      */
-    private List<byte[]> getBlockByteList(final int position, final SequenceMatcher matcher) {
+    private List<byte[]> getBlockByteList(final int position, final SequenceMatcher matcher,
+                                          final boolean foldCase) {
         final List<byte[]> byteList = new ArrayList<byte[]>(blockSize);
         for (int blockIndex = position - blockSize + 1; blockIndex <= position; blockIndex++) {
             final ByteMatcher byteMatcher = matcher.getMatcherForPosition(blockIndex);
-            byteList.add(byteMatcher.getMatchingBytes());
+            byteList.add(foldCase? getFoldedBytes(byteMatcher) : byteMatcher.getMatchingBytes());
         }
         return byteList;
     }
 
 
+    /**
+     * Returns the distinct bytes matched by a ByteMatcher, with the case of ASCII letters folded to lower case.
+     *
+     * @param byteMatcher The ByteMatcher to get the folded bytes for.
+     * @return The distinct bytes matched by the ByteMatcher, with ASCII letters folded to lower case.
+     */
+    private static byte[] getFoldedBytes(final ByteMatcher byteMatcher) {
+        final byte[] matchingBytes = byteMatcher.getMatchingBytes();
+        final boolean[] present = new boolean[256];
+        int numFolded = 0;
+        for (final byte b : matchingBytes) {
+            final int folded = FOLDED_VALUES[b & 0xFF];
+            if (!present[folded]) {
+                present[folded] = true;
+                numFolded++;
+            }
+        }
+        final byte[] foldedBytes = new byte[numFolded];
+        int index = 0;
+        for (int value = 0; value < 256; value++) {
+            if (present[value]) {
+                foldedBytes[index++] = (byte) value;
+            }
+        }
+        return foldedBytes;
+    }
+
+
     /**
      * Given a block as a byte array, calculate its block hash value.
      * 
@@ -324,15 +412,18 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
          */
         @Override
         public SearchInfo create() {
-            return new SearchInfo(getShifts(), getMatcher());
+            final boolean foldCase = hashesFoldedBytes();
+            return new SearchInfo(getShifts(foldCase), getMatcher(),
+                                  foldCase? FOLDED_VALUES : UNSIGNED_VALUES);
         }
 
         /**
          * Creates the safe shifts for forward searching 
          * 
+         * @param foldCase Whether blocks are hashed with the case of ASCII letters folded to lower case.
          * @return int[] the safe shifts for forward searching.
          */
-        private int[] getShifts() {
+        private int[] getShifts(final boolean foldCase) {
             final int defaultShift = sequences.getMinimumLength() - blockSize + 1;        
             final int[] shifts = createShiftHashTable(defaultShift);
             // (relies on shifts being a size which is a power of two):
@@ -351,7 +442,7 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
                     final int distanceFromEnd = matcherLength - blockEndPosition - 1;
 
                     // For each possible permutation of bytes in a block:
-                    final List<byte[]> blockBytes = getBlockByteList(blockEndPosition, sequence);
+                    final List<byte[]> blockBytes = getBlockByteList(blockEndPosition, sequence, foldCase);
                     final BytePermutationIterator permutation = new BytePermutationIterator(blockBytes);
                     while (permutation.hasNext()) {
 
@@ -399,16 +490,19 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
          */
         @Override
         public SearchInfo create() {
-            return new SearchInfo(getShifts(), getMatcher());
+            final boolean foldCase = hashesFoldedBytes();
+            return new SearchInfo(getShifts(foldCase), getMatcher(),
+                                  foldCase? FOLDED_VALUES : UNSIGNED_VALUES);
         }
 
         
         /**
          * Creates the safe shifts for backward searching 
          * 
+         * @param foldCase Whether blocks are hashed with the case of ASCII letters folded to lower case.
          * @return int[] the safe shifts for backward searching.
          */        
-        private int[] getShifts() {
+        private int[] getShifts(final boolean foldCase) {
             final int minLength = sequences.getMinimumLength();
             final int defaultShift = minLength - blockSize + 1;        
             final int[] shifts = createShiftHashTable(defaultShift);
@@ -426,7 +520,7 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
 
                     final int distanceToStart = blockEndPosition - blockSize + 1;
                     // For each possible permutation of bytes in a block:
-                    final List<byte[]> blockBytes = getBlockByteList(blockEndPosition, sequence);
+                    final List<byte[]> blockBytes = getBlockByteList(blockEndPosition, sequence, foldCase);
                     final BytePermutationIterator permutation = new BytePermutationIterator(blockBytes);
                     while (permutation.hasNext()) {
 
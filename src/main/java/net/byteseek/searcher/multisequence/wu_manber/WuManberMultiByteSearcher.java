@@ -72,6 +72,14 @@ public class WuManberMultiByteSearcher extends AbstractWuManberSearcher {
         }            
     }        
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WuManberMultiByteSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new WuManberMultiByteSearcher(sequences, blockSize);
+    }
+
     @Override
     protected List<SearchResult<SequenceMatcher>> doSearchForwards(WindowReader reader, long searchPosition, long lastSearchPosition) throws IOException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -88,6 +96,7 @@ public class WuManberMultiByteSearcher extends AbstractWuManberSearcher {
         final SearchInfo info = forwardInfo.get();
         final int[] safeShifts = info.shifts;
         final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.
+        final int[] byteValues = info.byteValues;
         final MultiSequenceMatcher backMatcher = info.matcher;
 
         // Calculate safe bounds for the search:
@@ -106,7 +115,7 @@ public class WuManberMultiByteSearcher extends AbstractWuManberSearcher {
             int blockHash = 0;
             for (int blockPosition = searchPosition - blockSize + 1; 
                      blockPosition <= searchPosition; blockPosition++) {
-                final int value = bytes[blockPosition] & 0xFF;
+                final int value = byteValues[bytes[blockPosition] & 0xFF];
                 blockHash = ((blockHash << 5) - blockHash) * value;
             }
 
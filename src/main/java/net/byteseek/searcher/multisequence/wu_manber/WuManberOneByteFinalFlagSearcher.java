@@ -523,6 +523,14 @@ import java.util.List;
         public OneByteBlockSearcher(final MultiSequenceMatcher matcher) {
             super(matcher, 1);
         }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public OneByteBlockSearcher newInstance(final MultiSequenceMatcher sequences) {
+            return new OneByteBlockSearcher(sequences);
+        }
         
         public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, 
                 final int fromPosition, final int toPosition) {
@@ -59,6 +59,14 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         super(matcher, 1);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WuManberOneByteSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new WuManberOneByteSearcher(sequences);
+    }
+
 
     /**
      * {@inheritDoc}
@@ -61,6 +61,14 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         super(matcher, 1);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WuManberOneByteTunedSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new WuManberOneByteTunedSearcher(sequences);
+    }
+
 
     /**
      * {@inheritDoc}
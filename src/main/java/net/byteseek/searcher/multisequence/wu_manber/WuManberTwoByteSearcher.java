@@ -62,6 +62,14 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         }
     }        
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WuManberTwoByteSearcher newInstance(final MultiSequenceMatcher sequences) {
+        return new WuManberTwoByteSearcher(sequences);
+    }
+
     
     /**
      * {@inheritDoc}
@@ -74,6 +82,7 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         final int[] safeShifts = info.shifts;
         final MultiSequenceMatcher backMatcher = info.matcher;
         final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.            
+        final int[] byteValues = info.byteValues;
 
         // Initialise window search:
         final long finalPosition = toPosition + sequences.getMaximumLength() - 1;
@@ -100,13 +109,14 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
             // Search forwards in this array:
             // Use the readByte method on the reader to get the first byte of 
             // the block to hash, as it could be in a prior window.
-            int firstBlockByte = reader.readByte(searchPosition - 1); 
+            final int priorByte = reader.readByte(searchPosition - 1);
+            int firstBlockByte = priorByte < 0? priorByte : byteValues[priorByte];
             while (arraySearchPosition <= lastSearchPosition) {
 
                 // Calculate the hash of the current block:
-                final int lastBlockByte = array[arraySearchPosition] & 0xFF;
+                final int lastBlockByte = byteValues[array[arraySearchPosition] & 0xFF];
                 if (firstBlockByte < 0) {
-                    firstBlockByte = array[arraySearchPosition - 1] & 0xFF;
+                    firstBlockByte = byteValues[array[arraySearchPosition - 1] & 0xFF];
                 }
                 final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
 
@@ -153,6 +163,7 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         final SearchInfo info = forwardInfo.get();
         final int[] safeShifts = info.shifts;
         final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.
+        final int[] byteValues = info.byteValues;
         final MultiSequenceMatcher backMatcher = info.matcher;
 
         // Calculate safe bounds for the search:
@@ -170,9 +181,9 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         while (searchPosition <= lastPosition) {
 
             // Calculate the hash of the current block:
-            final int lastBlockByte = bytes[searchPosition] & 0xFF;
+            final int lastBlockByte = byteValues[bytes[searchPosition] & 0xFF];
             if (firstBlockByte < 0) {
-                firstBlockByte = bytes[searchPosition - 1] & 0xFF;
+                firstBlockByte = byteValues[bytes[searchPosition - 1] & 0xFF];
             }
             final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte; 
 
@@ -219,6 +230,7 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         final int[] safeShifts = info.shifts;
         final MultiSequenceMatcher matcher = info.matcher;
         final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.            
+        final int[] byteValues = info.byteValues;
         long searchPosition = fromPosition;       
 
         // While there is a window to search in:
@@ -237,13 +249,14 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
             // Search backwards in this array:
             // Use the readByte method on the reader to get the first byte of 
             // the block to hash, as it could be in the next window.
-            int lastBlockByte = reader.readByte(searchPosition + 1); 
+            final int nextByte = reader.readByte(searchPosition + 1);
+            int lastBlockByte = nextByte < 0? nextByte : byteValues[nextByte];
             while (arraySearchPosition >= lastSearchPosition) {
 
                 // Calculate the hash of the current block:
-                final int firstBlockByte = array[arraySearchPosition] & 0xFF;
+                final int firstBlockByte = byteValues[array[arraySearchPosition] & 0xFF];
                 if (lastBlockByte < 0) {
-                    lastBlockByte = array[arraySearchPosition + 1];
+                    lastBlockByte = byteValues[array[arraySearchPosition + 1] & 0xFF];
                 }
                 final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte;
 
@@ -290,6 +303,7 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         final int[] safeShifts = info.shifts;
         final MultiSequenceMatcher verifier = info.matcher;
         final int hashBitMask = safeShifts.length - 1; // safe shifts is a power of two size.
+        final int[] byteValues = info.byteValues;
 
         // Calculate safe bounds for the search:
         final int finalPosition = toPosition > 0 ?
@@ -303,9 +317,9 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
         while (searchPosition >= finalPosition) {
 
             // Get the safe shift for this byte:
-            final int firstBlockByte = bytes[searchPosition] & 0xFF;
+            final int firstBlockByte = byteValues[bytes[searchPosition] & 0xFF];
             if (lastBlockByte < 0) {
-                lastBlockByte = bytes[searchPosition + 1] & 0xFF;
+                lastBlockByte = byteValues[bytes[searchPosition + 1] & 0xFF];
             }
             final int blockHash = (firstBlockByte << 5) - firstBlockByte + lastBlockByte; 
             final int safeShift = safeShifts[blockHash & hashBitMask];
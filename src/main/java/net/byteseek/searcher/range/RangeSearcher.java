@@ -0,0 +1,261 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.range;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Searches for all matches of a set of {@link Searcher}s, each of which is only allowed to match
+ * within a {@link SearchRange}, in a single pass ordered by position.
+ * <p>
+ * Each range is resolved against the length of the data, and the ranges are then swept together
+ * in a single pass over the windows of a {@link WindowReader}.  Each window is fetched once, in
+ * ascending order, and every range which overlaps it is searched within it before moving on to the
+ * next, so overlapping ranges never send the reader back to an earlier window, and a window which
+ * no range touches is never requested.  A searcher may still read into later windows to verify a
+ * match which starts in the current one.  If every range is measured from the start
+ * of the data, the length of a reader is never requested, so an
+ * {@link net.byteseek.io.reader.InputStreamReader} need not read to the end of its stream.
+ * If any range is measured from the end, the reader length is required; for a stream this means
+ * reading all of it, but for a file it just skips the middle.
+ * <p>
+ * A searcher may be given more than one range, but its ranges should not overlap,
+ * or matches in the overlap will be reported more than once.
+ *
+ * @param <T> The type of object associated with a match.
+ *
+ * @author Matt Palmer
+ */
+public final class RangeSearcher<T> {
+
+    private static final Comparator<SearchResult<?>> BY_POSITION = new Comparator<SearchResult<?>>() {
+        @Override
+        public int compare(final SearchResult<?> first, final SearchResult<?> second) {
+            final long firstPosition  = first.getMatchPosition();
+            final long secondPosition = second.getMatchPosition();
+            return firstPosition < secondPosition ? -1 : firstPosition == secondPosition ? 0 : 1;
+        }
+    };
+
+    private final List<Searcher<T>> searchers;
+    private final SearchRange[] ranges;
+    private final boolean hasRangesFromEnd;
+
+    /**
+     * Constructs a RangeSearcher from a list of searchers and a list of the ranges each is to search in.
+     * The same searcher can appear more than once in the list, with a different range.
+     *
+     * @param searchers The searchers to search with.
+     * @param ranges    The range to search in for each searcher, in the same order as the searchers.
+     * @throws IllegalArgumentException if either list is null or empty, contains null elements,
+     *                                  or the lists are not the same size.
+     */
+    public RangeSearcher(final List<? extends Searcher<T>> searchers, final List<SearchRange> ranges) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(searchers, "searchers");
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(ranges, "ranges");
+        ArgUtils.checkCollectionSize(ranges, searchers.size());
+        this.searchers = new ArrayList<Searcher<T>>(searchers);
+        this.ranges    = ranges.toArray(new SearchRange[ranges.size()]);
+        boolean fromEnd = false;
+        for (final SearchRange range : this.ranges) {
+            fromEnd |= range.isFromEnd();
+        }
+        this.hasRangesFromEnd = fromEnd;
+    }
+
+    /**
+     * Searches a reader for all matches of each searcher within its range.
+     *
+     * @param reader The reader to search in.
+     * @return A list of all the search results, ordered by position.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    public List<SearchResult<T>> searchAll(final WindowReader reader) throws IOException {
+        final long length = hasRangesFromEnd ? reader.length() : Long.MAX_VALUE;
+        final RangeToSearch[] toSearch = resolveRanges(length);
+        final long[] searchPositions = new long[toSearch.length];
+        for (int index = 0; index < toSearch.length; index++) {
+            searchPositions[index] = toSearch[index].firstPosition;
+        }
+        final List<SearchResult<T>> results = new ArrayList<SearchResult<T>>();
+        long windowStart = nextSearchPosition(toSearch, searchPositions);
+        Window window;
+        while (windowStart >= 0 && (window = reader.getWindow(windowStart)) != null) {
+            final long windowEnd = window.getWindowPosition() + window.length() - 1;
+            for (int index = 0; index < toSearch.length; index++) {
+                final RangeToSearch range = toSearch[index];
+                final Searcher<T> searcher = searchers.get(range.index);
+                final long lastPosition = Math.min(windowEnd, range.lastPosition);
+                long position = searchPositions[index];
+                while (position <= lastPosition) {
+                    final List<SearchResult<T>> found = searcher.searchForwards(reader, position, lastPosition);
+                    if (found.isEmpty()) {
+                        position = lastPosition + 1;
+                    } else {
+                        results.addAll(found);
+                        position = furthestPosition(found) + 1;
+                    }
+                }
+                searchPositions[index] = position;
+            }
+            windowStart = nextSearchPosition(toSearch, searchPositions);
+        }
+        return orderedByPosition(results);
+    }
+
+    /**
+     * Searches a byte array for all matches of each searcher within its range.
+     *
+     * @param bytes The byte array to search in.
+     * @return A list of all the search results, ordered by position.
+     */
+    public List<SearchResult<T>> searchAll(final byte[] bytes) {
+        final List<SearchResult<T>> results = new ArrayList<SearchResult<T>>();
+        for (final RangeToSearch range : resolveRanges(bytes.length)) {
+            final Searcher<T> searcher = searchers.get(range.index);
+            final int lastPosition = (int) range.lastPosition;
+            int position = (int) range.firstPosition;
+            while (position <= lastPosition) {
+                final List<SearchResult<T>> found = searcher.searchForwards(bytes, position, lastPosition);
+                if (found.isEmpty()) {
+                    break;
+                }
+                results.addAll(found);
+                position = (int) furthestPosition(found) + 1;
+            }
+        }
+        return orderedByPosition(results);
+    }
+
+    /**
+     * Returns the number of ranges searched.
+     *
+     * @return The number of ranges searched.
+     */
+    public int getNumberOfRanges() {
+        return ranges.length;
+    }
+
+    /**
+     * Returns true if any of the ranges is measured back from the end of the data,
+     * which means the length of a reader is required to search it.
+     *
+     * @return true if any of the ranges is measured back from the end of the data.
+     */
+    public boolean hasRangesFromEnd() {
+        return hasRangesFromEnd;
+    }
+
+    /*
+     * Resolves the ranges against the length of the data, dropping any which lie outside it,
+     * and orders them by their first position.
+     */
+    private RangeToSearch[] resolveRanges(final long length) {
+        final List<RangeToSearch> resolved = new ArrayList<RangeToSearch>(ranges.length);
+        final long lastPositionInData = length - 1;
+        for (int index = 0; index < ranges.length; index++) {
+            final SearchRange range = ranges[index];
+            final long firstPosition = range.getFirstPosition(length);
+            final long lastPosition  = Math.min(range.getLastPosition(length), lastPositionInData);
+            if (firstPosition <= lastPosition) {
+                resolved.add(new RangeToSearch(index, firstPosition, lastPosition));
+            }
+        }
+        final RangeToSearch[] ordered = resolved.toArray(new RangeToSearch[resolved.size()]);
+        Arrays.sort(ordered);
+        return ordered;
+    }
+
+    /*
+     * Returns the lowest position still to be searched in any range, or -1 if all of them have been searched.
+     */
+    private static long nextSearchPosition(final RangeToSearch[] toSearch, final long[] searchPositions) {
+        long nextPosition = -1;
+        for (int index = 0; index < toSearch.length; index++) {
+            final long position = searchPositions[index];
+            if (position <= toSearch[index].lastPosition && (nextPosition < 0 || position < nextPosition)) {
+                nextPosition = position;
+            }
+        }
+        return nextPosition;
+    }
+
+    private static long furthestPosition(final List<? extends SearchResult<?>> found) {
+        long furthest = found.get(0).getMatchPosition();
+        for (final SearchResult<?> result : found) {
+            furthest = Math.max(furthest, result.getMatchPosition());
+        }
+        return furthest;
+    }
+
+    private List<SearchResult<T>> orderedByPosition(final List<SearchResult<T>> results) {
+        Collections.sort(results, BY_POSITION);
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searchers: " + searchers + " ranges: " + Arrays.toString(ranges) + ']';
+    }
+
+    private static final class RangeToSearch implements Comparable<RangeToSearch> {
+
+        private final int index;
+        private final long firstPosition;
+        private final long lastPosition;
+
+        private RangeToSearch(final int index, final long firstPosition, final long lastPosition) {
+            this.index         = index;
+            this.firstPosition = firstPosition;
+            this.lastPosition  = lastPosition;
+        }
+
+        @Override
+        public int compareTo(final RangeToSearch other) {
+            return firstPosition < other.firstPosition ? -1 :
+                   firstPosition > other.firstPosition ?  1 :
+                   index < other.index ? -1 : index == other.index ? 0 : 1;
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.range;
+
+/**
+ * An immutable range of positions at which a match may start, measured either from the start
+ * of the data or back from the end of it.
+ * <p>
+ * A range from the start is given as the first and last positions a match may start at,
+ * so <code>SearchRange.fromStart(0, 511)</code> covers the first 512 bytes.
+ * A range from the end is given as distances back from the length of the data, so
+ * <code>SearchRange.fromEnd(1024, 1)</code> covers the last 1024 bytes, and a distance of one
+ * is the last byte.  The actual positions of a range from the end can only be known once the
+ * length of the data is known.
+ *
+ * @author Matt Palmer
+ */
+public final class SearchRange {
+
+    private final long firstOffset;
+    private final long lastOffset;
+    private final boolean fromEnd;
+
+    private SearchRange(final long firstOffset, final long lastOffset, final boolean fromEnd) {
+        this.firstOffset = firstOffset;
+        this.lastOffset  = lastOffset;
+        this.fromEnd     = fromEnd;
+    }
+
+    /**
+     * Returns a range of positions measured from the start of the data.
+     *
+     * @param firstPosition The first position a match may start at.
+     * @param lastPosition  The last position a match may start at.
+     * @return A SearchRange measured from the start of the data.
+     * @throws IllegalArgumentException if the first position is negative or after the last position.
+     */
+    public static SearchRange fromStart(final long firstPosition, final long lastPosition) {
+        if (firstPosition < 0 || firstPosition > lastPosition) {
+            throw new IllegalArgumentException("The first position must not be negative or after the last position: " +
+                                               firstPosition + ',' + lastPosition);
+        }
+        return new SearchRange(firstPosition, lastPosition, false);
+    }
+
+    /**
+     * Returns a range of positions measured back from the end of the data.
+     *
+     * @param furthestFromEnd The distance back from the length of the data of the first position a match may start at.
+     * @param nearestToEnd    The distance back from the length of the data of the last position a match may start at.
+     * @return A SearchRange measured back from the end of the data.
+     * @throws IllegalArgumentException if the nearest distance is less than one or greater than the furthest distance.
+     */
+    public static SearchRange fromEnd(final long furthestFromEnd, final long nearestToEnd) {
+        if (nearestToEnd < 1 || nearestToEnd > furthestFromEnd) {
+            throw new IllegalArgumentException("The nearest distance must be at least one and not greater than the furthest distance: " +
+                                               furthestFromEnd + ',' + nearestToEnd);
+        }
+        return new SearchRange(furthestFromEnd, nearestToEnd, true);
+    }
+
+    /**
+     * Returns true if the range is measured back from the end of the data.
+     *
+     * @return true if the range is measured back from the end of the data.
+     */
+    public boolean isFromEnd() {
+        return fromEnd;
+    }
+
+    /**
+     * Returns the offset of the first position in the range.  For a range from the end,
+     * this is the distance back from the length of the data.
+     *
+     * @return The offset of the first position in the range.
+     */
+    public long getFirstOffset() {
+        return firstOffset;
+    }
+
+    /**
+     * Returns the offset of the last position in the range.  For a range from the end,
+     * this is the distance back from the length of the data.
+     *
+     * @return The offset of the last position in the range.
+     */
+    public long getLastOffset() {
+        return lastOffset;
+    }
+
+    /**
+     * Returns the first position in the range for data of the length given.
+     * The position returned is never negative, but may be beyond the end of the data.
+     *
+     * @param length The length of the data.
+     * @return The first position in the range for data of the length given.
+     */
+    public long getFirstPosition(final long length) {
+        if (fromEnd) {
+            final long position = length - firstOffset;
+            return position > 0 ? position : 0;
+        }
+        return firstOffset;
+    }
+
+    /**
+     * Returns the last position in the range for data of the length given.
+     * The position returned may be before the first position, if the data is not long enough
+     * to contain any of a range from the end.
+     *
+     * @param length The length of the data.
+     * @return The last position in the range for data of the length given.
+     */
+    public long getLastPosition(final long length) {
+        return fromEnd ? length - lastOffset : lastOffset;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof SearchRange)) {
+            return false;
+        }
+        final SearchRange range = (SearchRange) other;
+        return firstOffset == range.firstOffset && lastOffset == range.lastOffset && fromEnd == range.fromEnd;
+    }
+
+    @Override
+    public int hashCode() {
+        final int hash = (int) (firstOffset ^ (firstOffset >>> 32)) * 31 + (int) (lastOffset ^ (lastOffset >>> 32));
+        return fromEnd ? ~hash : hash;
+    }
+
+    @Override
+    public String toString() {
+        return fromEnd ? getClass().getSimpleName() + "[EOF-" + firstOffset + " to EOF-" + lastOffset + ']'
+                       : getClass().getSimpleName() + "[BOF+" + firstOffset + " to BOF+" + lastOffset + ']';
+    }
+
+}
@@ -38,6 +38,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchCursor;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.utils.ArgUtils;
@@ -61,6 +62,13 @@ import net.byteseek.utils.ArgUtils;
  * </ul>
  * which require the implementor to use the reader interface on the sequence for
  * matching (or otherwise provide for searching sequences which cross window boundaries).
+ * <p>
+ * Forward searches, search cursors, counting and existence checks all go through
+ * {@link #searchForwardsForPosition(byte[], int, int)} and
+ * {@link #doSearchForwardsForPosition(net.byteseek.io.reader.WindowReader, long, long)},
+ * which return the position of a match rather than a list of results.  By default these
+ * take the position from the result lists, but a searcher which overrides them to search
+ * for positions directly creates no results when counting or checking for existence.
  * 
  * @author Matt Palmer
  */
@@ -70,6 +78,11 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
      * The SequenceMatcher which the Searcher should search for.
      */
     protected final SequenceMatcher matcher;
+
+    /**
+     * The position returned by the position searches if no match is found.
+     */
+    protected static final int NOT_FOUND = -1;
     
     /**
      * Constructs a sequence searcher given a {@link SequenceMatcher}
@@ -112,6 +125,27 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     @Override
     public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader, 
             final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(searchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+
+    /**
+     * Searches forwards in a WindowReader, returning the position of the first match.
+     * <p>
+     * This method allocates forward searching between
+     * {@link #searchForwardsForPosition(byte[], int, int)} on a window byte array when
+     * the sequence fits inside a window, and
+     * {@link #doSearchForwardsForPosition(net.byteseek.io.reader.WindowReader, long, long)}
+     * for searching across window boundaries.
+     *
+     * @param reader The reader providing bytes to search in.
+     * @param fromPosition The search position to search from.
+     * @param toPosition The search position to search to.
+     * @return The position of the first match, or a negative number if no match was found.
+     * @throws IOException If the reader encounters a problem reading bytes.
+     */
+    protected long searchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
         // Initialise:
         final int sequenceLength = matcher.length();
         final int lastSequencePosition = sequenceLength - 1;
@@ -141,13 +175,12 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
                                        (int) distanceToEnd : lastMatchingPosition; 
                         
                 // Search forwards in the byte array of the window:
-                final List<SearchResult<SequenceMatcher>> arrayResult = 
-                    searchForwards(window.getArray(), arrayStartPosition, arrayMaxPosition);
+                final int arrayMatchPosition =
+                    searchForwardsForPosition(window.getArray(), arrayStartPosition, arrayMaxPosition);
 
                 // Did we find a match?
-                if (!arrayResult.isEmpty()) {
-                    final long readerPositionOffset = searchPosition - arrayStartPosition;
-                    return SearchUtils.addPositionToResults(arrayResult, readerPositionOffset);
+                if (arrayMatchPosition >= 0) {
+                    return windowStartPosition + arrayMatchPosition;
                 }
                 
                 // Continue the search one on from where we last looked:
@@ -155,7 +188,7 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
 
                 // Did we pass the final toPosition?  In which case, we're finished.
                 if (searchPosition > toPosition) {
-                    return SearchUtils.noResults();
+                    return NOT_FOUND;
                 }
             }
 
@@ -169,19 +202,142 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
             final long lastWindowPosition = windowStartPosition + arrayLastPosition;
             final long lastSearchPosition = toPosition < lastWindowPosition?
                                             toPosition : lastWindowPosition;
-            final List<SearchResult<SequenceMatcher>> readerResult = 
-                    doSearchForwards(reader, searchPosition, lastSearchPosition);
+            final long readerMatchPosition =
+                    doSearchForwardsForPosition(reader, searchPosition, lastSearchPosition);
             
             // Did we find a match?
-            if (!readerResult.isEmpty()) {
-                return readerResult;
+            if (readerMatchPosition >= 0) {
+                return readerMatchPosition;
             }
             
             // Continue the search one on from where we last looked:
             searchPosition = lastSearchPosition + 1;
         }
         
-        return SearchUtils.noResults();
+        return NOT_FOUND;
+    }
+
+
+    /**
+     * Searches forwards in a byte array, returning the position of the first match.
+     * <p>
+     * This implementation returns the position of the first result of
+     * {@link #searchForwards(byte[], int, int)}.  Searchers which can find the position
+     * directly should override this method, and implement searchForwards using
+     * {@link #resultAt(long)}, so that no results are created by counting or
+     * existence checks.
+     *
+     * @param bytes The byte array to search in.
+     * @param fromPosition The search position to search from.
+     * @param toPosition The search position to search to.
+     * @return The position of the first match, or a negative number if no match was found.
+     */
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        final List<SearchResult<SequenceMatcher>> results = searchForwards(bytes, fromPosition, toPosition);
+        return results.isEmpty()? NOT_FOUND : (int) results.get(0).getMatchPosition();
+    }
+
+
+    /**
+     * Searches forwards crossing window boundaries, returning the position of the first match.
+     * It is called by {@link #searchForwardsForPosition(net.byteseek.io.reader.WindowReader, long, long)}
+     * when it encounters a sequence which crosses from one window to another.
+     * <p>
+     * This implementation returns the position of the first result of
+     * {@link #doSearchForwards(net.byteseek.io.reader.WindowReader, long, long)}.  Searchers
+     * which override {@link #searchForwardsForPosition(byte[], int, int)} should also override
+     * this method, and implement doSearchForwards using {@link #resultAt(long)}.
+     *
+     * @param reader The reader providing bytes to search in.
+     * @param fromPosition The search position to search from.
+     * @param toPosition The search position to search to.
+     * @return The position of the first match, or a negative number if no match was found.
+     * @throws IOException If the reader encounters difficulties reading bytes.
+     */
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final List<SearchResult<SequenceMatcher>> results = doSearchForwards(reader, fromPosition, toPosition);
+        return results.isEmpty()? NOT_FOUND : results.get(0).getMatchPosition();
+    }
+
+
+    /**
+     * Returns a list containing a single result for the sequence at a position,
+     * or no results if the position is negative.
+     *
+     * @param matchPosition The position of a match, or a negative number if there is no match.
+     * @return A list of the results for the position.
+     */
+    protected final List<SearchResult<SequenceMatcher>> resultAt(final long matchPosition) {
+        return matchPosition < 0? SearchUtils.<SequenceMatcher>noResults()
+                                : SearchUtils.singleResult(matchPosition, matcher);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cursor returned searches forwards for positions, so no results are created.
+     */
+    @Override
+    public SearchCursor<SequenceMatcher> searchCursor(final WindowReader reader,
+                                                      final long fromPosition, final long toPosition) {
+        ArgUtils.checkNullObject(reader, "reader");
+        return new ReaderPositionCursor(reader, fromPosition, toPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cursor returned searches forwards for positions, so no results are created.
+     */
+    @Override
+    public SearchCursor<SequenceMatcher> searchCursor(final byte[] bytes,
+                                                      final int fromPosition, final int toPosition) {
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        return new ArrayPositionCursor(bytes, fromPosition, toPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation counts the positions found by searching forwards,
+     * so no results are created.
+     */
+    @Override
+    public long count(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final ArrayPositionCursor cursor = new ArrayPositionCursor(bytes, fromPosition, toPosition);
+        long matches = 0;
+        while (cursor.nextMatch() != SearchCursor.NO_MATCH) {
+            matches++;
+        }
+        return matches;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation searches forwards once for the position of the first match.
+     */
+    @Override
+    public boolean exists(final WindowReader reader, final long fromPosition,
+                          final long toPosition) throws IOException {
+        return searchForwardsForPosition(reader, fromPosition, toPosition) >= 0;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation searches forwards once for the position of the first match.
+     */
+    @Override
+    public boolean exists(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwardsForPosition(bytes, fromPosition, toPosition) >= 0;
     }
 
     
@@ -229,6 +385,11 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     @Override
     public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader, 
             final long fromPosition, final long toPosition) throws IOException {
+        // There is nothing to search before the start of the reader:
+        if (fromPosition < 0) {
+            return SearchUtils.noResults();
+        }
+
         // Initialise:
         final int lastSequencePosition = matcher.length() - 1;
         final long finalSearchPosition = toPosition > 0?
@@ -293,8 +454,10 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
                     windowStartPosition + arrayLastPosition - lastSequencePosition;
             final long firstFitPosition = firstPossibleFitPosition < searchPosition?
                                           firstPossibleFitPosition : searchPosition;
-            final long searchToPosition = firstFitPosition > windowStartPosition?
-                                          firstFitPosition : windowStartPosition;
+            final long windowSearchToPosition = firstFitPosition > windowStartPosition?
+                                                firstFitPosition : windowStartPosition;
+            final long searchToPosition = windowSearchToPosition > finalSearchPosition?
+                                          windowSearchToPosition : finalSearchPosition;
             
             final List<SearchResult<SequenceMatcher>> readerResult =
                     doSearchBackwards(reader, searchPosition, searchToPosition);
@@ -344,4 +507,82 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     public String toString() {
         return this.getClass().getSimpleName() + '(' + matcher + ')';
     }        
+
+
+    /**
+     * A forward search over a byte array which resumes one on from the last match.
+     */
+    private final class ArrayPositionCursor implements SearchCursor<SequenceMatcher> {
+
+        private final byte[] bytes;
+        private final int toPosition;
+        private int searchPosition;
+        private boolean finished;
+        private SequenceMatcher matchingObject;
+
+        private ArrayPositionCursor(final byte[] bytes, final int fromPosition, final int toPosition) {
+            this.bytes = bytes;
+            this.toPosition = toPosition;
+            this.searchPosition = fromPosition;
+        }
+
+        @Override
+        public long nextMatch() {
+            if (!finished && searchPosition <= toPosition) {
+                final int matchPosition = searchForwardsForPosition(bytes, searchPosition, toPosition);
+                if (matchPosition >= 0) {
+                    searchPosition = matchPosition + 1;
+                    matchingObject = matcher;
+                    return matchPosition;
+                }
+            }
+            finished = true;
+            matchingObject = null;
+            return NO_MATCH;
+        }
+
+        @Override
+        public SequenceMatcher getMatchingObject() {
+            return matchingObject;
+        }
+    }
+
+
+    /**
+     * A forward search over a WindowReader which resumes one on from the last match.
+     */
+    private final class ReaderPositionCursor implements SearchCursor<SequenceMatcher> {
+
+        private final WindowReader reader;
+        private final long toPosition;
+        private long searchPosition;
+        private boolean finished;
+        private SequenceMatcher matchingObject;
+
+        private ReaderPositionCursor(final WindowReader reader, final long fromPosition, final long toPosition) {
+            this.reader = reader;
+            this.toPosition = toPosition;
+            this.searchPosition = fromPosition;
+        }
+
+        @Override
+        public long nextMatch() throws IOException {
+            if (!finished && searchPosition <= toPosition) {
+                final long matchPosition = searchForwardsForPosition(reader, searchPosition, toPosition);
+                if (matchPosition >= 0) {
+                    searchPosition = matchPosition + 1;
+                    matchingObject = matcher;
+                    return matchPosition;
+                }
+            }
+            finished = true;
+            matchingObject = null;
+            return NO_MATCH;
+        }
+
+        @Override
+        public SequenceMatcher getMatchingObject() {
+            return matchingObject;
+        }
+    }
 }
@@ -0,0 +1,442 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.bndm;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * BndmSearcher searches for a sequence using the Backward Nondeterministic Dawg Matching
+ * (BNDM) algorithm.
+ * <p>
+ * It slides a search window the length of the sequence along the bytes.  Within each
+ * window, it reads bytes backwards from the end of the window, simulating a
+ * non-deterministic automaton which recognises all the factors of the sequence with the
+ * bits of a word.  Each byte read ands the state with a bit mask of the positions in the
+ * sequence which match that byte.  When no bits remain, the bytes read are not a factor
+ * of the sequence, and the window can be shifted past them.  Whenever the bytes read are
+ * a prefix of the sequence, the window can be shifted at most to align with that prefix.
+ * If the whole window is read, then the sequence matches.
+ * <p>
+ * The bit masks are built from the bytes matched by each position in the sequence, so any
+ * {@link SequenceMatcher} can be searched for, and there is no need to verify a match
+ * afterwards.  Sequences of up to 64 positions are simulated in a single long.  Longer
+ * sequences are simulated in an array of longs, which is slower, but still preserves the
+ * long shifts of the algorithm.
+ * <p>
+ * It is generally faster than the Horspool based searchers for
+ * short to medium length sequences over small alphabets, or sequences with byte classes,
+ * where the shifts of Horspool are short.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class BndmSearcher extends AbstractSequenceSearcher {
+
+    private static final int BITS_PER_WORD = 64;
+
+    private final LazyObject<SearchInfo> forwardInfo;
+    private final LazyObject<SearchInfo> backwardInfo;
+
+    /**
+     * Constructs a BndmSearcher given a {@link SequenceMatcher} to search for.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public BndmSearcher(final SequenceMatcher sequence) {
+        super(sequence);
+        forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
+        backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardInfoFactory());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final long[] state = info.newState();
+        final int lastMatcherPosition = info.length - 1;
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - info.length;
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0? fromPosition : 0;
+
+        // Search forwards, reading each window backwards from its end:
+        while (searchPosition <= finalPosition) {
+            final int shift = info.scan(bytes, searchPosition + lastMatcherPosition, -1, state);
+            if (shift == 0) {
+                return searchPosition;
+            }
+            searchPosition += shift;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final long[] state = info.newState();
+        final int lastMatcherPosition = info.length - 1;
+        long searchPosition = fromPosition;
+
+        // Search forwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition <= toPosition) {
+            final int shift = info.scan(reader, searchPosition + lastMatcherPosition, -1, state);
+            if (shift == 0) {
+                return searchPosition;
+            }
+            searchPosition += shift;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = backwardInfo.get();
+        final long[] state = info.newState();
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - info.length;
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards, reading each window forwards from its start:
+        while (searchPosition >= finalPosition) {
+            final int shift = info.scan(bytes, searchPosition, 1, state);
+            if (shift == 0) {
+                return SearchUtils.singleResult(searchPosition, matcher);
+            }
+            searchPosition -= shift;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final SearchInfo info = backwardInfo.get();
+        final long[] state = info.newState();
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = fromPosition;
+
+        // Search backwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition >= finalPosition) {
+            final int shift = info.scan(reader, searchPosition, 1, state);
+            if (shift == 0) {
+                return SearchUtils.singleResult(searchPosition, matcher);
+            }
+            searchPosition -= shift;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the construction of the bit masks needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardInfo.get();
+    }
+
+    /**
+     * Forces the construction of the bit masks needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardInfo.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+
+    /**
+     * The bit masks for each byte value, and the code to read a search window with them.
+     * <p>
+     * Bit b of the state means that the bytes read so far could be the factor of the sequence
+     * which ends (or starts, if reading forwards) at the position whose mask bit is b.
+     * The highest bit means the bytes read are a prefix (or suffix) of the sequence.
+     */
+    private static final class SearchInfo {
+
+        private final int length;
+        private final int words;
+        private final long[] masks;
+        private final long lastWordMask;
+        private final long highBit;
+
+        private SearchInfo(final int length, final long[] masks) {
+            this.length       = length;
+            this.words        = (length + BITS_PER_WORD - 1) / BITS_PER_WORD;
+            this.masks        = masks;
+            final int bitsInLastWord = length - (words - 1) * BITS_PER_WORD;
+            this.lastWordMask = bitsInLastWord == BITS_PER_WORD? -1L : (1L << bitsInLastWord) - 1;
+            this.highBit      = 1L << (bitsInLastWord - 1);
+        }
+
+        /**
+         * Returns a new state array for a multi-word search, or null if the sequence fits in a single word.
+         */
+        private long[] newState() {
+            return words == 1? null : new long[words];
+        }
+
+        /**
+         * Reads a search window in a byte array, starting at the read position given and moving by
+         * the step given, which is -1 when searching forwards and 1 when searching backwards.
+         *
+         * @return The distance the window can be shifted by, or zero if the sequence matches the window.
+         */
+        private int scan(final byte[] bytes, final int readPosition, final int step, final long[] state) {
+            if (words == 1) {
+                final long[] localMasks = masks;
+                final long mask = lastWordMask;
+                final int sequenceLength = length;
+                int shift = sequenceLength;
+                int position = readPosition;
+                long bits = mask;
+                for (int bytesRead = 1; bytesRead <= sequenceLength; bytesRead++) {
+                    bits &= localMasks[bytes[position] & 0xFF];
+                    if (bits == 0) {
+                        break;
+                    }
+                    if ((bits & highBit) != 0) {
+                        shift = sequenceLength - bytesRead;
+                    }
+                    bits = (bits << 1) & mask;
+                    position += step;
+                }
+                return shift;
+            }
+            resetState(state);
+            int shift = length;
+            int position = readPosition;
+            for (int bytesRead = 1; bytesRead <= length; bytesRead++) {
+                if (!andState(state, bytes[position])) {
+                    break;
+                }
+                if ((state[words - 1] & highBit) != 0) {
+                    shift = length - bytesRead;
+                }
+                shiftState(state);
+                position += step;
+            }
+            return shift;
+        }
+
+        /**
+         * Reads a search window in a WindowReader, starting at the read position given and moving by
+         * the step given, which is -1 when searching forwards and 1 when searching backwards.
+         * A window which goes past the end of the reader does not match.
+         *
+         * @return The distance the window can be shifted by, or zero if the sequence matches the window.
+         * @throws IOException If the reader has problems reading bytes.
+         */
+        private int scan(final WindowReader reader, final long readPosition, final int step,
+                         final long[] state) throws IOException {
+            if (words == 1) {
+                final long[] localMasks = masks;
+                final long mask = lastWordMask;
+                final int sequenceLength = length;
+                int shift = sequenceLength;
+                long position = readPosition;
+                long bits = mask;
+                for (int bytesRead = 1; bytesRead <= sequenceLength; bytesRead++) {
+                    final int value = reader.readByte(position);
+                    if (value < 0 || (bits &= localMasks[value]) == 0) {
+                        break;
+                    }
+                    if ((bits & highBit) != 0) {
+                        shift = sequenceLength - bytesRead;
+                    }
+                    bits = (bits << 1) & mask;
+                    position += step;
+                }
+                return shift;
+            }
+            resetState(state);
+            int shift = length;
+            long position = readPosition;
+            for (int bytesRead = 1; bytesRead <= length; bytesRead++) {
+                final int value = reader.readByte(position);
+                if (value < 0 || !andState(state, (byte) value)) {
+                    break;
+                }
+                if ((state[words - 1] & highBit) != 0) {
+                    shift = length - bytesRead;
+                }
+                shiftState(state);
+                position += step;
+            }
+            return shift;
+        }
+
+        private void resetState(final long[] state) {
+            final int lastWord = words - 1;
+            for (int word = 0; word < lastWord; word++) {
+                state[word] = -1L;
+            }
+            state[lastWord] = lastWordMask;
+        }
+
+        /**
+         * Ands the state with the masks for a byte, returning false if no bits remain set.
+         */
+        private boolean andState(final long[] state, final byte value) {
+            final long[] localMasks = masks;
+            final int maskIndex = (value & 0xFF) * words;
+            long anyBits = 0;
+            for (int word = 0; word < words; word++) {
+                anyBits |= (state[word] &= localMasks[maskIndex + word]);
+            }
+            return anyBits != 0;
+        }
+
+        /**
+         * Shifts the state left by one bit, carrying bits over from one word to the next.
+         */
+        private void shiftState(final long[] state) {
+            final int lastWord = words - 1;
+            for (int word = lastWord; word > 0; word--) {
+                state[word] = (state[word] << 1) | (state[word - 1] >>> (BITS_PER_WORD - 1));
+            }
+            state[0] <<= 1;
+            state[lastWord] &= lastWordMask;
+        }
+    }
+
+
+    /**
+     * Builds the masks for the positions in a sequence, so that the bit for each position is
+     * the number of positions it is from the end of the sequence when searching forwards,
+     * or from the start of the sequence when searching backwards.
+     */
+    private static SearchInfo buildSearchInfo(final SequenceMatcher sequence, final boolean forwards) {
+        final int length = sequence.length();
+        final int words = (length + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        final long[] masks = new long[256 * words];
+        for (int position = 0; position < length; position++) {
+            final int bit = forwards? length - position - 1 : position;
+            final int word = bit / BITS_PER_WORD;
+            final long bitValue = 1L << (bit % BITS_PER_WORD);
+            for (final byte value : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                masks[(value & 0xFF) * words + word] |= bitValue;
+            }
+        }
+        return new SearchInfo(length, masks);
+    }
+
+
+    private final class ForwardInfoFactory implements ObjectFactory<SearchInfo> {
+
+        /**
+         * Builds the masks for searching forwards, reading each window backwards.
+         */
+        @Override
+        public SearchInfo create() {
+            return buildSearchInfo(getMatcher(), true);
+        }
+    }
+
+
+    private final class BackwardInfoFactory implements ObjectFactory<SearchInfo> {
+
+        /**
+         * Builds the masks for searching backwards, reading each window forwards.
+         */
+        @Override
+        public SearchInfo create() {
+            return buildSearchInfo(getMatcher(), false);
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.bom;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.automata.FactorOracle;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * BackwardOracleSearcher searches for a sequence using the Backward Oracle Matching (BOM)
+ * algorithm.
+ * <p>
+ * It slides a search window the length of the sequence along the bytes.  Within each
+ * window, it reads bytes backwards through a {@link FactorOracle} of the reversed sequence.
+ * If the oracle cannot read a byte, then the bytes read so far are not a factor of the
+ * sequence, and the window can be shifted past them.  If the whole window is read, the
+ * sequence is verified at the start of the window.  Searching backwards does the same in
+ * reverse, using an oracle of the sequence itself.
+ * <p>
+ * The oracle is built from the bytes matched by each position in the sequence, so any
+ * {@link SequenceMatcher} can be searched for.  Unlike the {@link net.byteseek.searcher.sequence.bndm.BndmSearcher},
+ * it has no limit on the length of sequence it handles efficiently, so it is a good choice
+ * for long sequences.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class BackwardOracleSearcher extends AbstractSequenceSearcher {
+
+    private final LazyObject<FactorOracle> forwardOracle;
+    private final LazyObject<FactorOracle> backwardOracle;
+
+    /**
+     * Constructs a BackwardOracleSearcher given a {@link SequenceMatcher} to search for.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public BackwardOracleSearcher(final SequenceMatcher sequence) {
+        super(sequence);
+        forwardOracle  = new DoubleCheckImmutableLazyObject<FactorOracle>(new ForwardOracleFactory());
+        backwardOracle = new DoubleCheckImmutableLazyObject<FactorOracle>(new BackwardOracleFactory());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = forwardOracle.get();
+        final SequenceMatcher verifier = matcher;
+        final int windowLength = oracle.getLength();
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - windowLength;
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0? fromPosition : 0;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Read backwards from the end of the window for as long as the oracle can:
+            final int readPosition = oracle.readWindowBackwards(bytes, searchPosition);
+
+            // If the whole window was read, verify the sequence at the start of the window:
+            if (readPosition < searchPosition) {
+                if (verifier.matchesNoBoundsCheck(bytes, searchPosition)) {
+                    return searchPosition;
+                }
+                searchPosition++;
+            } else {
+                // Shift the window past the byte the oracle could not read:
+                searchPosition = readPosition + 1;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = forwardOracle.get();
+        final SequenceMatcher verifier = matcher;
+        long searchPosition = fromPosition;
+
+        // Search forwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition <= toPosition) {
+
+            // Read backwards from the end of the window for as long as the oracle can.
+            // A window which goes past the end of the reader is shifted like any other,
+            // until the search passes the toPosition:
+            final long readPosition = oracle.readWindowBackwards(reader, searchPosition);
+
+            // If the whole window was read, verify the sequence at the start of the window:
+            if (readPosition < searchPosition) {
+                if (verifier.matches(reader, searchPosition)) {
+                    return searchPosition;
+                }
+                searchPosition++;
+            } else {
+                // Shift the window past the byte the oracle could not read:
+                searchPosition = readPosition + 1;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = backwardOracle.get();
+        final SequenceMatcher verifier = matcher;
+        final int windowLength = oracle.getLength();
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - windowLength;
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards:
+        while (searchPosition >= finalPosition) {
+
+            // Read forwards from the start of the window for as long as the oracle can:
+            final int readPosition = oracle.readWindowForwards(bytes, searchPosition);
+
+            // If the whole window was read, verify the sequence at the start of the window:
+            if (readPosition == searchPosition + windowLength) {
+                if (verifier.matchesNoBoundsCheck(bytes, searchPosition)) {
+                    return SearchUtils.singleResult(searchPosition, matcher);
+                }
+                searchPosition--;
+            } else {
+                // Shift the window back past the byte the oracle could not read:
+                searchPosition = readPosition - windowLength;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final FactorOracle oracle = backwardOracle.get();
+        final SequenceMatcher verifier = matcher;
+        final int windowLength = oracle.getLength();
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = fromPosition;
+
+        // Search backwards, reading bytes through the reader, as the window crosses window boundaries:
+        while (searchPosition >= finalPosition) {
+
+            // Read forwards from the start of the window for as long as the oracle can.
+            // A window which goes past the end of the reader is shifted back like any other:
+            final long readPosition = oracle.readWindowForwards(reader, searchPosition);
+
+            // If the whole window was read, verify the sequence at the start of the window:
+            if (readPosition == searchPosition + windowLength) {
+                if (verifier.matches(reader, searchPosition)) {
+                    return SearchUtils.singleResult(searchPosition, matcher);
+                }
+                searchPosition--;
+            } else {
+                // Shift the window back past the byte the oracle could not read:
+                searchPosition = readPosition - windowLength;
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the construction of the factor oracle needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardOracle.get();
+    }
+
+    /**
+     * Forces the construction of the factor oracle needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardOracle.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+    /**
+     * A factory creating the {@link FactorOracle} of the reversed sequence, for searching forwards.
+     */
+    private final class ForwardOracleFactory implements ObjectFactory<FactorOracle> {
+
+        @Override
+        public FactorOracle create() {
+            final SequenceMatcher sequence = getMatcher();
+            return FactorOracle.ofReversedPrefixes(Collections.singletonList(sequence), sequence.length());
+        }
+    }
+
+    /**
+     * A factory creating the {@link FactorOracle} of the sequence, for searching backwards.
+     */
+    private final class BackwardOracleFactory implements ObjectFactory<FactorOracle> {
+
+        @Override
+        public FactorOracle create() {
+            final SequenceMatcher sequence = getMatcher();
+            return FactorOracle.ofPrefixes(Collections.singletonList(sequence), sequence.length());
+        }
+    }
+
+}
@@ -39,13 +39,16 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.AnyByteMatcher;
 import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteTableMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.searcher.SearchCursor;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ArgUtils;
 
 
 
@@ -113,14 +116,17 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
         
         // Determine a safe position to start searching at.
         final int lastMatcherPosition = getMatcher().length() - 1;                
+        final int lastPossiblePosition = bytes.length - 1;
+        if (fromPosition > lastPossiblePosition - lastMatcherPosition) {
+            return SearchUtils.noResults();
+        }
         int searchPosition = fromPosition > 0?
                              fromPosition + lastMatcherPosition : lastMatcherPosition;
         
-        // Calculate safe bounds for the end of the search:
-        final int lastPossiblePosition = bytes.length - 1;
-        final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
-        final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
-                                  lastPossibleSearchPosition : lastPossiblePosition;
+        // Calculate safe bounds for the end of the search
+        // (compared before adding, so bounds such as Integer.MAX_VALUE do not overflow):
+        final int finalPosition = toPosition < lastPossiblePosition - lastMatcherPosition?
+                                  toPosition + lastMatcherPosition : lastPossiblePosition;
         
         // Search forwards:
         while (searchPosition <= finalPosition) {
@@ -179,8 +185,7 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
-            final int lastMatcherPosition = matcher.length() - 1;
-            final long distanceToEnd = finalPosition - window.getWindowPosition() + lastMatcherPosition;     
+            final long distanceToEnd = finalPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd < arrayEndPosition?
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
@@ -345,6 +350,50 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
     public void prepareBackwards() {
         backwardInfo.get();
     }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cursor returned keeps the window it is searching in between matches, and resumes
+     * each search by shifting on from the last match, rather than starting a new search.
+     */
+    @Override
+    public SearchCursor<SequenceMatcher> searchCursor(final WindowReader reader,
+                                                      final long fromPosition, final long toPosition) {
+        ArgUtils.checkNullObject(reader, "reader");
+        return new ReaderCursor(reader, fromPosition, toPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cursor returned resumes each search by shifting on from the last match,
+     * rather than starting a new search.
+     */
+    @Override
+    public SearchCursor<SequenceMatcher> searchCursor(final byte[] bytes,
+                                                      final int fromPosition, final int toPosition) {
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        return new ArrayCursor(bytes, fromPosition, toPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation counts matches with a search cursor, so no results are created.
+     */
+    @Override
+    public long count(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final ArrayCursor cursor = new ArrayCursor(bytes, fromPosition, toPosition);
+        long matches = 0;
+        while (cursor.nextMatch() != SearchCursor.NO_MATCH) {
+            matches++;
+        }
+        return matches;
+    }
     
     
     @Override
@@ -353,6 +402,139 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
     }
 
     
+    /**
+     * A forward search over a byte array which keeps its search position between matches.
+     */
+    private final class ArrayCursor implements SearchCursor<SequenceMatcher> {
+
+        private final byte[] bytes;
+        private final SearchInfo info = forwardInfo.get();
+        private final int endSequencePosition = matcher.length() - 1;
+        private final int finalPosition;
+        private int searchPosition;
+        private SequenceMatcher matchingObject;
+
+        private ArrayCursor(final byte[] bytes, final int fromPosition, final int toPosition) {
+            this.bytes = bytes;
+            // Clamp the positions to the last possible match before adding the sequence length,
+            // so bounds such as Integer.MAX_VALUE do not overflow:
+            final int lastMatchPosition = bytes.length - matcher.length();
+            final int lastToPosition = toPosition < lastMatchPosition? toPosition : lastMatchPosition;
+            this.finalPosition = lastToPosition + endSequencePosition;
+            this.searchPosition = fromPosition > lastMatchPosition? finalPosition + 1
+                                : fromPosition > 0? fromPosition + endSequencePosition : endSequencePosition;
+        }
+
+        @Override
+        public long nextMatch() {
+            final int[] safeShifts = info.shifts;
+            final ByteMatcher endOfSequence = info.matcher;
+            final SequenceMatcher verifier = info.verifier;
+            final byte[] localBytes = bytes;
+            final int localFinalPosition = finalPosition;
+            int position = searchPosition;
+            while (position <= localFinalPosition) {
+                final byte currentByte = localBytes[position];
+                position += safeShifts[currentByte & 0xff];
+                if (endOfSequence.matches(currentByte)) {
+                    final int startMatchPosition = position - safeShifts[currentByte & 0xff] - endSequencePosition;
+                    if (verifier.matchesNoBoundsCheck(localBytes, startMatchPosition)) {
+                        searchPosition = position;
+                        matchingObject = matcher;
+                        return startMatchPosition;
+                    }
+                }
+            }
+            searchPosition = position;
+            matchingObject = null;
+            return NO_MATCH;
+        }
+
+        @Override
+        public SequenceMatcher getMatchingObject() {
+            return matchingObject;
+        }
+    }
+
+
+    /**
+     * A forward search over a WindowReader which keeps the window it is searching in,
+     * and its position in that window, between matches.  Matches which cross into the
+     * previous window are verified using the reader.
+     */
+    private final class ReaderCursor implements SearchCursor<SequenceMatcher> {
+
+        private final WindowReader reader;
+        private final SearchInfo info = forwardInfo.get();
+        private final int endSequencePosition = matcher.length() - 1;
+        private final long finalPosition;
+        private long searchPosition;
+        private byte[] array;
+        private long windowPosition;
+        private int lastArrayPosition = -1;
+        private SequenceMatcher matchingObject;
+
+        private ReaderCursor(final WindowReader reader, final long fromPosition, final long toPosition) {
+            this.reader = reader;
+            // Saturate rather than overflow for bounds such as Long.MAX_VALUE:
+            this.finalPosition = toPosition > Long.MAX_VALUE - endSequencePosition?
+                                 Long.MAX_VALUE : toPosition + endSequencePosition;
+            this.searchPosition = fromPosition <= 0? endSequencePosition
+                                : fromPosition > Long.MAX_VALUE - endSequencePosition? Long.MAX_VALUE
+                                : fromPosition + endSequencePosition;
+        }
+
+        @Override
+        public long nextMatch() throws IOException {
+            final int[] safeShifts = info.shifts;
+            final ByteMatcher endOfSequence = info.matcher;
+            final SequenceMatcher verifier = info.verifier;
+            while (searchPosition <= finalPosition) {
+
+                // Only fetch a new window if the search position has moved outside the current one:
+                if (searchPosition < windowPosition || searchPosition - windowPosition > lastArrayPosition) {
+                    final Window window = reader.getWindow(searchPosition);
+                    if (window == null) {
+                        break;
+                    }
+                    array = window.getArray();
+                    windowPosition = window.getWindowPosition();
+                    lastArrayPosition = window.length() - 1;
+                }
+
+                // Search in the current array:
+                final byte[] localArray = array;
+                final long distanceToEnd = finalPosition - windowPosition;
+                final int lastSearchPosition = distanceToEnd < lastArrayPosition?
+                                               (int) distanceToEnd : lastArrayPosition;
+                int arrayPosition = (int) (searchPosition - windowPosition);
+                while (arrayPosition <= lastSearchPosition) {
+                    final byte currentByte = localArray[arrayPosition];
+                    arrayPosition += safeShifts[currentByte & 0xff];
+                    if (endOfSequence.matches(currentByte)) {
+                        final int arrayMatchPosition = arrayPosition - safeShifts[currentByte & 0xff] - endSequencePosition;
+                        final long matchPosition = windowPosition + arrayMatchPosition;
+                        if (arrayMatchPosition >= 0? verifier.matchesNoBoundsCheck(localArray, arrayMatchPosition)
+                                                   : verifier.matches(reader, matchPosition)) {
+                            searchPosition = windowPosition + arrayPosition;
+                            matchingObject = matcher;
+                            return matchPosition;
+                        }
+                    }
+                }
+                searchPosition = windowPosition + arrayPosition;
+            }
+            matchingObject = null;
+            return NO_MATCH;
+        }
+
+        @Override
+        public SequenceMatcher getMatchingObject() {
+            return matchingObject;
+        }
+    }
+
+
     private static final class SearchInfo {
         private final int[] shifts;
         private final ByteMatcher matcher;
@@ -385,9 +567,9 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             
             // Create the search info object fields:
             final int lastPosition = sequenceLength - 1;
-            final ByteMatcher byteMatcher = sequence.getMatcherForPosition(lastPosition);
+            final ByteMatcher byteMatcher = ByteTableMatcher.tabulate(sequence.getMatcherForPosition(lastPosition));
             final SequenceMatcher verifier = (lastPosition == 0)? AnyByteMatcher.ANY_BYTE_MATCHER
-            												    : sequence.subsequence(0, lastPosition); 
+            												    : ByteTableMatcher.tabulateSequence(sequence.subsequence(0, lastPosition)); 
 
             // Check for the pathological case of positions matching all bytes, from the end to the start.
             // If there is such a matcher in the sequence, no shift can be bigger than this length.
@@ -449,9 +631,9 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             
             // Create the search info object fields
             final int lastPosition = sequenceLength - 1;
-            final ByteMatcher byteMatcher = sequence.getMatcherForPosition(0);
+            final ByteMatcher byteMatcher = ByteTableMatcher.tabulate(sequence.getMatcherForPosition(0));
             final SequenceMatcher verifier = (lastPosition == 0)? null 
-            													: sequence.subsequence(1, sequenceLength);
+            													: ByteTableMatcher.tabulateSequence(sequence.subsequence(1, sequenceLength));
 
             // Check for the pathological case of positions matching all bytes, from the end to the start.
             // If there is such a matcher in the sequence, no shift can be bigger than this length.
@@ -0,0 +1,404 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.horspool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.sequence.CaseInsensitiveSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ByteUtils;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * CaseInsensitiveHorspoolSearcher searches for a {@link CaseInsensitiveSequenceMatcher}
+ * using the Boyer-Moore-Horspool algorithm, without expanding the letters of
+ * the sequence into sets of bytes.
+ * <p>
+ * The {@link BoyerMooreHorspoolSearcher} can search for a case insensitive sequence, but
+ * it treats each letter as a generic set of two bytes, testing the end of the sequence and
+ * verifying the rest of it through {@link net.byteseek.matcher.bytes.ByteMatcher}s.
+ * This searcher holds the sequence folded to lower case.  Each byte read is folded
+ * through a 256 byte lookup table and compared directly with the folded sequence.
+ * The safe shift table contains entries for both the upper and lower case forms of each letter,
+ * so no folding is needed to look up a shift.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class CaseInsensitiveHorspoolSearcher extends AbstractSequenceSearcher {
+
+    private final LazyObject<SearchInfo> forwardInfo;
+    private final LazyObject<SearchInfo> backwardInfo;
+
+    /**
+     * Constructs a CaseInsensitiveHorspoolSearcher given a string to search for
+     * case insensitively, encoded as ISO-8859-1.
+     *
+     * @param string The string to search for.
+     * @throws IllegalArgumentException if the string is null or empty.
+     */
+    public CaseInsensitiveHorspoolSearcher(final String string) {
+        this(new CaseInsensitiveSequenceMatcher(string));
+    }
+
+    /**
+     * Constructs a CaseInsensitiveHorspoolSearcher given a {@link CaseInsensitiveSequenceMatcher}
+     * to search for.
+     *
+     * @param sequence The CaseInsensitiveSequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public CaseInsensitiveHorspoolSearcher(final CaseInsensitiveSequenceMatcher sequence) {
+        super(sequence);
+        forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new InfoFactory(true));
+        backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new InfoFactory(false));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final byte[] folded = info.foldedBytes;
+        final int lastMatcherPosition = folded.length - 1;
+        final byte lastByte = folded[lastMatcherPosition];
+
+        // Determine a safe position to start searching at.
+        final int lastPossiblePosition = bytes.length - 1;
+        if (fromPosition > lastPossiblePosition - lastMatcherPosition) {
+            return SearchUtils.noResults();
+        }
+        int searchPosition = fromPosition > 0?
+                             fromPosition + lastMatcherPosition : lastMatcherPosition;
+
+        // Calculate safe bounds for the end of the search
+        // (compared before adding, so bounds such as Integer.MAX_VALUE do not overflow):
+        final int finalPosition = toPosition < lastPossiblePosition - lastMatcherPosition?
+                                  toPosition + lastMatcherPosition : lastPossiblePosition;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Shift forwards until we match the last position in the sequence,
+            // or we run out of search space (in which case just return not found).
+            byte currentByte = bytes[searchPosition];
+            while (ByteUtils.foldASCIICase(currentByte) != lastByte) {
+                searchPosition += safeShifts[currentByte & 0xff];
+                if (searchPosition > finalPosition) {
+                    return SearchUtils.noResults();
+                }
+                currentByte = bytes[searchPosition];
+            }
+
+            // The last byte matched - verify the rest of the folded sequence:
+            final int startMatchPosition = searchPosition - lastMatcherPosition;
+            if (verifyFolded(folded, bytes, startMatchPosition, 0, lastMatcherPosition)) {
+                return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
+            }
+
+            // No match was found - shift forward by the shift for the current byte:
+            searchPosition += safeShifts[currentByte & 0xff];
+        }
+
+        return SearchUtils.noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader, final long fromPosition,
+                                                                   final long toPosition) throws IOException {
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final int lastMatcherPosition = info.foldedBytes.length - 1;
+        final byte lastByte = info.foldedBytes[lastMatcherPosition];
+
+        // Initialise window search:
+        final long finalPosition = toPosition + lastMatcherPosition;
+        long searchPosition = fromPosition + lastMatcherPosition;
+
+        // While there is a window to search in:
+        Window window;
+        while (searchPosition <= finalPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Initialise array search:
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final int arrayEndPosition = window.length() - 1;
+            final long distanceToEnd = finalPosition - window.getWindowPosition();
+            final int lastSearchPosition = distanceToEnd < arrayEndPosition?
+                                           (int) distanceToEnd : arrayEndPosition;
+            int arraySearchPosition = arrayStartPosition;
+
+            // Search forwards in this array:
+            ARRAY_SEARCH: while (arraySearchPosition <= lastSearchPosition) {
+
+                // Shift forwards until we match the last position in the sequence,
+                // or we run out of search space.
+                byte currentByte = array[arraySearchPosition];
+                while (ByteUtils.foldASCIICase(currentByte) != lastByte) {
+                    arraySearchPosition += safeShifts[currentByte & 0xff];
+                    if (arraySearchPosition > lastSearchPosition) {
+                        break ARRAY_SEARCH; // outside the array, move on.
+                    }
+                    currentByte = array[arraySearchPosition];
+                }
+
+                // The last byte matched - verify there is a complete match:
+                final long matchPosition = searchPosition + arraySearchPosition - arrayStartPosition - lastMatcherPosition;
+                if (matcher.matches(reader, matchPosition)) {
+                    return SearchUtils.singleResult(matchPosition, matcher); // match found.
+                }
+
+                // No match was found - shift forward by the shift for the current byte:
+                arraySearchPosition += safeShifts[currentByte & 0xff];
+            }
+
+            // No match was found in this array - calculate the current search position:
+            searchPosition += arraySearchPosition - arrayStartPosition;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+
+        // Get objects needed for the search:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final byte[] folded = info.foldedBytes;
+        final byte firstByte = folded[0];
+
+        // Calculate safe bounds for the start of the search:
+        final int firstPossiblePosition = bytes.length - folded.length;
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+
+        // Calculate safe bounds for the end of the search:
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+
+        // Search backwards:
+        while (searchPosition >= lastPosition) {
+
+            // Shift backwards until we match the first position in the
+            // sequence, or we run out of search space:
+            byte currentByte = bytes[searchPosition];
+            while (ByteUtils.foldASCIICase(currentByte) != firstByte) {
+                searchPosition -= safeShifts[currentByte & 0xFF];
+                if (searchPosition < lastPosition) {
+                    return SearchUtils.noResults();
+                }
+                currentByte = bytes[searchPosition];
+            }
+
+            // The first byte matched - verify the rest of the folded sequence:
+            if (verifyFolded(folded, bytes, searchPosition, 1, folded.length)) {
+                return SearchUtils.singleResult(searchPosition, matcher); // match found.
+            }
+
+            // No match was found - shift backward by the shift for the current byte:
+            searchPosition -= safeShifts[currentByte & 0xff];
+        }
+
+        return SearchUtils.noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Initialise:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final byte firstByte = info.foldedBytes[0];
+        long searchPosition = fromPosition;
+
+        // Search backwards across the windows:
+        Window window;
+        while (searchPosition >= toPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Initialise the window search:
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long distanceToEnd = toPosition - window.getWindowPosition();
+            final int lastSearchPosition = distanceToEnd > 0?
+                                           (int) distanceToEnd : 0;
+            int arraySearchPosition = arrayStartPosition;
+
+            ARRAY_SEARCH: while (arraySearchPosition >= lastSearchPosition) {
+
+                // Shift backwards until we match the first position in the sequence,
+                // or we run out of search space.
+                byte currentByte = array[arraySearchPosition];
+                while (ByteUtils.foldASCIICase(currentByte) != firstByte) {
+                    arraySearchPosition -= safeShifts[currentByte & 0xff];
+                    if (arraySearchPosition < lastSearchPosition) {
+                        break ARRAY_SEARCH;
+                    }
+                    currentByte = array[arraySearchPosition];
+                }
+
+                // The first byte matched - verify there is a complete match.
+                final long sequencePosition = searchPosition - (arrayStartPosition - arraySearchPosition);
+                if (matcher.matches(reader, sequencePosition)) {
+                    return SearchUtils.singleResult(sequencePosition, matcher); // match found.
+                }
+
+                // No match was found - shift backward by the shift for the current byte:
+                arraySearchPosition -= safeShifts[currentByte & 0xff];
+            }
+
+            // No match was found in this array - calculate the current search position:
+            searchPosition -= (arrayStartPosition - arraySearchPosition);
+        }
+
+        return SearchUtils.noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareForwards() {
+        forwardInfo.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardInfo.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+
+    private static boolean verifyFolded(final byte[] folded, final byte[] bytes, final int matchPosition,
+                                        final int fromIndex, final int toIndex) {
+        for (int index = fromIndex; index < toIndex; index++) {
+            if (ByteUtils.foldASCIICase(bytes[matchPosition + index]) != folded[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static final class SearchInfo {
+        private final int[] shifts;
+        private final byte[] foldedBytes;
+
+        private SearchInfo(final int[] shifts, final byte[] foldedBytes) {
+            this.shifts = shifts;
+            this.foldedBytes = foldedBytes;
+        }
+    }
+
+
+    private final class InfoFactory implements ObjectFactory<SearchInfo> {
+
+        private final boolean forwards;
+
+        private InfoFactory(final boolean forwards) {
+            this.forwards = forwards;
+        }
+
+        /**
+         * Calculates the safe shifts from the folded sequence.  A shift is set for both
+         * the upper and lower case forms of a letter, so bytes read do not have to be
+         * folded to look up their shift.
+         */
+        @Override
+        public SearchInfo create() {
+            final byte[] folded = ((CaseInsensitiveSequenceMatcher) matcher).getFoldedBytes();
+            final int length = folded.length;
+            final int[] shifts = new int[256];
+            Arrays.fill(shifts, length);
+            if (forwards) {
+                for (int position = 0; position < length - 1; position++) {
+                    setShift(shifts, folded[position], length - position - 1);
+                }
+            } else {
+                for (int position = length - 1; position > 0; position--) {
+                    setShift(shifts, folded[position], position);
+                }
+            }
+            return new SearchInfo(shifts, folded);
+        }
+
+        private void setShift(final int[] shifts, final byte foldedByte, final int shift) {
+            shifts[foldedByte & 0xFF] = shift;
+            if (foldedByte >= 'a' && foldedByte <= 'z') {
+                shifts[(foldedByte - ('a' - 'A')) & 0xFF] = shift;
+            }
+        }
+    }
+
+}
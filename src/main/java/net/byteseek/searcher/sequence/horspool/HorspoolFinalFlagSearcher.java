@@ -39,6 +39,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.AnyByteMatcher;
 import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteTableMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
@@ -205,8 +206,7 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
-            final int lastMatcherPosition = matcher.length() - 1;
-            final long distanceToEnd = finalPosition - window.getWindowPosition() + lastMatcherPosition;     
+            final long distanceToEnd = finalPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd < arrayEndPosition?
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
@@ -413,7 +413,7 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             // Create the search info object fields:
             final int lastPosition = sequenceLength - 1;
             final SequenceMatcher verifier = (lastPosition == 0) ? AnyByteMatcher.ANY_BYTE_MATCHER
-            								                     : sequence.subsequence(0, lastPosition);
+            								                     : ByteTableMatcher.tabulateSequence(sequence.subsequence(0, lastPosition));
 
             // Check for the pathological case of positions matching all bytes, from the end to the start.
             // If there is such a matcher in the sequence, no shift can be bigger than this length.
@@ -487,7 +487,8 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             
             // Create the search info object fields:
             final int lastPosition = sequenceLength - 1;
-            final SequenceMatcher verifier = (lastPosition == 0)? null : sequence.subsequence(1, sequenceLength);
+            final SequenceMatcher verifier = (lastPosition == 0)? null
+                                                                : ByteTableMatcher.tabulateSequence(sequence.subsequence(1, sequenceLength));
 
 
             // Check for the pathological case of positions matching all bytes, from the end to the start.
@@ -0,0 +1,467 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.horspool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.collections.BytePermutationIterator;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * QGramHorspoolSearcher searches for a sequence using the Horspool algorithm,
+ * shifting on blocks of q bytes (q-grams), rather than on single bytes.
+ * <p>
+ * The {@link BoyerMooreHorspoolSearcher} looks up its shifts using a single byte.
+ * On data with a skewed distribution of byte values (e.g. lots of zero bytes), or for
+ * sequences with wide byte classes, most byte values appear near the end of the sequence,
+ * so the shifts are short.  A block of several bytes is much less likely to appear near
+ * the end of the sequence, so the shifts are much longer.
+ * <p>
+ * The safe shifts for each block are stored in a hash table, calculated from all the
+ * permutations of the bytes which match at each position in the block, in the same
+ * way as the {@link net.byteseek.searcher.multisequence.wu_manber.AbstractWuManberSearcher}.
+ * The hash table also records which blocks could be the block at the end of the sequence
+ * (or the start, if searching backwards), so it is only necessary to verify a match when
+ * one of those blocks is found.
+ * <p>
+ * The maximum shift is the length of the sequence, less the block size plus one, so longer
+ * blocks suit longer sequences.  Wide byte classes produce more permutations, which fill
+ * the hash table, so they suit shorter blocks.  If a block size is not specified, it is chosen by
+ * {@link #chooseBlockSize(SequenceMatcher)} from these considerations.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class QGramHorspoolSearcher extends AbstractSequenceSearcher {
+
+    /**
+     * The largest block size a QGramHorspoolSearcher can use.
+     */
+    public static final int MAX_BLOCK_SIZE = 4;
+
+    private static final int TABLE_SIZE = 8192; // must be a power of two.
+    private static final int HASH_MASK  = TABLE_SIZE - 1;
+
+    private final int blockSize;
+    private final LazyObject<int[]> forwardShifts;
+    private final LazyObject<int[]> backwardShifts;
+
+    /**
+     * Constructs a QGramHorspoolSearcher given a {@link SequenceMatcher} to search for,
+     * choosing the block size automatically.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public QGramHorspoolSearcher(final SequenceMatcher sequence) {
+        this(sequence, chooseBlockSize(sequence));
+    }
+
+    /**
+     * Constructs a QGramHorspoolSearcher given a {@link SequenceMatcher} to search for,
+     * and the number of bytes in a block.
+     *
+     * @param sequence  The SequenceMatcher to search for.
+     * @param blockSize The number of bytes in a block, from one to {@link #MAX_BLOCK_SIZE}.
+     * @throws IllegalArgumentException if the sequence is null, or the block size is out of range,
+     *                                  or longer than the sequence.
+     */
+    public QGramHorspoolSearcher(final SequenceMatcher sequence, final int blockSize) {
+        super(sequence);
+        ArgUtils.checkRangeInclusive(blockSize, 1, MAX_BLOCK_SIZE, "blockSize");
+        if (blockSize > sequence.length()) {
+            throw new IllegalArgumentException("The block size " + blockSize +
+                                               " cannot be longer than the sequence: " + sequence.length());
+        }
+        this.blockSize = blockSize;
+        forwardShifts  = new DoubleCheckImmutableLazyObject<int[]>(new ShiftFactory(true));
+        backwardShifts = new DoubleCheckImmutableLazyObject<int[]>(new ShiftFactory(false));
+    }
+
+    /**
+     * Chooses a block size for a sequence.  Longer sequences get longer blocks, up to
+     * {@link #MAX_BLOCK_SIZE}, but the block size is reduced (to no less than two) if the byte
+     * classes in the sequence would produce more permutations of blocks than half the
+     * size of the hash table.  Sequences of less than three bytes use a block size of one,
+     * as any larger block would limit the shift to one.
+     *
+     * @param sequence The sequence to choose a block size for.
+     * @return The block size to use for the sequence.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public static int chooseBlockSize(final SequenceMatcher sequence) {
+        ArgUtils.checkNullObject(sequence, "sequence");
+        final int length = sequence.length();
+        if (length < 3) {
+            return 1;
+        }
+        int blockSize = length < 6? 2 : length < 16? 3 : MAX_BLOCK_SIZE;
+        while (blockSize > 2 && countPermutations(sequence, blockSize) > TABLE_SIZE / 2) {
+            blockSize--;
+        }
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of bytes in the blocks this searcher shifts on.
+     *
+     * @return The number of bytes in the blocks this searcher shifts on.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final int[] safeShifts = forwardShifts.get();
+        final SequenceMatcher verifier = matcher;
+        final int lastMatcherPosition = verifier.length() - 1;
+        final int lastBlockPosition = blockSize - 1;
+
+        // Calculate safe bounds for the search, positioned at the end of the sequence
+        // (compared before adding, so bounds such as Integer.MAX_VALUE do not overflow):
+        final int lastPossiblePosition = bytes.length - 1;
+        if (fromPosition > lastPossiblePosition - lastMatcherPosition) {
+            return NOT_FOUND;
+        }
+        final int finalPosition = toPosition < lastPossiblePosition - lastMatcherPosition?
+                                  toPosition + lastMatcherPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition + lastMatcherPosition : lastMatcherPosition;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Get the shift for the block ending at the search position:
+            int blockHash = 0;
+            for (int position = searchPosition - lastBlockPosition; position <= searchPosition; position++) {
+                blockHash = (blockHash << 5) - blockHash + (bytes[position] & 0xFF);
+            }
+            int shift = safeShifts[blockHash & HASH_MASK];
+
+            // A negative shift means the block could end the sequence - verify there is a match:
+            if (shift < 0) {
+                final int startMatchPosition = searchPosition - lastMatcherPosition;
+                if (verifier.matchesNoBoundsCheck(bytes, startMatchPosition)) {
+                    return startMatchPosition;
+                }
+                shift = -shift;
+            }
+            searchPosition += shift;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final int[] safeShifts = forwardShifts.get();
+        final SequenceMatcher verifier = matcher;
+        final int lastMatcherPosition = verifier.length() - 1;
+        final int lastBlockPosition = blockSize - 1;
+        final long finalPosition = toPosition + lastMatcherPosition;
+        long searchPosition = fromPosition + lastMatcherPosition;
+
+        // Search forwards, reading bytes through the reader, as the sequence crosses window boundaries:
+        while (searchPosition <= finalPosition) {
+
+            // Get the shift for the block ending at the search position:
+            int blockHash = 0;
+            for (long position = searchPosition - lastBlockPosition; position <= searchPosition; position++) {
+                final int value = reader.readByte(position);
+                if (value < 0) {
+                    return NOT_FOUND; // the sequence goes past the end of the reader.
+                }
+                blockHash = (blockHash << 5) - blockHash + value;
+            }
+            int shift = safeShifts[blockHash & HASH_MASK];
+
+            // A negative shift means the block could end the sequence - verify there is a match:
+            if (shift < 0) {
+                final long startMatchPosition = searchPosition - lastMatcherPosition;
+                if (verifier.matches(reader, startMatchPosition)) {
+                    return startMatchPosition;
+                }
+                shift = -shift;
+            }
+            searchPosition += shift;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final int[] safeShifts = backwardShifts.get();
+        final SequenceMatcher verifier = matcher;
+        final int lastBlockPosition = blockSize - 1;
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - verifier.length();
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards:
+        while (searchPosition >= finalPosition) {
+
+            // Get the shift for the block starting at the search position:
+            int blockHash = 0;
+            final int lastPosition = searchPosition + lastBlockPosition;
+            for (int position = searchPosition; position <= lastPosition; position++) {
+                blockHash = (blockHash << 5) - blockHash + (bytes[position] & 0xFF);
+            }
+            int shift = safeShifts[blockHash & HASH_MASK];
+
+            // A negative shift means the block could start the sequence - verify there is a match:
+            if (shift < 0) {
+                if (verifier.matchesNoBoundsCheck(bytes, searchPosition)) {
+                    return SearchUtils.singleResult(searchPosition, matcher);
+                }
+                shift = -shift;
+            }
+            searchPosition -= shift;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final int[] safeShifts = backwardShifts.get();
+        final SequenceMatcher verifier = matcher;
+        final int lastBlockPosition = blockSize - 1;
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = fromPosition;
+
+        // Search backwards, reading bytes through the reader, as the sequence crosses window boundaries:
+        SEARCH: while (searchPosition >= finalPosition) {
+
+            // Get the shift for the block starting at the search position:
+            int blockHash = 0;
+            final long lastPosition = searchPosition + lastBlockPosition;
+            for (long position = searchPosition; position <= lastPosition; position++) {
+                final int value = reader.readByte(position);
+                if (value < 0) {
+                    searchPosition--; // the sequence goes past the end of the reader.
+                    continue SEARCH;
+                }
+                blockHash = (blockHash << 5) - blockHash + value;
+            }
+            int shift = safeShifts[blockHash & HASH_MASK];
+
+            // A negative shift means the block could start the sequence - verify there is a match:
+            if (shift < 0) {
+                if (verifier.matches(reader, searchPosition)) {
+                    return SearchUtils.singleResult(searchPosition, matcher);
+                }
+                shift = -shift;
+            }
+            searchPosition -= shift;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the calculation of the shift table needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardShifts.get();
+    }
+
+    /**
+     * Forces the calculation of the shift table needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardShifts.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[block size:" + blockSize + " sequence:" + matcher + ']';
+    }
+
+
+    /**
+     * Returns the total number of permutations of bytes in all the blocks of a sequence,
+     * counting no more than the size of the hash table for any single block.
+     */
+    private static long countPermutations(final SequenceMatcher sequence, final int blockSize) {
+        long total = 0;
+        for (int blockStart = 0; blockStart <= sequence.length() - blockSize; blockStart++) {
+            total += countBlockPermutations(sequence, blockStart, blockSize);
+        }
+        return total;
+    }
+
+    private static long countBlockPermutations(final SequenceMatcher sequence, final int blockStart,
+                                               final int blockSize) {
+        long permutations = 1;
+        for (int position = blockStart; position < blockStart + blockSize; position++) {
+            permutations *= sequence.getMatcherForPosition(position).getNumberOfMatchingBytes();
+            if (permutations > TABLE_SIZE) {
+                return TABLE_SIZE;
+            }
+        }
+        return permutations;
+    }
+
+
+    /**
+     * A factory calculating the hash table of shifts for searching forwards or backwards.
+     * <p>
+     * Each entry is the smallest distance from the end of the sequence (or the start,
+     * if searching backwards) of any block which hashes to it, excluding the final block,
+     * or the default shift if no block hashes to it.  If the final block hashes to it,
+     * the shift is negative.  Blocks with more permutations than the size of the
+     * table are assumed to hash to all the entries.
+     */
+    private final class ShiftFactory implements ObjectFactory<int[]> {
+
+        private final boolean forwards;
+
+        private ShiftFactory(final boolean forwards) {
+            this.forwards = forwards;
+        }
+
+        @Override
+        public int[] create() {
+            final SequenceMatcher sequence = getMatcher();
+            final int numberOfBlocks = sequence.length() - blockSize + 1;
+            final int[] shifts = new int[TABLE_SIZE];
+            final boolean[] finalBlocks = new boolean[TABLE_SIZE];
+            boolean allFinal = false;
+            int maxShift = numberOfBlocks;
+            for (int block = 0; block < numberOfBlocks; block++) {
+                final int distance = forwards? numberOfBlocks - block - 1 : block;
+                if (countBlockPermutations(sequence, block, blockSize) >= TABLE_SIZE) {
+                    if (distance == 0) {
+                        allFinal = true;
+                    } else if (distance < maxShift) {
+                        maxShift = distance;
+                    }
+                } else {
+                    final BytePermutationIterator permutations = new BytePermutationIterator(getBlockBytes(sequence, block));
+                    while (permutations.hasNext()) {
+                        final int hash = getBlockHash(permutations.next());
+                        if (distance == 0) {
+                            finalBlocks[hash] = true;
+                        } else if (shifts[hash] == 0 || distance < shifts[hash]) {
+                            shifts[hash] = distance;
+                        }
+                    }
+                }
+            }
+
+            // Fill in the default shifts, limit them to the maximum shift, and mark the final blocks:
+            for (int hash = 0; hash < TABLE_SIZE; hash++) {
+                final int shift = shifts[hash] == 0 || shifts[hash] > maxShift? maxShift : shifts[hash];
+                shifts[hash] = allFinal || finalBlocks[hash]? -shift : shift;
+            }
+            return shifts;
+        }
+
+        private List<byte[]> getBlockBytes(final SequenceMatcher sequence, final int blockStart) {
+            final List<byte[]> blockBytes = new ArrayList<byte[]>(blockSize);
+            for (int position = blockStart; position < blockStart + blockSize; position++) {
+                blockBytes.add(sequence.getMatcherForPosition(position).getMatchingBytes());
+            }
+            return blockBytes;
+        }
+
+        private int getBlockHash(final byte[] block) {
+            int blockHash = 0;
+            for (final byte value : block) {
+                blockHash = (blockHash << 5) - blockHash + (value & 0xFF);
+            }
+            return blockHash & HASH_MASK;
+        }
+    }
+
+}
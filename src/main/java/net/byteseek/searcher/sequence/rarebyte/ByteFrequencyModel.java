@@ -0,0 +1,230 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.rarebyte;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A model of how often each byte value occurs in the data being searched,
+ * used to estimate how likely a byte, or a {@link ByteMatcher}, is to match.
+ * <p>
+ * Two built in models are provided: {@link #TEXT}, for English-like text, and
+ * {@link #BINARY}, for typical binary file formats, which are dominated by zero bytes,
+ * 0xFF bytes and small values.  A model can also be learned from a sample of the data
+ * to be searched.  Counts are smoothed by adding one to each byte value, so no byte
+ * has a probability of zero.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class ByteFrequencyModel {
+
+    /**
+     * A model of English-like text, in which spaces, lower case letters and line
+     * endings are common, and bytes outside of printable ASCII are rare.
+     */
+    public static final ByteFrequencyModel TEXT = new ByteFrequencyModel(textCounts());
+
+    /**
+     * A model of binary data, in which zero bytes are very common, 0xFF bytes and small
+     * values are common, and other byte values are equally likely.
+     */
+    public static final ByteFrequencyModel BINARY = new ByteFrequencyModel(binaryCounts());
+
+    private final double[] probabilities;
+
+    /**
+     * Constructs a ByteFrequencyModel from the number of times each byte value was seen.
+     *
+     * @param counts An array of 256 counts, indexed by the unsigned value of each byte.
+     * @throws IllegalArgumentException if the counts are null, are not 256 in length, or any are negative.
+     */
+    public ByteFrequencyModel(final long[] counts) {
+        ArgUtils.checkNullObject(counts, "counts");
+        if (counts.length != 256) {
+            throw new IllegalArgumentException("There must be 256 counts, but there are " + counts.length);
+        }
+        double total = 256;
+        for (final long count : counts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Counts cannot be negative: " + Arrays.toString(counts));
+            }
+            total += count;
+        }
+        probabilities = new double[256];
+        for (int value = 0; value < 256; value++) {
+            probabilities[value] = (counts[value] + 1) / total;
+        }
+    }
+
+    /**
+     * Learns a ByteFrequencyModel from a sample of bytes.
+     *
+     * @param sample The bytes to learn the frequencies from.
+     * @return A ByteFrequencyModel of the bytes in the sample.
+     * @throws IllegalArgumentException if the sample is null.
+     */
+    public static ByteFrequencyModel fromSample(final byte[] sample) {
+        ArgUtils.checkNullByteArray(sample);
+        final long[] counts = new long[256];
+        addCounts(counts, sample, 0, sample.length);
+        return new ByteFrequencyModel(counts);
+    }
+
+    /**
+     * Learns a ByteFrequencyModel from a sample of the bytes in a {@link WindowReader}.
+     * If the reader has fewer bytes than requested, the bytes available are used.
+     *
+     * @param reader   The reader to learn the frequencies from.
+     * @param position The position in the reader to start sampling from.
+     * @param length   The number of bytes to sample.
+     * @return A ByteFrequencyModel of the bytes sampled from the reader.
+     * @throws IOException if the reader has a problem reading bytes.
+     * @throws IllegalArgumentException if the reader is null, or the position or length are negative.
+     */
+    public static ByteFrequencyModel fromSample(final WindowReader reader, final long position,
+                                                final long length) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("The position " + position + " and length " + length +
+                                               " cannot be negative.");
+        }
+        final long[] counts = new long[256];
+        final long endPosition = position + length;
+        long samplePosition = position;
+        Window window;
+        while (samplePosition < endPosition && (window = reader.getWindow(samplePosition)) != null) {
+            final int offset = reader.getWindowOffset(samplePosition);
+            final long remaining = endPosition - samplePosition;
+            final int available = window.length() - offset;
+            final int toCount = remaining < available? (int) remaining : available;
+            addCounts(counts, window.getArray(), offset, toCount);
+            samplePosition += toCount;
+        }
+        return new ByteFrequencyModel(counts);
+    }
+
+    /**
+     * Returns the probability that a byte in the data has the value given.
+     *
+     * @param value The byte value to get the probability of.
+     * @return The probability of the byte value, greater than zero and less than one.
+     */
+    public double getProbability(final byte value) {
+        return probabilities[value & 0xFF];
+    }
+
+    /**
+     * Returns the probability that a {@link ByteMatcher} matches a byte in the data.
+     *
+     * @param matcher The ByteMatcher to get the probability of matching.
+     * @return The probability that the ByteMatcher matches a byte.
+     */
+    public double getProbability(final ByteMatcher matcher) {
+        if (matcher.getNumberOfMatchingBytes() == 256) {
+            return 1.0;
+        }
+        double probability = 0;
+        for (final byte value : matcher.getMatchingBytes()) {
+            probability += probabilities[value & 0xFF];
+        }
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[zero byte probability:" + probabilities[0] + ']';
+    }
+
+    private static void addCounts(final long[] counts, final byte[] bytes, final int offset, final int length) {
+        final int endOffset = offset + length;
+        for (int position = offset; position < endOffset; position++) {
+            counts[bytes[position] & 0xFF]++;
+        }
+    }
+
+    /**
+     * Approximate counts per 10,000 characters of English text,
+     * with upper case letters a tenth as common as lower case.
+     */
+    private static long[] textCounts() {
+        final long[] counts = new long[256];
+        final String letters = "etaoinshrdlcumwfgypbvkjxqz";
+        final int[] letterCounts = {1016, 728, 655, 602, 560, 539, 509, 490, 480, 345, 322, 223, 220, 196,
+                                    189, 178, 162, 159, 158, 119, 78, 62, 12, 12, 8, 6};
+        for (int letter = 0; letter < letters.length(); letter++) {
+            final char lowerCase = letters.charAt(letter);
+            counts[lowerCase] = letterCounts[letter];
+            counts[Character.toUpperCase(lowerCase)] = letterCounts[letter] / 10;
+        }
+        for (int digit = '0'; digit <= '9'; digit++) {
+            counts[digit] = 20;
+        }
+        counts[' ']  = 1700;
+        counts['\n'] = 180;
+        counts['\r'] = 60;
+        counts['\t'] = 20;
+        counts['.']  = 100;
+        counts[',']  = 100;
+        counts['\''] = 25;
+        counts['"']  = 25;
+        counts['-']  = 20;
+        for (int value = 0x21; value < 0x7F; value++) {
+            if (counts[value] == 0) {
+                counts[value] = 3;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Approximate counts per 10,000 bytes of typical binary files.
+     */
+    private static long[] binaryCounts() {
+        final long[] counts = new long[256];
+        Arrays.fill(counts, 20);
+        counts[0x00] = 2500;
+        counts[0xFF] = 500;
+        for (int value = 0x01; value < 0x10; value++) {
+            counts[value] = 80;
+        }
+        return counts;
+    }
+
+}
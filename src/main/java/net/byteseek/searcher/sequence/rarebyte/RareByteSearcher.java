@@ -0,0 +1,361 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.rarebyte;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteTableMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * RareByteSearcher searches for a sequence by scanning for the position in the sequence
+ * which is least likely to match, given a {@link ByteFrequencyModel} of the data being searched.
+ * <p>
+ * Other sequence searchers anchor on the last (or first) position of the sequence, and verify
+ * the rest of the sequence in order.  If the byte at the anchor position is common in the data,
+ * such as a zero byte in binary data, many candidate matches are found which then fail to verify.
+ * This searcher instead anchors on the rarest position in the sequence, and only verifies the
+ * sequence where that matches.  It verifies the other positions in increasing order of their
+ * probability of matching, so a candidate which will not match is rejected as soon as possible.
+ * <p>
+ * It does not shift by more than one byte at a time, but the test at each position is very cheap,
+ * and few candidates are found if the anchor is rare in the data.  It works best when the data is
+ * well described by the model; a model can be learned from a sample of the data using
+ * {@link ByteFrequencyModel#fromSample(byte[])}.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class RareByteSearcher extends AbstractSequenceSearcher {
+
+    private final ByteFrequencyModel model;
+    private final LazyObject<SearchInfo> searchInfo;
+
+    /**
+     * Constructs a RareByteSearcher given a {@link SequenceMatcher} to search for,
+     * using the {@link ByteFrequencyModel#BINARY} model of byte frequencies.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public RareByteSearcher(final SequenceMatcher sequence) {
+        this(sequence, ByteFrequencyModel.BINARY);
+    }
+
+    /**
+     * Constructs a RareByteSearcher given a {@link SequenceMatcher} to search for,
+     * and a {@link ByteFrequencyModel} of the data to be searched.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @param model    The model of how often bytes occur in the data to be searched.
+     * @throws IllegalArgumentException if the sequence or model is null.
+     */
+    public RareByteSearcher(final SequenceMatcher sequence, final ByteFrequencyModel model) {
+        super(sequence);
+        ArgUtils.checkNullObject(model, "model");
+        this.model = model;
+        this.searchInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new SearchInfoFactory());
+    }
+
+    /**
+     * Returns the position in the sequence which this searcher scans for.
+     *
+     * @return The position in the sequence which is least likely to match.
+     */
+    public int getAnchorPosition() {
+        return searchInfo.get().anchorPosition;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = searchInfo.get();
+        final ByteMatcher anchor = info.anchor;
+        final int anchorPosition = info.anchorPosition;
+
+        // Calculate safe bounds for the search, positioned at the anchor:
+        final int lastPossiblePosition = bytes.length - matcher.length();
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        if (fromPosition > finalPosition) {
+            return NOT_FOUND;
+        }
+        final int finalAnchorPosition = finalPosition + anchorPosition;
+        int searchPosition = (fromPosition > 0? fromPosition : 0) + anchorPosition;
+
+        // Scan forwards for the anchor, verifying the rest of the sequence when it matches:
+        while (searchPosition <= finalAnchorPosition) {
+            if (anchor.matches(bytes[searchPosition])) {
+                final int matchPosition = searchPosition - anchorPosition;
+                if (info.verify(bytes, matchPosition)) {
+                    return matchPosition;
+                }
+            }
+            searchPosition++;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final SearchInfo info = searchInfo.get();
+        final ByteMatcher anchor = info.anchor;
+        final int anchorPosition = info.anchorPosition;
+        long searchPosition = fromPosition;
+
+        // Scan forwards for the anchor through the reader, as the sequence crosses window boundaries:
+        while (searchPosition <= toPosition) {
+            final int value = reader.readByte(searchPosition + anchorPosition);
+            if (value < 0) {
+                break; // the sequence goes past the end of the reader.
+            }
+            if (anchor.matches((byte) value) && info.verify(reader, searchPosition)) {
+                return searchPosition;
+            }
+            searchPosition++;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = searchInfo.get();
+        final ByteMatcher anchor = info.anchor;
+        final int anchorPosition = info.anchorPosition;
+
+        // Calculate safe bounds for the search, positioned at the anchor:
+        final int firstPossiblePosition = bytes.length - matcher.length();
+        final int firstPosition = fromPosition < firstPossiblePosition?
+                                  fromPosition : firstPossiblePosition;
+        final int finalAnchorPosition = (toPosition > 0? toPosition : 0) + anchorPosition;
+        int searchPosition = firstPosition + anchorPosition;
+
+        // Scan backwards for the anchor, verifying the rest of the sequence when it matches:
+        while (searchPosition >= finalAnchorPosition) {
+            if (anchor.matches(bytes[searchPosition])) {
+                final int matchPosition = searchPosition - anchorPosition;
+                if (info.verify(bytes, matchPosition)) {
+                    return SearchUtils.singleResult(matchPosition, matcher);
+                }
+            }
+            searchPosition--;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final SearchInfo info = searchInfo.get();
+        final ByteMatcher anchor = info.anchor;
+        final int anchorPosition = info.anchorPosition;
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = fromPosition;
+
+        // Scan backwards for the anchor through the reader, as the sequence crosses window boundaries:
+        while (searchPosition >= finalPosition) {
+            final int value = reader.readByte(searchPosition + anchorPosition);
+            if (value >= 0 && anchor.matches((byte) value) && info.verify(reader, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, matcher);
+            }
+            searchPosition--;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * Forces the choice of anchor and verification order.
+     */
+    @Override
+    public void prepareForwards() {
+        searchInfo.get();
+    }
+
+    /**
+     * Forces the choice of anchor and verification order.
+     */
+    @Override
+    public void prepareBackwards() {
+        searchInfo.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[model:" + model + " sequence:" + matcher + ']';
+    }
+
+
+    /**
+     * The anchor to scan for, and the other positions of the sequence in the order to verify them.
+     */
+    private static final class SearchInfo {
+
+        private final int anchorPosition;
+        private final ByteMatcher anchor;
+        private final int[] verifyPositions;
+        private final ByteMatcher[] verifyMatchers;
+
+        private SearchInfo(final int anchorPosition, final ByteMatcher anchor,
+                           final int[] verifyPositions, final ByteMatcher[] verifyMatchers) {
+            this.anchorPosition  = anchorPosition;
+            this.anchor          = anchor;
+            this.verifyPositions = verifyPositions;
+            this.verifyMatchers  = verifyMatchers;
+        }
+
+        private boolean verify(final byte[] bytes, final int matchPosition) {
+            final int[] positions = verifyPositions;
+            final ByteMatcher[] matchers = verifyMatchers;
+            for (int index = 0; index < positions.length; index++) {
+                if (!matchers[index].matches(bytes[matchPosition + positions[index]])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean verify(final WindowReader reader, final long matchPosition) throws IOException {
+            final int[] positions = verifyPositions;
+            final ByteMatcher[] matchers = verifyMatchers;
+            for (int index = 0; index < positions.length; index++) {
+                final int value = reader.readByte(matchPosition + positions[index]);
+                if (value < 0 || !matchers[index].matches((byte) value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+
+    private final class SearchInfoFactory implements ObjectFactory<SearchInfo> {
+
+        /**
+         * Orders the positions of the sequence by their probability of matching,
+         * leaving out positions which match all bytes, as they need no verification.
+         * The least probable position is the anchor.  If several positions are equally
+         * improbable, the last of them is the anchor, as searchers usually anchor on the end.
+         */
+        @Override
+        public SearchInfo create() {
+            final SequenceMatcher sequence = getMatcher();
+            final int length = sequence.length();
+            final double[] probabilities = new double[length];
+            final Integer[] positions = new Integer[length];
+            for (int position = 0; position < length; position++) {
+                probabilities[position] = model.getProbability(sequence.getMatcherForPosition(position));
+                positions[position] = length - position - 1;
+            }
+            Arrays.sort(positions, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer first, final Integer second) {
+                    return Double.compare(probabilities[first], probabilities[second]);
+                }
+            });
+
+            int numberToVerify = 0;
+            for (int index = 1; index < length; index++) {
+                if (probabilities[positions[index]] < 1.0) {
+                    numberToVerify++;
+                }
+            }
+            final int[] verifyPositions = new int[numberToVerify];
+            final ByteMatcher[] verifyMatchers = new ByteMatcher[numberToVerify];
+            for (int index = 0; index < numberToVerify; index++) {
+                verifyPositions[index] = positions[index + 1];
+                verifyMatchers[index] = ByteTableMatcher.tabulate(sequence.getMatcherForPosition(positions[index + 1]));
+            }
+            final int anchorPosition = positions[0];
+            return new SearchInfo(anchorPosition, ByteTableMatcher.tabulate(sequence.getMatcherForPosition(anchorPosition)),
+                                  verifyPositions, verifyMatchers);
+        }
+    }
+
+}
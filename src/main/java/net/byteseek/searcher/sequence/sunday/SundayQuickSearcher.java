@@ -73,7 +73,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
      * {@inheritDoc}
      */    
     @Override
-    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+    protected int searchForwardsForPosition(final byte[] bytes, final int fromPosition, final int toPosition) {
         
         // Get the objects needed to search:
         final int[] safeShifts = forwardInfo.get();
@@ -92,7 +92,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         // position, as we shift on the byte after the sequence.
         while (searchPosition <= lastPosition) {
             if (sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
-                return SearchUtils.singleResult(searchPosition, sequence);
+                return searchPosition;
             }
             searchPosition += safeShifts[bytes[searchPosition + length] & 0xFF];
         }
@@ -101,10 +101,10 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         if (searchPosition == finalPosition && 
             toPosition     >= finalPosition &&
             sequence.matches(bytes, finalPosition)) {
-            return SearchUtils.singleResult(finalPosition, sequence);
+            return finalPosition;
         }
 
-        return SearchUtils.noResults();
+        return NOT_FOUND;
     }        
     
     
@@ -112,7 +112,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
      * {@inheritDoc}
      */
     @Override
-    public List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader, 
+    protected long doSearchForwardsForPosition(final WindowReader reader, 
             final long fromPosition, final long toPosition ) throws IOException {
         
         // Initialise
@@ -123,8 +123,8 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         
         // While there is a window to search in...
         // If there is no window immediately after the sequence,
-        // then there is no match, since this is only invoked if the 
-        // sequence is already crossing into another window.         
+        // then the sequence can only match at the current position,
+        // ending at the very end of the reader.
         Window window;
         while (searchPosition <= toPosition &&
                (window = reader.getWindow(searchPosition + length)) != null) {
@@ -143,7 +143,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
             // after the sequence (so would get an IndexOutOfBoundsException in the final position).
             while (arraySearchPosition < finalPosition) {
                 if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+                    return searchPosition;
                 }
                 final int shift = safeShifts[array[arraySearchPosition] & 0xFF];
                 searchPosition += shift;
@@ -151,16 +151,38 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
             }
 
             // Check final position if necessary:
-            if (arraySearchPosition == finalPosition ||
-                searchPosition == toPosition) {
+            if (arraySearchPosition == finalPosition) {
                 if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
+                    return searchPosition;
                 }
                 searchPosition += safeShifts[array[arraySearchPosition] & 0xFF];
             }
         }
 
-        return SearchUtils.noResults();
+        // Check for a match ending at the end of the reader:
+        if (searchPosition <= toPosition && sequence.matches(reader, searchPosition)) {
+            return searchPosition;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
     }
     
 
@@ -0,0 +1,323 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.twoway;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * HorspoolTwoWaySearcher searches for a {@link ByteSequenceMatcher} using the Horspool
+ * algorithm, switching to the two-way algorithm if the data turns out to be degenerate.
+ * <p>
+ * The Horspool algorithm is fast on most data, but when both the data and the sequence
+ * are repetitive, it can spend most of its time verifying matches which fail near the
+ * start of the sequence, only to shift along by a single byte.  This searcher counts the
+ * bytes it compares when verifying, and the distance it has shifted.  Once it has compared
+ * more than {@link #DEGENERATION_RATIO} bytes for each byte shifted (after allowing
+ * for the length of the sequence), it searches the rest of the bytes with the
+ * two-way algorithm, which is guaranteed to run in linear time.
+ * See {@link TwoWaySearcher} for details of the two-way algorithm.
+ * <p>
+ * Searching across window boundaries in a reader always uses the two-way algorithm.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ */
+public final class HorspoolTwoWaySearcher extends AbstractSequenceSearcher {
+
+    /**
+     * The number of bytes compared while verifying, per byte shifted, above which
+     * the Horspool search is considered to have degenerated.
+     */
+    public static final int DEGENERATION_RATIO = 4;
+
+    private final LazyObject<SearchInfo> forwardInfo;
+    private final LazyObject<SearchInfo> backwardInfo;
+
+    /**
+     * Constructs a HorspoolTwoWaySearcher given a {@link ByteSequenceMatcher} to search for.
+     *
+     * @param sequence The ByteSequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public HorspoolTwoWaySearcher(final ByteSequenceMatcher sequence) {
+        super(sequence);
+        forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
+        backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardInfoFactory());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final byte[] pattern = info.pattern;
+        final int lastMatcherPosition = pattern.length - 1;
+        final byte lastByte = pattern[lastMatcherPosition];
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - pattern.length;
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        if (fromPosition > finalPosition) {
+            return NOT_FOUND;
+        }
+        final int finalSearchPosition = finalPosition + lastMatcherPosition;
+        int searchPosition = (fromPosition > 0? fromPosition : 0) + lastMatcherPosition;
+
+        // Search forwards, keeping track of how much work verification takes:
+        long bytesVerified = 0;
+        long bytesShifted = pattern.length;
+        while (searchPosition <= finalSearchPosition) {
+            final byte currentByte = bytes[searchPosition];
+            if (currentByte == lastByte) {
+
+                // The last byte matched - verify there is a complete match:
+                final int startMatchPosition = searchPosition - lastMatcherPosition;
+                int position = lastMatcherPosition - 1;
+                while (position >= 0 && pattern[position] == bytes[startMatchPosition + position]) {
+                    position--;
+                }
+                if (position < 0) {
+                    return startMatchPosition;
+                }
+
+                // If verification is taking too long, search the rest using the two-way algorithm:
+                bytesVerified += lastMatcherPosition - position;
+                if (bytesVerified > bytesShifted * DEGENERATION_RATIO) {
+                    return info.twoWay.searchForwards(bytes, startMatchPosition, finalPosition);
+                }
+            }
+            final int shift = safeShifts[currentByte & 0xFF];
+            searchPosition += shift;
+            bytesShifted   += shift;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return forwardInfo.get().twoWay.searchForwards(reader, fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = backwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final byte[] pattern = info.pattern;
+        final int length = pattern.length;
+        final byte firstByte = pattern[0];
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - length;
+        int searchPosition = fromPosition < firstPossiblePosition?
+                             fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards, keeping track of how much work verification takes:
+        long bytesVerified = 0;
+        long bytesShifted = length;
+        while (searchPosition >= finalPosition) {
+            final byte currentByte = bytes[searchPosition];
+            if (currentByte == firstByte) {
+
+                // The first byte matched - verify there is a complete match:
+                int position = 1;
+                while (position < length && pattern[position] == bytes[searchPosition + position]) {
+                    position++;
+                }
+                if (position == length) {
+                    return SearchUtils.singleResult(searchPosition, matcher);
+                }
+
+                // If verification is taking too long, search the rest using the two-way algorithm:
+                bytesVerified += position;
+                if (bytesVerified > bytesShifted * DEGENERATION_RATIO) {
+                    final int matchPosition = info.twoWay.searchBackwards(bytes, searchPosition, finalPosition);
+                    return matchPosition < 0? SearchUtils.<SequenceMatcher>noResults()
+                                            : SearchUtils.singleResult(matchPosition, matcher);
+                }
+            }
+            final int shift = safeShifts[currentByte & 0xFF];
+            searchPosition -= shift;
+            bytesShifted   += shift;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        final long matchPosition = backwardInfo.get().twoWay.searchBackwards(reader, fromPosition, finalPosition);
+        return matchPosition < 0? SearchUtils.<SequenceMatcher>noResults()
+                                : SearchUtils.singleResult(matchPosition, matcher);
+    }
+
+    /**
+     * Forces the calculation of the shifts and critical factorisation needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardInfo.get();
+    }
+
+    /**
+     * Forces the calculation of the shifts and critical factorisation needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardInfo.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+
+    private static final class SearchInfo {
+        private final int[] shifts;
+        private final byte[] pattern;
+        private final TwoWayPattern twoWay;
+
+        private SearchInfo(final int[] shifts, final byte[] pattern, final TwoWayPattern twoWay) {
+            this.shifts  = shifts;
+            this.pattern = pattern;
+            this.twoWay  = twoWay;
+        }
+    }
+
+
+    private static byte[] getBytes(final SequenceMatcher sequence) {
+        final byte[] bytes = new byte[sequence.length()];
+        for (int position = 0; position < bytes.length; position++) {
+            bytes[position] = sequence.getMatcherForPosition(position).getMatchingBytes()[0];
+        }
+        return bytes;
+    }
+
+
+    private final class ForwardInfoFactory implements ObjectFactory<SearchInfo> {
+
+        /**
+         * Calculates the Horspool shifts for searching forwards, which are the
+         * shortest distance a byte appears from the end of the sequence,
+         * and the two-way pattern of the sequence.
+         */
+        @Override
+        public SearchInfo create() {
+            final SequenceMatcher sequence = getMatcher();
+            final byte[] pattern = getBytes(sequence);
+            final int lastPosition = pattern.length - 1;
+            final int[] shifts = new int[256];
+            Arrays.fill(shifts, pattern.length);
+            for (int position = 0; position < lastPosition; position++) {
+                shifts[pattern[position] & 0xFF] = lastPosition - position;
+            }
+            return new SearchInfo(shifts, pattern, new TwoWayPattern(sequence, false));
+        }
+    }
+
+
+    private final class BackwardInfoFactory implements ObjectFactory<SearchInfo> {
+
+        /**
+         * Calculates the Horspool shifts for searching backwards, which are the
+         * shortest distance a byte appears from the start of the sequence,
+         * and the two-way pattern of the reversed sequence.
+         */
+        @Override
+        public SearchInfo create() {
+            final SequenceMatcher sequence = getMatcher();
+            final byte[] pattern = getBytes(sequence);
+            final int[] shifts = new int[256];
+            Arrays.fill(shifts, pattern.length);
+            for (int position = pattern.length - 1; position > 0; position--) {
+                shifts[pattern[position] & 0xFF] = position;
+            }
+            return new SearchInfo(shifts, pattern, new TwoWayPattern(sequence, true));
+        }
+    }
+
+}
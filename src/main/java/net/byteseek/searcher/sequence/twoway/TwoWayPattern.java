@@ -0,0 +1,325 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.twoway;
+
+import java.io.IOException;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+/**
+ * A byte pattern and its critical factorisation, which searches using the
+ * two-way algorithm of Crochemore and Perrin.
+ * <p>
+ * The pattern is split at a critical position into a left and a right part.  At each
+ * search position, the right part is compared from left to right.  A mismatch in the right part
+ * allows a shift by the number of bytes which matched.  If the right part matches, the left part is
+ * compared from right to left, and whether or not it matches, the search can shift by the period of
+ * the pattern.  If the pattern is periodic, the bytes already known to match after a shift by the
+ * period are remembered, and are not compared again.  This gives a search which never reads a byte
+ * more than twice, in linear time, using only a few integers of extra memory.
+ * <p>
+ * To search backwards, the pattern is created from the reversed sequence.  The search methods
+ * for backwards searching then compare the first byte of the pattern with the last byte of a
+ * possible match, moving back through the bytes being searched as they move on through the pattern.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+final class TwoWayPattern {
+
+    private final byte[] pattern;
+    private final int criticalPosition;
+    private final int period;
+    private final boolean periodic;
+
+    /**
+     * Creates a TwoWayPattern from the bytes of a sequence which matches a single byte at each position.
+     *
+     * @param sequence The sequence to create the pattern from.
+     * @param reversed Whether to create the pattern from the sequence reversed.
+     */
+    TwoWayPattern(final SequenceMatcher sequence, final boolean reversed) {
+        final int length = sequence.length();
+        pattern = new byte[length];
+        for (int position = 0; position < length; position++) {
+            final int patternPosition = reversed? length - position - 1 : position;
+            pattern[patternPosition] = sequence.getMatcherForPosition(position).getMatchingBytes()[0];
+        }
+
+        // Find the critical factorisation from the longer of the maximal suffixes for the two orderings:
+        final int[] suffixPeriod = new int[1];
+        final int suffix = maximalSuffix(pattern, false, suffixPeriod);
+        final int[] reverseSuffixPeriod = new int[1];
+        final int reverseSuffix = maximalSuffix(pattern, true, reverseSuffixPeriod);
+        final int critical = suffix > reverseSuffix? suffix : reverseSuffix;
+        final int suffixesPeriod = suffix > reverseSuffix? suffixPeriod[0] : reverseSuffixPeriod[0];
+
+        // If the left part repeats at the period, the pattern is periodic.  If not,
+        // the period is at least as long as the longest part, and can be used as a shift:
+        criticalPosition = critical;
+        periodic = critical + suffixesPeriod < length &&
+                   regionMatches(pattern, 0, suffixesPeriod, critical + 1);
+        period = periodic? suffixesPeriod
+                         : Math.max(critical + 1, length - critical - 1) + 1;
+    }
+
+    /**
+     * Returns the length of the pattern.
+     *
+     * @return The length of the pattern.
+     */
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Searches forwards in a byte array for the pattern, from and to the positions given.
+     * The caller must ensure that the pattern fits into the array at all positions searched.
+     *
+     * @param bytes        The bytes to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position the pattern can start at.
+     * @return The position of the first match, or a negative number if there isn't one.
+     */
+    int searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final byte[] localPattern = pattern;
+        final int length = localPattern.length;
+        final int critical = criticalPosition;
+        final int memoryAfterPeriod = periodic? length - period - 1 : -1;
+        int memory = -1;
+        int searchPosition = fromPosition;
+        while (searchPosition <= toPosition) {
+
+            // Compare the right part of the pattern, skipping any bytes remembered as matching:
+            int position = (critical > memory? critical : memory) + 1;
+            while (position < length && localPattern[position] == bytes[searchPosition + position]) {
+                position++;
+            }
+            if (position >= length) {
+
+                // Compare the left part of the pattern, down to any bytes remembered as matching:
+                position = critical;
+                while (position > memory && localPattern[position] == bytes[searchPosition + position]) {
+                    position--;
+                }
+                if (position <= memory) {
+                    return searchPosition;
+                }
+                searchPosition += period;
+                memory = memoryAfterPeriod;
+            } else {
+                // Shift past the bytes which matched in the right part:
+                searchPosition += position - critical;
+                memory = -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches forwards in a WindowReader for the pattern, from and to the positions given.
+     * A pattern which goes past the end of the reader does not match.
+     *
+     * @param reader       The reader to search in.
+     * @param fromPosition The position to search from.
+     * @param toPosition   The last position the pattern can start at.
+     * @return The position of the first match, or a negative number if there isn't one.
+     * @throws IOException If the reader has a problem reading bytes.
+     */
+    long searchForwards(final WindowReader reader, final long fromPosition, final long toPosition)
+            throws IOException {
+        final byte[] localPattern = pattern;
+        final int length = localPattern.length;
+        final int critical = criticalPosition;
+        final int memoryAfterPeriod = periodic? length - period - 1 : -1;
+        int memory = -1;
+        long searchPosition = fromPosition;
+        while (searchPosition <= toPosition) {
+            int position = (critical > memory? critical : memory) + 1;
+            while (position < length &&
+                   (localPattern[position] & 0xFF) == reader.readByte(searchPosition + position)) {
+                position++;
+            }
+            if (position >= length) {
+                position = critical;
+                while (position > memory &&
+                       (localPattern[position] & 0xFF) == reader.readByte(searchPosition + position)) {
+                    position--;
+                }
+                if (position <= memory) {
+                    return searchPosition;
+                }
+                searchPosition += period;
+                memory = memoryAfterPeriod;
+            } else {
+                searchPosition += position - critical;
+                memory = -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches backwards in a byte array for a pattern created from a reversed sequence,
+     * from and to the positions given.  The positions are the start positions of the
+     * sequence, and the caller must ensure it fits into the array at all positions searched.
+     *
+     * @param bytes        The bytes to search in.
+     * @param fromPosition The position to search back from.
+     * @param toPosition   The first position the sequence can start at.
+     * @return The position of the last match, or a negative number if there isn't one.
+     */
+    int searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final byte[] localPattern = pattern;
+        final int length = localPattern.length;
+        final int critical = criticalPosition;
+        final int memoryAfterPeriod = periodic? length - period - 1 : -1;
+        final int lastPosition = length - 1;
+        final int finalEndPosition = toPosition + lastPosition;
+        int memory = -1;
+        int endPosition = fromPosition + lastPosition;
+        while (endPosition >= finalEndPosition) {
+            int position = (critical > memory? critical : memory) + 1;
+            while (position < length && localPattern[position] == bytes[endPosition - position]) {
+                position++;
+            }
+            if (position >= length) {
+                position = critical;
+                while (position > memory && localPattern[position] == bytes[endPosition - position]) {
+                    position--;
+                }
+                if (position <= memory) {
+                    return endPosition - lastPosition;
+                }
+                endPosition -= period;
+                memory = memoryAfterPeriod;
+            } else {
+                endPosition -= position - critical;
+                memory = -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches backwards in a WindowReader for a pattern created from a reversed sequence,
+     * from and to the positions given.  The positions are the start positions of the sequence.
+     * A sequence which goes past the end of the reader does not match.
+     *
+     * @param reader       The reader to search in.
+     * @param fromPosition The position to search back from.
+     * @param toPosition   The first position the sequence can start at.
+     * @return The position of the last match, or a negative number if there isn't one.
+     * @throws IOException If the reader has a problem reading bytes.
+     */
+    long searchBackwards(final WindowReader reader, final long fromPosition, final long toPosition)
+            throws IOException {
+        final byte[] localPattern = pattern;
+        final int length = localPattern.length;
+        final int critical = criticalPosition;
+        final int memoryAfterPeriod = periodic? length - period - 1 : -1;
+        final int lastPosition = length - 1;
+        final long finalEndPosition = toPosition + lastPosition;
+        int memory = -1;
+        long endPosition = fromPosition + lastPosition;
+        while (endPosition >= finalEndPosition) {
+            int position = (critical > memory? critical : memory) + 1;
+            while (position < length &&
+                   (localPattern[position] & 0xFF) == reader.readByte(endPosition - position)) {
+                position++;
+            }
+            if (position >= length) {
+                position = critical;
+                while (position > memory &&
+                       (localPattern[position] & 0xFF) == reader.readByte(endPosition - position)) {
+                    position--;
+                }
+                if (position <= memory) {
+                    return endPosition - lastPosition;
+                }
+                endPosition -= period;
+                memory = memoryAfterPeriod;
+            } else {
+                endPosition -= position - critical;
+                memory = -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position before the start of the maximal suffix of the pattern,
+     * under the unsigned ordering of bytes or its reverse, and the period of that suffix.
+     */
+    private static int maximalSuffix(final byte[] pattern, final boolean reverseOrder, final int[] period) {
+        final int length = pattern.length;
+        int suffix = -1;
+        int position = 0;
+        int offset = 1;
+        int suffixPeriod = 1;
+        while (position + offset < length) {
+            final int value = pattern[position + offset] & 0xFF;
+            final int suffixValue = pattern[suffix + offset] & 0xFF;
+            if (reverseOrder? value > suffixValue : value < suffixValue) {
+                position += offset;
+                offset = 1;
+                suffixPeriod = position - suffix;
+            } else if (value == suffixValue) {
+                if (offset != suffixPeriod) {
+                    offset++;
+                } else {
+                    position += suffixPeriod;
+                    offset = 1;
+                }
+            } else {
+                suffix = position;
+                position = suffix + 1;
+                offset = suffixPeriod = 1;
+            }
+        }
+        period[0] = suffixPeriod;
+        return suffix;
+    }
+
+    private static boolean regionMatches(final byte[] pattern, final int first, final int second,
+                                         final int length) {
+        for (int position = 0; position < length; position++) {
+            if (pattern[first + position] != pattern[second + position]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.twoway;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * TwoWaySearcher searches for a {@link ByteSequenceMatcher} using the two-way algorithm
+ * of Crochemore and Perrin.
+ * <p>
+ * Searchers which shift on the bytes they read, like the Horspool and Sunday searchers, are
+ * sub-linear on most data, but can take O(n * m) time to search n bytes for a sequence of length m,
+ * when both the data and the sequence are highly repetitive.  For example, searching for a sequence
+ * of zero bytes which ends in a one, in a disk image containing long runs of zero bytes.
+ * <p>
+ * The two-way algorithm splits the sequence at a critical position, and matches each part
+ * in a different direction, so that it never needs to read a byte more than twice.
+ * It is guaranteed to search in linear time, using only a few integers of extra memory.
+ * It is slower than the Horspool searchers on typical data, as it examines most of the bytes,
+ * so it is best used when the data being searched could be degenerate, or adversarial.
+ * If the data is normally well behaved, the {@link HorspoolTwoWaySearcher} gives the speed of
+ * Horspool, and switches to two-way searching when it detects degenerate data.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this searcher in
+ * multiple threads simultaneously.
+ *
+ * @author Matt Palmer
+ * @see <a href="http://monge.univ-mlv.fr/~mac/Articles-PDF/CP-1991-jacm.pdf">Two-way string matching</a>
+ */
+public final class TwoWaySearcher extends AbstractSequenceSearcher {
+
+    private final LazyObject<TwoWayPattern> forwardPattern;
+    private final LazyObject<TwoWayPattern> backwardPattern;
+
+    /**
+     * Constructs a TwoWaySearcher given a {@link ByteSequenceMatcher} to search for.
+     *
+     * @param sequence The ByteSequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public TwoWaySearcher(final ByteSequenceMatcher sequence) {
+        super(sequence);
+        forwardPattern  = new DoubleCheckImmutableLazyObject<TwoWayPattern>(new TwoWayPatternFactory(sequence, false));
+        backwardPattern = new DoubleCheckImmutableLazyObject<TwoWayPattern>(new TwoWayPatternFactory(sequence, true));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int searchForwardsForPosition(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        final TwoWayPattern pattern = forwardPattern.get();
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - pattern.length();
+        final int finalPosition = toPosition < lastPossiblePosition?
+                                  toPosition : lastPossiblePosition;
+        final int searchPosition = fromPosition > 0? fromPosition : 0;
+
+        return pattern.searchForwards(bytes, searchPosition, finalPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long doSearchForwardsForPosition(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return forwardPattern.get().searchForwards(reader, fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        return resultAt(searchForwardsForPosition(bytes, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return resultAt(doSearchForwardsForPosition(reader, fromPosition, toPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        final TwoWayPattern pattern = backwardPattern.get();
+
+        // Calculate safe bounds for the search:
+        final int firstPossiblePosition = bytes.length - pattern.length();
+        final int searchPosition = fromPosition < firstPossiblePosition?
+                                   fromPosition : firstPossiblePosition;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        final int matchPosition = pattern.searchBackwards(bytes, searchPosition, finalPosition);
+        return matchPosition < 0? SearchUtils.<SequenceMatcher>noResults()
+                                : SearchUtils.singleResult(matchPosition, matcher);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final long finalPosition = toPosition > 0? toPosition : 0;
+        final long matchPosition = backwardPattern.get().searchBackwards(reader, fromPosition, finalPosition);
+        return matchPosition < 0? SearchUtils.<SequenceMatcher>noResults()
+                                : SearchUtils.singleResult(matchPosition, matcher);
+    }
+
+    /**
+     * Forces the calculation of the critical factorisation needed to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        forwardPattern.get();
+    }
+
+    /**
+     * Forces the calculation of the critical factorisation needed to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardPattern.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+
+    /**
+     * A factory creating the {@link TwoWayPattern} for a sequence, or for the sequence reversed.
+     */
+    private static final class TwoWayPatternFactory implements ObjectFactory<TwoWayPattern> {
+
+        private final SequenceMatcher sequence;
+        private final boolean reversed;
+
+        private TwoWayPatternFactory(final SequenceMatcher sequence, final boolean reversed) {
+            this.sequence = sequence;
+            this.reversed = reversed;
+        }
+
+        @Override
+        public TwoWayPattern create() {
+            return new TwoWayPattern(sequence, reversed);
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.signature;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+
+/**
+ * Scans data with an automata in a single pass, to find the first or last position
+ * at which a match for it starts.
+ * <p>
+ * Rather than following the automata from every position a match could start at, each byte is
+ * read once.  The states active after each byte are tracked together with the position of the
+ * match they started at, and the initial state is added at each position a match can start.
+ * Where more than one match reaches the same state, only the earliest (or latest) start is kept,
+ * as everything which follows from the state is the same.  The time taken is linear in the data
+ * scanned, multiplied by the number of states which can be active at once.
+ * <p>
+ * Searching backwards still scans forwards, in blocks of increasing size working back from the
+ * last position, so that a match near the end of a long range is found without scanning all of it.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+final class AutomataScanner {
+
+    /**
+     * The value returned if no match starts in the positions scanned.
+     */
+    static final long NO_MATCH = -1;
+
+    private static final int INITIAL_BLOCK_SIZE = 4096;
+
+    private final State<Integer> initialState;
+    private final boolean[] firstBytes;
+
+    /**
+     * Constructs an AutomataScanner for the automata given.
+     *
+     * @param automata The automata to scan with.  Its initial state must not be final.
+     */
+    AutomataScanner(final Automata<Integer> automata) {
+        this.initialState = automata.getInitialState();
+        this.firstBytes = new boolean[256];
+        for (final Transition<Integer> transition : initialState) {
+            for (final byte value : transition.getBytes()) {
+                firstBytes[value & 0xFF] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the first position between the positions given at which a match starts, or NO_MATCH.
+     *
+     * @param bytes     The bytes to scan.
+     * @param fromStart The first position a match can start at.
+     * @param toStart   The last position a match can start at.
+     * @return The first position at which a match starts, or NO_MATCH if there is none.
+     */
+    long firstMatchStart(final byte[] bytes, final int fromStart, final int toStart) {
+        return scan(bytes, fromStart, toStart, new Scan(true));
+    }
+
+    /**
+     * Returns the first position between the positions given at which a match starts, or NO_MATCH.
+     *
+     * @param reader    The reader to scan.
+     * @param fromStart The first position a match can start at.
+     * @param toStart   The last position a match can start at.
+     * @return The first position at which a match starts, or NO_MATCH if there is none.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    long firstMatchStart(final WindowReader reader, final long fromStart, final long toStart) throws IOException {
+        return scan(reader, fromStart, toStart, new Scan(true));
+    }
+
+    /**
+     * Returns a new scan for the first position at which a match starts, which the caller steps
+     * over the data one byte at a time.  This lets the data be read once for both the automata
+     * and anything else which scans it forwards.
+     *
+     * @return A new scan for the first position at which a match starts.
+     */
+    Scan newForwardScan() {
+        return new Scan(true);
+    }
+
+    /**
+     * Returns the last position between the positions given at which a match starts, or NO_MATCH.
+     *
+     * @param bytes     The bytes to scan.
+     * @param fromStart The first position a match can start at.
+     * @param toStart   The last position a match can start at.
+     * @return The last position at which a match starts, or NO_MATCH if there is none.
+     */
+    long lastMatchStart(final byte[] bytes, final int fromStart, final int toStart) {
+        long blockSize = INITIAL_BLOCK_SIZE;
+        long blockEnd = toStart;
+        while (blockEnd >= fromStart) {
+            final long blockStart = Math.max(fromStart, blockEnd - blockSize + 1);
+            final long matchStart = scan(bytes, (int) blockStart, (int) blockEnd, new Scan(false));
+            if (matchStart != NO_MATCH) {
+                return matchStart;
+            }
+            blockEnd = blockStart - 1;
+            blockSize *= 2;
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Returns the last position between the positions given at which a match starts, or NO_MATCH.
+     *
+     * @param reader    The reader to scan.
+     * @param fromStart The first position a match can start at.
+     * @param toStart   The last position a match can start at.
+     * @return The last position at which a match starts, or NO_MATCH if there is none.
+     * @throws IOException if there was a problem reading from the reader.
+     */
+    long lastMatchStart(final WindowReader reader, final long fromStart, final long toStart) throws IOException {
+        long blockSize = INITIAL_BLOCK_SIZE;
+        long blockEnd = toStart;
+        while (blockEnd >= fromStart) {
+            final long blockStart = Math.max(fromStart, blockEnd - blockSize + 1);
+            final long matchStart = scan(reader, blockStart, blockEnd, new Scan(false));
+            if (matchStart != NO_MATCH) {
+                return matchStart;
+            }
+            blockEnd = blockStart - 1;
+            blockSize = blockSize < Long.MAX_VALUE / 2 ? blockSize * 2 : Long.MAX_VALUE;
+        }
+        return NO_MATCH;
+    }
+
+    private long scan(final byte[] bytes, final int fromStart, final int toStart, final Scan scan) {
+        for (int position = fromStart > 0 ? fromStart : 0; position < bytes.length; position++) {
+            scan.step(bytes[position], position, position <= toStart);
+            if (scan.isFinished(position, toStart)) {
+                break;
+            }
+        }
+        return scan.getMatchStart();
+    }
+
+    private long scan(final WindowReader reader, final long fromStart, final long toStart,
+                      final Scan scan) throws IOException {
+        long position = fromStart > 0 ? fromStart : 0;
+        Window window;
+        while ((window = reader.getWindow(position)) != null) {
+            final byte[] array = window.getArray();
+            final int windowLength = window.length();
+            for (int arrayPosition = reader.getWindowOffset(position); arrayPosition < windowLength;
+                 arrayPosition++, position++) {
+                scan.step(array[arrayPosition], position, position <= toStart);
+                if (scan.isFinished(position, toStart)) {
+                    return scan.getMatchStart();
+                }
+            }
+        }
+        return scan.getMatchStart();
+    }
+
+    /**
+     * The states active in a single scan, with the position of the match each one started at,
+     * and the best match start found so far.
+     */
+    final class Scan {
+
+        private final boolean firstStart;
+        private final List<State<Integer>> nextStates = new ArrayList<State<Integer>>();
+        private Map<State<Integer>, Long> activeStates = new IdentityHashMap<State<Integer>, Long>();
+        private Map<State<Integer>, Long> followingStates = new IdentityHashMap<State<Integer>, Long>();
+        private long best = NO_MATCH;
+
+        private Scan(final boolean firstStart) {
+            this.firstStart = firstStart;
+        }
+
+        /**
+         * Follows the automata over the byte at the position given, starting a new match there if
+         * it is allowed to and could improve on the best match found.
+         */
+        void step(final byte value, final long position, final boolean canStart) {
+            if (canStart && firstBytes[value & 0xFF] && (best == NO_MATCH || !firstStart)) {
+                if (firstStart) {
+                    if (!activeStates.containsKey(initialState)) {
+                        activeStates.put(initialState, position);
+                    }
+                } else {
+                    activeStates.put(initialState, position);
+                }
+            }
+            for (final Map.Entry<State<Integer>, Long> active : activeStates.entrySet()) {
+                final long start = active.getValue();
+                if (!improves(start)) {
+                    continue;
+                }
+                nextStates.clear();
+                active.getKey().appendNextStates(nextStates, value);
+                for (final State<Integer> nextState : nextStates) {
+                    final Long existingStart = followingStates.get(nextState);
+                    if (existingStart == null || (firstStart ? start < existingStart : start > existingStart)) {
+                        followingStates.put(nextState, active.getValue());
+                    }
+                    if (nextState.isFinal() && improves(start)) {
+                        best = start;
+                    }
+                }
+            }
+            final Map<State<Integer>, Long> lastActiveStates = activeStates;
+            activeStates = followingStates;
+            followingStates = lastActiveStates;
+            followingStates.clear();
+        }
+
+        /**
+         * Returns true if nothing which follows the position given can improve on the best match found.
+         */
+        boolean isFinished(final long position, final long toStart) {
+            if (firstStart && best != NO_MATCH) {
+                return !anyImproves();
+            }
+            return position >= toStart && !anyImproves();
+        }
+
+        /**
+         * Returns the best match start found so far, or NO_MATCH if none has been found.
+         */
+        long getMatchStart() {
+            return best;
+        }
+
+        private boolean improves(final long start) {
+            return best == NO_MATCH || (firstStart ? start < best : start > best);
+        }
+
+        private boolean anyImproves() {
+            for (final Long start : activeStates.values()) {
+                if (improves(start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
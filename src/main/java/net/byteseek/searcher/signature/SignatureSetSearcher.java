@@ -0,0 +1,738 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.signature;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.regex.GlushkovRegexBuilder;
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.FragmentChainCompiler;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.compiler.regex.ParseTreeTransitionFactory;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.MatchResult;
+import net.byteseek.matcher.automata.NfaMatcher;
+import net.byteseek.matcher.fragment.FragmentChainMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.parser.ParseException;
+import net.byteseek.parser.regex.RegexParser;
+import net.byteseek.parser.tree.ParseTree;
+import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickAutomaton;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * A searcher for a large set of signatures, each a byteSeek regular expression identified
+ * by an integer id, which finds all of them in a single pass rather than running one
+ * searcher per signature.
+ * <p>
+ * Each signature is placed into one of three groups, depending on what it needs to match:
+ * <ul>
+ * <li>Literal sequences of bytes are matched by a single {@link AhoCorasickAutomaton},
+ *     which reads each byte once.</li>
+ * <li>Sequences containing byte classes or variable gaps .{n,m} are compiled to
+ *     {@link FragmentChainMatcher}s.  The longest fragment of each chain is matched by the same
+ *     automaton as the literals; when it matches, the rest of the chain is verified
+ *     around it, as in the {@link net.byteseek.searcher.fragment.FragmentChainSearcher}.</li>
+ * <li>Everything else (alternatives, unbounded repeats and so on) is compiled into a single
+ *     combined automata, whose final states are associated with the signature ids.  It is run
+ *     over the data in a single scan to find where the first match starts, rather than being
+ *     restarted at every position, and is only matched in full at that position.</li>
+ * </ul>
+ * <p>
+ * Searching forwards steps the anchor automaton and the automata scan together over each byte,
+ * so the data is read once for all the signatures.  Searching backwards takes two scans: the
+ * anchor automaton reads backwards from the last position, and then the combined automata, which
+ * can only be followed forwards, is scanned in blocks working back from the last position,
+ * stopping at the best match the anchors found.
+ * <p>
+ * Results are the ids of all the signatures which match at the first position (searching forwards)
+ * or the last position (searching backwards) any of them match.  To find every signature which
+ * matches anywhere in some data, use {@link SearchUtils#searchAllForwards(Searcher, WindowReader)},
+ * or a {@link net.byteseek.searcher.ForwardSearchIterator}.
+ * <p>
+ * This class is immutable, and so is thread-safe.  However, note that {@link WindowReader}
+ * implementations passed in to search methods may not be thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class SignatureSetSearcher extends AbstractSearcher<Integer> {
+
+    private final LazyObject<AhoCorasickAutomaton> forwardAnchors;
+    private final LazyObject<AhoCorasickAutomaton> backwardAnchors;
+    private final Map<SequenceMatcher, AnchorTargets> anchorTargets;
+    private final int minimumAnchorOffset;
+    private final int maximumAnchorOffset;
+    private final NfaMatcher<Integer> automataMatcher;
+    private final AutomataScanner automataScanner;
+    private final int numberOfLiterals;
+    private final int numberOfChains;
+    private final int numberOfAutomata;
+
+
+    /**
+     * Compiles a SignatureSetSearcher from a map of signature ids to byteSeek regular expressions.
+     *
+     * @param signatures A map of signature ids to the expressions for them.
+     * @return A SignatureSetSearcher which finds all of the signatures.
+     * @throws CompileException if any of the expressions could not be compiled, or could match no bytes at all.
+     * @throws IllegalArgumentException if the map of signatures is null or empty.
+     */
+    public static SignatureSetSearcher compileFrom(final Map<Integer, String> signatures) throws CompileException {
+        ArgUtils.checkNullObject(signatures, "signatures");
+        if (signatures.isEmpty()) {
+            throw new IllegalArgumentException("There must be at least one signature.");
+        }
+        final SignatureSetBuilder builder = new SignatureSetBuilder();
+        for (final Map.Entry<Integer, String> signature : signatures.entrySet()) {
+            builder.add(signature.getKey(), signature.getValue());
+        }
+        return new SignatureSetSearcher(builder);
+    }
+
+
+    private SignatureSetSearcher(final SignatureSetBuilder builder) {
+        anchorTargets = builder.anchorTargets;
+        if (anchorTargets.isEmpty()) {
+            forwardAnchors = null;
+            backwardAnchors = null;
+        } else {
+            forwardAnchors = new DoubleCheckImmutableLazyObject<AhoCorasickAutomaton>(new AnchorAutomatonFactory(true));
+            backwardAnchors = new DoubleCheckImmutableLazyObject<AhoCorasickAutomaton>(new AnchorAutomatonFactory(false));
+        }
+        minimumAnchorOffset = builder.minimumAnchorOffset;
+        maximumAnchorOffset = builder.maximumAnchorOffset;
+        if (builder.automataList.isEmpty()) {
+            automataMatcher = null;
+            automataScanner = null;
+        } else {
+            final Automata<Integer> automata = builder.regexBuilder.buildAlternativesAutomata(builder.automataList);
+            automataMatcher = new NfaMatcher<Integer>(automata);
+            automataScanner = new AutomataScanner(automata);
+        }
+        numberOfLiterals = builder.numberOfLiterals;
+        numberOfChains = builder.numberOfChains;
+        numberOfAutomata = builder.automataList.size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Integer>> searchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        if (fromPosition > toPosition) {
+            return SearchUtils.noResults();
+        }
+        final long firstStart = fromPosition > 0 ? fromPosition : 0;
+        final BestMatch best = new BestMatch(Long.MAX_VALUE);
+        final AhoCorasickAutomaton automaton = forwardAnchors == null ? null : forwardAnchors.get();
+        final AutomataScanner.Scan scan = automataScanner == null ? null : automataScanner.newForwardScan();
+        final int longestAnchorEnd = automaton == null ? 0 : automaton.getMaximumLength() - 1;
+        final long anchorFrom = firstStart + minimumAnchorOffset;
+        long anchorTo = toPosition > Long.MAX_VALUE - maximumAnchorOffset - longestAnchorEnd ?
+                        Long.MAX_VALUE - longestAnchorEnd : toPosition + maximumAnchorOffset;
+        int state = automaton == null ? 0 : automaton.getInitialState();
+        boolean anchoring = automaton != null;
+        boolean scanning = scan != null;
+
+        // Step the anchor automaton and the automata scan together over each byte:
+        long position = firstStart;
+        Window window;
+        while ((anchoring || scanning) && (window = reader.getWindow(position)) != null) {
+            final byte[] array = window.getArray();
+            final long windowStartPosition = window.getWindowPosition();
+            final int windowLength = window.length();
+            for (int arrayPosition = reader.getWindowOffset(position);
+                 arrayPosition < windowLength && (anchoring || scanning); arrayPosition++, position++) {
+                final byte value = array[arrayPosition];
+                if (scanning) {
+                    final long lastScanStart = Math.min(best.position, toPosition);
+                    scan.step(value, position, position <= lastScanStart);
+                    scanning = !scan.isFinished(position, lastScanStart);
+                    if (scan.getMatchStart() != AutomataScanner.NO_MATCH) {
+                        anchorTo = Math.min(anchorTo, scan.getMatchStart() + maximumAnchorOffset);
+                    }
+                }
+                if (anchoring && position >= anchorFrom) {
+                    if (position > anchorTo + longestAnchorEnd) {
+                        anchoring = false;
+                        continue;
+                    }
+                    state = automaton.nextState(state, value);
+                    if (automaton.isMatchingState(state)) {
+                        for (final SequenceMatcher anchor : automaton.getMatchingSequences(state)) {
+                            final long anchorPosition = windowStartPosition + arrayPosition - anchor.length() + 1;
+                            if (anchorPosition >= anchorFrom && anchorPosition <= anchorTo) {
+                                addAnchorForwards(best, reader, anchor, anchorPosition, firstStart, toPosition);
+                            }
+                        }
+                        if (best.found()) {
+                            // Later anchors can only match a chain starting at or before the best match found so far
+                            // if they are within the maximum anchor offset of it:
+                            anchorTo = Math.min(anchorTo, best.position + maximumAnchorOffset);
+                        }
+                    }
+                }
+            }
+        }
+        if (scan != null) {
+            final long matchStart = scan.getMatchStart();
+            if (matchStart != AutomataScanner.NO_MATCH && matchStart <= best.position) {
+                addAutomataMatches(best, automataMatcher.allMatches(reader, matchStart), matchStart, true);
+            }
+        }
+        return best.toResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Integer>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        if (fromPosition > toPosition) {
+            return SearchUtils.noResults();
+        }
+        final int firstStart = fromPosition > 0 ? fromPosition : 0;
+        final int lastStartToFind = toPosition < bytes.length - 1 ? toPosition : bytes.length - 1;
+        final BestMatch best = new BestMatch(Long.MAX_VALUE);
+        final AhoCorasickAutomaton automaton = forwardAnchors == null ? null : forwardAnchors.get();
+        final AutomataScanner.Scan scan = automataScanner == null ? null : automataScanner.newForwardScan();
+        final int longestAnchorEnd = automaton == null ? 0 : automaton.getMaximumLength() - 1;
+        final int anchorFrom = firstStart + minimumAnchorOffset;
+        int anchorTo = (int) Math.min((long) lastStartToFind + maximumAnchorOffset, bytes.length - 1);
+        int state = automaton == null ? 0 : automaton.getInitialState();
+        boolean anchoring = automaton != null;
+        boolean scanning = scan != null;
+
+        // Step the anchor automaton and the automata scan together over each byte:
+        for (int position = firstStart; position < bytes.length && (anchoring || scanning); position++) {
+            final byte value = bytes[position];
+            if (scanning) {
+                final long lastScanStart = Math.min(best.position, lastStartToFind);
+                scan.step(value, position, position <= lastScanStart);
+                scanning = !scan.isFinished(position, lastScanStart);
+                if (scan.getMatchStart() != AutomataScanner.NO_MATCH) {
+                    anchorTo = (int) Math.min(anchorTo, scan.getMatchStart() + maximumAnchorOffset);
+                }
+            }
+            if (anchoring && position >= anchorFrom) {
+                if (position > (long) anchorTo + longestAnchorEnd) {
+                    anchoring = false;
+                    continue;
+                }
+                state = automaton.nextState(state, value);
+                if (automaton.isMatchingState(state)) {
+                    for (final SequenceMatcher anchor : automaton.getMatchingSequences(state)) {
+                        final int anchorPosition = position - anchor.length() + 1;
+                        if (anchorPosition >= anchorFrom && anchorPosition <= anchorTo) {
+                            addAnchorForwards(best, bytes, anchor, anchorPosition, firstStart, lastStartToFind);
+                        }
+                    }
+                    if (best.found()) {
+                        // Later anchors can only match a chain starting at or before the best match found so far
+                        // if they are within the maximum anchor offset of it:
+                        anchorTo = (int) Math.min(anchorTo, best.position + maximumAnchorOffset);
+                    }
+                }
+            }
+        }
+        if (scan != null) {
+            final long matchStart = scan.getMatchStart();
+            if (matchStart != AutomataScanner.NO_MATCH && matchStart <= best.position) {
+                addAutomataMatches(best, automataMatcher.allMatches(bytes, (int) matchStart), matchStart, true);
+            }
+        }
+        return best.toResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Integer>> searchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        if (fromPosition < 0 || fromPosition < toPosition) {
+            return SearchUtils.noResults();
+        }
+        final long lastStart = withinLength(reader, fromPosition);
+        final long firstStartToFind = toPosition > 0 ? toPosition : 0;
+        final BestMatch best = new BestMatch(Long.MIN_VALUE);
+        if (backwardAnchors != null) {
+            final AhoCorasickAutomaton automaton = backwardAnchors.get();
+            final long anchorFrom = lastStart + maximumAnchorOffset;
+            long anchorTo = firstStartToFind + minimumAnchorOffset;
+            long searchPosition = withinLength(reader, anchorFrom + automaton.getMaximumLength() - 1);
+            int state = automaton.getInitialState();
+            Window window;
+            while (searchPosition >= anchorTo && (window = reader.getWindow(searchPosition)) != null) {
+                final byte[] array = window.getArray();
+                final long windowStartPosition = window.getWindowPosition();
+                for (int arrayPosition = reader.getWindowOffset(searchPosition);
+                     arrayPosition >= 0 && searchPosition >= anchorTo; arrayPosition--, searchPosition--) {
+                    state = automaton.nextState(state, array[arrayPosition]);
+                    if (automaton.isMatchingState(state) && searchPosition <= anchorFrom) {
+                        final long anchorPosition = windowStartPosition + arrayPosition;
+                        for (final SequenceMatcher anchor : automaton.getMatchingSequences(state)) {
+                            addAnchorBackwards(best, reader, anchor, anchorPosition, firstStartToFind, lastStart);
+                        }
+                        if (best.found()) {
+                            // Earlier anchors can only match a chain starting at or after the best match found so far
+                            // if they are at least the minimum anchor offset after it:
+                            anchorTo = Math.max(anchorTo, best.position + minimumAnchorOffset);
+                        }
+                    }
+                }
+            }
+        }
+        if (automataScanner != null) {
+            final long firstPosition = best.found() ? best.position : firstStartToFind;
+            final long matchStart = automataScanner.lastMatchStart(reader, firstPosition, lastStart);
+            if (matchStart != AutomataScanner.NO_MATCH) {
+                addAutomataMatches(best, automataMatcher.allMatches(reader, matchStart), matchStart, false);
+            }
+        }
+        return best.toResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Integer>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        if (fromPosition < 0 || fromPosition < toPosition) {
+            return SearchUtils.noResults();
+        }
+        final int lastStart = fromPosition < bytes.length - 1 ? fromPosition : bytes.length - 1;
+        final int firstStartToFind = toPosition > 0 ? toPosition : 0;
+        final BestMatch best = new BestMatch(Long.MIN_VALUE);
+        if (backwardAnchors != null) {
+            final AhoCorasickAutomaton automaton = backwardAnchors.get();
+            final int anchorFrom = (int) Math.min((long) lastStart + maximumAnchorOffset, bytes.length - 1);
+            int anchorTo = firstStartToFind + minimumAnchorOffset;
+            final int scanFrom = (int) Math.min((long) anchorFrom + automaton.getMaximumLength() - 1, bytes.length - 1);
+            int state = automaton.getInitialState();
+            for (int searchPosition = scanFrom; searchPosition >= anchorTo; searchPosition--) {
+                state = automaton.nextState(state, bytes[searchPosition]);
+                if (automaton.isMatchingState(state) && searchPosition <= anchorFrom) {
+                    for (final SequenceMatcher anchor : automaton.getMatchingSequences(state)) {
+                        addAnchorBackwards(best, bytes, anchor, searchPosition, firstStartToFind, lastStart);
+                    }
+                    if (best.found()) {
+                        // Earlier anchors can only match a chain starting at or after the best match found so far
+                        // if they are at least the minimum anchor offset after it:
+                        anchorTo = (int) Math.max(anchorTo, best.position + minimumAnchorOffset);
+                    }
+                }
+            }
+        }
+        if (automataScanner != null) {
+            final int firstPosition = (int) Math.max(best.position, firstStartToFind);
+            final long matchStart = automataScanner.lastMatchStart(bytes, firstPosition, lastStart);
+            if (matchStart != AutomataScanner.NO_MATCH) {
+                addAutomataMatches(best, automataMatcher.allMatches(bytes, (int) matchStart), matchStart, false);
+            }
+        }
+        return best.toResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareForwards() {
+        if (forwardAnchors != null) {
+            forwardAnchors.get();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareBackwards() {
+        if (backwardAnchors != null) {
+            backwardAnchors.get();
+        }
+    }
+
+
+    /**
+     * Returns the number of signatures which are literal sequences of bytes.
+     *
+     * @return The number of literal signatures.
+     */
+    public int getNumberOfLiterals() {
+        return numberOfLiterals;
+    }
+
+
+    /**
+     * Returns the number of signatures which are matched as chains of fragments.
+     *
+     * @return The number of fragment chain signatures.
+     */
+    public int getNumberOfFragmentChains() {
+        return numberOfChains;
+    }
+
+
+    /**
+     * Returns the number of signatures which are matched by the combined automata.
+     *
+     * @return The number of automata signatures.
+     */
+    public int getNumberOfAutomata() {
+        return numberOfAutomata;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[literals:" + numberOfLiterals + " fragment chains:" + numberOfChains +
+                                            " automata:" + numberOfAutomata + ']';
+    }
+
+
+    private void addAnchorForwards(final BestMatch best, final WindowReader reader, final SequenceMatcher anchor,
+                                   final long anchorPosition, final long firstStart, final long toPosition)
+                                   throws IOException {
+        final AnchorTargets targets = anchorTargets.get(anchor);
+        if (anchorPosition <= toPosition && anchorPosition <= best.position) {
+            best.addForwards(anchorPosition, targets.literalIds);
+        }
+        for (final ChainAnchor chainAnchor : targets.chainAnchors) {
+            final long lastStart = best.position < toPosition ? best.position : toPosition;
+            final FragmentChainMatcher chain = chainAnchor.chain;
+            final long matchStart = chain.firstMatchStart(reader, chainAnchor.fragmentIndex,
+                                                          anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(reader, chainAnchor.fragmentIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                best.addForwards(matchStart, chainAnchor.id);
+            }
+        }
+    }
+
+
+    private void addAnchorForwards(final BestMatch best, final byte[] bytes, final SequenceMatcher anchor,
+                                   final int anchorPosition, final int firstStart, final int lastStartToFind) {
+        final AnchorTargets targets = anchorTargets.get(anchor);
+        if (anchorPosition <= lastStartToFind && anchorPosition <= best.position) {
+            best.addForwards(anchorPosition, targets.literalIds);
+        }
+        for (final ChainAnchor chainAnchor : targets.chainAnchors) {
+            final int lastStart = (int) Math.min(best.position, lastStartToFind);
+            final FragmentChainMatcher chain = chainAnchor.chain;
+            final int matchStart = chain.firstMatchStart(bytes, chainAnchor.fragmentIndex,
+                                                         anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(bytes, chainAnchor.fragmentIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                best.addForwards(matchStart, chainAnchor.id);
+            }
+        }
+    }
+
+
+    private void addAnchorBackwards(final BestMatch best, final WindowReader reader, final SequenceMatcher anchor,
+                                    final long anchorPosition, final long firstStartToFind, final long lastStart)
+                                    throws IOException {
+        final AnchorTargets targets = anchorTargets.get(anchor);
+        if (anchorPosition <= lastStart && anchorPosition >= best.position) {
+            best.addBackwards(anchorPosition, targets.literalIds);
+        }
+        for (final ChainAnchor chainAnchor : targets.chainAnchors) {
+            final long firstStart = best.position > firstStartToFind ? best.position : firstStartToFind;
+            final FragmentChainMatcher chain = chainAnchor.chain;
+            final long matchStart = chain.lastMatchStart(reader, chainAnchor.fragmentIndex,
+                                                         anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(reader, chainAnchor.fragmentIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                best.addBackwards(matchStart, chainAnchor.id);
+            }
+        }
+    }
+
+
+    private void addAnchorBackwards(final BestMatch best, final byte[] bytes, final SequenceMatcher anchor,
+                                    final int anchorPosition, final int firstStartToFind, final int lastStart) {
+        final AnchorTargets targets = anchorTargets.get(anchor);
+        if (anchorPosition <= lastStart && anchorPosition >= best.position) {
+            best.addBackwards(anchorPosition, targets.literalIds);
+        }
+        for (final ChainAnchor chainAnchor : targets.chainAnchors) {
+            final int firstStart = (int) Math.max(best.position, firstStartToFind);
+            final FragmentChainMatcher chain = chainAnchor.chain;
+            final int matchStart = chain.lastMatchStart(bytes, chainAnchor.fragmentIndex,
+                                                        anchorPosition, firstStart, lastStart);
+            if (matchStart != FragmentChainMatcher.NO_MATCH &&
+                chain.matchEnd(bytes, chainAnchor.fragmentIndex, anchorPosition) != FragmentChainMatcher.NO_MATCH) {
+                best.addBackwards(matchStart, chainAnchor.id);
+            }
+        }
+    }
+
+
+    private static void addAutomataMatches(final BestMatch best, final Collection<MatchResult<Integer>> matches,
+                                           final long position, final boolean forwards) {
+        for (final MatchResult<Integer> match : matches) {
+            for (final Integer id : match.getMatchingObjects()) {
+                if (forwards) {
+                    best.addForwards(position, id);
+                } else {
+                    best.addBackwards(position, id);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The best position found so far in a search, and the ids of the signatures matching there.
+     */
+    private static final class BestMatch {
+
+        private final long notFound;
+        private long position;
+        private final Set<Integer> ids = new TreeSet<Integer>();
+
+        private BestMatch(final long notFound) {
+            this.notFound = notFound;
+            this.position = notFound;
+        }
+
+        private boolean found() {
+            return position != notFound;
+        }
+
+        private void addForwards(final long matchPosition, final Integer id) {
+            if (matchPosition < position) {
+                position = matchPosition;
+                ids.clear();
+            }
+            if (matchPosition == position) {
+                ids.add(id);
+            }
+        }
+
+        private void addForwards(final long matchPosition, final List<Integer> matchIds) {
+            for (final Integer id : matchIds) {
+                addForwards(matchPosition, id);
+            }
+        }
+
+        private void addBackwards(final long matchPosition, final Integer id) {
+            if (matchPosition > position) {
+                position = matchPosition;
+                ids.clear();
+            }
+            if (matchPosition == position) {
+                ids.add(id);
+            }
+        }
+
+        private void addBackwards(final long matchPosition, final List<Integer> matchIds) {
+            for (final Integer id : matchIds) {
+                addBackwards(matchPosition, id);
+            }
+        }
+
+        private List<SearchResult<Integer>> toResults() {
+            return found() ? SearchUtils.resultsAtPosition(position, ids) : SearchUtils.<Integer>noResults();
+        }
+    }
+
+
+    /**
+     * A factory creating the Aho-Corasick automaton which matches the anchor sequences.
+     */
+    private final class AnchorAutomatonFactory implements ObjectFactory<AhoCorasickAutomaton> {
+
+        private final boolean forwards;
+
+        private AnchorAutomatonFactory(final boolean forwards) {
+            this.forwards = forwards;
+        }
+
+        @Override
+        public AhoCorasickAutomaton create() {
+            return forwards ? AhoCorasickAutomaton.forwards(anchorTargets.keySet())
+                            : AhoCorasickAutomaton.backwards(anchorTargets.keySet());
+        }
+    }
+
+
+    /**
+     * A chain of fragments whose longest fragment is matched by the anchor automaton.
+     */
+    private static final class ChainAnchor {
+
+        private final Integer id;
+        private final FragmentChainMatcher chain;
+        private final int fragmentIndex;
+
+        private ChainAnchor(final Integer id, final FragmentChainMatcher chain, final int fragmentIndex) {
+            this.id = id;
+            this.chain = chain;
+            this.fragmentIndex = fragmentIndex;
+        }
+    }
+
+
+    /**
+     * The literal signatures and fragment chains which a sequence in the anchor automaton is used by.
+     */
+    private static final class AnchorTargets {
+        private final List<Integer> literalIds = new ArrayList<Integer>(1);
+        private final List<ChainAnchor> chainAnchors = new ArrayList<ChainAnchor>(1);
+    }
+
+
+    /**
+     * Partitions signatures into literals, fragment chains and automata as they are added.
+     */
+    private static final class SignatureSetBuilder {
+
+        private final RegexParser parser = new RegexParser();
+        private final SequenceMatcherCompiler sequenceCompiler = new SequenceMatcherCompiler(parser);
+        private final FragmentChainCompiler chainCompiler = new FragmentChainCompiler(parser, sequenceCompiler);
+        private final GlushkovRegexBuilder<Integer, ParseTree> regexBuilder =
+                new GlushkovRegexBuilder<Integer, ParseTree>(new ParseTreeTransitionFactory<Integer>());
+        private final RegexCompiler<Integer> regexCompiler = new RegexCompiler<Integer>(parser, regexBuilder);
+
+        private final Map<String, SequenceMatcher> distinctSequences = new HashMap<String, SequenceMatcher>();
+        private final Map<SequenceMatcher, AnchorTargets> anchorTargets = new IdentityHashMap<SequenceMatcher, AnchorTargets>();
+        private final List<Automata<Integer>> automataList = new ArrayList<Automata<Integer>>();
+        private int minimumAnchorOffset = Integer.MAX_VALUE;
+        private int maximumAnchorOffset;
+        private int numberOfLiterals;
+        private int numberOfChains;
+
+        private void add(final Integer id, final String expression) throws CompileException {
+            ArgUtils.checkNullObject(id, "id");
+            ArgUtils.checkNullString(expression, "expression");
+            final ParseTree ast;
+            try {
+                ast = parser.parse(expression);
+            } catch (final ParseException pex) {
+                throw new CompileException("A problem occurred parsing the expression: " + expression, pex);
+            }
+            final SequenceMatcher literal = compileLiteral(ast);
+            if (literal != null) {
+                targetsFor(literal).literalIds.add(id);
+                updateAnchorOffsets(0, 0);
+                numberOfLiterals++;
+                return;
+            }
+            final FragmentChainMatcher chain = compileChain(ast);
+            if (chain != null) {
+                final int anchorIndex = chain.getLongestFragmentIndex();
+                targetsFor(chain.getFragment(anchorIndex)).chainAnchors.add(new ChainAnchor(id, chain, anchorIndex));
+                updateAnchorOffsets(chain.getMinimumOffset(anchorIndex), chain.getMaximumOffset(anchorIndex));
+                numberOfChains++;
+                return;
+            }
+            final Automata<Integer> automata = regexCompiler.compile(ast, id);
+            if (automata.getInitialState().isFinal()) {
+                throw new CompileException("The expression can match no bytes at all: " + expression);
+            }
+            automataList.add(automata);
+        }
+
+        private SequenceMatcher compileLiteral(final ParseTree ast) {
+            try {
+                final SequenceMatcher sequence = sequenceCompiler.compile(ast);
+                for (int position = 0; position < sequence.length(); position++) {
+                    if (sequence.getMatcherForPosition(position).getNumberOfMatchingBytes() != 1) {
+                        return null;
+                    }
+                }
+                return sequence;
+            } catch (final CompileException notASequence) {
+                return null;
+            }
+        }
+
+        private FragmentChainMatcher compileChain(final ParseTree ast) {
+            try {
+                return chainCompiler.compile(ast);
+            } catch (final CompileException notAChain) {
+                return null;
+            }
+        }
+
+        private AnchorTargets targetsFor(final SequenceMatcher sequence) {
+            final String key = sequence.toRegularExpression(false);
+            SequenceMatcher distinctSequence = distinctSequences.get(key);
+            if (distinctSequence == null) {
+                distinctSequence = sequence;
+                distinctSequences.put(key, sequence);
+                anchorTargets.put(sequence, new AnchorTargets());
+            }
+            return anchorTargets.get(distinctSequence);
+        }
+
+        private void updateAnchorOffsets(final int minimumOffset, final int maximumOffset) {
+            if (minimumOffset < minimumAnchorOffset) {
+                minimumAnchorOffset = minimumOffset;
+            }
+            if (maximumOffset > maximumAnchorOffset) {
+                maximumAnchorOffset = maximumOffset;
+            }
+        }
+    }
+
+}
@@ -31,6 +31,7 @@
 
 package net.byteseek.utils;
 
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,6 +50,7 @@ import net.byteseek.utils.ArgUtils;
  * <li>Counting bits in bytes.
  * <li>Counting permutations of bytes given a bit mask matching any or all bits.
  * <li>Returning the set of bytes matching a bit mask (on any or all of them).
+ * <li>Assembling multi-byte primitive values from a byte array in a given byte order.
  * </ul>
  * 
  * @author Matt Palmer
@@ -69,6 +71,8 @@ public final class ByteUtils {
 
     private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
 
+    private static final byte[] ASCII_CASE_FOLD = buildASCIICaseFoldTable();
+
     /**
      * Private constructor for static utility class.
      */
@@ -394,6 +398,57 @@ public final class ByteUtils {
     }
     
     
+    /**
+     * Returns the lower case ASCII byte if the byte is an upper case ASCII letter,
+     * or the byte unchanged otherwise.  This folds the case of ASCII letters
+     * through a 256 byte lookup table.
+     *
+     * @param value The byte to fold the case of.
+     * @return The lower case ASCII byte for an upper case ASCII letter, or the byte unchanged.
+     */
+    public static byte foldASCIICase(final byte value) {
+        return ASCII_CASE_FOLD[value & 0xFF];
+    }
+
+
+    /**
+     * Returns a new array containing the bytes in the array passed in with the case
+     * of any ASCII letters folded to lower case.
+     *
+     * @param bytes The bytes to fold the case of.
+     * @return A new array of bytes with ASCII upper case letters folded to lower case.
+     * @throws IllegalArgumentException if the array is null.
+     */
+    public static byte[] foldASCIICase(final byte[] bytes) {
+        ArgUtils.checkNullByteArray(bytes);
+        final byte[] folded = new byte[bytes.length];
+        for (int index = 0; index < bytes.length; index++) {
+            folded[index] = ASCII_CASE_FOLD[bytes[index] & 0xFF];
+        }
+        return folded;
+    }
+
+
+    /**
+     * Returns true if the byte is an upper or lower case ASCII letter.
+     *
+     * @param value The byte to test.
+     * @return true if the byte is an upper or lower case ASCII letter.
+     */
+    public static boolean isASCIILetter(final byte value) {
+        return (value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z');
+    }
+
+
+    private static byte[] buildASCIICaseFoldTable() {
+        final byte[] table = new byte[256];
+        for (int value = 0; value < 256; value++) {
+            table[value] = (byte) (value >= 'A' && value <= 'Z' ? value + ASCII_CASE_DIFFERENCE : value);
+        }
+        return table;
+    }
+
+
     /**
      * Returns an array of bytes from a collection of Bytes.
      * 
@@ -832,6 +887,36 @@ public final class ByteUtils {
     }
 
 
+    /**
+     * Returns an unsigned value assembled from a number of bytes in a byte array,
+     * in the byte order specified.  No bounds checking is performed.
+     * <p>
+     * If eight bytes are requested, the value returned may be negative, as
+     * there is no unsigned long primitive in Java.
+     *
+     * @param array      The array to read the bytes from.
+     * @param offset     The position of the first byte of the value in the array.
+     * @param numBytes   The number of bytes in the value, from one to eight.
+     * @param byteOrder  The order of the bytes in the value.
+     * @return The unsigned value of the bytes in the order specified.
+     */
+    public static long getUnsignedValue(final byte[] array, final int offset,
+                                        final int numBytes, final ByteOrder byteOrder) {
+        long value = 0;
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            final int end = offset + numBytes;
+            for (int position = offset; position < end; position++) {
+                value = (value << 8) | (array[position] & 0xFF);
+            }
+        } else {
+            for (int position = offset + numBytes - 1; position >= offset; position--) {
+                value = (value << 8) | (array[position] & 0xFF);
+            }
+        }
+        return value;
+    }
+
+
     /**
      * Returns the number which is the next highest power of two bigger than another integer.
      * 
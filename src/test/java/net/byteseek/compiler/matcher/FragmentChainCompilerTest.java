@@ -0,0 +1,97 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.compiler.matcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.matcher.fragment.FragmentChainMatcher;
+
+import org.junit.Test;
+
+public class FragmentChainCompilerTest {
+
+    @Test
+    public void testCompileZipSignature() throws CompileException {
+        final FragmentChainMatcher matcher = FragmentChainCompiler.compileFrom("'PK' .{26,30} 'mimetype'");
+        assertEquals(2, matcher.getNumberOfFragments());
+        assertEquals("'PK'", matcher.getFragment(0).toRegularExpression(true));
+        assertEquals("'mimetype'", matcher.getFragment(1).toRegularExpression(true));
+        assertEquals(26, matcher.getMinimumGap(0));
+        assertEquals(30, matcher.getMaximumGap(0));
+    }
+
+    @Test
+    public void testFixedGapsStayInFragments() throws CompileException {
+        final FragmentChainMatcher matcher = FragmentChainCompiler.compileFrom("'a' .{2} 'b' .{0,3} [01 02] .");
+        assertEquals(2, matcher.getNumberOfFragments());
+        assertEquals(4, matcher.getFragment(0).length());
+        assertEquals(2, matcher.getFragment(1).length());
+        assertEquals(0, matcher.getMinimumGap(0));
+        assertEquals(3, matcher.getMaximumGap(0));
+    }
+
+    @Test
+    public void testAdjacentGapsAreMerged() throws CompileException {
+        final FragmentChainMatcher matcher = FragmentChainCompiler.compileFrom("'a' .{1,2} . .{3,4} ('b' .{0,1}) 'c'");
+        assertEquals(3, matcher.getNumberOfFragments());
+        assertEquals(5, matcher.getMinimumGap(0));
+        assertEquals(7, matcher.getMaximumGap(0));
+        assertEquals(0, matcher.getMinimumGap(1));
+        assertEquals(1, matcher.getMaximumGap(1));
+        assertEquals(8, matcher.getMinimumLength());
+        assertEquals(11, matcher.getMaximumLength());
+    }
+
+    @Test
+    public void testRegularExpressionRoundTrip() throws CompileException {
+        for (String expression : new String[] {"'PK' .{26,30} 'mimetype'", "01 .{0,4} 02 .{3} 03", "'abc'"}) {
+            final FragmentChainMatcher matcher = FragmentChainCompiler.compileFrom(expression);
+            final FragmentChainMatcher recompiled = FragmentChainCompiler.compileFrom(matcher.toRegularExpression(false));
+            assertEquals(expression, matcher.toRegularExpression(true), recompiled.toRegularExpression(true));
+        }
+    }
+
+    @Test
+    public void testInvalidChains() {
+        for (String expression : new String[] {".{1,2} 'a'", "'a' .{1,2}", ". .{1,2} .", "'ab' | 'c'",
+                                                "'a' .* 'b'", "'a'{1,2} 'b'"}) {
+            try {
+                FragmentChainCompiler.compileFrom(expression);
+                fail("Expected a CompileException for " + expression);
+            } catch (CompileException expected) {
+                // pass
+            }
+        }
+    }
+
+}
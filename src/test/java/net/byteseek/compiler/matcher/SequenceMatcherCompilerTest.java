@@ -16,6 +16,7 @@ import net.byteseek.compiler.CompileException;
 import net.byteseek.matcher.bytes.*;
 import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
 import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.CaseInsensitiveSequenceMatcher;
 import net.byteseek.matcher.sequence.FixedGapMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceSequenceMatcher;
@@ -107,7 +108,9 @@ public class SequenceMatcherCompilerTest {
 		basicTests(" [0102]", 1, TwoByteMatcher.class);
 
 		basicTests("'a string'", 8, ByteSequenceMatcher.class);
-		basicTests("`a string`", 8, ByteMatcherSequenceMatcher.class);
+		basicTests("`a string`", 8, CaseInsensitiveSequenceMatcher.class);
+		basicTests("01 `a string` 02", 10, CaseInsensitiveSequenceMatcher.class);
+		basicTests("`a string` 'A'", 9, ByteMatcherSequenceMatcher.class);
 		basicTests("01 'a string' 02", 10, ByteSequenceMatcher.class);
 
 		basicTests("0102", 2, ByteSequenceMatcher.class);
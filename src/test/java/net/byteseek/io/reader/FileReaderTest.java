@@ -33,6 +33,7 @@ package net.byteseek.io.reader;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Arrays;
@@ -286,6 +287,71 @@ public class FileReaderTest {
 		}
 	}
 
+	@Test
+	public void testBackwardPrefetch() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		final int[] prefetches = {1, 3, 8};
+		final int[] sizes = {7, 256, 4096};
+		for (int prefetch : prefetches) {
+			for (int size : sizes) {
+				final AllWindowsCache cache = new AllWindowsCache();
+				final FileReader reader = new FileReader(file, size, cache);
+				reader.useBackwardPrefetch(prefetch);
+				assertEquals(prefetch, reader.getBackwardPrefetch());
+				final long lastWindowStart = ((reader.length() - 1) / size) * size;
+				reader.getWindow(lastWindowStart);
+				for (int window = 1; window <= prefetch; window++) {
+					assertNotNull("Window " + window + " before the last is prefetched, size " + size,
+								  cache.getWindow(lastWindowStart - window * size));
+				}
+				assertNull("Only the prefetch number of windows are read", cache.getWindow(lastWindowStart - (prefetch + 1) * size));
+				for (long position = lastWindowStart; position >= 0; position -= size) {
+					final Window window = reader.getWindow(position);
+					final byte[] fileBytes = new byte[window.length()];
+					IOUtils.readBytes(raf, fileBytes, position);
+					assertEquals("Window length at " + position, Math.min(size, reader.length() - position), window.length());
+					assertAllBytesSame(window, fileBytes);
+				}
+				reader.close();
+			}
+		}
+		raf.close();
+	}
+
+	@Test
+	public void testBackwardPrefetchReadsEachBlockOnce() throws IOException {
+		final int windowSize = 64;
+		final File file = File.createTempFile("backwardPrefetch", ".bin");
+		file.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[100 * windowSize]);
+		} finally {
+			out.close();
+		}
+		final int[] reads = new int[1];
+		final FileReader reader = new FileReader(file, windowSize, new AllWindowsCache()) {
+			@Override
+			protected Window createWindow(final long windowStart) throws IOException {
+				reads[0]++;
+				return super.createWindow(windowStart);
+			}
+		};
+		reader.useBackwardPrefetch(4);
+		for (long position = 99 * windowSize; position >= 0; position -= windowSize) {
+			assertNotNull("Window at " + position, reader.getWindow(position));
+		}
+		assertEquals("Reads of 100 windows backwards, prefetching 4", 20, reads[0]);
+		reader.close();
+		file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeBackwardPrefetch() throws IOException {
+		new FileReader(getFile("/TestASCII.txt")).useBackwardPrefetch(-1);
+	}
+
 	@Test
 	public void testGetNegativeWindow() throws Exception {
 		FileReaderIterator it = new FileReaderIterator("/TestASCII.txt");
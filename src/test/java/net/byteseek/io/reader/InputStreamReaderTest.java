@@ -501,6 +501,34 @@ public class InputStreamReaderTest {
         assertTrue(readers[0].toString().contains("cache"));
     }
 
+    @Test
+    public void testTopAndTailReader() throws IOException {
+        final byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final InputStreamReader reader = InputStreamReader.withTopAndTail(new ByteArrayInputStream(data), 100, 200, 300, true);
+        assertEquals(data.length, reader.length());
+        for (int position = data.length - 1; position >= data.length - 300; position--) {
+            testReadByte(reader, position, data[position]);
+        }
+        for (int position = 0; position < 200; position++) {
+            testReadByte(reader, position, data[position]);
+        }
+        try {
+            reader.readByte(5000);
+            fail("Expected a WindowMissingException reading between the top and tail of the stream.");
+        } catch (WindowMissingException expected) {
+            // pass
+        }
+        reader.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopAndTailNegativeTail() {
+        InputStreamReader.withTopAndTail(new ByteArrayInputStream(new byte[10]), 0, -1);
+    }
+
     private void testRandomPositions(String description, RandomAccessFile raf, WindowReader reader,
                                      int fileLength) throws IOException {
         // testReadByte randomly selected positions:
@@ -0,0 +1,242 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.io.reader;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bulk read, transfer and primitive value methods of the readers,
+ * and the ReaderInputStream which uses them.
+ */
+public class ReaderBulkReadTest {
+
+    private static final int[] WINDOW_SIZES = {1, 7, 127, 1024, 4096};
+    private static final int DATA_LENGTH = 10000;
+
+    private static byte[] data;
+    private static File dataFile;
+
+    @BeforeClass
+    public static void createData() throws IOException {
+        data = new byte[DATA_LENGTH];
+        new Random(4).nextBytes(data);
+        dataFile = File.createTempFile("byteseek", ".tmp");
+        final FileOutputStream out = new FileOutputStream(dataFile);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @AfterClass
+    public static void deleteData() {
+        dataFile.delete();
+    }
+
+    @Test
+    public void testReadAcrossWindows() throws IOException {
+        for (WindowReader reader : createReaders()) {
+            try {
+                assertRead(reader, 0, DATA_LENGTH);
+                assertRead(reader, 0, 1);
+                assertRead(reader, 5, 3000);
+                assertRead(reader, 4095, 2);
+                assertRead(reader, DATA_LENGTH - 100, 100);
+                assertRead(reader, DATA_LENGTH - 100, 1000);  // crosses the end
+                assertEquals(reader.toString(), -1, reader.read(DATA_LENGTH, new byte[10], 0, 10));
+                assertEquals(reader.toString(), -1, reader.read(-1, new byte[10], 0, 10));
+                assertEquals(reader.toString(), 0, reader.read(0, new byte[10], 5, 0));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReadBadArguments() throws IOException {
+        for (WindowReader reader : createReaders()) {
+            try {
+                try {
+                    reader.read(0, new byte[10], 5, 6);
+                    fail("Expected IndexOutOfBoundsException for " + reader);
+                } catch (IndexOutOfBoundsException expected) {}
+                try {
+                    reader.read(0, new byte[10], -1, 2);
+                    fail("Expected IndexOutOfBoundsException for " + reader);
+                } catch (IndexOutOfBoundsException expected) {}
+                try {
+                    reader.read(0, null, 0, 2);
+                    fail("Expected NullPointerException for " + reader);
+                } catch (NullPointerException expected) {}
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testTransferTo() throws IOException {
+        for (WindowReader reader : createReaders()) {
+            try {
+                assertTransfer(reader, 0, DATA_LENGTH);
+                assertTransfer(reader, 13, 4000);
+                assertTransfer(reader, DATA_LENGTH - 10, 50); // crosses the end
+                assertTransfer(reader, DATA_LENGTH, 50);
+                assertTransfer(reader, 0, 0);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReadPrimitiveValues() throws IOException {
+        final ByteOrder[] orders = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+        for (WindowReader reader : createReaders()) {
+            try {
+                for (ByteOrder order : orders) {
+                    final ByteBuffer expected = ByteBuffer.wrap(data).order(order);
+                    for (int position = 0; position < 2100; position += 3) {
+                        assertPrimitiveValues(reader, expected, position, order);
+                    }
+                    assertPrimitiveValues(reader, expected, DATA_LENGTH - 8, order);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReadPrimitiveValuesPastEnd() throws IOException {
+        for (WindowReader reader : createReaders()) {
+            try {
+                assertEquals(reader.toString(), data[DATA_LENGTH - 1] & 0xFF,
+                             reader.readUnsignedShort(DATA_LENGTH - 2, ByteOrder.LITTLE_ENDIAN) >>> 8);
+                try {
+                    reader.readShort(DATA_LENGTH - 1, ByteOrder.BIG_ENDIAN);
+                    fail("Expected EOFException for " + reader);
+                } catch (EOFException expected) {}
+                try {
+                    reader.readInt(DATA_LENGTH - 3, ByteOrder.BIG_ENDIAN);
+                    fail("Expected EOFException for " + reader);
+                } catch (EOFException expected) {}
+                try {
+                    reader.readLong(DATA_LENGTH, ByteOrder.LITTLE_ENDIAN);
+                    fail("Expected EOFException for " + reader);
+                } catch (EOFException expected) {}
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReaderInputStreamReadAndSkip() throws IOException {
+        for (WindowReader reader : createReaders()) {
+            final ReaderInputStream in = new ReaderInputStream(reader);
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[1500];
+                int position = 0;
+                int read;
+                while ((read = in.read(buffer, 0, buffer.length)) > 0) {
+                    out.write(buffer, 0, read);
+                    position += read;
+                    final int skip = position % 3 == 0 ? 100 : 1;
+                    final long skipped = in.skip(skip);
+                    if (position + skip <= DATA_LENGTH) {
+                        assertEquals(reader.toString(), skip, skipped);
+                    }
+                    out.write(data, position, (int) skipped);
+                    position += skipped;
+                }
+                assertEquals(reader.toString(), -1, read);
+                assertArrayEquals(reader.toString(), data, out.toByteArray());
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private void assertRead(final WindowReader reader, final int position, final int length) throws IOException {
+        final byte[] buffer = new byte[length + 2];
+        final int read = reader.read(position, buffer, 1, length);
+        final int expectedLength = Math.min(length, DATA_LENGTH - position);
+        assertEquals(reader.toString(), expectedLength, read);
+        assertArrayEquals(reader.toString(), Arrays.copyOfRange(data, position, position + expectedLength),
+                          Arrays.copyOfRange(buffer, 1, 1 + read));
+    }
+
+    private void assertPrimitiveValues(final WindowReader reader, final ByteBuffer expected,
+                                       final int position, final ByteOrder order) throws IOException {
+        final String description = reader + " " + order + " at " + position;
+        assertEquals(description, expected.getShort(position), reader.readShort(position, order));
+        assertEquals(description, expected.getShort(position) & 0xFFFF, reader.readUnsignedShort(position, order));
+        assertEquals(description, expected.getInt(position), reader.readInt(position, order));
+        assertEquals(description, expected.getInt(position) & 0xFFFFFFFFL, reader.readUnsignedInt(position, order));
+        assertEquals(description, expected.getLong(position), reader.readLong(position, order));
+    }
+
+    private void assertTransfer(final WindowReader reader, final int position, final int count) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long transferred = reader.transferTo(position, count, Channels.newChannel(out));
+        final int expectedLength = Math.max(0, Math.min(count, DATA_LENGTH - position));
+        assertEquals(reader.toString(), expectedLength, transferred);
+        assertArrayEquals(reader.toString(), Arrays.copyOfRange(data, position, position + expectedLength),
+                          out.toByteArray());
+    }
+
+    private List<WindowReader> createReaders() throws IOException {
+        final List<WindowReader> readers = new ArrayList<WindowReader>();
+        readers.add(new ByteArrayReader(data));
+        for (int windowSize : WINDOW_SIZES) {
+            readers.add(new InputStreamReader(new ByteArrayInputStream(data), windowSize));
+            readers.add(new FileReader(dataFile, windowSize));
+        }
+        return readers;
+    }
+
+}
@@ -7,6 +7,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.Random;
 
@@ -326,6 +328,41 @@ public class ReaderInputStreamTest {
         public long length() throws IOException {
             return 0;
         }
+
+        @Override
+        public int read(long position, byte[] bytes, int offset, int length) throws IOException {
+            return -1;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return 0;
+        }
+
+        @Override
+        public short readShort(long position, ByteOrder byteOrder) throws IOException {
+            throw new EOFException();
+        }
+
+        @Override
+        public int readUnsignedShort(long position, ByteOrder byteOrder) throws IOException {
+            throw new EOFException();
+        }
+
+        @Override
+        public int readInt(long position, ByteOrder byteOrder) throws IOException {
+            throw new EOFException();
+        }
+
+        @Override
+        public long readUnsignedInt(long position, ByteOrder byteOrder) throws IOException {
+            throw new EOFException();
+        }
+
+        @Override
+        public long readLong(long position, ByteOrder byteOrder) throws IOException {
+            throw new EOFException();
+        }
     };
 
     private FileInputStream getFileInputStream(final String resourceName) throws IOException {
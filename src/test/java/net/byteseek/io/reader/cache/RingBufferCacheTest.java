@@ -0,0 +1,133 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.windows.WindowMissingException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RingBufferCacheTest {
+
+    private static byte[] array = new byte[4096];
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        new RingBufferCache(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLookBehind() {
+        RingBufferCache.withLookBehind(4096, -1);
+    }
+
+    @Test
+    public void testLookBehindCapacity() {
+        assertEquals(1, RingBufferCache.withLookBehind(4096, 0).getCapacity());
+        assertEquals(2, RingBufferCache.withLookBehind(4096, 1).getCapacity());
+        assertEquals(2, RingBufferCache.withLookBehind(4096, 4096).getCapacity());
+        assertEquals(3, RingBufferCache.withLookBehind(4096, 4097).getCapacity());
+    }
+
+    @Test
+    public void testOldestWindowsEvicted() throws Exception {
+        final RingBufferCache cache = new RingBufferCache(3);
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(Window window, WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            addWindow(cache, i * 4096);
+            for (int j = 0; j <= i; j++) {
+                final Window window = cache.getWindow(j * 4096);
+                if (j > i - 3) {
+                    assertNotNull("Window " + j + " after adding " + i, window);
+                    assertEquals(j * 4096, window.getWindowPosition());
+                } else {
+                    assertNull("Window " + j + " after adding " + i, window);
+                }
+            }
+        }
+        assertEquals(7, freed.size());
+        for (int i = 0; i < freed.size(); i++) {
+            assertEquals(i * 4096, freed.get(i).getWindowPosition());
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        final RingBufferCache cache = new RingBufferCache(2);
+        addWindow(cache, 0);
+        addWindow(cache, 4096);
+        cache.clear();
+        assertNull(cache.getWindow(0));
+        assertNull(cache.getWindow(4096));
+    }
+
+    @Test
+    public void testReaderLookBehind() throws Exception {
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final InputStreamReader reader = InputStreamReader.withLookBehind(
+                new ByteArrayInputStream(data), 1024, 2000, true);
+        for (int pos = 0; pos < data.length; pos++) {
+            assertEquals(data[pos] & 0xFF, reader.readByte(pos));
+            final long behind = pos - 2000;
+            if (behind >= 0) {
+                assertEquals(data[(int) behind] & 0xFF, reader.readByte(behind));
+            }
+        }
+        try {
+            reader.readByte(0);
+            fail("Expected a WindowMissingException reading beyond the look behind.");
+        } catch (WindowMissingException expected) {}
+        assertEquals(-1, reader.readByte(data.length));
+        reader.close();
+    }
+
+    private void addWindow(final WindowCache cache, final long position) throws IOException {
+        cache.addWindow(new HardWindow(array, position, array.length));
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.SoftWindow;
+import net.byteseek.io.reader.windows.Window;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class TempFileChannelCacheTest {
+
+    private static final int WINDOW_SIZE = 1000;
+    private static final int NUM_WINDOWS = 50;
+
+    private final int writeBufferSize;
+    private final boolean memoryMapped;
+    private TempFileChannelCache cache;
+    private byte[] data;
+
+    public TempFileChannelCacheTest(Integer writeBufferSize, Boolean memoryMapped) {
+        this.writeBufferSize = writeBufferSize;
+        this.memoryMapped = memoryMapped;
+    }
+
+    @Parameterized.Parameters
+    public static Collection cacheParameters() {
+        return Arrays.asList(new Object[][]{
+                {1, false},
+                {1, true},
+                {4096, false},
+                {4096, true},
+                {1024 * 1024, false},
+                {1024 * 1024, true}
+        });
+    }
+
+    @Before
+    public void setUp() {
+        cache = new TempFileChannelCache(null, writeBufferSize, memoryMapped);
+        data = new byte[WINDOW_SIZE * NUM_WINDOWS];
+        new Random(1).nextBytes(data);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.clear();
+    }
+
+    @Test
+    public void testNoTempFileUntilWindowAdded() throws Exception {
+        assertNull(cache.getTempFile());
+        assertNull(cache.getWindow(0));
+        addWindow(0);
+        assertNotNull(cache.getTempFile());
+    }
+
+    @Test
+    public void testWindowsReadBack() throws Exception {
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            addWindow(i);
+            assertWindowCorrect(i);
+        }
+        for (int i = NUM_WINDOWS - 1; i >= 0; i--) {
+            assertWindowCorrect(i);
+        }
+    }
+
+    @Test
+    public void testReloadWindowBytes() throws Exception {
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            addWindow(i);
+        }
+        final byte[] reloaded = cache.reloadWindowBytes(new SoftWindow(new byte[0], 7 * WINDOW_SIZE, WINDOW_SIZE, cache));
+        assertArrayEquals(Arrays.copyOfRange(data, 7 * WINDOW_SIZE, 8 * WINDOW_SIZE), reloaded);
+    }
+
+    @Test
+    public void testClearDeletesFile() throws Exception {
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            addWindow(i);
+        }
+        final File tempFile = cache.getTempFile();
+        cache.clear();
+        assertNull(cache.getTempFile());
+        assertNull(cache.getWindow(0));
+        if (!memoryMapped) { // mapped files may not be deletable until the mapping is garbage collected.
+            assertFalse(tempFile.exists());
+        }
+        addWindow(3);
+        assertWindowCorrect(3);
+        assertNull(cache.getWindow(0));
+    }
+
+    private void addWindow(final int windowNumber) throws Exception {
+        final byte[] array = Arrays.copyOfRange(data, windowNumber * WINDOW_SIZE, (windowNumber + 1) * WINDOW_SIZE);
+        cache.addWindow(new HardWindow(array, windowNumber * WINDOW_SIZE, WINDOW_SIZE));
+    }
+
+    private void assertWindowCorrect(final int windowNumber) throws Exception {
+        final Window window = cache.getWindow(windowNumber * WINDOW_SIZE);
+        assertNotNull(window);
+        assertEquals(windowNumber * WINDOW_SIZE, window.getWindowPosition());
+        assertEquals(WINDOW_SIZE, window.length());
+        final byte[] expected = Arrays.copyOfRange(data, windowNumber * WINDOW_SIZE, (windowNumber + 1) * WINDOW_SIZE);
+        assertArrayEquals(expected, Arrays.copyOf(window.getArray(), WINDOW_SIZE));
+    }
+
+}
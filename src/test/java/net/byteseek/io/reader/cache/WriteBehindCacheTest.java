@@ -0,0 +1,198 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.io.reader.cache;
+
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.Window;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindCacheTest {
+
+    private static final int WINDOW_SIZE = 1024;
+    private static final int NUM_WINDOWS = 200;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullCache() {
+        WriteBehindCache.create(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroPendingBytes() {
+        WriteBehindCache.create(new TempFileCache(), 0);
+    }
+
+    @Test
+    public void testWindowsAvailableWhileAndAfterWriting() throws Exception {
+        final byte[] data = new byte[WINDOW_SIZE * NUM_WINDOWS];
+        new Random(2).nextBytes(data);
+        final TempFileCache tempFileCache = new TempFileCache();
+        final WriteBehindCache cache = WriteBehindCache.create(tempFileCache, WINDOW_SIZE * 4);
+        try {
+            for (int i = 0; i < NUM_WINDOWS; i++) {
+                cache.addWindow(createWindow(data, i));
+                assertTrue(cache.getPendingBytes() <= WINDOW_SIZE * 4);
+                assertWindowCorrect(cache, data, i);
+                assertWindowCorrect(cache, data, i / 2);
+            }
+            cache.flush();
+            assertEquals(0, cache.getPendingBytes());
+            for (int i = 0; i < NUM_WINDOWS; i++) {
+                assertWindowCorrect(tempFileCache, data, i);
+                assertWindowCorrect(cache, data, i);
+            }
+        } finally {
+            cache.clear();
+        }
+        assertNull(cache.getWindow(0));
+        assertNull(tempFileCache.getTempFile());
+    }
+
+    @Test
+    public void testWriteExceptionReported() throws Exception {
+        final WriteBehindCache cache = WriteBehindCache.create(new FailingCache());
+        cache.addWindow(createWindow(new byte[WINDOW_SIZE], 0));
+        try {
+            cache.flush();
+            fail("Expected an IOException from the failing cache");
+        } catch (IOException expected) {
+            assertEquals("Write failed", expected.getMessage());
+        }
+        cache.clear();
+    }
+
+    @Test(timeout = 10000)
+    public void testInterruptedWriterIsReplaced() throws Exception {
+        final byte[] data = new byte[WINDOW_SIZE * 8];
+        new Random(4).nextBytes(data);
+        final ThreadRecordingCache recordingCache = new ThreadRecordingCache();
+        final WriteBehindCache cache = WriteBehindCache.create(recordingCache, WINDOW_SIZE);
+        cache.addWindow(createWindow(data, 0));
+        cache.flush();
+        final Thread writer = recordingCache.writerThread;
+        writer.interrupt();
+        writer.join();
+        try {
+            cache.addWindow(createWindow(data, 1));
+            fail("Expected an InterruptedIOException after the writer was interrupted");
+        } catch (InterruptedIOException expected) {
+            // the interruption of the writer is reported once.
+        }
+        for (int i = 1; i < 8; i++) {
+            cache.addWindow(createWindow(data, i));
+        }
+        cache.flush();
+        assertNotSame(writer, recordingCache.writerThread);
+        for (int i = 0; i < 8; i++) {
+            assertWindowCorrect(recordingCache, data, i);
+        }
+        cache.clear();
+    }
+
+    @Test
+    public void testTwoLevelCacheWithWriteBehindSecondary() throws Exception {
+        final byte[] data = new byte[WINDOW_SIZE * NUM_WINDOWS];
+        new Random(3).nextBytes(data);
+        final WindowCache cache = TwoLevelCache.create(new LeastRecentlyUsedCache(4),
+                                                       WriteBehindCache.create(new TempFileCache()));
+        try {
+            for (int i = 0; i < NUM_WINDOWS; i++) {
+                cache.addWindow(createWindow(data, i));
+            }
+            for (int i = NUM_WINDOWS - 1; i >= 0; i--) {
+                assertWindowCorrect(cache, data, i);
+            }
+        } finally {
+            cache.clear();
+        }
+    }
+
+    private static Window createWindow(final byte[] data, final int windowNumber) {
+        final byte[] array = Arrays.copyOfRange(data, windowNumber * WINDOW_SIZE, (windowNumber + 1) * WINDOW_SIZE);
+        return new HardWindow(array, windowNumber * WINDOW_SIZE, WINDOW_SIZE);
+    }
+
+    private static void assertWindowCorrect(final WindowCache cache, final byte[] data, final int windowNumber) throws IOException {
+        final Window window = cache.getWindow(windowNumber * WINDOW_SIZE);
+        assertNotNull("Window " + windowNumber, window);
+        assertEquals(windowNumber * WINDOW_SIZE, window.getWindowPosition());
+        final byte[] expected = Arrays.copyOfRange(data, windowNumber * WINDOW_SIZE, (windowNumber + 1) * WINDOW_SIZE);
+        assertArrayEquals(expected, Arrays.copyOf(window.getArray(), WINDOW_SIZE));
+    }
+
+    private static final class ThreadRecordingCache extends AbstractFreeNotificationCache {
+
+        private final Map<Long, Window> windows = new HashMap<Long, Window>();
+        private volatile Thread writerThread;
+
+        @Override
+        public synchronized Window getWindow(long position) {
+            return windows.get(position);
+        }
+
+        @Override
+        public synchronized void addWindow(Window window) {
+            writerThread = Thread.currentThread();
+            windows.put(window.getWindowPosition(), window);
+        }
+
+        @Override
+        public synchronized void clear() {
+            windows.clear();
+        }
+    }
+
+    private static final class FailingCache extends AbstractFreeNotificationCache {
+
+        @Override
+        public Window getWindow(long position) {
+            return null;
+        }
+
+        @Override
+        public void addWindow(Window window) throws IOException {
+            throw new IOException("Write failed");
+        }
+
+        @Override
+        public void clear() {
+        }
+    }
+
+}
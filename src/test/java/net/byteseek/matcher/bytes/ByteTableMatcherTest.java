@@ -0,0 +1,145 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.matcher.bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.ByteArrayReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteTableMatcherTest {
+
+    @Test
+    public void testMatchesRandomSets() throws IOException {
+        final Random random = new Random(37);
+        final byte[] allBytes = new byte[256];
+        for (int value = 0; value < 256; value++) {
+            allBytes[value] = (byte) value;
+        }
+        final ByteArrayReader reader = new ByteArrayReader(allBytes);
+        for (int test = 0; test < 100; test++) {
+            final Set<Byte> values = new HashSet<Byte>();
+            final int numberOfValues = 1 + random.nextInt(256);
+            for (int count = 0; count < numberOfValues; count++) {
+                values.add((byte) random.nextInt(256));
+            }
+            final boolean inverted = random.nextBoolean();
+            final ByteTableMatcher matcher = new ByteTableMatcher(values, inverted);
+            assertEquals(inverted? 256 - values.size() : values.size(), matcher.getNumberOfMatchingBytes());
+            assertEquals(matcher.getNumberOfMatchingBytes(), matcher.getMatchingBytes().length);
+            final boolean[] table = matcher.getBooleanTable();
+            for (int value = 0; value < 256; value++) {
+                final boolean expected = values.contains((byte) value) ^ inverted;
+                assertEquals(expected, matcher.matches((byte) value));
+                assertEquals(expected, matcher.matches(allBytes, value));
+                assertEquals(expected, matcher.matchesNoBoundsCheck(allBytes, value));
+                assertEquals(expected, matcher.matches(reader, value));
+                assertEquals(expected, table[value]);
+            }
+            assertFalse(matcher.matches(allBytes, -1));
+            assertFalse(matcher.matches(allBytes, 256));
+            assertFalse(matcher.matches(reader, 256));
+        }
+    }
+
+    @Test
+    public void testValueOfMatchesSameBytes() {
+        final ByteMatcher range = new ByteRangeMatcher(0x30, 0x39, false);
+        final ByteTableMatcher table = ByteTableMatcher.valueOf(range);
+        assertArrayEquals(range.getMatchingBytes(), table.getMatchingBytes());
+        assertSame(table, ByteTableMatcher.valueOf(table));
+    }
+
+    @Test
+    public void testRegularExpression() {
+        assertEquals("[0102ff]", new ByteTableMatcher((byte) 0xFF, (byte) 2, (byte) 1).toRegularExpression(false));
+        final ByteMatcher notZero = ByteTableMatcher.valueOf(new InvertedByteMatcher((byte) 0));
+        assertEquals("^[00]", notZero.toRegularExpression(false));
+    }
+
+    @Test
+    public void testTabulate() {
+        final ByteMatcher one = OneByteMatcher.valueOf((byte) 1);
+        assertSame(one, ByteTableMatcher.tabulate(one));
+        assertSame(AnyByteMatcher.ANY_BYTE_MATCHER, ByteTableMatcher.tabulate(AnyByteMatcher.ANY_BYTE_MATCHER));
+        assertEquals(ByteTableMatcher.class, ByteTableMatcher.tabulate(new InvertedByteMatcher((byte) 1)).getClass());
+        assertEquals(ByteTableMatcher.class, ByteTableMatcher.tabulate(new TwoByteMatcher((byte) 1, (byte) 2)).getClass());
+    }
+
+    @Test
+    public void testTabulateSequence() throws CompileException {
+        final SequenceMatcher bytes = new ByteSequenceMatcher("abc");
+        assertSame(bytes, ByteTableMatcher.tabulateSequence(bytes));
+
+        final SequenceMatcher classes = SequenceMatcherCompiler.compileFrom("'a' [ 'b' 'x' 'z' ] . 'c'");
+        final SequenceMatcher tabulated = ByteTableMatcher.tabulateSequence(classes);
+        assertEquals(classes.length(), tabulated.length());
+        assertEquals(ByteTableMatcher.class, tabulated.getMatcherForPosition(1).getClass());
+        final byte[] data = "axycabzxc".getBytes();
+        for (int position = 0; position < data.length; position++) {
+            assertEquals(classes.matches(data, position), tabulated.matches(data, position));
+        }
+    }
+
+    @Test
+    public void testOptimalFactoryUsesCostModel() {
+        final List<Byte> seven = new ArrayList<Byte>();
+        final List<Byte> eight = new ArrayList<Byte>();
+        for (int value = 0; value < 8; value++) {
+            final byte spreadOut = (byte) (value * 3 + 1);
+            if (value < 7) {
+                seven.add(spreadOut);
+            }
+            eight.add(spreadOut);
+        }
+        assertEquals(SetBinarySearchMatcher.class, OptimalByteMatcherFactory.FACTORY.create(seven).getClass());
+        assertEquals(ByteTableMatcher.class, OptimalByteMatcherFactory.FACTORY.create(eight).getClass());
+        assertEquals(ByteTableMatcher.class, ByteTableMatcher.FACTORY.create(seven).getClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBytes() {
+        new ByteTableMatcher((byte[]) null);
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.matcher.fragment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearcherTestUtils;
+
+import org.junit.Test;
+
+public class FragmentChainMatcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c'};
+
+    @Test
+    public void testConstructorErrors() {
+        final SequenceMatcher fragment = new ByteSequenceMatcher("PK");
+        assertConstructionFails(null, new int[0], new int[0]);
+        assertConstructionFails(Collections.<SequenceMatcher>emptyList(), new int[0], new int[0]);
+        assertConstructionFails(Arrays.<SequenceMatcher>asList(fragment, null), new int[] {1}, new int[] {1});
+        assertConstructionFails(Arrays.asList(fragment, fragment), null, new int[] {1});
+        assertConstructionFails(Arrays.asList(fragment, fragment), new int[] {1}, null);
+        assertConstructionFails(Arrays.asList(fragment, fragment), new int[0], new int[0]);
+        assertConstructionFails(Arrays.asList(fragment, fragment), new int[] {-1}, new int[] {1});
+        assertConstructionFails(Arrays.asList(fragment, fragment), new int[] {2}, new int[] {1});
+        assertConstructionFails(Arrays.asList(fragment, fragment), new int[] {0}, new int[] {Integer.MAX_VALUE});
+    }
+
+    @Test
+    public void testZipSignature() throws IOException {
+        final FragmentChainMatcher matcher = new FragmentChainMatcher(new ByteSequenceMatcher("PK"), 26, 30,
+                                                                      new ByteSequenceMatcher("mimetype"));
+        assertEquals("minimum length", 36, matcher.getMinimumLength());
+        assertEquals("maximum length", 40, matcher.getMaximumLength());
+        assertEquals("minimum offset", 28, matcher.getMinimumOffset(1));
+        assertEquals("maximum offset", 32, matcher.getMaximumOffset(1));
+        assertEquals("'PK' .{26,30} 'mimetype'", matcher.toRegularExpression(true));
+        for (int gap = 20; gap < 36; gap++) {
+            final byte[] data = zipHeader(gap);
+            final boolean shouldMatch = gap >= 26 && gap <= 30;
+            assertEquals("gap " + gap, shouldMatch, matcher.matches(data, 0));
+            assertEquals("length with gap " + gap, shouldMatch ? gap + 10 : FragmentChainMatcher.NO_MATCH,
+                         matcher.matchLength(data, 0));
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                assertEquals("gap " + gap + " in " + reader, shouldMatch, matcher.matches(reader, 0));
+                assertEquals("length with gap " + gap + " in " + reader,
+                             shouldMatch ? gap + 10 : FragmentChainMatcher.NO_MATCH, matcher.matchLength(reader, 0));
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testShortestMatchLength() {
+        // 'a' .{0,4} 'b' matches "aab..b" - the shortest match ends at the first b.
+        final FragmentChainMatcher matcher = new FragmentChainMatcher(new ByteSequenceMatcher("a"), 0, 4,
+                                                                      new ByteSequenceMatcher("b"));
+        final byte[] data = "aabxb".getBytes();
+        assertEquals(3, matcher.matchLength(data, 0));
+        assertEquals(2, matcher.matchLength(data, 1));
+        assertEquals(FragmentChainMatcher.NO_MATCH, matcher.matchLength(data, 2));
+        assertEquals(FragmentChainMatcher.NO_MATCH, matcher.matchLength(data, -1));
+        assertEquals(FragmentChainMatcher.NO_MATCH, matcher.matchLength(data, 5));
+    }
+
+    @Test
+    public void testRandomChainsAgainstBruteForce() throws IOException {
+        final Random random = new Random(40);
+        for (int test = 0; test < 60; test++) {
+            final FragmentChainMatcher matcher = randomChain(random);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 60);
+            final List<WindowReader> readers = SearcherTestUtils.createReaders(data);
+            for (int position = -1; position <= data.length; position++) {
+                final int expected = bruteForceLength(matcher, data, 0, position);
+                assertEquals(matcher + " at " + position, expected, matcher.matchLength(data, position));
+                for (WindowReader reader : readers) {
+                    assertEquals(matcher + " at " + position + " in " + reader, expected,
+                                 matcher.matchLength(reader, position));
+                }
+            }
+            for (WindowReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testMatchStartsAgainstBruteForce() throws IOException {
+        final Random random = new Random(140);
+        for (int test = 0; test < 60; test++) {
+            final FragmentChainMatcher matcher = randomChain(random);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 60);
+            final WindowReader reader = SearcherTestUtils.createReaders(data).get(1);
+            final int fragmentIndex = random.nextInt(matcher.getNumberOfFragments());
+            for (int position = 0; position < data.length; position++) {
+                final int lowest = position - 12 + random.nextInt(8);
+                final int highest = lowest + random.nextInt(10);
+                final List<Integer> starts = bruteForceStarts(matcher, data, fragmentIndex, position, lowest, highest);
+                final int first = starts.isEmpty() ? FragmentChainMatcher.NO_MATCH : starts.get(0);
+                final int last = starts.isEmpty() ? FragmentChainMatcher.NO_MATCH : starts.get(starts.size() - 1);
+                final String description = matcher + " fragment " + fragmentIndex + " at " + position +
+                                           " between " + lowest + " and " + highest;
+                assertEquals(description, first,
+                             matcher.firstMatchStart(data, fragmentIndex, position, lowest, highest));
+                assertEquals(description, last,
+                             matcher.lastMatchStart(data, fragmentIndex, position, lowest, highest));
+                assertEquals(description, first,
+                             matcher.firstMatchStart(reader, fragmentIndex, position, lowest, highest));
+                assertEquals(description, last,
+                             matcher.lastMatchStart(reader, fragmentIndex, position, lowest, highest));
+            }
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSingleFragment() {
+        final FragmentChainMatcher matcher = new FragmentChainMatcher(
+                Collections.singletonList(new ByteSequenceMatcher("abc")), new int[0], new int[0]);
+        assertTrue(matcher.matches("xabc".getBytes(), 1));
+        assertFalse(matcher.matches("xabc".getBytes(), 0));
+        assertEquals(3, matcher.matchLength("abc".getBytes(), 0));
+        assertEquals("'abc'", matcher.toRegularExpression(true));
+    }
+
+    private static byte[] zipHeader(final int gap) {
+        final byte[] data = new byte[gap + 12];
+        data[0] = 'P';
+        data[1] = 'K';
+        System.arraycopy("mimetype".getBytes(), 0, data, gap + 2, 8);
+        return data;
+    }
+
+    private static FragmentChainMatcher randomChain(final Random random) {
+        final int numberOfFragments = 1 + random.nextInt(4);
+        final List<SequenceMatcher> fragments =
+                SearcherTestUtils.randomSequences(random, ALPHABET, numberOfFragments, 1, 3);
+        final int[] minimumGaps = new int[numberOfFragments - 1];
+        final int[] maximumGaps = new int[numberOfFragments - 1];
+        for (int gap = 0; gap < minimumGaps.length; gap++) {
+            minimumGaps[gap] = random.nextInt(3);
+            maximumGaps[gap] = minimumGaps[gap] + random.nextInt(5);
+        }
+        return new FragmentChainMatcher(fragments, minimumGaps, maximumGaps);
+    }
+
+    /*
+     * Tries every choice of gap recursively, returning the length of the shortest match.
+     */
+    private static int bruteForceLength(final FragmentChainMatcher matcher, final byte[] data,
+                                        final int fragment, final int position) {
+        if (position < 0 || !matcher.getFragment(fragment).matches(data, position)) {
+            return FragmentChainMatcher.NO_MATCH;
+        }
+        final int length = matcher.getFragment(fragment).length();
+        if (fragment == matcher.getNumberOfFragments() - 1) {
+            return length;
+        }
+        int shortest = FragmentChainMatcher.NO_MATCH;
+        for (int gap = matcher.getMinimumGap(fragment); gap <= matcher.getMaximumGap(fragment); gap++) {
+            final int rest = bruteForceLength(matcher, data, fragment + 1, position + length + gap);
+            if (rest != FragmentChainMatcher.NO_MATCH &&
+                (shortest == FragmentChainMatcher.NO_MATCH || length + gap + rest < shortest)) {
+                shortest = length + gap + rest;
+            }
+        }
+        return shortest;
+    }
+
+    /*
+     * Returns all the start positions within the bounds from which the fragments up to and including
+     * the fragment index match, with that fragment at the position given.
+     */
+    private static List<Integer> bruteForceStarts(final FragmentChainMatcher matcher, final byte[] data,
+                                                  final int fragmentIndex, final int position,
+                                                  final int lowest, final int highest) {
+        final List<Integer> starts = new ArrayList<Integer>();
+        for (int start = Math.max(lowest, 0); start <= highest; start++) {
+            if (prefixMatches(matcher, data, 0, start, fragmentIndex, position)) {
+                starts.add(start);
+            }
+        }
+        return starts;
+    }
+
+    private static boolean prefixMatches(final FragmentChainMatcher matcher, final byte[] data, final int fragment,
+                                         final int position, final int fragmentIndex, final int fragmentPosition) {
+        if (!matcher.getFragment(fragment).matches(data, position)) {
+            return false;
+        }
+        if (fragment == fragmentIndex) {
+            return position == fragmentPosition;
+        }
+        final int end = position + matcher.getFragment(fragment).length();
+        for (int gap = matcher.getMinimumGap(fragment); gap <= matcher.getMaximumGap(fragment); gap++) {
+            if (prefixMatches(matcher, data, fragment + 1, end + gap, fragmentIndex, fragmentPosition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertConstructionFails(final List<SequenceMatcher> fragments,
+                                                final int[] minimumGaps, final int[] maximumGaps) {
+        try {
+            new FragmentChainMatcher(fragments, minimumGaps, maximumGaps);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // pass
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.multisequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link FixedOffsetSequenceMatcher} class.
+ *
+ * @author Matt Palmer
+ */
+public class FixedOffsetSequenceMatcherTest {
+
+    private static final byte[] ALPHABET = "ab".getBytes();
+
+    @Test
+    public void testGroupsRulesByOffset() {
+        final SequenceMatcher zip = new ByteSequenceMatcher("PK");
+        final FixedOffsetSequenceMatcher<String> matcher = new FixedOffsetSequenceMatcher<String>(
+                Arrays.asList("zip", "jar", "gif", "tar", "docx"),
+                Arrays.asList(0L, 0L, 0L, 257L, 0L),
+                Arrays.asList(zip, zip, new ByteSequenceMatcher("GIF8"), new ByteSequenceMatcher("ustar"), zip));
+        assertEquals(2, matcher.getNumberOfOffsets());
+        assertEquals(5, matcher.getNumberOfRules());
+        assertArrayEquals(new long[] {0, 257}, matcher.getOffsets());
+
+        final byte[] data = new byte[300];
+        System.arraycopy("PK".getBytes(), 0, data, 0, 2);
+        System.arraycopy("ustar".getBytes(), 0, data, 257, 5);
+        assertEquals("[zip, jar, docx, tar]", matcher.allMatches(data).toString());
+        assertEquals("[]", matcher.allMatches(data, 1).toString());
+        assertTrue(matcher.allMatches(new byte[0]).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeOffset() {
+        new FixedOffsetSequenceMatcher<Integer>(Collections.singletonList(1), Collections.singletonList(-1L),
+                                                Collections.singletonList(new ByteSequenceMatcher("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedLists() {
+        new FixedOffsetSequenceMatcher<Integer>(Arrays.asList(1, 2), Collections.singletonList(0L),
+                                                Collections.singletonList(new ByteSequenceMatcher("a")));
+    }
+
+    @Test
+    public void testRandomRules() throws IOException {
+        final Random random = new Random(43);
+        for (int test = 0; test < 100; test++) {
+            final int numberOfRules = 1 + random.nextInt(20);
+            final List<Integer> ids = new ArrayList<Integer>();
+            final List<Long> offsets = new ArrayList<Long>();
+            final List<SequenceMatcher> sequences = SearcherTestUtils.randomSequences(random, ALPHABET, numberOfRules, 1, 4);
+            for (int rule = 0; rule < numberOfRules; rule++) {
+                ids.add(random.nextInt(numberOfRules));
+                offsets.add((long) random.nextInt(4) * 3);
+            }
+            final FixedOffsetSequenceMatcher<Integer> matcher = new FixedOffsetSequenceMatcher<Integer>(ids, offsets, sequences);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(16));
+            for (int base = -2; base <= data.length; base++) {
+                final Set<Integer> expected = new TreeSet<Integer>();
+                for (int rule = 0; rule < numberOfRules; rule++) {
+                    final long position = base + offsets.get(rule);
+                    if (position >= 0 && position < data.length && sequences.get(rule).matches(data, (int) position)) {
+                        expected.add(ids.get(rule));
+                    }
+                }
+                final String description = matcher + " at " + base + " in " + new String(data);
+                assertEquals(description, expected, new TreeSet<Integer>(matcher.allMatches(data, base)));
+                for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                    assertEquals(description + " in " + reader, expected,
+                                 new TreeSet<Integer>(matcher.allMatches(reader, base)));
+                    reader.close();
+                }
+            }
+        }
+    }
+
+}
@@ -38,6 +38,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -52,6 +53,8 @@ import java.util.Random;
 import net.byteseek.utils.ByteUtils;
 import net.byteseek.io.reader.ByteArrayReader;
 import net.byteseek.io.reader.FileReader;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.ByteMatcher;
 
 import org.junit.After;
@@ -1484,4 +1487,52 @@ public class ByteSequenceMatcherTest {
 		return matchers;
 	}
 
+
+	/**
+	 * Tests sequences of many lengths, with a mismatch placed at every position,
+	 * matching arrays and readers whose windows split the sequence at different points.
+	 */
+	@Test
+	public void testRegionVerification() throws IOException {
+		final Random rand = new Random(38);
+		for (int length = 1; length <= 70; length++) {
+			final byte[] sequence = new byte[length];
+			rand.nextBytes(sequence);
+			final ByteSequenceMatcher forwards = new ByteSequenceMatcher(sequence);
+			final SequenceMatcher backwards = forwards.reverse();
+			final byte[] reversed = new byte[length];
+			for (int i = 0; i < length; i++) {
+				reversed[i] = sequence[length - 1 - i];
+			}
+			for (int offset = 0; offset < 3; offset++) {
+				final byte[] data = new byte[length + offset + 1];
+				System.arraycopy(sequence, 0, data, offset, length);
+				assertRegionMatches(forwards, data, offset, true);
+				System.arraycopy(reversed, 0, data, offset, length);
+				assertRegionMatches(backwards, data, offset, true);
+				for (int mismatch = 0; mismatch < length; mismatch++) {
+					System.arraycopy(sequence, 0, data, offset, length);
+					data[offset + mismatch] ^= 0x01;
+					assertRegionMatches(forwards, data, offset, false);
+					System.arraycopy(reversed, 0, data, offset, length);
+					data[offset + mismatch] ^= 0x80;
+					assertRegionMatches(backwards, data, offset, false);
+				}
+			}
+		}
+	}
+
+	private void assertRegionMatches(final SequenceMatcher matcher, final byte[] data,
+								   final int position, final boolean expected) throws IOException {
+		assertEquals(expected, matcher.matches(data, position));
+		assertEquals(expected, matcher.matchesNoBoundsCheck(data, position));
+		final WindowReader reader = new ByteArrayReader(data);
+		assertEquals(expected, matcher.matches(reader, position));
+		for (int windowSize = 1; windowSize < 12; windowSize += 5) {
+			final WindowReader streamReader = new InputStreamReader(new ByteArrayInputStream(data), windowSize);
+			assertEquals(expected, matcher.matches(streamReader, position));
+			streamReader.close();
+		}
+	}
+
 }
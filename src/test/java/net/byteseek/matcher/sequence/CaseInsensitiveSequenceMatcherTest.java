@@ -0,0 +1,151 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.matcher.sequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.MatcherCompilerUtils;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.ByteArrayReader;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CaseInsensitiveSequenceMatcherTest {
+
+    @Test
+    public void testMatchesBothCases() throws IOException {
+        final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher("Hello, World!");
+        assertMatches(matcher, "xxHELLO, world!xx", 2, true);
+        assertMatches(matcher, "xxhElLo, WoRlD!xx", 2, true);
+        assertMatches(matcher, "xxhello; world!xx", 2, false);
+        assertMatches(matcher, "xxhello, world!xx", 3, false);
+        assertFalse(matcher.matches("hello, world".getBytes(), 0));
+        assertFalse(matcher.matches("hello, world!".getBytes(), -1));
+    }
+
+    @Test
+    public void testOnlyLettersAreFolded() throws IOException {
+        // '@' and '`' are one below 'A' and 'a', '[' and '{' one above 'Z' and 'z'.
+        final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher("@[");
+        assertMatches(matcher, "@[", 0, true);
+        assertMatches(matcher, "`[", 0, false);
+        assertMatches(matcher, "@{", 0, false);
+        final CaseInsensitiveSequenceMatcher high = new CaseInsensitiveSequenceMatcher(new byte[] {(byte) 0xC0, 'z'});
+        assertTrue(high.matches(new byte[] {(byte) 0xC0, 'Z'}, 0));
+        assertFalse(high.matches(new byte[] {(byte) 0xE0, 'Z'}, 0));
+    }
+
+    @Test
+    public void testAgreesWithByteMatcherSequence() {
+        final String string = "Mixed CASE 123 text";
+        final SequenceMatcher expected = MatcherCompilerUtils.createCaseInsensitiveMatcher(string);
+        final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher(string);
+        assertEquals(expected.length(), matcher.length());
+        for (int position = 0; position < string.length(); position++) {
+            final ByteMatcher expectedMatcher = expected.getMatcherForPosition(position);
+            final ByteMatcher actualMatcher = matcher.getMatcherForPosition(position);
+            for (int value = 0; value < 256; value++) {
+                assertEquals("position " + position + " value " + value,
+                             expectedMatcher.matches((byte) value), actualMatcher.matches((byte) value));
+            }
+        }
+        int position = 0;
+        for (ByteMatcher byteMatcher : matcher) {
+            assertEquals(matcher.getMatcherForPosition(position++).toRegularExpression(false),
+                         byteMatcher.toRegularExpression(false));
+        }
+        assertEquals(string.length(), position);
+    }
+
+    @Test
+    public void testReverseSubsequenceAndRepeat() throws IOException {
+        final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher("AbC");
+        assertMatches(matcher.reverse(), "cBa", 0, true);
+        assertMatches(matcher.reverse(), "abc", 0, false);
+        assertMatches(matcher.subsequence(1), "Bc", 0, true);
+        assertSame(matcher, matcher.subsequence(0));
+        assertTrue(matcher.subsequence(2, 3) instanceof TwoByteMatcher);
+        assertTrue(new CaseInsensitiveSequenceMatcher("1a").subsequence(0, 1) instanceof OneByteMatcher);
+        assertMatches(matcher.repeat(3), "abcABCaBc", 0, true);
+        assertSame(matcher, matcher.repeat(1));
+        assertArrayEquals("abc".getBytes(), matcher.getFoldedBytes());
+        assertEquals('c', matcher.getFoldedByte(2));
+    }
+
+    @Test
+    public void testRegularExpressionRoundTrip() throws CompileException {
+        final byte[][] tests = {"a string".getBytes(), {0x01, 'A', 'b', 0x60, 'c', 0x02}, {'\'', 'X'}};
+        for (byte[] test : tests) {
+            final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher(test);
+            for (boolean prettyPrint : new boolean[] {true, false}) {
+                final SequenceMatcher compiled = SequenceMatcherCompiler.compileFrom(matcher.toRegularExpression(prettyPrint));
+                assertEquals(matcher.toRegularExpression(false), compiled.toRegularExpression(false));
+            }
+        }
+    }
+
+    @Test
+    public void testIsCaseInsensitive() {
+        assertTrue(CaseInsensitiveSequenceMatcher.isCaseInsensitive(new TwoByteMatcher((byte) 'q', (byte) 'Q')));
+        assertTrue(CaseInsensitiveSequenceMatcher.isCaseInsensitive(OneByteMatcher.valueOf((byte) '1')));
+        assertFalse(CaseInsensitiveSequenceMatcher.isCaseInsensitive(OneByteMatcher.valueOf((byte) 'q')));
+        assertFalse(CaseInsensitiveSequenceMatcher.isCaseInsensitive(new TwoByteMatcher((byte) 'q', (byte) 'R')));
+        assertFalse(CaseInsensitiveSequenceMatcher.isCaseInsensitive(new TwoByteMatcher((byte) '@', (byte) '`')));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyString() {
+        new CaseInsensitiveSequenceMatcher("");
+    }
+
+    private void assertMatches(final SequenceMatcher matcher, final String text, final int position,
+                               final boolean expected) throws IOException {
+        final byte[] bytes = text.getBytes();
+        assertEquals(expected, matcher.matches(bytes, position));
+        assertEquals(expected, matcher.matchesNoBoundsCheck(bytes, position));
+        assertEquals(expected, matcher.matches(new ByteArrayReader(bytes), position));
+        for (int windowSize = 1; windowSize < 5; windowSize++) {
+            final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+            assertEquals(expected, matcher.matches(reader, position));
+            reader.close();
+        }
+    }
+
+}
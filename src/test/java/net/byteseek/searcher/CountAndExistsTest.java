@@ -0,0 +1,226 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.bom.BackwardOracleSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.QGramHorspoolSearcher;
+import net.byteseek.searcher.sequence.rarebyte.RareByteSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+import net.byteseek.searcher.sequence.twoway.HorspoolTwoWaySearcher;
+import net.byteseek.searcher.sequence.twoway.TwoWaySearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the count and exists methods of {@link Searcher}s, and the
+ * exists methods of {@link SearchUtils} for groups of searchers.
+ *
+ * @author Matt Palmer
+ */
+public class CountAndExistsTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testCountAndExistsMatchSearchAll() throws IOException {
+        final Random random = new Random(48);
+        for (int test = 0; test < 100; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(3), 1, 4);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(100));
+            final int from = random.nextInt(data.length);
+            final int to = from + random.nextInt(data.length - from);
+
+            final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+            searchers.add(new BoyerMooreHorspoolSearcher(patterns.get(0)));
+            searchers.add(new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+            searchers.addAll(sequenceSearchers((ByteSequenceMatcher) patterns.get(0)));
+            for (Searcher<SequenceMatcher> searcher : searchers) {
+                final List<SearchResult<SequenceMatcher>> all = SearchUtils.searchAllForwards(searcher, data);
+                final int inRange = countWithin(all, from, to);
+                assertEquals(searcher.toString(), all.size(), searcher.count(data, 0, data.length - 1));
+                assertEquals(searcher.toString(), all.size(), searcher.count(data, 0, Integer.MAX_VALUE));
+                assertEquals(searcher.toString(), !all.isEmpty(), searcher.exists(data, 0, Integer.MAX_VALUE));
+                assertEquals(searcher.toString(), inRange, searcher.count(data, from, to));
+                assertEquals(searcher.toString(), inRange > 0, searcher.exists(data, from, to));
+                for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                    assertEquals(reader.toString(), all.size(), searcher.count(reader, 0, Long.MAX_VALUE));
+                    assertEquals(reader.toString(), inRange, searcher.count(reader, from, to));
+                    assertEquals(reader.toString(), inRange > 0, searcher.exists(reader, from, to));
+                    reader.close();
+                }
+            }
+            final boolean anyInRange = countWithin(SearchUtils.searchAllForwards(searchers.get(1), data), from, to) > 0;
+            assertEquals(anyInRange, SearchUtils.exists(searchers, data, from, to));
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                assertEquals(reader.toString(), anyInRange, SearchUtils.exists(searchers, reader, from, to));
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCountWithMaximumBounds() throws IOException {
+        final byte[] data = "xxabcxxabcx".getBytes();
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("abc"));
+        assertEquals(2, searcher.count(data, 0, Integer.MAX_VALUE));
+        assertEquals(2, searcher.count(data, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, searcher.count(data, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+            assertEquals(reader.toString(), 2, searcher.count(reader, 0, Long.MAX_VALUE));
+            assertEquals(reader.toString(), 2, searcher.count(reader, Long.MIN_VALUE, Long.MAX_VALUE));
+            assertEquals(reader.toString(), 1, searcher.count(reader, 3, Long.MAX_VALUE));
+            assertTrue(reader.toString(), searcher.exists(reader, 0, Long.MAX_VALUE));
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSequenceSearchersCountWithoutResults() throws IOException {
+        final byte[] data = "xxabcxxabcx".getBytes();
+        for (Searcher<SequenceMatcher> searcher : sequenceSearchers(new ByteSequenceMatcher("abc"))) {
+            final String name = searcher.toString();
+            assertFalse(name, searcher.searchCursor(data, 0, Integer.MAX_VALUE) instanceof ForwardSearchCursor);
+            assertEquals(name, 2, searcher.count(data, 0, Integer.MAX_VALUE));
+            assertEquals(name, 2, searcher.count(data, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            assertEquals(name, 1, searcher.count(data, 3, Integer.MAX_VALUE));
+            assertEquals(name, 0, searcher.count(data, Integer.MAX_VALUE, Integer.MAX_VALUE));
+            assertTrue(name, searcher.exists(data, 7, 7));
+            assertFalse(name, searcher.exists(data, 8, Integer.MAX_VALUE));
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                assertFalse(name, searcher.searchCursor(reader, 0, Long.MAX_VALUE) instanceof ForwardSearchCursor);
+                assertEquals(name + reader, 2, searcher.count(reader, 0, Long.MAX_VALUE));
+                assertEquals(name + reader, 2, searcher.count(reader, Long.MIN_VALUE, Long.MAX_VALUE));
+                assertEquals(name + reader, 1, searcher.count(reader, 3, Long.MAX_VALUE));
+                assertTrue(name + reader, searcher.exists(reader, 7, 7));
+                assertFalse(name + reader, searcher.exists(reader, 8, Long.MAX_VALUE));
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testGroupExistsStopsAtFirstMatch() throws IOException {
+        final byte[] data = new byte[1024 * 1024];
+        data[100] = 'x';
+        data[data.length - 1] = 'y';
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("y")));
+        searchers.add(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("x")));
+
+        final CountingInputStream stream = new CountingInputStream(data);
+        final WindowReader reader = new InputStreamReader(stream, 4096);
+        assertTrue(SearchUtils.exists(searchers, reader, 0, Long.MAX_VALUE));
+        assertTrue("Read " + stream.bytesRead, stream.bytesRead < data.length / 2);
+        reader.close();
+
+        assertTrue(SearchUtils.exists(searchers, data, 0, data.length - 1));
+        assertFalse(SearchUtils.exists(searchers, data, 101, data.length - 2));
+        assertFalse(SearchUtils.exists(searchers, data, 10, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupExistsNullSearchers() {
+        SearchUtils.exists(null, new byte[1], 0, 0);
+    }
+
+    private static List<Searcher<SequenceMatcher>> sequenceSearchers(final ByteSequenceMatcher sequence) {
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new SundayQuickSearcher(sequence));
+        searchers.add(new BndmSearcher(sequence));
+        searchers.add(new BackwardOracleSearcher(sequence));
+        searchers.add(new QGramHorspoolSearcher(sequence));
+        searchers.add(new RareByteSearcher(sequence));
+        searchers.add(new TwoWaySearcher(sequence));
+        searchers.add(new HorspoolTwoWaySearcher(sequence));
+        return searchers;
+    }
+
+    private static int countWithin(final List<SearchResult<SequenceMatcher>> results, final long from, final long to) {
+        int count = 0;
+        for (SearchResult<SequenceMatcher> result : results) {
+            if (result.getMatchPosition() >= from && result.getMatchPosition() <= to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * An input stream which counts how many bytes have been read from it.
+     */
+    private static final class CountingInputStream extends InputStream {
+
+        private final InputStream data;
+        private long bytesRead;
+
+        private CountingInputStream(final byte[] data) {
+            this.data = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = data.read();
+            if (value >= 0) {
+                bytesRead++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int read = data.read(bytes, offset, length);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+
+}
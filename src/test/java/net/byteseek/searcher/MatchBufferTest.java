@@ -0,0 +1,180 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link MatchBuffer} class, and the searchAll methods of {@link SearchUtils}
+ * which write into a {@link MatchSink}.
+ *
+ * @author Matt Palmer
+ */
+public class MatchBufferTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testGrowsAndClears() {
+        final MatchBuffer buffer = new MatchBuffer(1);
+        assertTrue(buffer.isEmpty());
+        for (int match = 0; match < 1000; match++) {
+            buffer.addMatch(match * 3L, match % 7);
+        }
+        assertEquals(1000, buffer.size());
+        assertEquals(0, buffer.getSpilledSize());
+        for (int match = 0; match < 1000; match++) {
+            assertEquals(match * 3L, buffer.getPosition(match));
+            assertEquals(match % 7, buffer.getPatternIndex(match));
+        }
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        buffer.addMatch(Long.MAX_VALUE, -1);
+        assertEquals(1, buffer.size());
+        assertEquals(Long.MAX_VALUE, buffer.getPosition(0));
+        assertEquals(-1, buffer.getPatternIndex(0));
+    }
+
+    @Test
+    public void testOffHeapSpill() {
+        final MatchBuffer buffer = MatchBuffer.withOffHeapSpill(5);
+        for (int reuse = 0; reuse < 3; reuse++) {
+            final int numberOfMatches = 23 + reuse * 4;
+            for (int match = 0; match < numberOfMatches; match++) {
+                buffer.addMatch(match + 1000000000000L * reuse, match);
+            }
+            assertEquals(numberOfMatches, buffer.size());
+            assertEquals(numberOfMatches - numberOfMatches % 5 - (numberOfMatches % 5 == 0 ? 5 : 0), buffer.getSpilledSize());
+            for (int match = 0; match < numberOfMatches; match++) {
+                assertEquals(match + 1000000000000L * reuse, buffer.getPosition(match));
+                assertEquals(match, buffer.getPatternIndex(match));
+            }
+            buffer.clear();
+        }
+    }
+
+    @Test
+    public void testInvalidIndex() {
+        final MatchBuffer buffer = new MatchBuffer();
+        buffer.addMatch(1, 1);
+        final long[] invalid = {-1, 1, Long.MAX_VALUE};
+        for (long index : invalid) {
+            try {
+                buffer.getPosition(index);
+                fail("Expected an IndexOutOfBoundsException for index " + index);
+            } catch (IndexOutOfBoundsException expected) {
+                // pass
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpillCapacity() {
+        MatchBuffer.withOffHeapSpill(0);
+    }
+
+    @Test
+    public void testSearchAllIntoSink() throws IOException {
+        final Random random = new Random(46);
+        final MatchBuffer buffer = MatchBuffer.withOffHeapSpill(8);
+        for (int test = 0; test < 30; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(4), 1, 3);
+            final Searcher<SequenceMatcher> searcher = new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns));
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(100));
+
+            buffer.clear();
+            assertEquals(SearchUtils.searchAllForwards(searcher, data).size(),
+                         SearchUtils.searchAllForwards(searcher, patterns, data, buffer));
+            assertSameResults(SearchUtils.searchAllForwards(searcher, data), patterns, buffer);
+
+            buffer.clear();
+            SearchUtils.searchAllBackwards(searcher, patterns, data, buffer);
+            assertSameResults(SearchUtils.searchAllBackwards(searcher, data), patterns, buffer);
+
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                buffer.clear();
+                SearchUtils.searchAllForwards(searcher, patterns, reader, buffer);
+                assertSameResults(SearchUtils.searchAllForwards(searcher, data), patterns, buffer);
+                buffer.clear();
+                SearchUtils.searchAllBackwards(searcher, patterns, reader, buffer);
+                assertSameResults(SearchUtils.searchAllBackwards(searcher, data), patterns, buffer);
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSearchAllIntoSinkWithCursor() throws IOException {
+        final Random random = new Random(146);
+        final MatchBuffer buffer = new MatchBuffer(1);
+        for (int test = 0; test < 30; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 1, 1, 3);
+            final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(patterns.get(0));
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, random.nextInt(100));
+
+            buffer.clear();
+            assertEquals(SearchUtils.searchAllForwards(searcher, data).size(),
+                         SearchUtils.searchAllForwards(searcher, patterns, data, buffer));
+            assertSameResults(SearchUtils.searchAllForwards(searcher, data), patterns, buffer);
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                buffer.clear();
+                SearchUtils.searchAllForwards(searcher, patterns, reader, buffer);
+                assertSameResults(SearchUtils.searchAllForwards(searcher, data), patterns, buffer);
+                reader.close();
+            }
+        }
+    }
+
+    private static void assertSameResults(final List<SearchResult<SequenceMatcher>> expected,
+                                          final List<SequenceMatcher> patterns, final MatchBuffer buffer) {
+        assertEquals("number of matches", expected.size(), buffer.size());
+        for (int match = 0; match < expected.size(); match++) {
+            final SearchResult<SequenceMatcher> result = expected.get(match);
+            assertEquals("position " + match, result.getMatchPosition(), buffer.getPosition(match));
+            assertEquals("pattern " + match, patterns.indexOf(result.getMatchingObject()), buffer.getPatternIndex(match));
+        }
+    }
+
+}
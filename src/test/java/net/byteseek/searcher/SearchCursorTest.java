@@ -0,0 +1,193 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link SearchCursor}s returned by searchers, including the
+ * generic {@link ForwardSearchCursor}.
+ *
+ * @author Matt Palmer
+ */
+public class SearchCursorTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testCursorsFindSameMatchesAsSearchAll() throws IOException {
+        final Random random = new Random(47);
+        for (int test = 0; test < 100; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(3), 1, 4);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(100));
+            final int from = random.nextInt(data.length);
+            final int to = from + random.nextInt(data.length - from);
+
+            final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+            searchers.add(new BoyerMooreHorspoolSearcher(patterns.get(0)));
+            searchers.add(new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+            for (Searcher<SequenceMatcher> searcher : searchers) {
+                final List<SearchResult<SequenceMatcher>> expected = SearchUtils.searchAllForwards(searcher, data);
+                assertSameMatches(searcher.toString(), expected, searcher.searchCursor(data, 0, data.length - 1));
+                assertSameMatches(searcher.toString(), within(expected, from, to), searcher.searchCursor(data, from, to));
+                for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                    assertSameMatches(reader.toString(), expected, searcher.searchCursor(reader, 0, Long.MAX_VALUE));
+                    assertSameMatches(reader.toString(), within(expected, from, to), searcher.searchCursor(reader, from, to));
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMaximumBounds() throws IOException {
+        final byte[] data = "xxabcxxabcx".getBytes();
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("abc"));
+        final SearchCursor<SequenceMatcher> arrayCursor = searcher.searchCursor(data, 0, Integer.MAX_VALUE);
+        assertEquals(2, arrayCursor.nextMatch());
+        assertEquals(7, arrayCursor.nextMatch());
+        assertEquals(SearchCursor.NO_MATCH, arrayCursor.nextMatch());
+        assertEquals(SearchCursor.NO_MATCH, searcher.searchCursor(data, Integer.MAX_VALUE, Integer.MAX_VALUE).nextMatch());
+        for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+            final SearchCursor<SequenceMatcher> readerCursor = searcher.searchCursor(reader, 0, Long.MAX_VALUE);
+            assertEquals(reader.toString(), 2, readerCursor.nextMatch());
+            assertEquals(reader.toString(), 7, readerCursor.nextMatch());
+            assertEquals(reader.toString(), SearchCursor.NO_MATCH, readerCursor.nextMatch());
+            assertEquals(SearchCursor.NO_MATCH, searcher.searchCursor(reader, Long.MAX_VALUE, Long.MAX_VALUE).nextMatch());
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testEmptyRange() throws IOException {
+        final byte[] data = "abcabc".getBytes();
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(SearcherTestUtils.randomSequences(new Random(1), ALPHABET, 1, 1, 1).get(0));
+        assertEquals(SearchCursor.NO_MATCH, searcher.searchCursor(data, 4, 3).nextMatch());
+        assertEquals(SearchCursor.NO_MATCH, new ForwardSearchCursor<SequenceMatcher>(searcher, data, 4, 3).nextMatch());
+    }
+
+    @Test
+    public void testIOExceptionIsPropagated() {
+        final byte[] data = SearcherTestUtils.randomData(new Random(2), ALPHABET, 64);
+        final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(new Random(3), "xyz".getBytes(), 1, 2, 2);
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new BoyerMooreHorspoolSearcher(patterns.get(0)));
+        searchers.add(new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+        for (Searcher<SequenceMatcher> searcher : searchers) {
+            final WindowReader reader = new InputStreamReader(new FailingInputStream(data), 8);
+            final SearchCursor<SequenceMatcher> cursor = searcher.searchCursor(reader, 0, 1000);
+            try {
+                cursor.nextMatch();
+                fail("Expected an IOException from " + searcher);
+            } catch (IOException expected) {
+                assertNull(cursor.getMatchingObject());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSearcher() {
+        new ForwardSearchCursor<SequenceMatcher>(null, new byte[1], 0, 0);
+    }
+
+    private static List<SearchResult<SequenceMatcher>> within(final List<SearchResult<SequenceMatcher>> results,
+                                                              final long from, final long to) {
+        final List<SearchResult<SequenceMatcher>> inRange = new ArrayList<SearchResult<SequenceMatcher>>();
+        for (SearchResult<SequenceMatcher> result : results) {
+            if (result.getMatchPosition() >= from && result.getMatchPosition() <= to) {
+                inRange.add(result);
+            }
+        }
+        return inRange;
+    }
+
+    private static void assertSameMatches(final String description, final List<SearchResult<SequenceMatcher>> expected,
+                                          final SearchCursor<SequenceMatcher> cursor) throws IOException {
+        for (int match = 0; match < expected.size(); match++) {
+            final SearchResult<SequenceMatcher> result = expected.get(match);
+            assertEquals(description + " position " + match, result.getMatchPosition(), cursor.nextMatch());
+            assertEquals(description + " object " + match, result.getMatchingObject(), cursor.getMatchingObject());
+        }
+        assertEquals(description + " no more matches", SearchCursor.NO_MATCH, cursor.nextMatch());
+        assertEquals(description + " stays finished", SearchCursor.NO_MATCH, cursor.nextMatch());
+        assertNull(cursor.getMatchingObject());
+    }
+
+    /**
+     * An input stream which throws an IOException once the data it wraps has been read.
+     */
+    private static final class FailingInputStream extends InputStream {
+
+        private final InputStream data;
+
+        private FailingInputStream(final byte[] data) {
+            this.data = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = data.read();
+            if (value < 0) {
+                throw new IOException("Simulated read failure");
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int read = data.read(bytes, offset, length);
+            if (read < 0) {
+                throw new IOException("Simulated read failure");
+            }
+            return read;
+        }
+    }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.ByteArrayReader;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Utilities for testing searchers against a naive search, over byte arrays
+ * and readers with different window sizes.
+ *
+ * @author Matt Palmer
+ */
+public final class SearcherTestUtils {
+
+    private static final int[] WINDOW_SIZES = {3, 7, 127};
+    private static final int RANDOM_DATA_LENGTH = 150;
+    private static final int[] LONG_SEQUENCE_LENGTHS = {63, 64, 65, 100, 128, 129, 200};
+    private static final String[] BYTE_CLASS_EXPRESSIONS =
+            {"'x' [ 'a' 'b' ] 'c'", "[ 'a' 'x' ] 'b' . 'd'", "'d' [ 'c' 'e' ] 'a' ^[ 'b' 'c' ]"};
+    private static final byte[] BYTE_CLASS_ALPHABET = {'a', 'b', 'c', 'd', 'e', 'x'};
+
+    /**
+     * Creates a searcher for a list of sequences, so the same tests can be run against different searchers.
+     * Searchers for a single sequence search for the first sequence in the list.
+     */
+    public interface SearcherFactory {
+        Searcher<SequenceMatcher> create(List<SequenceMatcher> sequences);
+    }
+
+    private SearcherTestUtils() {
+    }
+
+    /**
+     * Returns random data made of bytes drawn from a small alphabet, so short sequences
+     * drawn from the same alphabet match frequently.
+     */
+    public static byte[] randomData(final Random random, final byte[] alphabet, final int length) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return data;
+    }
+
+    /**
+     * Returns random byte sequences drawn from a small alphabet, with lengths in the range given.
+     */
+    public static List<SequenceMatcher> randomSequences(final Random random, final byte[] alphabet,
+                                                        final int number, final int minLength, final int maxLength) {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        for (int i = 0; i < number; i++) {
+            final int length = minLength + random.nextInt(maxLength - minLength + 1);
+            sequences.add(new ByteSequenceMatcher(randomData(random, alphabet, length)));
+        }
+        return sequences;
+    }
+
+    /**
+     * Asserts that searchers made by each factory search correctly for random sequences in random data.
+     * If maxSequences is one, each test searches for a single sequence, otherwise for between
+     * one and maxSequences sequences.
+     */
+    public static void assertSearchesRandomSequences(final Random random, final byte[] alphabet, final int tests,
+                                                     final int maxSequences, final int minLength, final int maxLength,
+                                                     final boolean firstEnding, final SearcherFactory... factories) throws IOException {
+        for (int test = 0; test < tests; test++) {
+            final int number = maxSequences == 1 ? 1 : 1 + random.nextInt(maxSequences);
+            final List<SequenceMatcher> sequences = randomSequences(random, alphabet, number, minLength, maxLength);
+            final byte[] data = randomData(random, alphabet, RANDOM_DATA_LENGTH);
+            for (SearcherFactory factory : factories) {
+                assertSearches(factory.create(sequences), sequences, data, firstEnding);
+            }
+        }
+    }
+
+    /**
+     * Asserts that searchers made by each factory search correctly for the sequences in random data.
+     */
+    public static void assertSearchesRandomData(final Random random, final byte[] alphabet, final int tests, final int length,
+                                                final List<SequenceMatcher> sequences, final boolean firstEnding,
+                                                final SearcherFactory... factories) throws IOException {
+        for (int test = 0; test < tests; test++) {
+            final byte[] data = randomData(random, alphabet, length);
+            for (SearcherFactory factory : factories) {
+                assertSearches(factory.create(sequences), sequences, data, firstEnding);
+            }
+        }
+    }
+
+    /**
+     * Asserts that a searcher for a single sequence searches correctly for sequences containing
+     * byte classes and wildcards in random data.
+     */
+    public static void assertSearchesByteClassSequences(final Random random, final int tests,
+                                                        final SearcherFactory factory) throws IOException {
+        for (String expression : BYTE_CLASS_EXPRESSIONS) {
+            final List<SequenceMatcher> sequence = Collections.singletonList(compile(expression));
+            assertSearchesRandomData(random, BYTE_CLASS_ALPHABET, tests, 200, sequence, false, factory);
+        }
+    }
+
+    /**
+     * Asserts that a searcher for a single sequence searches correctly for sequences longer than a machine word,
+     * copied from one random place in binary data to another.
+     */
+    public static void assertSearchesLongSequences(final Random random, final SearcherFactory factory) throws IOException {
+        final byte[] alphabet = {'a', 'b'};
+        for (int length : LONG_SEQUENCE_LENGTHS) {
+            final byte[] data = randomData(random, alphabet, 500);
+            final byte[] pattern = new byte[length];
+            System.arraycopy(data, random.nextInt(data.length - length), pattern, 0, length);
+            System.arraycopy(pattern, 0, data, random.nextInt(data.length - length), length);
+            final List<SequenceMatcher> sequence = Collections.<SequenceMatcher>singletonList(new ByteSequenceMatcher(pattern));
+            assertSearches(factory.create(sequence), sequence, data, false);
+        }
+    }
+
+    /**
+     * Asserts that a searcher for a single sequence finds sequences which differ in only one byte
+     * at either end of long runs of zeros, which forces critical factorisations to one end.
+     */
+    public static void assertSearchesDegenerateData(final SearcherFactory factory) throws IOException {
+        final List<SequenceMatcher> oneThenZeros = Collections.<SequenceMatcher>singletonList(
+                new ByteSequenceMatcher(new byte[] {1, 0, 0, 0, 0, 0, 0, 0, 0, 0}));
+        final List<SequenceMatcher> zerosThenOne = Collections.<SequenceMatcher>singletonList(
+                new ByteSequenceMatcher(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 1}));
+
+        final byte[] data = new byte[100000];
+        data[data.length - 10] = 1;
+        final Searcher<SequenceMatcher> forwards = factory.create(oneThenZeros);
+        assertEquals(data.length - 10, forwards.searchForwards(data).get(0).getMatchPosition());
+        assertTrue(forwards.searchBackwards(data, data.length - 11, 0).isEmpty());
+
+        data[data.length - 10] = 0;
+        data[9] = 1;
+        final Searcher<SequenceMatcher> backwards = factory.create(zerosThenOne);
+        assertEquals(0, backwards.searchBackwards(data).get(0).getMatchPosition());
+        assertTrue(backwards.searchForwards(data, 1, data.length).isEmpty());
+    }
+
+    /**
+     * Asserts that a searcher for a single sequence finds the first match forwards and backwards
+     * from random positions, for many short patterns over a binary alphabet.
+     */
+    public static void assertSearchesAllFactorisations(final Random random, final SearcherFactory factory) {
+        final byte[] alphabet = {'a', 'b'};
+        for (int test = 0; test < 2000; test++) {
+            final byte[] pattern = randomData(random, alphabet, 1 + random.nextInt(12));
+            final byte[] data = randomData(random, alphabet, 60);
+            final SequenceMatcher sequence = new ByteSequenceMatcher(pattern);
+            final Searcher<SequenceMatcher> searcher = factory.create(Collections.singletonList(sequence));
+            final int from = random.nextInt(data.length);
+            int expectedForwards = -1;
+            for (int position = from; position <= data.length - pattern.length; position++) {
+                if (sequence.matches(data, position)) {
+                    expectedForwards = position;
+                    break;
+                }
+            }
+            int expectedBackwards = -1;
+            for (int position = from; position >= 0; position--) {
+                if (sequence.matches(data, position)) {
+                    expectedBackwards = position;
+                    break;
+                }
+            }
+            assertEquals(sequence + " forwards from " + from, expectedForwards,
+                         firstPosition(searcher.searchForwards(data, from, data.length)));
+            assertEquals(sequence + " backwards from " + from, expectedBackwards,
+                         firstPosition(searcher.searchBackwards(data, from, 0)));
+        }
+    }
+
+    /**
+     * Asserts that searching forwards and backwards with the searcher finds the same results
+     * as a naive search, at every position in the data, in the byte array and in readers.
+     * <p>
+     * Searching forwards must find all sequences which start at the first position any sequence
+     * starts, or if firstEnding is true, all sequences which end at the first position any sequence
+     * ends with a start inside the search bounds.  Searching backwards must find all sequences
+     * starting at the last position any sequence starts.
+     */
+    public static void assertSearches(final Searcher<SequenceMatcher> searcher,
+                                      final List<? extends SequenceMatcher> sequences,
+                                      final byte[] data, final boolean firstEnding) throws IOException {
+        final List<WindowReader> readers = createReaders(data);
+        for (int from = -1; from <= data.length; from++) {
+            final int to = from + 5;
+            final String forwardExpected = describe(expectedForwards(sequences, data, from, to, firstEnding));
+            assertEquals(searcher + " forwards from " + from, forwardExpected,
+                         describe(searcher.searchForwards(data, from, to)));
+            for (WindowReader reader : readers) {
+                assertEquals(searcher + " forwards from " + from + " in " + reader, forwardExpected,
+                             describe(searcher.searchForwards(reader, from, to)));
+            }
+            final String backwardExpected = describe(expectedBackwards(sequences, data, from, from - 5));
+            assertEquals(searcher + " backwards from " + from, backwardExpected,
+                         describe(searcher.searchBackwards(data, from, from - 5)));
+            for (WindowReader reader : readers) {
+                assertEquals(searcher + " backwards from " + from + " in " + reader, backwardExpected,
+                             describe(searcher.searchBackwards(reader, from, from - 5)));
+            }
+            final String unboundedExpected = describe(expectedForwards(sequences, data, from, Integer.MAX_VALUE, firstEnding));
+            assertEquals(searcher + " forwards from " + from + " to the maximum", unboundedExpected,
+                         describe(searcher.searchForwards(data, from, Integer.MAX_VALUE)));
+            for (WindowReader reader : readers) {
+                assertEquals(searcher + " forwards from " + from + " to the maximum in " + reader, unboundedExpected,
+                             describe(searcher.searchForwards(reader, from, Long.MAX_VALUE)));
+            }
+        }
+        final String unboundedBackwards = describe(expectedBackwards(sequences, data, Integer.MAX_VALUE, Integer.MIN_VALUE));
+        assertEquals(searcher + " backwards from the maximum", unboundedBackwards,
+                     describe(searcher.searchBackwards(data, Integer.MAX_VALUE, Integer.MIN_VALUE)));
+        for (WindowReader reader : readers) {
+            assertEquals(searcher + " backwards from the maximum in " + reader, unboundedBackwards,
+                         describe(searcher.searchBackwards(reader, Long.MAX_VALUE, Long.MIN_VALUE)));
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns the results a forward search should find.
+     */
+    public static List<SearchResult<SequenceMatcher>> expectedForwards(final List<? extends SequenceMatcher> sequences,
+                                                                       final byte[] data, final int from, final int to,
+                                                                       final boolean firstEnding) {
+        final int start = from > 0 ? from : 0;
+        List<SearchResult<SequenceMatcher>> results = new ArrayList<SearchResult<SequenceMatcher>>();
+        int firstEnd = Integer.MAX_VALUE;
+        for (int position = start; position <= to && position < data.length; position++) {
+            if (!firstEnding && !results.isEmpty()) {
+                break;
+            }
+            for (SequenceMatcher sequence : sequences) {
+                final int end = firstEnding ? position + sequence.length() - 1 : position;
+                if (end <= firstEnd && sequence.matches(data, position)) {
+                    if (end < firstEnd) {
+                        results = new ArrayList<SearchResult<SequenceMatcher>>();
+                        firstEnd = end;
+                    }
+                    results.add(new SearchResult<SequenceMatcher>(position, sequence));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the results a backward search should find.
+     */
+    public static List<SearchResult<SequenceMatcher>> expectedBackwards(final List<? extends SequenceMatcher> sequences,
+                                                                        final byte[] data, final int from, final int to) {
+        final int end = to > 0 ? to : 0;
+        final List<SearchResult<SequenceMatcher>> results = new ArrayList<SearchResult<SequenceMatcher>>();
+        for (int position = from < data.length ? from : data.length - 1; position >= end; position--) {
+            for (SequenceMatcher sequence : sequences) {
+                if (sequence.matches(data, position)) {
+                    results.add(new SearchResult<SequenceMatcher>(position, sequence));
+                }
+            }
+            if (!results.isEmpty()) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static SequenceMatcher compile(final String expression) {
+        try {
+            return SequenceMatcherCompiler.compileFrom(expression);
+        } catch (CompileException e) {
+            throw new IllegalArgumentException(expression, e);
+        }
+    }
+
+    private static long firstPosition(final List<SearchResult<SequenceMatcher>> results) {
+        return results.isEmpty() ? -1 : results.get(0).getMatchPosition();
+    }
+
+    /**
+     * Returns a sorted description of search results, which identifies each sequence
+     * and the position it was found at.  Duplicate sequences are only described once.
+     */
+    public static String describe(final List<SearchResult<SequenceMatcher>> results) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (SearchResult<SequenceMatcher> result : results) {
+            final String description = result.getMatchPosition() + ":" + result.getMatchingObject().toRegularExpression(false);
+            if (!descriptions.contains(description)) {
+                descriptions.add(description);
+            }
+        }
+        Collections.sort(descriptions);
+        return descriptions.toString();
+    }
+
+    /**
+     * Returns a ByteArrayReader and InputStreamReaders with small window sizes over the data.
+     */
+    public static List<WindowReader> createReaders(final byte[] data) {
+        final List<WindowReader> readers = new ArrayList<WindowReader>();
+        readers.add(new ByteArrayReader(data));
+        for (int windowSize : WINDOW_SIZES) {
+            readers.add(new InputStreamReader(new ByteArrayInputStream(data), windowSize));
+        }
+        return readers;
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.MatchBuffer;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link RecordSearcher} class.
+ *
+ * @author Matt Palmer
+ */
+public class RecordSearcherTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testMatchesDoNotCrossRecords() {
+        final RecordSearcher searcher = new RecordSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("bc")));
+        final byte[] buffer = "abcabcab".getBytes();
+        final MatchBuffer matches = new MatchBuffer();
+        final int[] counts = searcher.searchRecords(buffer, new int[] {0, 2, 6, 8}, matches);
+        assertEquals("[0, 1, 0]", Arrays.toString(counts));
+        assertEquals("[1:2:0]", describe(matches, counts));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDescendingBoundaries() {
+        final RecordSearcher searcher = new RecordSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("bc")));
+        searcher.searchRecords(new byte[10], new int[] {0, 5, 4}, new MatchBuffer());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRecordOutsideArray() {
+        final RecordSearcher searcher = new RecordSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("bc")));
+        searcher.searchRecords(new byte[][] {new byte[10]}, new int[] {5}, new int[] {6}, new MatchBuffer());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedOffsets() {
+        final RecordSearcher searcher = new RecordSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("bc")));
+        searcher.searchRecords(new byte[][] {new byte[10]}, new int[0], new int[] {6}, new MatchBuffer());
+    }
+
+    @Test
+    public void testRandomRecords() {
+        final Random random = new Random(45);
+        for (int test = 0; test < 50; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(5), 1, 4);
+            final RecordSearcher multiSearcher = new RecordSearcher(
+                    new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+            final RecordSearcher singleSearcher = new RecordSearcher(new BoyerMooreHorspoolSearcher(patterns.get(0)));
+
+            final int numberOfRecords = 1 + random.nextInt(20);
+            final byte[][] records = new byte[numberOfRecords][];
+            final int[] offsets = new int[numberOfRecords];
+            final int[] lengths = new int[numberOfRecords];
+            final int[] boundaries = new int[numberOfRecords + 1];
+            for (int record = 0; record < numberOfRecords; record++) {
+                records[record] = SearcherTestUtils.randomData(random, ALPHABET, random.nextInt(30));
+                offsets[record] = random.nextInt(records[record].length + 1);
+                lengths[record] = random.nextInt(records[record].length - offsets[record] + 1);
+                boundaries[record + 1] = boundaries[record] + records[record].length;
+            }
+            final byte[] buffer = new byte[boundaries[numberOfRecords]];
+            for (int record = 0; record < numberOfRecords; record++) {
+                System.arraycopy(records[record], 0, buffer, boundaries[record], records[record].length);
+            }
+
+            final int[] wholeOffsets = new int[numberOfRecords];
+            final int[] wholeLengths = new int[numberOfRecords];
+            for (int record = 0; record < numberOfRecords; record++) {
+                wholeLengths[record] = records[record].length;
+            }
+            final String expectedWhole = expected(patterns, records, wholeOffsets, wholeLengths);
+            final String expectedParts = expected(patterns, records, offsets, lengths);
+            final String expectedSingle = expected(patterns.subList(0, 1), records, wholeOffsets, wholeLengths);
+
+            final MatchBuffer matches = new MatchBuffer();
+            int[] counts = multiSearcher.searchRecords(records, matches);
+            assertEquals("whole records", expectedWhole, describe(matches, counts));
+            matches.clear();
+            counts = multiSearcher.searchRecords(buffer, boundaries, matches);
+            assertEquals("buffer records", expectedWhole, describe(matches, counts));
+            matches.clear();
+            counts = multiSearcher.searchRecords(records, offsets, lengths, matches);
+            assertEquals("partial records", expectedParts, describe(matches, counts));
+            matches.clear();
+            counts = singleSearcher.searchRecords(buffer, boundaries, matches);
+            assertEquals("single pattern", expectedSingle, describe(matches, counts));
+        }
+    }
+
+    private static String expected(final List<SequenceMatcher> patterns, final byte[][] records,
+                                   final int[] offsets, final int[] lengths) {
+        final List<String> matches = new ArrayList<String>();
+        for (int record = 0; record < records.length; record++) {
+            final int end = offsets[record] + lengths[record];
+            for (int position = offsets[record]; position < end; position++) {
+                for (int pattern = 0; pattern < patterns.size(); pattern++) {
+                    final SequenceMatcher sequence = patterns.get(pattern);
+                    if (position + sequence.length() <= end && sequence.matches(records[record], position)) {
+                        matches.add(describe(record, position - offsets[record], pattern));
+                    }
+                }
+            }
+        }
+        Collections.sort(matches);
+        return matches.toString();
+    }
+
+    /**
+     * Describes the matches in a buffer as a sorted list of record:position:pattern strings,
+     * using the number of matches in each record to find which record each match is in.
+     */
+    private static String describe(final MatchBuffer buffer, final int[] counts) {
+        final List<String> matches = new ArrayList<String>();
+        long index = 0;
+        for (int record = 0; record < counts.length; record++) {
+            for (int match = 0; match < counts[record]; match++, index++) {
+                matches.add(describe(record, buffer.getPosition(index), buffer.getPatternIndex(index)));
+            }
+        }
+        assertEquals("matches in buffer", buffer.size(), index);
+        Collections.sort(matches);
+        return matches.toString();
+    }
+
+    private static String describe(final int record, final long position, final int patternIndex) {
+        return String.format("%d:%d:%d", record, position, patternIndex);
+    }
+
+}
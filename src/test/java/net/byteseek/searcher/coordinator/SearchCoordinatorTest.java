@@ -0,0 +1,192 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.coordinator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.MatcherSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link SearchCoordinator} class.
+ *
+ * @author Matt Palmer
+ */
+public class SearchCoordinatorTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testFindsSameMatchesAsEachSearcher() throws IOException {
+        final Random random = new Random(49);
+        for (int test = 0; test < 100; test++) {
+            final List<SequenceMatcher> patterns = SearcherTestUtils.randomSequences(random, ALPHABET, 2 + random.nextInt(3), 1, 6);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(200));
+            final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+            searchers.add(new BoyerMooreHorspoolSearcher(patterns.get(0)));
+            searchers.add(new SundayQuickSearcher(patterns.get(1)));
+            searchers.add(new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+            final SearchCoordinator coordinator = new SearchCoordinator(searchers);
+
+            final List<List<SearchResult<?>>> expected = new ArrayList<List<SearchResult<?>>>();
+            long expectedCount = 0;
+            for (Searcher<SequenceMatcher> searcher : searchers) {
+                final List<SearchResult<?>> results = new ArrayList<SearchResult<?>>(SearchUtils.searchAllForwards(searcher, data));
+                expected.add(results);
+                expectedCount += results.size();
+            }
+
+            final List<WindowReader> readers = SearcherTestUtils.createReaders(data);
+            final int windowSize = 1 + random.nextInt(7);
+            readers.add(InputStreamReader.withLookBehind(new ByteArrayInputStream(data), windowSize,
+                                                         coordinator.getLookBehind(windowSize), true));
+            for (WindowReader reader : readers) {
+                final CollectingSink sink = new CollectingSink(searchers.size());
+                assertEquals(reader.toString(), expectedCount, coordinator.search(reader, sink));
+                for (int index = 0; index < searchers.size(); index++) {
+                    assertEquals(reader + " searcher " + index, expected.get(index).toString(),
+                                 sink.results.get(index).toString());
+                }
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSearchWithinRange() throws IOException {
+        final byte[] data = "abcabcabcabc".getBytes();
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("abc")));
+        searchers.add(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("ca")));
+        final SearchCoordinator coordinator = new SearchCoordinator(searchers);
+        assertEquals(3, coordinator.getReadAhead());
+        assertEquals(2, coordinator.getReadAhead(1));
+        assertEquals(10, coordinator.getLookBehind(4));
+
+        final CollectingSink sink = new CollectingSink(2);
+        assertEquals(4, coordinator.search(new InputStreamReader(new ByteArrayInputStream(data), 4), 2, 6, sink));
+        assertEquals(Arrays.asList(3L, 6L), positions(sink.results.get(0)));
+        assertEquals(Arrays.asList(2L, 5L), positions(sink.results.get(1)));
+    }
+
+    @Test
+    public void testLookBehindWithTinyWindows() throws IOException {
+        final Random random = new Random(4949);
+        final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 20000);
+        final List<SequenceMatcher> patterns = new ArrayList<SequenceMatcher>();
+        patterns.add(new ByteSequenceMatcher("ccc"));
+        patterns.add(new ByteSequenceMatcher("abacab"));
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new SundayQuickSearcher(new ByteSequenceMatcher("abcab")));
+        searchers.add(new SetHorspoolSearcher(new TrieMultiSequenceMatcher(patterns)));
+        searchers.add(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("bca")));
+        searchers.add(new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(patterns)));
+        final SearchCoordinator coordinator = new SearchCoordinator(searchers);
+        for (int windowSize = 1; windowSize <= 8; windowSize++) {
+            final CollectingSink expected = new CollectingSink(searchers.size());
+            final WindowReader cachedReader = new InputStreamReader(new ByteArrayInputStream(data), windowSize);
+            final long expectedCount = coordinator.search(cachedReader, expected);
+            cachedReader.close();
+
+            final CollectingSink sink = new CollectingSink(searchers.size());
+            final WindowReader reader = InputStreamReader.withLookBehind(new ByteArrayInputStream(data), windowSize,
+                                                                         coordinator.getLookBehind(windowSize), true);
+            assertEquals("Window size " + windowSize, expectedCount, coordinator.search(reader, sink));
+            assertEquals("Window size " + windowSize, expected.results.toString(), sink.results.toString());
+            reader.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownReadAhead() {
+        final Searcher<?> searcher = new MatcherSearcher(new ByteSequenceMatcher("abc"));
+        new SearchCoordinator(Collections.<Searcher<?>>singletonList(searcher));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedReadAheads() {
+        final Searcher<?> searcher = new MatcherSearcher(new ByteSequenceMatcher("abc"));
+        new SearchCoordinator(Collections.<Searcher<?>>singletonList(searcher), Arrays.asList(2L, 2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeReadAhead() {
+        final Searcher<?> searcher = new MatcherSearcher(new ByteSequenceMatcher("abc"));
+        new SearchCoordinator(Collections.<Searcher<?>>singletonList(searcher), Arrays.asList(-1L));
+    }
+
+    private static List<Long> positions(final List<SearchResult<?>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (SearchResult<?> result : results) {
+            positions.add(result.getMatchPosition());
+        }
+        return positions;
+    }
+
+    private static final class CollectingSink implements SearcherMatchSink {
+
+        private final List<List<SearchResult<?>>> results = new ArrayList<List<SearchResult<?>>>();
+
+        private CollectingSink(final int numSearchers) {
+            for (int index = 0; index < numSearchers; index++) {
+                results.add(new ArrayList<SearchResult<?>>());
+            }
+        }
+
+        @Override
+        public void addMatch(final int searcherIndex, final SearchResult<?> result) {
+            results.get(searcherIndex).add(result);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.fragment;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.FragmentChainCompiler;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.fragment.FragmentChainMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearcherTestUtils;
+
+import org.junit.Test;
+
+public class FragmentChainSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c'};
+
+    @Test
+    public void testAnchorsOnLongestFragment() throws CompileException {
+        assertEquals(1, new FragmentChainSearcher(FragmentChainCompiler.compileFrom("'PK' .{26,30} 'mimetype'")).getAnchorIndex());
+        assertEquals(0, new FragmentChainSearcher(FragmentChainCompiler.compileFrom("'abc' .{0,3} 'd' .{1,2} 'efg'")).getAnchorIndex());
+        assertEquals(2, new FragmentChainSearcher(FragmentChainCompiler.compileFrom("'a' .{0,3} 'bc' .{1,2} 'def'")).getAnchorIndex());
+    }
+
+    @Test
+    public void testFindZipSignature() throws IOException, CompileException {
+        final FragmentChainMatcher matcher = FragmentChainCompiler.compileFrom("'PK' .{26,30} 'mimetype'");
+        final FragmentChainSearcher searcher = new FragmentChainSearcher(matcher);
+        final byte[] data = new byte[200];
+        write(data, 10, "PK");
+        write(data, 60, "PK");
+        write(data, 90, "mimetype");
+        write(data, 150, "mimetype");
+        final List<SearchResult<FragmentChainMatcher>> results = searcher.searchForwards(data);
+        assertEquals(1, results.size());
+        assertEquals(60, results.get(0).getMatchPosition());
+        assertEquals(38, matcher.matchLength(data, 60));
+        assertEquals(60, searcher.searchBackwards(data).get(0).getMatchPosition());
+        assertEquals(0, searcher.searchForwards(data, 61).size());
+    }
+
+    @Test
+    public void testSearchRandomChains() throws IOException {
+        final Random random = new Random(1040);
+        for (int test = 0; test < 40; test++) {
+            final FragmentChainMatcher matcher = randomChain(random);
+            final FragmentChainSearcher searcher = new FragmentChainSearcher(matcher);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 80);
+            final List<WindowReader> readers = SearcherTestUtils.createReaders(data);
+            for (int from = -1; from <= data.length; from++) {
+                final int to = from + random.nextInt(20);
+                final String forwardExpected = describe(expectedForwards(matcher, data, from, to));
+                assertEquals(searcher + " forwards from " + from, forwardExpected,
+                             describe(searcher.searchForwards(data, from, to)));
+                final String backwardExpected = describe(expectedBackwards(matcher, data, to, from));
+                assertEquals(searcher + " backwards from " + to, backwardExpected,
+                             describe(searcher.searchBackwards(data, to, from)));
+                for (WindowReader reader : readers) {
+                    assertEquals(searcher + " forwards from " + from + " in " + reader, forwardExpected,
+                                 describe(searcher.searchForwards(reader, from, to)));
+                    assertEquals(searcher + " backwards from " + to + " in " + reader, backwardExpected,
+                                 describe(searcher.searchBackwards(reader, to, from)));
+                }
+            }
+            for (WindowReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static FragmentChainMatcher randomChain(final Random random) {
+        final int numberOfFragments = 1 + random.nextInt(4);
+        final List<SequenceMatcher> fragments =
+                SearcherTestUtils.randomSequences(random, ALPHABET, numberOfFragments, 1, 3);
+        final int[] minimumGaps = new int[numberOfFragments - 1];
+        final int[] maximumGaps = new int[numberOfFragments - 1];
+        for (int gap = 0; gap < minimumGaps.length; gap++) {
+            minimumGaps[gap] = random.nextInt(4);
+            maximumGaps[gap] = minimumGaps[gap] + random.nextInt(8);
+        }
+        return new FragmentChainMatcher(fragments, minimumGaps, maximumGaps);
+    }
+
+    private static List<Integer> expectedForwards(final FragmentChainMatcher matcher, final byte[] data,
+                                                  final int from, final int to) {
+        final List<Integer> expected = new ArrayList<Integer>();
+        for (int position = Math.max(from, 0); position <= to && position < data.length; position++) {
+            if (matcher.matches(data, position)) {
+                expected.add(position);
+                break;
+            }
+        }
+        return expected;
+    }
+
+    private static List<Integer> expectedBackwards(final FragmentChainMatcher matcher, final byte[] data,
+                                                   final int from, final int to) {
+        final List<Integer> expected = new ArrayList<Integer>();
+        for (int position = Math.min(from, data.length - 1); position >= to && position >= 0; position--) {
+            if (matcher.matches(data, position)) {
+                expected.add(position);
+                break;
+            }
+        }
+        return expected;
+    }
+
+    private static String describe(final List<?> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (Object result : results) {
+            positions.add(result instanceof SearchResult ? ((SearchResult<?>) result).getMatchPosition()
+                                                         : ((Integer) result).longValue());
+        }
+        return positions.toString();
+    }
+
+    private static void write(final byte[] data, final int position, final String text) {
+        final byte[] bytes = text.getBytes();
+        System.arraycopy(bytes, 0, data, position, bytes.length);
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberTwoByteSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link FindEachOnceSearcher} class.
+ *
+ * @author Matt Palmer
+ */
+public class FindEachOnceSearcherTest {
+
+    private static final byte[] ALPHABET = "abcd".getBytes();
+    private static final double[] REBUILD_FRACTIONS = {0.01, 0.25, 1.0};
+
+    @Test
+    public void testFindsFirstMatchOfEachSequence() throws IOException {
+        final Random random = new Random(50);
+        for (int test = 0; test < 100; test++) {
+            final List<SequenceMatcher> sequences = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(20), 1, 5);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(300));
+            final AbstractMultiSequenceSearcher searcher = new MultiSequenceMatcherSearcher(new TrieMultiSequenceMatcher(sequences));
+            final String expected = describe(firstMatches(sequences, data));
+            for (double fraction : REBUILD_FRACTIONS) {
+                final FindEachOnceSearcher findOnce = new FindEachOnceSearcher(searcher, fraction);
+                assertEquals(findOnce.toString(), expected, describe(findOnce.searchForwards(data)));
+                for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                    assertEquals(findOnce + " " + reader, expected, describe(findOnce.searchForwards(reader)));
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testShiftingSearchers() {
+        final Random random = new Random(51);
+        for (int test = 0; test < 100; test++) {
+            final List<SequenceMatcher> sequences = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(20), 2, 5);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(300));
+            final String expected = describe(firstMatches(sequences, data));
+            for (AbstractMultiSequenceSearcher searcher : shiftingSearchers(sequences)) {
+                for (double fraction : REBUILD_FRACTIONS) {
+                    final FindEachOnceSearcher findOnce = new FindEachOnceSearcher(searcher, fraction);
+                    assertEquals(findOnce.toString(), expected, describe(findOnce.searchForwards(data)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindsMatchEndingAfterAnEarlierEndingMatch() {
+        final byte[] data = "xxabcdxx".getBytes();
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("abcd"));
+        sequences.add(new ByteSequenceMatcher("bc"));
+        final String expected = describe(firstMatches(sequences, data));
+        for (AbstractMultiSequenceSearcher searcher : shiftingSearchers(sequences)) {
+            for (double fraction : REBUILD_FRACTIONS) {
+                final FindEachOnceSearcher findOnce = new FindEachOnceSearcher(searcher, fraction);
+                final List<SearchResult<SequenceMatcher>> found = findOnce.searchForwards(data);
+                assertEquals(findOnce.toString(), expected, describe(found));
+                assertEquals(findOnce.toString(), 2, found.get(0).getMatchPosition());
+                assertEquals(findOnce.toString(), 3, found.get(1).getMatchPosition());
+            }
+        }
+    }
+
+    @Test
+    public void testStopsWhenAllFound() throws IOException {
+        final byte[] data = new byte[1024 * 1024];
+        System.arraycopy("abcdef".getBytes(), 0, data, 10, 6);
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("abc"));
+        sequences.add(new ByteSequenceMatcher("def"));
+        final FindEachOnceSearcher findOnce = new FindEachOnceSearcher(
+                new SetHorspoolSearcher(new TrieMultiSequenceMatcher(sequences)));
+
+        final CountingInputStream stream = new CountingInputStream(data);
+        final WindowReader reader = new InputStreamReader(stream, 4096);
+        final List<SearchResult<SequenceMatcher>> found = findOnce.searchForwards(reader);
+        assertEquals(2, found.size());
+        assertEquals(10, found.get(0).getMatchPosition());
+        assertEquals(13, found.get(1).getMatchPosition());
+        assertTrue("Read " + stream.bytesRead, stream.bytesRead < data.length / 2);
+        reader.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSearcher() {
+        new FindEachOnceSearcher(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroRebuildFraction() {
+        final List<SequenceMatcher> sequences = Collections.<SequenceMatcher>singletonList(new ByteSequenceMatcher("abc"));
+        new FindEachOnceSearcher(new SetHorspoolSearcher(new TrieMultiSequenceMatcher(sequences)), 0.0);
+    }
+
+    private static List<AbstractMultiSequenceSearcher> shiftingSearchers(final List<SequenceMatcher> sequences) {
+        final List<AbstractMultiSequenceSearcher> searchers = new ArrayList<AbstractMultiSequenceSearcher>();
+        searchers.add(new SetHorspoolSearcher(new TrieMultiSequenceMatcher(sequences)));
+        searchers.add(new WuManberOneByteSearcher(new TrieMultiSequenceMatcher(sequences)));
+        searchers.add(new WuManberTwoByteSearcher(new TrieMultiSequenceMatcher(sequences)));
+        return searchers;
+    }
+
+    /**
+     * Returns the first match of each sequence in the data, found naively, in order of position.
+     */
+    private static List<SearchResult<SequenceMatcher>> firstMatches(final List<SequenceMatcher> sequences, final byte[] data) {
+        final List<SearchResult<SequenceMatcher>> results = new ArrayList<SearchResult<SequenceMatcher>>();
+        for (SequenceMatcher sequence : sequences) {
+            for (int position = 0; position < data.length; position++) {
+                if (sequence.matches(data, position)) {
+                    results.add(new SearchResult<SequenceMatcher>(position, sequence));
+                    break;
+                }
+            }
+        }
+        Collections.sort(results, new Comparator<SearchResult<SequenceMatcher>>() {
+            @Override
+            public int compare(final SearchResult<SequenceMatcher> first, final SearchResult<SequenceMatcher> second) {
+                return first.getMatchPosition() < second.getMatchPosition() ? -1 :
+                       first.getMatchPosition() > second.getMatchPosition() ? 1 : 0;
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Describes results as a sorted list of position:sequence strings, so the order of
+     * sequences matching at the same position does not matter.
+     */
+    private static String describe(final List<SearchResult<SequenceMatcher>> results) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (SearchResult<SequenceMatcher> result : results) {
+            descriptions.add(String.format("%05d:%s@%d", result.getMatchPosition(), result.getMatchingObject(),
+                                           System.identityHashCode(result.getMatchingObject())));
+        }
+        Collections.sort(descriptions);
+        return descriptions.toString();
+    }
+
+    /**
+     * An input stream which counts how many bytes have been read from it.
+     */
+    private static final class CountingInputStream extends InputStream {
+
+        private final InputStream data;
+        private long bytesRead;
+
+        private CountingInputStream(final byte[] data) {
+            this.data = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = data.read();
+            if (value >= 0) {
+                bytesRead++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int read = data.read(bytes, offset, length);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+
+}
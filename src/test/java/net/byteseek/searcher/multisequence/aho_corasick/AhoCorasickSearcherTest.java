@@ -0,0 +1,103 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.multisequence.aho_corasick;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.SearcherTestUtils.SearcherFactory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AhoCorasickSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private static final SearcherFactory FACTORY = new SearcherFactory() {
+        @Override
+        public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+            return new AhoCorasickSearcher(sequences);
+        }
+    };
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        SearcherTestUtils.assertSearchesRandomSequences(new Random(31), ALPHABET, 20, 12, 1, 6, true, FACTORY);
+    }
+
+    @Test
+    public void testSearchByteClassSequences() throws IOException, CompileException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(SequenceMatcherCompiler.compileFrom("'x' [ 'a' 'b' ]"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("'bc'"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("[ 'a' 'x' ] 'b' 'c' 'd'"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("'c' . 'a'"));
+        sequences.add(new ByteSequenceMatcher("d"));
+        final Random random = new Random(32);
+        final byte[] alphabet = {'a', 'b', 'c', 'd', 'x'};
+        SearcherTestUtils.assertSearchesRandomData(random, alphabet, 5, 200, sequences, true, FACTORY);
+    }
+
+    @Test
+    public void testAutomatonSize() {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("he"));
+        sequences.add(new ByteSequenceMatcher("she"));
+        sequences.add(new ByteSequenceMatcher("his"));
+        sequences.add(new ByteSequenceMatcher("hers"));
+        final AhoCorasickAutomaton automaton = AhoCorasickAutomaton.forwards(sequences);
+        assertEquals("One state per trie state for byte sequences", 10, automaton.getNumberOfStates());
+        assertEquals("Byte classes for h, e, s, i, r and everything else", 6, automaton.getNumberOfByteClasses());
+
+        int state = automaton.getInitialState();
+        for (byte value : "ushers".getBytes()) {
+            state = automaton.nextState(state, value);
+        }
+        assertTrue(automaton.isMatchingState(state));
+        assertEquals(1, automaton.getMatchingSequences(state).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSequences() {
+        AhoCorasickAutomaton.forwards(new ArrayList<SequenceMatcher>());
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.multisequence.sbom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.ByteArrayReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.automata.FactorOracle;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.SearcherTestUtils.SearcherFactory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SetBackwardOracleSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd', 'e'};
+
+    private static final SearcherFactory LIST_FACTORY = new SearcherFactory() {
+        @Override
+        public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+            return new SetBackwardOracleSearcher(new ListMultiSequenceMatcher(sequences));
+        }
+    };
+
+    private static final SearcherFactory TRIE_FACTORY = new SearcherFactory() {
+        @Override
+        public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+            return new SetBackwardOracleSearcher(new TrieMultiSequenceMatcher(sequences));
+        }
+    };
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        SearcherTestUtils.assertSearchesRandomSequences(new Random(32), ALPHABET, 20, 12, 2, 7, false,
+                                                        LIST_FACTORY, TRIE_FACTORY);
+    }
+
+    @Test
+    public void testSearchByteClassSequences() throws IOException, CompileException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(SequenceMatcherCompiler.compileFrom("'x' [ 'a' 'b' ] 'c'"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("'bcd'"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("[ 'a' 'x' ] 'b' 'c' 'd'"));
+        sequences.add(SequenceMatcherCompiler.compileFrom("'d' [ 'c' 'e' ] 'a'"));
+        final Random random = new Random(33);
+        final byte[] alphabet = {'a', 'b', 'c', 'd', 'e', 'x'};
+        SearcherTestUtils.assertSearchesRandomData(random, alphabet, 5, 200, sequences, false, LIST_FACTORY);
+    }
+
+    @Test
+    public void testReportsMatchWhichStartsFirst() {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("abcd"));
+        sequences.add(new ByteSequenceMatcher("bc"));
+        final List<SearchResult<SequenceMatcher>> results =
+                new SetBackwardOracleSearcher(new ListMultiSequenceMatcher(sequences)).searchForwards("xxabcdxx".getBytes());
+        assertEquals(1, results.size());
+        assertEquals(2, results.get(0).getMatchPosition());
+        assertSame(sequences.get(0), results.get(0).getMatchingObject());
+    }
+
+    @Test
+    public void testOracleReadsAllFactors() {
+        final String[] strings = {"abcacb", "cbacab", "bbbaaa"};
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        for (String string : strings) {
+            sequences.add(new ByteSequenceMatcher(string));
+        }
+        final FactorOracle oracle = FactorOracle.ofPrefixes(sequences, 6);
+        for (String string : strings) {
+            final byte[] bytes = string.getBytes();
+            for (int start = 0; start < bytes.length; start++) {
+                int state = oracle.getInitialState();
+                for (int position = start; position < bytes.length; position++) {
+                    state = oracle.nextState(state, bytes[position]);
+                    assertTrue("Factor from " + start + " to " + position + " of " + string,
+                               state != FactorOracle.NO_STATE);
+                }
+            }
+        }
+        assertEquals(FactorOracle.NO_STATE, oracle.nextState(oracle.getInitialState(), (byte) 'x'));
+        assertEquals("One state per trie state", 19, oracle.getNumberOfStates());
+    }
+
+    @Test
+    public void testOracleReadsWindows() throws IOException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("abcd"));
+        final FactorOracle reversed = FactorOracle.ofReversedPrefixes(sequences, 4);
+        final FactorOracle prefixes = FactorOracle.ofPrefixes(sequences, 4);
+        final byte[] bytes = "xabcdabzdab".getBytes();
+        final WindowReader reader = new ByteArrayReader(bytes);
+
+        assertEquals(0, reversed.readWindowBackwards(bytes, 1));
+        assertEquals(0, reversed.readWindowBackwards(reader, 1));
+        assertEquals(7, reversed.readWindowBackwards(bytes, 5));
+        assertEquals(7, reversed.readWindowBackwards(reader, 5));
+        assertEquals("Past the end of the reader", 11, reversed.readWindowBackwards(reader, 8));
+
+        assertEquals(5, prefixes.readWindowForwards(bytes, 1));
+        assertEquals(5, prefixes.readWindowForwards(reader, 1));
+        assertEquals(7, prefixes.readWindowForwards(bytes, 5));
+        assertEquals(7, prefixes.readWindowForwards(reader, 5));
+        assertEquals("Past the end of the reader", 11, prefixes.readWindowForwards(reader, 9));
+        reader.close();
+    }
+
+}
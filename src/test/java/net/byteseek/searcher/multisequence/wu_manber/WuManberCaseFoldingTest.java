@@ -0,0 +1,88 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.multisequence.wu_manber;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearcherTestUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WuManberCaseFoldingTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'A', 'B', 'C', '1', '@', '`'};
+
+    @Test
+    public void testFoldsOnlyWithCaseInsensitiveLetters() throws CompileException {
+        assertTrue(new WuManberTwoByteSearcher(sequences("`abc`", "'abc'")).hashesFoldedBytes());
+        assertFalse(new WuManberTwoByteSearcher(sequences("'abc'", "'ABC'")).hashesFoldedBytes());
+        assertFalse(new WuManberOneByteSearcher(sequences("`abc`", "'abc'")).hashesFoldedBytes());
+    }
+
+    @Test
+    public void testSearchCaseInsensitiveSequences() throws IOException, CompileException {
+        final MultiSequenceMatcher matcher = sequences("`ab1`", "'Abc'", "`c@a`", "'b`c'", "`bca`");
+        final WuManberTwoByteSearcher searcher = new WuManberTwoByteSearcher(matcher);
+        final Random random = new Random(39);
+        for (int test = 0; test < 10; test++) {
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 300);
+            // The two byte searcher bounds the end of a match by the search bounds,
+            // so search to the end of the data.
+            final int to = data.length;
+            for (int from = -1; from <= data.length; from++) {
+                final List<SearchResult<SequenceMatcher>> expected =
+                        SearcherTestUtils.expectedForwards(matcher.getSequenceMatchers(), data, from, to, true);
+                assertEquals("forwards from " + from, SearcherTestUtils.describe(expected),
+                             SearcherTestUtils.describe(searcher.searchForwards(data, from, to)));
+            }
+        }
+    }
+
+    private static MultiSequenceMatcher sequences(final String... expressions) throws CompileException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        for (String expression : expressions) {
+            sequences.add(SequenceMatcherCompiler.compileFrom(expression));
+        }
+        return new TrieMultiSequenceMatcher(sequences);
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.range;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link RangeSearcher} and {@link SearchRange} classes.
+ *
+ * @author Matt Palmer
+ */
+public class RangeSearcherTest {
+
+    private static final byte[] ALPHABET = "abc".getBytes();
+
+    @Test
+    public void testSearchRangePositions() {
+        final SearchRange start = SearchRange.fromStart(0, 511);
+        assertFalse(start.isFromEnd());
+        assertEquals(0, start.getFirstPosition(100));
+        assertEquals(511, start.getLastPosition(100));
+
+        final SearchRange end = SearchRange.fromEnd(1024, 1);
+        assertTrue(end.isFromEnd());
+        assertEquals(976, end.getFirstPosition(2000));
+        assertEquals(1999, end.getLastPosition(2000));
+        assertEquals(0, end.getFirstPosition(100));
+        assertEquals(99, end.getLastPosition(100));
+
+        assertEquals(SearchRange.fromEnd(1024, 1), end);
+        assertFalse(SearchRange.fromStart(1, 1024).equals(SearchRange.fromEnd(1024, 1)));
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        final long[][] invalidStarts = {{-1, 10}, {10, 9}};
+        for (long[] range : invalidStarts) {
+            try {
+                SearchRange.fromStart(range[0], range[1]);
+                fail("Expected an IllegalArgumentException for " + Arrays.toString(range));
+            } catch (IllegalArgumentException expected) {
+                // pass
+            }
+        }
+        final long[][] invalidEnds = {{10, 0}, {9, 10}};
+        for (long[] range : invalidEnds) {
+            try {
+                SearchRange.fromEnd(range[0], range[1]);
+                fail("Expected an IllegalArgumentException for " + Arrays.toString(range));
+            } catch (IllegalArgumentException expected) {
+                // pass
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedRangesAndSearchers() {
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("ab"));
+        new RangeSearcher<SequenceMatcher>(Arrays.asList(searcher, searcher), Arrays.asList(SearchRange.fromStart(0, 10)));
+    }
+
+    @Test
+    public void testStartRangesDoNotReadWholeStream() throws IOException {
+        final byte[] data = new byte[4096];
+        Arrays.fill(data, (byte) 'x');
+        System.arraycopy("PK".getBytes(), 0, data, 10, 2);
+        final CountingInputStream stream = new CountingInputStream(data);
+        final WindowReader reader = new InputStreamReader(stream, 64);
+        final RangeSearcher<SequenceMatcher> searcher = new RangeSearcher<SequenceMatcher>(
+                Arrays.asList(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("PK"))),
+                Arrays.asList(SearchRange.fromStart(0, 127)));
+        assertFalse(searcher.hasRangesFromEnd());
+        final List<SearchResult<SequenceMatcher>> results = searcher.searchAll(reader);
+        assertEquals(1, results.size());
+        assertEquals(10, results.get(0).getMatchPosition());
+        assertTrue("Bytes read: " + stream.bytesRead, stream.bytesRead < data.length);
+        reader.close();
+    }
+
+    @Test
+    public void testOverlappingRangesReadWindowsInOrder() throws IOException {
+        final byte[] data = SearcherTestUtils.randomData(new Random(142), ALPHABET, 8192);
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("abc"));
+        sequences.add(new ByteSequenceMatcher("cab"));
+        sequences.add(new ByteSequenceMatcher("bb"));
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        for (SequenceMatcher sequence : sequences) {
+            searchers.add(new BoyerMooreHorspoolSearcher(sequence));
+        }
+        final List<SearchRange> ranges = Arrays.asList(SearchRange.fromStart(0, 6000),
+                                                       SearchRange.fromStart(100, 200),
+                                                       SearchRange.fromStart(150, 8000));
+        final RangeSearcher<SequenceMatcher> searcher = new RangeSearcher<SequenceMatcher>(searchers, ranges);
+
+        // A reader which only keeps a window or two behind the furthest one read
+        // fails if an earlier window is requested again:
+        final WindowReader reader = InputStreamReader.withLookBehind(new ByteArrayInputStream(data), 64, 64, true);
+        assertOrderedResults(ranges.toString(), SearcherTestUtils.describe(expected(sequences, ranges, data)),
+                             searcher.searchAll(reader));
+        reader.close();
+    }
+
+    @Test
+    public void testRandomRanges() throws IOException {
+        final Random random = new Random(42);
+        for (int test = 0; test < 50; test++) {
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(200));
+            final List<SequenceMatcher> sequences = SearcherTestUtils.randomSequences(random, ALPHABET, 1 + random.nextInt(5), 1, 4);
+            final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+            final List<SearchRange> ranges = new ArrayList<SearchRange>();
+            for (SequenceMatcher sequence : sequences) {
+                searchers.add(new BoyerMooreHorspoolSearcher(sequence));
+                final long first = random.nextInt(250);
+                final long last  = first + random.nextInt(100);
+                ranges.add(random.nextBoolean() ? SearchRange.fromStart(first, last)
+                                                : SearchRange.fromEnd(last + 1, first + 1));
+            }
+            final RangeSearcher<SequenceMatcher> searcher = new RangeSearcher<SequenceMatcher>(searchers, ranges);
+            final String expected = SearcherTestUtils.describe(expected(sequences, ranges, data));
+            final String description = ranges + " " + new String(data);
+            assertOrderedResults(description, expected, searcher.searchAll(data));
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                assertOrderedResults(description + " in " + reader, expected, searcher.searchAll(reader));
+                reader.close();
+            }
+        }
+    }
+
+    private static void assertOrderedResults(final String description, final String expected,
+                                             final List<SearchResult<SequenceMatcher>> results) {
+        assertEquals(description, expected, SearcherTestUtils.describe(results));
+        for (int index = 1; index < results.size(); index++) {
+            assertTrue(description + " ordered", results.get(index - 1).getMatchPosition() <= results.get(index).getMatchPosition());
+        }
+    }
+
+    private static List<SearchResult<SequenceMatcher>> expected(final List<SequenceMatcher> sequences,
+                                                                final List<SearchRange> ranges, final byte[] data) {
+        final List<SearchResult<SequenceMatcher>> results = new ArrayList<SearchResult<SequenceMatcher>>();
+        for (int index = 0; index < sequences.size(); index++) {
+            final SequenceMatcher sequence = sequences.get(index);
+            final SearchRange range = ranges.get(index);
+            final long last = Math.min(range.getLastPosition(data.length), data.length - 1);
+            for (long position = range.getFirstPosition(data.length); position <= last; position++) {
+                if (sequence.matches(data, (int) position)) {
+                    results.add(new SearchResult<SequenceMatcher>(position, sequence));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static final class CountingInputStream extends ByteArrayInputStream {
+
+        private long bytesRead;
+
+        private CountingInputStream(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read() {
+            final int value = super.read();
+            if (value >= 0) {
+                bytesRead++;
+            }
+            return value;
+        }
+
+        @Override
+        public synchronized int read(final byte[] buffer, final int offset, final int length) {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.sequence.bom;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.SearcherTestUtils.SearcherFactory;
+
+import org.junit.Test;
+
+public class BackwardOracleSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private static final SearcherFactory FACTORY = new SearcherFactory() {
+        @Override
+        public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+            return new BackwardOracleSearcher(sequences.get(0));
+        }
+    };
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        SearcherTestUtils.assertSearchesRandomSequences(new Random(36), ALPHABET, 20, 1, 1, 6, false, FACTORY);
+    }
+
+    @Test
+    public void testSearchByteClassSequences() throws IOException {
+        SearcherTestUtils.assertSearchesByteClassSequences(new Random(37), 3, FACTORY);
+    }
+
+    @Test
+    public void testSearchLongSequences() throws IOException {
+        SearcherTestUtils.assertSearchesLongSequences(new Random(38), FACTORY);
+    }
+
+}
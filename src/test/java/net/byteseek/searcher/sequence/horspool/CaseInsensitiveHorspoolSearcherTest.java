@@ -0,0 +1,101 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.sequence.horspool;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.CaseInsensitiveSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearcherTestUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CaseInsensitiveHorspoolSearcherTest {
+
+    @Test
+    public void testSearchWithMaximumBounds() throws IOException {
+        final byte[] data = "xxABCxxabcx".getBytes();
+        final CaseInsensitiveHorspoolSearcher searcher = new CaseInsensitiveHorspoolSearcher("abc");
+        assertEquals(2, searcher.searchForwards(data, 0, Integer.MAX_VALUE).get(0).getMatchPosition());
+        assertEquals(7, searcher.searchForwards(data, 3, Integer.MAX_VALUE).get(0).getMatchPosition());
+        assertTrue(searcher.searchForwards(data, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+        assertEquals(2, searcher.count(data, 0, Integer.MAX_VALUE));
+        assertEquals(2, searcher.count(data, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, searcher.count(data, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(searcher.exists(data, 0, Integer.MAX_VALUE));
+        for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+            assertEquals(reader.toString(), 2, searcher.count(reader, 0, Long.MAX_VALUE));
+            assertEquals(reader.toString(), 1, searcher.count(reader, 3, Long.MAX_VALUE));
+            reader.close();
+        }
+    }
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'A', 'B', 'C', '1', '@'};
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        final Random random = new Random(39);
+        for (int test = 0; test < 20; test++) {
+            final List<SequenceMatcher> sequence =
+                    SearcherTestUtils.randomSequences(random, ALPHABET, 1, 1, 6);
+            final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher(toBytes(sequence.get(0)));
+            final List<SequenceMatcher> expected = Collections.<SequenceMatcher>singletonList(matcher);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 150);
+            SearcherTestUtils.assertSearches(new CaseInsensitiveHorspoolSearcher(matcher), expected, data, false);
+        }
+    }
+
+    @Test
+    public void testSearchText() throws IOException {
+        final byte[] data = "The quick brown FOX jumps over the lazy dog. the Fox again.".getBytes();
+        for (String string : new String[] {"the fox", "FOX", "o", "Dog."}) {
+            final CaseInsensitiveSequenceMatcher matcher = new CaseInsensitiveSequenceMatcher(string);
+            final List<SequenceMatcher> expected = Collections.<SequenceMatcher>singletonList(matcher);
+            SearcherTestUtils.assertSearches(new CaseInsensitiveHorspoolSearcher(string), expected, data, false);
+        }
+    }
+
+    private static byte[] toBytes(final SequenceMatcher sequence) {
+        final byte[] bytes = new byte[sequence.length()];
+        for (int position = 0; position < bytes.length; position++) {
+            bytes[position] = sequence.getMatcherForPosition(position).getMatchingBytes()[0];
+        }
+        return bytes;
+    }
+
+}
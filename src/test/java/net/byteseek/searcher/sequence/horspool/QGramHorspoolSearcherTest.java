@@ -0,0 +1,133 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.sequence.horspool;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.SearcherTestUtils.SearcherFactory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QGramHorspoolSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private static final SearcherFactory CHOSEN_BLOCK_SIZE = new SearcherFactory() {
+        @Override
+        public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+            return new QGramHorspoolSearcher(sequences.get(0));
+        }
+    };
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        final Random random = new Random(35);
+        for (int blockSize = 1; blockSize <= QGramHorspoolSearcher.MAX_BLOCK_SIZE; blockSize++) {
+            SearcherTestUtils.assertSearchesRandomSequences(random, ALPHABET, 8, 1, blockSize, 9, false,
+                                                            factory(blockSize));
+        }
+    }
+
+    @Test
+    public void testSearchByteClassSequences() throws IOException, CompileException {
+        final String[] expressions = {"'x' [ 'a' 'b' ] 'c' 'd'", "[ 'a' 'x' ] 'b' . 'd' 'a'",
+                                      "'d' [ 'c' 'e' ] 'a' ^[ 'b' 'c' ]", "'ab' .{3} 'c'", ". 'a' 'b' 'c'", "'a' 'b' 'c' ."};
+        final byte[] alphabet = {'a', 'b', 'c', 'd', 'e', 'x'};
+        final Random random = new Random(36);
+        for (String expression : expressions) {
+            final List<SequenceMatcher> sequence =
+                    Collections.singletonList(SequenceMatcherCompiler.compileFrom(expression));
+            SearcherTestUtils.assertSearchesRandomData(random, alphabet, 1, 200, sequence, false,
+                                                       factory(1), factory(2), factory(3), CHOSEN_BLOCK_SIZE);
+        }
+    }
+
+    @Test
+    public void testChooseBlockSize() throws CompileException {
+        assertEquals(1, QGramHorspoolSearcher.chooseBlockSize(new ByteSequenceMatcher("ab")));
+        assertEquals(2, QGramHorspoolSearcher.chooseBlockSize(new ByteSequenceMatcher("abcd")));
+        assertEquals(3, QGramHorspoolSearcher.chooseBlockSize(new ByteSequenceMatcher("abcdefgh")));
+        assertEquals(4, QGramHorspoolSearcher.chooseBlockSize(new ByteSequenceMatcher("abcdefghijklmnopqrst")));
+        assertEquals(2, QGramHorspoolSearcher.chooseBlockSize(
+                SequenceMatcherCompiler.compileFrom("'abcdefgh' .{2} 'ijklmnopqrst'")));
+        assertEquals(4, new QGramHorspoolSearcher(new ByteSequenceMatcher("abcdefghijklmnopqrst")).getBlockSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockSizeTooBig() {
+        new QGramHorspoolSearcher(new ByteSequenceMatcher("abcdef"), QGramHorspoolSearcher.MAX_BLOCK_SIZE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockSizeLongerThanSequence() {
+        new QGramHorspoolSearcher(new ByteSequenceMatcher("ab"), 3);
+    }
+
+    @Test
+    public void testSearchWithMaximumBounds() throws IOException {
+        final byte[] data = "xxabcxxabcx".getBytes();
+        final QGramHorspoolSearcher searcher = new QGramHorspoolSearcher(new ByteSequenceMatcher("abc"), 2);
+        assertEquals(2, searcher.searchForwards(data, 0, Integer.MAX_VALUE).get(0).getMatchPosition());
+        assertEquals(7, searcher.searchForwards(data, 3, Integer.MAX_VALUE).get(0).getMatchPosition());
+        assertTrue(searcher.searchForwards(data, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+        assertEquals(2, searcher.count(data, 0, Integer.MAX_VALUE));
+        assertEquals(2, searcher.count(data, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, searcher.count(data, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(searcher.exists(data, 0, Integer.MAX_VALUE));
+        for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+            assertEquals(reader.toString(), 2, searcher.count(reader, 0, Long.MAX_VALUE));
+            assertEquals(reader.toString(), 1, searcher.count(reader, 3, Long.MAX_VALUE));
+            reader.close();
+        }
+    }
+
+    private static SearcherFactory factory(final int blockSize) {
+        return new SearcherFactory() {
+            @Override
+            public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+                return new QGramHorspoolSearcher(sequences.get(0), blockSize);
+            }
+        };
+    }
+
+}
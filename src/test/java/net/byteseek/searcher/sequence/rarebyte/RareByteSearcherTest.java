@@ -0,0 +1,112 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.sequence.rarebyte;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.matcher.SequenceMatcherCompiler;
+import net.byteseek.io.reader.ByteArrayReader;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.SearcherTestUtils;
+import net.byteseek.searcher.SearcherTestUtils.SearcherFactory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RareByteSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    @Test
+    public void testSearchRandomSequences() throws IOException {
+        final ByteFrequencyModel model = ByteFrequencyModel.fromSample("aaaaaaabbbbccd".getBytes());
+        SearcherTestUtils.assertSearchesRandomSequences(new Random(36), ALPHABET, 20, 1, 1, 8, false,
+                                                        factory(model), factory(ByteFrequencyModel.BINARY));
+    }
+
+    @Test
+    public void testSearchByteClassSequences() throws IOException, CompileException {
+        final String[] expressions = {"'x' [ 'a' 'b' ] 'c'", "[ 'a' 'x' ] 'b' . 'd'", "'d' [ 'c' 'e' ] 'a' ^[ 'b' 'c' ]", ". . 'a'"};
+        final byte[] alphabet = {'a', 'b', 'c', 'd', 'e', 'x'};
+        final Random random = new Random(37);
+        for (String expression : expressions) {
+            final List<SequenceMatcher> sequence =
+                    Collections.singletonList(SequenceMatcherCompiler.compileFrom(expression));
+            SearcherTestUtils.assertSearchesRandomData(random, alphabet, 1, 200, sequence, false,
+                                                       factory(ByteFrequencyModel.TEXT));
+        }
+    }
+
+    @Test
+    public void testAnchorsOnRarestPosition() throws CompileException {
+        assertEquals(0, new RareByteSearcher(new ByteSequenceMatcher(new byte[] {0x42, 0, 0, -1})).getAnchorPosition());
+        assertEquals(4, new RareByteSearcher(new ByteSequenceMatcher("the zoo"), ByteFrequencyModel.TEXT).getAnchorPosition());
+        assertEquals(2, new RareByteSearcher(new ByteSequenceMatcher(new byte[] {0, 0, 0})).getAnchorPosition());
+        assertEquals(1, new RareByteSearcher(SequenceMatcherCompiler.compileFrom("00 'x' .")).getAnchorPosition());
+    }
+
+    @Test
+    public void testLearnedModel() throws IOException {
+        final byte[] sample = "aaaaaaaabbbbc".getBytes();
+        final ByteFrequencyModel model = ByteFrequencyModel.fromSample(sample);
+        assertTrue(model.getProbability((byte) 'a') > model.getProbability((byte) 'b'));
+        assertTrue(model.getProbability((byte) 'b') > model.getProbability((byte) 'c'));
+        assertTrue(model.getProbability((byte) 'z') > 0.0);
+        assertEquals(2, new RareByteSearcher(new ByteSequenceMatcher("abc"), model).getAnchorPosition());
+
+        final ByteFrequencyModel readerModel = ByteFrequencyModel.fromSample(new ByteArrayReader(sample), 0, 1000);
+        for (int value = 0; value < 256; value++) {
+            assertEquals(model.getProbability((byte) value), readerModel.getProbability((byte) value), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongNumberOfCounts() {
+        new ByteFrequencyModel(new long[255]);
+    }
+
+    private static SearcherFactory factory(final ByteFrequencyModel model) {
+        return new SearcherFactory() {
+            @Override
+            public Searcher<SequenceMatcher> create(final List<SequenceMatcher> sequences) {
+                return new RareByteSearcher(sequences.get(0), model);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher.signature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.byteseek.compiler.CompileException;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.Matcher;
+import net.byteseek.matcher.automata.NfaMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.SearcherTestUtils;
+
+import org.junit.Test;
+
+public class SignatureSetSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private static final String[] AUTOMATA_TEMPLATES = {"(%s|%s)", "%s 'a'+ %s", "%s ('b' | 'cd')* %s", "%s %s?"};
+
+    @Test
+    public void testPartitionsSignatures() throws CompileException {
+        final Map<Integer, String> signatures = new HashMap<Integer, String>();
+        signatures.put(1, "'PK' 03 04");
+        signatures.put(2, "'PK' .{26,30} 'mimetype'");
+        signatures.put(3, "'GIF8' ('7a' | '9a')");
+        signatures.put(4, "[01 02] 'abc'");
+        signatures.put(5, "'a' 'b'+ 'c'");
+        signatures.put(6, "`pdf`");
+        final SignatureSetSearcher searcher = SignatureSetSearcher.compileFrom(signatures);
+        assertEquals("literals", 1, searcher.getNumberOfLiterals());
+        assertEquals("chains", 3, searcher.getNumberOfFragmentChains());
+        assertEquals("automata", 2, searcher.getNumberOfAutomata());
+    }
+
+    @Test
+    public void testFindsSignaturesInOnePass() throws CompileException {
+        final Map<Integer, String> signatures = new HashMap<Integer, String>();
+        signatures.put(10, "'PK' 03 04");
+        signatures.put(11, "'PK' .{2,4} 'mimetype'");
+        signatures.put(12, "'GIF8' ('7a' | '9a')");
+        signatures.put(13, "'PK'");
+        final SignatureSetSearcher searcher = SignatureSetSearcher.compileFrom(signatures);
+        final byte[] data = "xxPK\u0003\u0004mimetype GIF89a PKPK".getBytes();
+        assertEquals("{2=[10, 11, 13], 15=[12], 22=[13], 24=[13]}",
+                     group(SearchUtils.searchAllForwards(searcher, data)).toString());
+        assertEquals("{2=[10, 11, 13], 15=[12], 22=[13], 24=[13]}",
+                     group(SearchUtils.searchAllBackwards(searcher, data)).toString());
+    }
+
+    @Test
+    public void testFindsAnchorsAndAutomataInTheSameScan() throws IOException, CompileException {
+        final Map<Integer, String> signatures = new HashMap<Integer, String>();
+        signatures.put(20, "'a' 'b'+ 'c'");
+        signatures.put(21, "'bbc'");
+        signatures.put(22, "'cd' .{1,3} 'x'");
+        final SignatureSetSearcher searcher = SignatureSetSearcher.compileFrom(signatures);
+        final byte[] data = "xabbbcdxxabcbbc".getBytes();
+        assertEquals("[20]", ids(searcher.searchForwards(data)));
+        assertEquals("[21]", ids(searcher.searchForwards(data, 2)));
+        assertEquals("[22]", ids(searcher.searchForwards(data, 4)));
+        assertEquals("[20]", ids(searcher.searchForwards(data, 6)));
+        assertEquals("[21]", ids(searcher.searchForwards(data, 10)));
+        for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+            assertEquals(reader.toString(), "[20]", ids(searcher.searchForwards(reader)));
+            assertEquals(reader.toString(), "[21]", ids(searcher.searchForwards(reader, 2)));
+            assertEquals(reader.toString(), "{1=[20], 3=[21], 5=[22], 9=[20], 12=[21]}",
+                         group(SearchUtils.searchAllForwards(searcher, reader)).toString());
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRejectsEmptyMatches() {
+        final Map<Integer, String> signatures = new HashMap<Integer, String>();
+        signatures.put(1, "'a'*");
+        try {
+            SignatureSetSearcher.compileFrom(signatures);
+            fail("Expected a CompileException for a signature which can match no bytes.");
+        } catch (CompileException expected) {
+            // pass
+        }
+    }
+
+    @Test
+    public void testRandomSignatureSets() throws IOException, CompileException {
+        final Random random = new Random(41);
+        for (int test = 0; test < 30; test++) {
+            final Map<Integer, String> signatures = new HashMap<Integer, String>();
+            final Map<Integer, Matcher> matchers = new HashMap<Integer, Matcher>();
+            final int numberOfSignatures = 1 + random.nextInt(12);
+            for (int id = 0; id < numberOfSignatures; id++) {
+                final String expression = randomExpression(random);
+                signatures.put(id, expression);
+                matchers.put(id, new NfaMatcher<Integer>(new RegexCompiler<Integer>().compile(expression, id)));
+            }
+            final SignatureSetSearcher searcher = SignatureSetSearcher.compileFrom(signatures);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 100);
+            final String expected = expectedMatches(matchers, data).toString();
+            final String description = signatures + " " + new String(data);
+            assertEquals(description, expected, group(SearchUtils.searchAllForwards(searcher, data)).toString());
+            assertEquals(description, expected, group(SearchUtils.searchAllBackwards(searcher, data)).toString());
+            for (WindowReader reader : SearcherTestUtils.createReaders(data)) {
+                assertEquals(description + " in " + reader, expected,
+                             group(SearchUtils.searchAllForwards(searcher, reader)).toString());
+                assertEquals(description + " in " + reader, expected,
+                             group(SearchUtils.searchAllBackwards(searcher, reader)).toString());
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testUnboundedSignaturesInLongData() throws IOException, CompileException {
+        final Random random = new Random(4141);
+        for (int test = 0; test < 3; test++) {
+            final Map<Integer, String> signatures = new HashMap<Integer, String>();
+            final Map<Integer, Matcher> matchers = new HashMap<Integer, Matcher>();
+            for (int id = 0; id < 4; id++) {
+                final String expression = id == 0 ? randomLiteral(random) + " .* " + randomLiteral(random) + randomLiteral(random)
+                                                  : randomExpression(random);
+                signatures.put(id, expression);
+                matchers.put(id, new NfaMatcher<Integer>(new RegexCompiler<Integer>().compile(expression, id)));
+            }
+            final SignatureSetSearcher searcher = SignatureSetSearcher.compileFrom(signatures);
+            final byte[] data = SearcherTestUtils.randomData(random, ALPHABET, 9000);
+            final String expected = expectedMatches(matchers, data).toString();
+            assertEquals(signatures.toString(), expected, group(SearchUtils.searchAllForwards(searcher, data)).toString());
+            assertEquals(signatures.toString(), expected, group(SearchUtils.searchAllBackwards(searcher, data)).toString());
+            final WindowReader reader = SearcherTestUtils.createReaders(data).get(0);
+            assertEquals(signatures + " in " + reader, expected,
+                         group(SearchUtils.searchAllForwards(searcher, reader)).toString());
+            assertEquals(signatures + " in " + reader, expected,
+                         group(SearchUtils.searchAllBackwards(searcher, reader)).toString());
+            reader.close();
+        }
+    }
+
+    private static String randomExpression(final Random random) {
+        switch (random.nextInt(3)) {
+            case 0:  return randomLiteral(random);
+            case 1:  return randomLiteral(random) + " .{" + (1 + random.nextInt(2)) + ',' + (2 + random.nextInt(4)) + "} " +
+                            "['a' 'b'] " + randomLiteral(random);
+            default: return String.format(AUTOMATA_TEMPLATES[random.nextInt(AUTOMATA_TEMPLATES.length)],
+                                          randomLiteral(random), randomLiteral(random));
+        }
+    }
+
+    private static String randomLiteral(final Random random) {
+        return "'" + new String(SearcherTestUtils.randomData(random, ALPHABET, 1 + random.nextInt(3))) + "'";
+    }
+
+    private static Map<Long, TreeSet<Integer>> expectedMatches(final Map<Integer, Matcher> matchers, final byte[] data) {
+        final Map<Long, TreeSet<Integer>> expected = new TreeMap<Long, TreeSet<Integer>>();
+        for (int position = 0; position < data.length; position++) {
+            for (final Map.Entry<Integer, Matcher> matcher : matchers.entrySet()) {
+                if (!((NfaMatcher<?>) matcher.getValue()).allMatches(data, position).isEmpty()) {
+                    add(expected, position, matcher.getKey());
+                }
+            }
+        }
+        return expected;
+    }
+
+    private static String ids(final List<SearchResult<Integer>> results) {
+        final TreeSet<Integer> ids = new TreeSet<Integer>();
+        for (final SearchResult<Integer> result : results) {
+            ids.add(result.getMatchingObject());
+        }
+        return ids.toString();
+    }
+
+    private static Map<Long, TreeSet<Integer>> group(final List<SearchResult<Integer>> results) {
+        final Map<Long, TreeSet<Integer>> grouped = new TreeMap<Long, TreeSet<Integer>>();
+        for (final SearchResult<Integer> result : results) {
+            add(grouped, result.getMatchPosition(), result.getMatchingObject());
+        }
+        return grouped;
+    }
+
+    private static void add(final Map<Long, TreeSet<Integer>> grouped, final long position, final Integer id) {
+        TreeSet<Integer> ids = grouped.get(position);
+        if (ids == null) {
+            ids = new TreeSet<Integer>();
+            grouped.put(position, ids);
+        }
+        ids.add(id);
+    }
+
+}